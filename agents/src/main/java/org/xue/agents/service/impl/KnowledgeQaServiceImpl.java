@@ -61,14 +61,9 @@ public class KnowledgeQaServiceImpl implements KnowledgeQaService {
     // 异步执行器
     private final Executor asyncExecutor = Executors.newFixedThreadPool(5);
     
-    // 知识库问答的提示词模板
-    private static final String KNOWLEDGE_QA_PROMPT = """
-            你是一个专业的知识库助手。请基于以下相关文档内容回答用户的问题。
-            
-            相关文档内容：
-            {context}
-            
-            用户问题：{question}
+    // 知识库问答的系统提示词：静态规则放在最前面，作为跨请求共享的稳定前缀，可命中模型服务端的前缀缓存
+    private static final String KNOWLEDGE_QA_SYSTEM_PROMPT = """
+            你是一个专业的知识库助手。请基于用户消息中提供的相关文档内容回答用户的问题。
             
             请注意：
             1. 基于提供的文档内容进行回答，确保准确性
@@ -76,6 +71,14 @@ public class KnowledgeQaServiceImpl implements KnowledgeQaService {
             3. 如果检索文档中有类似的编号或者数字，则结合文档上下文就行总结概括
             4. 回答要简洁明了，重点突出
             5. 如果涉及多个文档，请综合所有相关信息
+            """;
+
+    // 知识库问答的用户提示词模板：每次请求都变化的检索内容和问题放在最后
+    private static final String KNOWLEDGE_QA_USER_PROMPT = """
+            相关文档内容：
+            {context}
+            
+            用户问题：{question}
             
             请基于以上规则给出准确的回答：
             """;
@@ -175,17 +178,17 @@ public class KnowledgeQaServiceImpl implements KnowledgeQaService {
                 log.info("构建上下文完成: 上下文长度={}", context.length());
                 log.debug("上下文内容: {}", context.substring(0, Math.min(context.length(), 500)) + "...");
                 
-                String prompt = KNOWLEDGE_QA_PROMPT
-                        .replace("{context}", context)
-                        .replace("{question}", request.getQuestion());
+                String userPrompt = buildUserPrompt(context, request.getQuestion());
                 
-                log.debug("完整提示词: {}", prompt.substring(0, Math.min(prompt.length(), 800)) + "...");
+                log.debug("用户提示词: {}", userPrompt.substring(0, Math.min(userPrompt.length(), 800)) + "...");
                 
                 // 4. 创建流式ChatClient
                 StringBuilder fullAnswer = new StringBuilder();
                 
                 ChatClient.create(chatModel)
-                        .prompt(prompt)
+                        .prompt()
+                        .system(KNOWLEDGE_QA_SYSTEM_PROMPT)
+                        .user(userPrompt)
                         .stream()
                         .content()
                         .doOnNext(chunk -> {
@@ -863,16 +866,24 @@ public class KnowledgeQaServiceImpl implements KnowledgeQaService {
     }
     
     private String generateAnswer(String context, String question) {
-        String prompt = KNOWLEDGE_QA_PROMPT
-                .replace("{context}", context)
-                .replace("{question}", question);
-        
         return ChatClient.create(chatModel)
-                .prompt(prompt)
+                .prompt()
+                .system(KNOWLEDGE_QA_SYSTEM_PROMPT)
+                .user(buildUserPrompt(context, question))
                 .call()
                 .content();
     }
     
+    /**
+     * 构建用户提示词
+     * 用字面量替换而非模板渲染，避免文档内容中的花括号被当作占位符
+     */
+    private String buildUserPrompt(String context, String question) {
+        return KNOWLEDGE_QA_USER_PROMPT
+                .replace("{context}", context)
+                .replace("{question}", question);
+    }
+    
     private List<KnowledgeQaResponse.SourceDocument> buildSourceDocuments(List<Document> documents) {
         return documents.stream()
                 .map(doc -> {
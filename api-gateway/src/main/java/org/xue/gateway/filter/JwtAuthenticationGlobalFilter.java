@@ -11,6 +11,7 @@ import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.xue.gateway.service.JwtService;
+import org.xue.gateway.service.VerifiedClaims;
 import reactor.core.publisher.Mono;
 
 import java.util.Arrays;
@@ -48,105 +49,66 @@ public class JwtAuthenticationGlobalFilter implements GlobalFilter, Ordered {
         ServerHttpRequest request = exchange.getRequest();
         String path = request.getURI().getPath();
         
-        System.out.println("处理请求路径: " + path);
+        log.debug("处理请求路径: {}", path);
         
         // 检查是否为白名单路径
         if (isWhitelistPath(path)) {
-            System.out.println("白名单路径，跳过认证: " + path);
+            log.debug("白名单路径，跳过认证: {}", path);
             return chain.filter(exchange);
         }
         
+        // 获取Authorization头，每个请求只解析和验签一次
+        String authHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        VerifiedClaims claims = null;
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            claims = jwtService.verify(authHeader.substring(7));
+        }
+        
         // 对流式问答端点进行特殊处理
         if ("/api/knowledge-qa/ask-stream".equals(path)) {
-            System.out.println("流式问答端点，进行特殊认证处理: " + path);
-            
-            // 获取Authorization头
-            String authHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
-            
-            if (authHeader != null && authHeader.startsWith("Bearer ")) {
-                String token = authHeader.substring(7);
-                try {
-                    // 验证token
-                    if (jwtService.validateToken(token)) {
-                        String username = jwtService.getUsernameFromToken(token);
-                        String userId = jwtService.getUserIdFromToken(token);
-                        
-                        System.out.println("流式端点Token验证成功，用户: " + username + ", ID: " + userId);
-                        
-                        // 将用户信息添加到请求头中，传递给下游服务
-                        ServerHttpRequest mutatedRequest = request.mutate()
-                            .header("X-User-Name", username)
-                            .header("X-User-Id", userId)
-                            .header("X-Token-Valid", "true")
-                            .build();
-                        
-                        return chain.filter(exchange.mutate().request(mutatedRequest).build());
-                    }
-                } catch (Exception e) {
-                    System.err.println("流式端点Token处理异常: " + e.getMessage());
-                }
+            if (claims != null) {
+                log.debug("流式端点Token验证成功，用户: {}, ID: {}", claims.getUsername(), claims.getUserId());
+                return chain.filter(withUserHeaders(exchange, claims.getUsername(), claims.getUserId(), true));
             }
             
             // Token无效时，使用默认用户信息（临时方案）
-            System.out.println("流式端点使用默认用户信息");
-            ServerHttpRequest mutatedRequest = request.mutate()
-                .header("X-User-Name", "anonymous")
-                .header("X-User-Id", "1") // 使用默认用户ID
-                .header("X-Token-Valid", "false")
-                .build();
-            
-            return chain.filter(exchange.mutate().request(mutatedRequest).build());
+            log.debug("流式端点使用默认用户信息");
+            return chain.filter(withUserHeaders(exchange, "anonymous", "1", false));
         }
         
-        // 获取Authorization头
-        String authHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
-        
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            System.out.println("请求缺少有效的Authorization头: " + path);
+            log.debug("请求缺少有效的Authorization头: {}", path);
             return onError(exchange, "Missing or invalid Authorization header", HttpStatus.UNAUTHORIZED);
         }
-
-        String token = authHeader.substring(7);
         
-        try {
-            // 验证token
-            if (!jwtService.validateToken(token)) {
-                System.out.println("Token验证失败: " + path);
-                return onError(exchange, "Invalid token", HttpStatus.UNAUTHORIZED);
-            }
-            
-            // 提取用户信息
-            String username = jwtService.getUsernameFromToken(token);
-            String userId = jwtService.getUserIdFromToken(token);
-            
-            System.out.println("=== JWT解析结果 ===");
-            System.out.println("Token验证成功，用户名: " + username);
-            System.out.println("从JWT提取的用户ID: " + userId);
-            System.out.println("用户ID是否为null: " + (userId == null));
-            
-            if (userId == null || userId.trim().isEmpty()) {
-                System.err.println("错误：JWT中没有有效的userId字段！");
-                System.err.println("这会导致用户数据隔离失效，拒绝请求");
-                System.err.println("用户名: " + username);
-                return onError(exchange, "Invalid token: missing user ID", HttpStatus.UNAUTHORIZED);
-            }
-            
-            System.out.println("用户数据库ID: " + userId);
-            System.out.println("==================");
-            
-            // 将用户信息添加到请求头中，传递给下游服务
-            ServerHttpRequest mutatedRequest = request.mutate()
-                .header("X-User-Name", username)
-                .header("X-User-Id", userId)
-                .header("X-Token-Valid", "true")
-                .build();
-            
-            return chain.filter(exchange.mutate().request(mutatedRequest).build());
-            
-        } catch (Exception e) {
-            System.err.println("Token处理异常: " + e.getMessage());
-            return onError(exchange, "Token processing error", HttpStatus.UNAUTHORIZED);
+        if (claims == null) {
+            log.debug("Token验证失败: {}", path);
+            return onError(exchange, "Invalid token", HttpStatus.UNAUTHORIZED);
+        }
+        
+        String userId = claims.getUserId();
+        if (userId == null || userId.trim().isEmpty()) {
+            // 没有userId会导致用户数据隔离失效，拒绝请求
+            log.warn("JWT中没有有效的userId字段，拒绝请求，用户名: {}", claims.getUsername());
+            return onError(exchange, "Invalid token: missing user ID", HttpStatus.UNAUTHORIZED);
         }
+        
+        log.debug("Token验证成功，用户名: {}, 用户ID: {}", claims.getUsername(), userId);
+        
+        // 将用户信息添加到请求头中，传递给下游服务
+        return chain.filter(withUserHeaders(exchange, claims.getUsername(), userId, true));
+    }
+    
+    /**
+     * 将用户信息添加到请求头中，传递给下游服务
+     */
+    private ServerWebExchange withUserHeaders(ServerWebExchange exchange, String username, String userId, boolean tokenValid) {
+        ServerHttpRequest mutatedRequest = exchange.getRequest().mutate()
+            .header("X-User-Name", username)
+            .header("X-User-Id", userId)
+            .header("X-Token-Valid", String.valueOf(tokenValid))
+            .build();
+        return exchange.mutate().request(mutatedRequest).build();
     }
     
     /**
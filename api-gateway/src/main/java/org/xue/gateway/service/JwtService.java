@@ -2,6 +2,7 @@ package org.xue.gateway.service;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -24,6 +25,24 @@ public class JwtService {
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    private final VerifiedClaimsCache claimsCache;
+
+    /**
+     * 签名密钥和解析器只构建一次，JwtParser线程安全
+     */
+    private JwtParser jwtParser;
+
+    public JwtService(VerifiedClaimsCache claimsCache) {
+        this.claimsCache = claimsCache;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(getSigningKey())
+                .build();
+    }
+
     /**
      * 获取签名密钥
      */
@@ -32,6 +51,39 @@ public class JwtService {
         return Keys.hmacShaKeyFor(keyBytes);
     }
 
+    /**
+     * 验证token并提取声明，每个token只解析和验签一次
+     * 验签结果按token摘要缓存到exp为止，同一token的后续请求直接命中缓存
+     *
+     * @param token JWT
+     * @return 验证通过的声明，token无效或已过期时返回null
+     */
+    public VerifiedClaims verify(String token) {
+        String key = claimsCache.digest(token);
+        VerifiedClaims cached = claimsCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        VerifiedClaims verified;
+        try {
+            Claims claims = extractAllClaims(token);
+            Date exp = claims.getExpiration();
+            if (exp == null || exp.before(new Date())) {
+                log.debug("JWT token已过期或缺少exp");
+                return null;
+            }
+            // userId声明类型不符时抛出RequiredTypeException，同样视为无效token
+            verified = new VerifiedClaims(claims.getSubject(), claims.get("userId", String.class), exp.getTime());
+        } catch (Exception e) {
+            log.debug("JWT token无效: {}", e.getMessage());
+            return null;
+        }
+
+        claimsCache.put(key, verified);
+        return verified;
+    }
+
     /**
      * 从token中提取用户名
      */
@@ -66,75 +118,45 @@ public class JwtService {
      */
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return jwtParser.parseClaimsJws(token).getBody();
         } catch (ExpiredJwtException e) {
-            System.out.println("JWT token已过期: " + e.getMessage());
+            log.debug("JWT token已过期: {}", e.getMessage());
             throw e;
         } catch (UnsupportedJwtException e) {
-            System.out.println("不支持的JWT token: " + e.getMessage());
+            log.debug("不支持的JWT token: {}", e.getMessage());
             throw e;
         } catch (MalformedJwtException e) {
-            System.out.println("JWT token格式错误: " + e.getMessage());
+            log.debug("JWT token格式错误: {}", e.getMessage());
             throw e;
         } catch (SecurityException e) {
-            System.out.println("JWT token签名验证失败: " + e.getMessage());
+            log.debug("JWT token签名验证失败: {}", e.getMessage());
             throw e;
         } catch (IllegalArgumentException e) {
-            System.out.println("JWT token参数为空: " + e.getMessage());
+            log.debug("JWT token参数为空: {}", e.getMessage());
             throw e;
         }
     }
 
-    /**
-     * 检查token是否过期
-     */
-    private Boolean isTokenExpired(String token) {
-        try {
-            Date expirationDate = extractExpiration(token);
-            return expirationDate.before(new Date());
-        } catch (ExpiredJwtException e) {
-            return true;
-        }
-    }
-
     /**
      * 验证token有效性
      */
     public Boolean validateToken(String token) {
-        try {
-            extractAllClaims(token);
-            return !isTokenExpired(token);
-        } catch (Exception e) {
-            System.out.println("Token验证失败: " + e.getMessage());
-            return false;
-        }
+        return verify(token) != null;
     }
 
     /**
      * 从token中获取用户信息
      */
     public String getUsernameFromToken(String token) {
-        try {
-            return extractUsername(token);
-        } catch (Exception e) {
-            System.out.println("从token提取用户名失败: " + e.getMessage());
-            return null;
-        }
+        VerifiedClaims claims = verify(token);
+        return claims != null ? claims.getUsername() : null;
     }
 
     /**
      * 从token中获取用户ID
      */
     public String getUserIdFromToken(String token) {
-        try {
-            return extractUserId(token);
-        } catch (Exception e) {
-            System.out.println("从token提取用户ID失败: " + e.getMessage());
-            return null;
-        }
+        VerifiedClaims claims = verify(token);
+        return claims != null ? claims.getUserId() : null;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+package org.xue.gateway.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 验签通过的JWT声明
+ * 只保留网关需要向下游传递的字段
+ */
+@Getter
+@AllArgsConstructor
+public class VerifiedClaims {
+
+    /**
+     * 用户名（sub）
+     */
+    private final String username;
+
+    /**
+     * 用户ID
+     */
+    private final String userId;
+
+    /**
+     * 过期时间（毫秒时间戳，exp）
+     */
+    private final long expiresAtMillis;
+
+    /**
+     * 是否已过期
+     */
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+}
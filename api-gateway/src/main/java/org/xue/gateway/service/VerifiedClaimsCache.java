@@ -0,0 +1,95 @@
+package org.xue.gateway.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 已验签JWT声明缓存
+ * 以token的SHA-256摘要为key（不在内存中保留原始token），条目在token的exp到期时失效，
+ * 容量有上限，满时先清理过期条目再淘汰任意条目
+ */
+@Slf4j
+@Component
+public class VerifiedClaimsCache {
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final Map<String, VerifiedClaims> cache = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    public VerifiedClaimsCache(@Value("${jwt.claims-cache.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 计算token摘要
+     */
+    public String digest(String token) {
+        MessageDigest digest = SHA256.get();
+        digest.reset();
+        return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * 获取未过期的缓存声明
+     *
+     * @param key token摘要
+     * @return 缓存的声明，不存在或已过期时返回null
+     */
+    public VerifiedClaims get(String key) {
+        VerifiedClaims claims = cache.get(key);
+        if (claims == null) {
+            return null;
+        }
+        if (claims.isExpired(System.currentTimeMillis())) {
+            cache.remove(key, claims);
+            return null;
+        }
+        return claims;
+    }
+
+    /**
+     * 缓存验签通过的声明
+     */
+    public void put(String key, VerifiedClaims claims) {
+        if (maxSize <= 0) {
+            return;
+        }
+        if (cache.size() >= maxSize) {
+            evict();
+        }
+        cache.put(key, claims);
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(claims -> claims.isExpired(now));
+        // 仍然超过上限时淘汰部分条目，被淘汰的token下次请求重新验签即可
+        Iterator<String> iterator = cache.keySet().iterator();
+        while (cache.size() >= maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        log.debug("JWT声明缓存清理完成，当前条目数: {}", cache.size());
+    }
+}
@@ -0,0 +1,97 @@
+package org.xue.gateway.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import org.xue.gateway.service.JwtService;
+import org.xue.gateway.service.VerifiedClaims;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * JwtAuthenticationGlobalFilter单元测试
+ */
+class JwtAuthenticationGlobalFilterTest {
+
+    private final JwtService jwtService = mock(JwtService.class);
+    private final JwtAuthenticationGlobalFilter filter = new JwtAuthenticationGlobalFilter(jwtService);
+    private final AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+    private final GatewayFilterChain chain = exchange -> {
+        forwarded.set(exchange);
+        return Mono.empty();
+    };
+
+    @Test
+    void testTokenIsVerifiedOncePerRequest() {
+        when(jwtService.verify("good")).thenReturn(new VerifiedClaims("alice", "42", Long.MAX_VALUE));
+
+        filter.filter(exchange("/api/chat", "Bearer good"), chain).block();
+
+        verify(jwtService, times(1)).verify("good");
+        verifyNoMoreInteractions(jwtService);
+        HttpHeaders headers = forwarded.get().getRequest().getHeaders();
+        assertEquals("alice", headers.getFirst("X-User-Name"));
+        assertEquals("42", headers.getFirst("X-User-Id"));
+        assertEquals("true", headers.getFirst("X-Token-Valid"));
+    }
+
+    @Test
+    void testStreamEndpointVerifiesOnce() {
+        when(jwtService.verify("good")).thenReturn(new VerifiedClaims("alice", "42", Long.MAX_VALUE));
+
+        filter.filter(exchange("/api/knowledge-qa/ask-stream", "Bearer good"), chain).block();
+
+        verify(jwtService, times(1)).verify("good");
+        verifyNoMoreInteractions(jwtService);
+        assertEquals("42", forwarded.get().getRequest().getHeaders().getFirst("X-User-Id"));
+    }
+
+    @Test
+    void testInvalidTokenIsRejected() {
+        MockServerWebExchange exchange = exchange("/api/chat", "Bearer bad");
+
+        filter.filter(exchange, chain).block();
+
+        verify(jwtService, times(1)).verify("bad");
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertNull(forwarded.get());
+    }
+
+    @Test
+    void testMissingUserIdIsRejected() {
+        when(jwtService.verify("no-user")).thenReturn(new VerifiedClaims("alice", null, Long.MAX_VALUE));
+        MockServerWebExchange exchange = exchange("/api/chat", "Bearer no-user");
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertNull(forwarded.get());
+    }
+
+    @Test
+    void testWhitelistPathSkipsVerification() {
+        filter.filter(exchange("/api/auth/login", "Bearer good"), chain).block();
+
+        verify(jwtService, never()).verify(anyString());
+        assertNotNull(forwarded.get());
+    }
+
+    private static MockServerWebExchange exchange(String path, String authorization) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path)
+                .header(HttpHeaders.AUTHORIZATION, authorization));
+    }
+}
@@ -0,0 +1,136 @@
+package org.xue.gateway.service;
+
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * JwtService验签与声明缓存单元测试
+ */
+class JwtServiceTest {
+
+    private static final String SECRET = "flowvo-gateway-test-secret-0123456789abcdef";
+
+    private VerifiedClaimsCache claimsCache;
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        claimsCache = spy(new VerifiedClaimsCache(100));
+        jwtService = new JwtService(claimsCache);
+        ReflectionTestUtils.setField(jwtService, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtService, "expiration", 3_600_000L);
+        jwtService.init();
+    }
+
+    @Test
+    void testValidTokenIsVerifiedOnceAndServedFromCache() {
+        String token = token(SECRET, "alice", "42", 60_000).compact();
+
+        VerifiedClaims first = jwtService.verify(token);
+        VerifiedClaims second = jwtService.verify(token);
+
+        assertNotNull(first);
+        assertEquals("alice", first.getUsername());
+        assertEquals("42", first.getUserId());
+        // 第二次直接命中缓存，返回同一份声明，不再写入缓存
+        assertSame(first, second);
+        verify(claimsCache, times(1)).put(anyString(), any());
+        assertEquals(1, claimsCache.size());
+    }
+
+    @Test
+    void testCachedClaimsExpireAtTokenExp() {
+        String token = token(SECRET, "alice", "42", 60_000).compact();
+
+        long exp = System.currentTimeMillis() + 60_000;
+
+        VerifiedClaims claims = jwtService.verify(token);
+
+        // exp只精确到秒，缓存条目按exp失效
+        assertTrue(Math.abs(exp - claims.getExpiresAtMillis()) <= 1_000, "缓存条目的过期时间应等于token的exp");
+        assertSame(claims, claimsCache.get(claimsCache.digest(token)));
+        assertFalse(claims.isExpired(exp - 2_000));
+        assertTrue(claims.isExpired(claims.getExpiresAtMillis()));
+    }
+
+    @Test
+    void testBadSignatureIsRejectedAndNotCached() {
+        String forged = token("another-secret-that-is-also-long-enough-123456", "alice", "42", 60_000).compact();
+
+        assertNull(jwtService.verify(forged));
+        assertNull(jwtService.verify(forged));
+        verify(claimsCache, never()).put(anyString(), any());
+        assertEquals(0, claimsCache.size());
+    }
+
+    @Test
+    void testTamperedSignatureOfCachedTokenIsRejected() {
+        String token = token(SECRET, "alice", "42", 60_000).compact();
+        assertNotNull(jwtService.verify(token));
+
+        // 篡改签名后摘要不同，不会命中原token的缓存
+        int index = token.length() - 10;
+        char original = token.charAt(index);
+        String tampered = token.substring(0, index) + (original == 'A' ? 'B' : 'A') + token.substring(index + 1);
+
+        assertNull(jwtService.verify(tampered));
+        assertEquals(1, claimsCache.size());
+    }
+
+    @Test
+    void testExpiredTokenIsRejectedAndNotCached() {
+        String expired = token(SECRET, "alice", "42", -1_000).compact();
+
+        assertNull(jwtService.verify(expired));
+        assertFalse(jwtService.validateToken(expired));
+        verify(claimsCache, never()).put(anyString(), any());
+    }
+
+    @Test
+    void testTokenWithoutExpIsRejected() {
+        String token = Jwts.builder()
+                .setSubject("alice")
+                .claim("userId", "42")
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+
+        assertNull(jwtService.verify(token));
+        assertEquals(0, claimsCache.size());
+    }
+
+    @Test
+    void testNonStringUserIdIsRejected() {
+        String token = token(SECRET, "alice", null, 60_000).claim("userId", 42).compact();
+
+        assertNull(jwtService.verify(token));
+        assertNull(jwtService.getUserIdFromToken(token));
+        verify(claimsCache, never()).put(anyString(), any());
+    }
+
+    private static JwtBuilder token(String secret, String subject, String userId, long ttlMillis) {
+        JwtBuilder builder = Jwts.builder()
+                .setSubject(subject)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + ttlMillis))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)));
+        if (userId != null) {
+            builder.claim("userId", userId);
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,69 @@
+package org.xue.gateway.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * VerifiedClaimsCache过期与容量单元测试
+ */
+class VerifiedClaimsCacheTest {
+
+    @Test
+    void testEntryExpiresAtExp() throws InterruptedException {
+        VerifiedClaimsCache cache = new VerifiedClaimsCache(10);
+        String key = cache.digest("token");
+        cache.put(key, new VerifiedClaims("alice", "42", System.currentTimeMillis() + 50));
+
+        assertNotNull(cache.get(key));
+        Thread.sleep(80);
+
+        assertNull(cache.get(key));
+        // 过期条目在读取时移除
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testDigestIsStableAndDoesNotKeepToken() {
+        VerifiedClaimsCache cache = new VerifiedClaimsCache(10);
+
+        assertEquals(cache.digest("a.b.c"), cache.digest("a.b.c"));
+        assertNotEquals(cache.digest("a.b.c"), cache.digest("a.b.d"));
+        assertFalse(cache.digest("a.b.c").contains("a.b.c"));
+    }
+
+    @Test
+    void testFullCacheEvictsExpiredEntriesFirst() {
+        VerifiedClaimsCache cache = new VerifiedClaimsCache(2);
+        long now = System.currentTimeMillis();
+        cache.put("expired", new VerifiedClaims("old", "1", now - 1));
+        cache.put("live", new VerifiedClaims("alice", "42", now + 60_000));
+
+        cache.put("new", new VerifiedClaims("bob", "43", now + 60_000));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("live"));
+        assertNotNull(cache.get("new"));
+    }
+
+    @Test
+    void testSizeNeverExceedsMax() {
+        VerifiedClaimsCache cache = new VerifiedClaimsCache(3);
+        long exp = System.currentTimeMillis() + 60_000;
+        for (int i = 0; i < 10; i++) {
+            cache.put("key" + i, new VerifiedClaims("user" + i, String.valueOf(i), exp));
+        }
+
+        assertTrue(cache.size() <= 3);
+        assertNotNull(cache.get("key9"));
+    }
+
+    @Test
+    void testZeroMaxSizeDisablesCaching() {
+        VerifiedClaimsCache cache = new VerifiedClaimsCache(0);
+        cache.put("key", new VerifiedClaims("alice", "42", System.currentTimeMillis() + 60_000));
+
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+    }
+}
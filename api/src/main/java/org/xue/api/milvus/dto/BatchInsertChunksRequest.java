@@ -0,0 +1,17 @@
+package org.xue.api.milvus.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量插入多个文档的分块
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchInsertChunksRequest {
+    private List<InsertChunksRequest> documents;
+}
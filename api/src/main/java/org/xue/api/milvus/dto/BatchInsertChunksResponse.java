@@ -0,0 +1,35 @@
+package org.xue.api.milvus.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量插入结果
+ * 写入不是原子的：中途失败时之前已发送的插入请求不会回滚，此时chunks为已写入的分块数，error为失败原因
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchInsertChunksResponse {
+    /**
+     * 处理的文档数
+     */
+    private int documents;
+    /**
+     * 写入的分块数
+     */
+    private int chunks;
+    /**
+     * 实际发出的Milvus插入请求数
+     */
+    private int insertRequests;
+    /**
+     * 中途失败的原因，全部写入成功时为null
+     */
+    private String error;
+
+    public BatchInsertChunksResponse(int documents, int chunks, int insertRequests) {
+        this(documents, chunks, insertRequests, null);
+    }
+}
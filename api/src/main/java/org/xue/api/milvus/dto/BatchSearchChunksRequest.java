@@ -0,0 +1,18 @@
+package org.xue.api.milvus.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 多条查询文本一次检索
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchSearchChunksRequest {
+    private List<String> queryTexts;
+    private int topK;
+}
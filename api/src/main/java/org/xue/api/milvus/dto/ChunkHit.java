@@ -0,0 +1,18 @@
+package org.xue.api.milvus.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 检索命中的分块
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChunkHit {
+    private long id;
+    private float score;
+    private String docId;
+    private String chunk;
+}
@@ -5,15 +5,16 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.web.client.RestTemplate;
 import org.xue.app.agent.client.core.ConnectionManager;
 import org.xue.app.agent.client.core.McpClientTemplate;
 import org.xue.app.agent.client.core.McpProperties;
+import org.xue.app.agent.client.core.McpTransportFactory;
 
 /**
  * MCP客户端自动配置类
@@ -28,14 +29,20 @@ public class McpClientAutoConfiguration {
 
     private static final Logger logger = LoggerFactory.getLogger(McpClientAutoConfiguration.class);
 
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public McpTransportFactory mcpTransportFactory(McpProperties mcpProperties, ObjectMapper objectMapper) {
+        return new McpTransportFactory(mcpProperties.getTransport(), objectMapper);
+    }
+
     @Bean
     @ConditionalOnMissingBean
     public ConnectionManager connectionManager(
             McpProperties mcpProperties,
-            RestTemplate restTemplate,
+            McpTransportFactory mcpTransportFactory,
             Environment environment) {
         logger.info("初始化MCP连接管理器");
-        return new ConnectionManager(mcpProperties, restTemplate, environment);
+        return new ConnectionManager(mcpProperties, mcpTransportFactory, environment);
     }
 
     @Bean
@@ -4,24 +4,32 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 /**
  * RestTemplate配置类
+ * MCP的RPC、心跳和Schema请求已改走McpHttpTransport，这里只保留通用的RestTemplate，
+ * 底层使用JDK HttpClient以复用保活连接
  */
 @Configuration
 public class RestTemplateConfig {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(RestTemplateConfig.class);
-    
+
     @Bean
     public RestTemplate restTemplate() {
         logger.info("初始化RestTemplate");
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(5000); // 5秒连接超时
-        factory.setReadTimeout(10000);   // 10秒读取超时
-        
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5)) // 5秒连接超时
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofSeconds(10)); // 10秒读取超时
+
         return new RestTemplate(factory);
     }
-} 
\ No newline at end of file
+}
@@ -7,16 +7,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * MCP连接管理器
- * 负责管理所有MCP服务连接，执行心跳检查和重连
+ * 负责管理所有MCP服务连接，心跳检查和重连由HeartbeatScheduler按服务并发调度
  */
 @Component
 @ConditionalOnProperty(prefix = "mcp", name = "enabled", havingValue = "true", matchIfMissing = true)
@@ -29,9 +26,9 @@ public class ConnectionManager {
     private final McpProperties mcpProperties;
 
     /**
-     * REST模板
+     * MCP传输层工厂
      */
-    private final RestTemplate restTemplate;
+    private final McpTransportFactory transportFactory;
     
     /**
      * Spring环境
@@ -52,13 +49,13 @@ public class ConnectionManager {
      * 构造函数
      *
      * @param mcpProperties MCP属性配置
-     * @param restTemplate RestTemplate实例
+     * @param transportFactory MCP传输层工厂
      * @param environment Spring环境
      */
     @Autowired
-    public ConnectionManager(McpProperties mcpProperties, RestTemplate restTemplate, Environment environment) {
+    public ConnectionManager(McpProperties mcpProperties, McpTransportFactory transportFactory, Environment environment) {
         this.mcpProperties = mcpProperties;
-        this.restTemplate = restTemplate;
+        this.transportFactory = transportFactory;
         this.environment = environment;
         
         // 尝试从环境中获取当前应用的端口
@@ -102,7 +99,8 @@ public class ConnectionManager {
                     // 完整服务URL = 基础URL + 服务名
                     String serviceUrl = baseUrl + "/" + serviceName;
                     
-                    McpServer server = new McpServer(nodeName, config, serviceUrl, restTemplate);
+                    McpServer server = new McpServer(nodeName, config, serviceUrl,
+                            transportFactory.create(nodeName, config));
                     boolean connected = server.init();
                     
                     serverMap.put(serviceName, server);
@@ -131,41 +129,6 @@ public class ConnectionManager {
         }
     }
 
-    /**
-     * 心跳检查方法
-     * 由HeartbeatScheduler调用，不再使用@Scheduled注解
-     */
-    public void heartbeatCheck() {
-        if (!mcpProperties.isEnabled()) {
-            return;
-        }
-        
-        serverMap.forEach((name, server) -> {
-            McpProperties.ServerConfig config = server.getConfig();
-            McpProperties.RetryConfig retry = config.getRetry();
-            
-            // 只有启用重试的服务才执行心跳检查
-            if (retry.isEnabled()) {
-                try {
-                    boolean success = server.sendHeartbeat();
-                    if(success && server.isConnected()){
-                        logger.debug("❤️ MCP服务 [{}] 心跳成功 🟢 | 时间戳: {} | 时间: {}",
-                            name,
-                            System.currentTimeMillis(),
-                            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS"))
-                        );
-                    }else if (success && !server.isConnected()) {
-                        logger.info("✅ MCP服务 {} 已恢复连接", name);
-                    } else if (!success && server.isConnected()) {
-                        logger.warn("🚫 MCP服务 {} 连接已断开", name);
-                    }
-                } catch (Exception e) {
-                    logger.debug("MCP服务 {} 心跳检查异常: {}", name, e.getMessage());
-                }
-            }
-        });
-    }
-
     /**
      * 获取指定名称的服务
      *
@@ -186,7 +149,7 @@ public class ConnectionManager {
     }
 
     /**
-     * 检查服务是否可用
+     * 检查服务是否可用（无锁读取心跳发布的连接状态）
      *
      * @param serverName 服务名称
      * @return 是否可用
@@ -218,6 +181,8 @@ public class ConnectionManager {
             serverStatus.put("connected", server.isConnected());
             serverStatus.put("url", server.getServiceUrl());
             serverStatus.put("lastHeartbeat", server.getLastHeartbeatTime());
+            serverStatus.put("schemaVersion", server.getSchemaVersion());
+            serverStatus.put("transport", server.getTransport().getStats());
             
             statusMap.put(name, serverStatus);
         });
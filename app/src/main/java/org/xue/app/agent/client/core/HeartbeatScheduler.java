@@ -1,49 +1,98 @@
 package org.xue.app.agent.client.core;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.scheduling.annotation.SchedulingConfigurer;
-import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
 /**
  * MCP心跳调度器
  * 只有在mcp.enabled=true且mcp.heartbeat.enabled=true时才启用
+ * 每个服务独立调度：探测异步并发执行并带截止时间，一个服务挂起不会拖慢其他服务的健康检测；
+ * 间隔按服务状态自适应，并加随机抖动
  */
 @Component
 @ConditionalOnProperty(prefix = "mcp", name = "enabled", havingValue = "true", matchIfMissing = true)
-public class HeartbeatScheduler implements SchedulingConfigurer {
+public class HeartbeatScheduler {
     private static final Logger logger = LoggerFactory.getLogger(HeartbeatScheduler.class);
 
     private final ConnectionManager connectionManager;
     private final McpProperties mcpProperties;
 
+    /**
+     * 只负责定时派发探测，探测本身在传输层的IO线程上异步完成
+     */
+    private ScheduledExecutorService executor;
+
     public HeartbeatScheduler(ConnectionManager connectionManager,
                               McpProperties mcpProperties) {
         this.connectionManager = connectionManager;
         this.mcpProperties = mcpProperties;
     }
 
-    @Override
-    public void configureTasks(ScheduledTaskRegistrar registrar) {
+    @PostConstruct
+    public void start() {
+        McpProperties.HeartbeatConfig heartbeat = mcpProperties.getHeartbeat();
         // 检查心跳是否启用
-        if (mcpProperties.getHeartbeat().isEnabled()) {
-            logger.info("MCP心跳检查已启用，间隔: {}ms", mcpProperties.getHeartbeat().getInterval());
-            registrar.addFixedDelayTask(
-                this::runHeartbeat,
-                mcpProperties.getHeartbeat().getInterval()
-            );
-        } else {
+        if (!heartbeat.isEnabled()) {
             logger.info("MCP心跳检查已禁用");
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mcp-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        connectionManager.getAllServers().forEach((name, server) -> {
+            // 只有启用重试的服务才执行心跳检查
+            if (server.getConfig().getRetry().isEnabled()) {
+                // 首次探测在一个间隔内随机打散
+                long initialDelay = ThreadLocalRandom.current().nextLong(Math.max(1, heartbeat.getInterval()));
+                schedule(name, server, initialDelay);
+            }
+        });
+
+        logger.info("MCP心跳检查已启用，基准间隔: {}ms，范围: {}~{}ms，单次超时: {}ms",
+                heartbeat.getInterval(), heartbeat.getMinInterval(), heartbeat.getMaxInterval(), heartbeat.getTimeout());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void schedule(String name, McpServer server, long delayMillis) {
+        try {
+            executor.schedule(() -> runHeartbeat(name, server), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 容器关闭中，停止调度
+            logger.debug("心跳调度器已关闭，停止探测: {}", name);
         }
     }
 
-    private void runHeartbeat() {
+    private void runHeartbeat(String name, McpServer server) {
+        McpProperties.HeartbeatConfig heartbeat = mcpProperties.getHeartbeat();
         try {
-            connectionManager.heartbeatCheck();
+            server.probe(Duration.ofMillis(heartbeat.getTimeout()))
+                    .doFinally(signal -> schedule(name, server, server.nextHeartbeatDelay(heartbeat)))
+                    .subscribe(success -> logger.debug("MCP服务 [{}] 心跳{} | 失败次数: {}",
+                            name, success ? "成功" : "失败", server.getFailureCount()));
         } catch (Exception e) {
             logger.error("执行心跳检查时发生异常: {}", e.getMessage(), e);
+            schedule(name, server, heartbeat.getInterval());
         }
     }
 }
@@ -8,14 +8,17 @@ import org.xue.app.agent.client.exception.McpServerException;
 import org.xue.app.agent.client.model.JsonRpcRequest;
 import org.xue.app.agent.client.model.JsonRpcResponse;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * MCP客户端模板类
  * 提供主要的MCP操作API
+ * 服务配置了batchWindow时，并发发出的调用会在传输层自动合并为批量请求
  */
 @Component
 public class McpClientTemplate {
@@ -64,6 +67,22 @@ public class McpClientTemplate {
         return server.getSchemaUrl(format);
     }
     
+    /**
+     * 获取API模式描述
+     * 模式版本未变化时直接返回本地缓存，否则以ETag向服务端校验
+     *
+     * @param serverName 服务名称
+     * @param format API格式（如function_calling）
+     * @return API模式描述
+     */
+    public Map<String, Object> getApiSchema(String serverName, String format) {
+        McpServer server = connectionManager.getServer(serverName);
+        if (server == null) {
+            throw new McpClientException("未找到服务: " + serverName);
+        }
+        return server.fetchSchemaAsync(format).block();
+    }
+    
     /**
      * 获取RPC API URL
      *
@@ -122,7 +141,43 @@ public class McpClientTemplate {
         }
         
         Map<String, Object> result = (Map<String, Object>) response.getResult();
-        return (List<Map<String, Object>>) result.get("rows");
+        if (Boolean.TRUE.equals(result.get("truncated"))) {
+            // 服务端按行数和数据量上限截断，可通过nextCursor分页获取剩余结果
+            logger.warn("MCP服务 [{}] 查询结果已截断，返回 {} 行: {}", serverName, result.get("count"), sql);
+        }
+        return toRowMaps(result);
+    }
+
+    /**
+     * 将查询结果统一转换为按行的对象列表，兼容服务端协商返回的列式格式和字典编码
+     *
+     * @param result query方法的结果
+     * @return 行数据
+     */
+    @SuppressWarnings("unchecked")
+    static List<Map<String, Object>> toRowMaps(Map<String, Object> result) {
+        Object columnsValue = result.get("columns");
+        if (!(columnsValue instanceof List)) {
+            return (List<Map<String, Object>>) result.get("rows");
+        }
+
+        List<Map<String, Object>> columns = (List<Map<String, Object>>) columnsValue;
+        List<List<Object>> values = (List<List<Object>>) result.getOrDefault("rows", Collections.emptyList());
+        List<Map<String, Object>> rows = new ArrayList<>(values.size());
+        for (List<Object> positional : values) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < columns.size(); i++) {
+                Map<String, Object> column = columns.get(i);
+                Object value = i < positional.size() ? positional.get(i) : null;
+                Object dictionary = column.get("dictionary");
+                if (value instanceof Number && dictionary instanceof List) {
+                    value = ((List<Object>) dictionary).get(((Number) value).intValue());
+                }
+                row.put((String) column.get("name"), value);
+            }
+            rows.add(row);
+        }
+        return rows;
     }
 
     /**
@@ -358,25 +413,73 @@ public class McpClientTemplate {
     }
 
     /**
-     * 检查服务是否可用
+     * 以一个JSON-RPC批量请求执行多个调用（一次往返），响应按请求顺序返回
+     *
+     * @param serverName 服务名称
+     * @param requests RPC请求列表
+     * @return 与请求一一对应的RPC响应
+     */
+    public List<JsonRpcResponse> executeRpcBatch(String serverName, List<JsonRpcRequest> requests) {
+        McpServer server = connectionManager.getServer(serverName);
+        
+        if (server == null) {
+            logger.error("未找到名为 {} 的MCP服务", serverName);
+            throw new McpClientException("未找到名为 " + serverName + " 的MCP服务");
+        }
+        
+        if (!server.isConnected()) {
+            logger.error("MCP服务 {} 当前不可用", serverName);
+            throw new McpClientException("MCP服务 " + serverName + " 当前不可用");
+        }
+        
+        return server.executeBatch(requests);
+    }
+
+    /**
+     * 批量获取多张表的表结构（一次往返）
+     *
+     * @param serverName 服务名称
+     * @param tableNames 表名列表
+     * @return 表名到表结构信息的映射，保持传入顺序
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, List<Map<String, Object>>> getTableSchemas(String serverName, List<String> tableNames) {
+        List<JsonRpcRequest> requests = new ArrayList<>(tableNames.size());
+        for (String tableName : tableNames) {
+            Map<String, Object> requestParams = new HashMap<>();
+            requestParams.put("tableName", tableName);
+            requests.add(JsonRpcRequest.create("getTableSchema", requestParams));
+        }
+        
+        List<JsonRpcResponse> responses = executeRpcBatch(serverName, requests);
+        
+        Map<String, List<Map<String, Object>>> schemas = new LinkedHashMap<>();
+        for (int i = 0; i < tableNames.size(); i++) {
+            JsonRpcResponse response = responses.get(i);
+            if (response.getError() != null) {
+                throw new McpServerException(
+                        "MCP服务获取表结构错误: " + tableNames.get(i) + " - " + response.getError().getMessage(),
+                        response.getError().getCode());
+            }
+            schemas.put(tableNames.get(i), response.getResult() == null
+                    ? Collections.emptyList()
+                    : (List<Map<String, Object>>) response.getResult());
+        }
+        return schemas;
+    }
+
+    /**
+     * 检查服务是否可用（无锁读取，不触发网络请求）
      *
      * @param serverName 服务名称
      * @return 服务是否可用
      */
     public boolean isServerAvailable(String serverName) {
-        try {
-            Map<String, Map<String, Object>> serversStatus = getServersStatus();
-            if (!serversStatus.containsKey(serverName)) {
-                logger.error("服务不存在: {}", serverName);
-                return false;
-            }
-            
-            Map<String, Object> serverStatus = serversStatus.get(serverName);
-            return (Boolean) serverStatus.get("connected");
-        } catch (Exception e) {
-            logger.error("检查服务状态异常: {}", serverName, e);
+        if (connectionManager.getServer(serverName) == null) {
+            logger.error("服务不存在: {}", serverName);
             return false;
         }
+        return connectionManager.isServerAvailable(serverName);
     }
 
     /**
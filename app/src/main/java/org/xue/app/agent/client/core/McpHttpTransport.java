@@ -0,0 +1,279 @@
+package org.xue.app.agent.client.core;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.xue.app.agent.client.exception.McpServerException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个MCP服务的HTTP传输通道
+ * 底层连接来自共享的保活连接池，并统计连接复用情况
+ */
+public class McpHttpTransport {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    /**
+     * 服务名称
+     */
+    private final String serverName;
+
+    /**
+     * 按服务超时配置派生的客户端
+     */
+    private final OkHttpClient client;
+
+    /**
+     * JSON序列化
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 连接统计
+     */
+    private final TransportStats stats;
+
+    McpHttpTransport(String serverName, OkHttpClient client, ObjectMapper objectMapper, TransportStats stats) {
+        this.serverName = serverName;
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.stats = stats;
+    }
+
+    /**
+     * 同步GET请求，响应体反序列化为指定类型
+     */
+    public <T> T get(String url, Class<T> type) throws IOException {
+        Request request = new Request.Builder().url(url).get().build();
+        try (Response response = client.newCall(request).execute()) {
+            return objectMapper.readValue(successBody(response).byteStream(), type);
+        }
+    }
+
+    /**
+     * 同步POST JSON请求，响应体反序列化为指定类型
+     */
+    public <T> T post(String url, Object body, Class<T> type) throws IOException {
+        try (Response response = client.newCall(jsonPost(url, body)).execute()) {
+            return objectMapper.readValue(successBody(response).byteStream(), type);
+        }
+    }
+
+    /**
+     * 异步POST JSON请求，返回原始响应体；订阅取消时同时取消底层调用
+     */
+    public Mono<String> postAsync(String url, Object body) {
+        return Mono.fromCallable(() -> jsonPost(url, body))
+                .flatMap(request -> enqueue(request, ResponseBody::string));
+    }
+
+    /**
+     * 异步POST JSON请求，响应体反序列化为指定类型
+     */
+    public <T> Mono<T> postAsync(String url, Object body, Class<T> type) {
+        return Mono.fromCallable(() -> jsonPost(url, body))
+                .flatMap(request -> enqueue(request, responseBody -> objectMapper.readValue(responseBody.byteStream(), type)));
+    }
+
+    /**
+     * 异步POST JSON请求，响应体反序列化为指定泛型类型
+     */
+    public <T> Mono<T> postAsync(String url, Object body, TypeReference<T> type) {
+        return Mono.fromCallable(() -> jsonPost(url, body))
+                .flatMap(request -> enqueue(request, responseBody -> objectMapper.readValue(responseBody.byteStream(), type)));
+    }
+
+    /**
+     * 异步GET请求，响应体反序列化为指定类型
+     */
+    public <T> Mono<T> getAsync(String url, TypeReference<T> type) {
+        Request request = new Request.Builder().url(url).get().build();
+        return enqueue(request, body -> objectMapper.readValue(body.byteStream(), type));
+    }
+
+    /**
+     * 异步条件GET请求，etag不为空时携带If-None-Match；服务端返回304时结果标记为未修改且不含响应体
+     */
+    public <T> Mono<ConditionalResponse<T>> getIfNoneMatch(String url, String etag, TypeReference<T> type) {
+        Request.Builder builder = new Request.Builder().url(url).get();
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+        return enqueueResponse(builder.build(), response -> {
+            if (response.code() == 304) {
+                return new ConditionalResponse<>(null, etag, response.headers(), true);
+            }
+            T body = objectMapper.readValue(successBody(response).byteStream(), type);
+            return new ConditionalResponse<>(body, response.header("ETag"), response.headers(), false);
+        });
+    }
+
+    /**
+     * 将JSON节点转换为指定类型
+     */
+    public <T> T convert(JsonNode node, Class<T> type) throws IOException {
+        return objectMapper.treeToValue(node, type);
+    }
+
+    /**
+     * 获取连接统计信息
+     */
+    public Map<String, Object> getStats() {
+        return stats.snapshot(client);
+    }
+
+    private Request jsonPost(String url, Object body) throws IOException {
+        byte[] payload = objectMapper.writeValueAsBytes(body);
+        return new Request.Builder().url(url).post(RequestBody.create(payload, JSON)).build();
+    }
+
+    private ResponseBody successBody(Response response) {
+        ResponseBody body = response.body();
+        if (!response.isSuccessful() || body == null) {
+            throw new McpServerException("MCP服务 " + serverName + " 响应异常，状态码: " + response.code(), response.code());
+        }
+        return body;
+    }
+
+    private <T> Mono<T> enqueue(Request request, BodyReader<T> reader) {
+        return enqueueResponse(request, response -> reader.read(successBody(response)));
+    }
+
+    private <T> Mono<T> enqueueResponse(Request request, ResponseReader<T> reader) {
+        return Mono.create(sink -> {
+            Call call = client.newCall(request);
+            sink.onCancel(call::cancel);
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call c, IOException e) {
+                    sink.error(e);
+                }
+
+                @Override
+                public void onResponse(Call c, Response response) {
+                    try (response) {
+                        sink.success(reader.read(response));
+                    } catch (Exception e) {
+                        sink.error(e);
+                    }
+                }
+            });
+        });
+    }
+
+    @FunctionalInterface
+    private interface BodyReader<T> {
+        T read(ResponseBody body) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+        T read(Response response) throws IOException;
+    }
+
+    /**
+     * 条件请求的结果
+     */
+    public static final class ConditionalResponse<T> {
+        private final T body;
+        private final String etag;
+        private final Headers headers;
+        private final boolean notModified;
+
+        ConditionalResponse(T body, String etag, Headers headers, boolean notModified) {
+            this.body = body;
+            this.etag = etag;
+            this.headers = headers;
+            this.notModified = notModified;
+        }
+
+        /**
+         * 响应体，未修改时为null
+         */
+        public T getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String header(String name) {
+            return headers.get(name);
+        }
+
+        public boolean isNotModified() {
+            return notModified;
+        }
+    }
+
+    /**
+     * 传输统计
+     * 通过OkHttp事件回调区分新建连接和复用连接
+     */
+    static final class TransportStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failedCalls = new LongAdder();
+        private final LongAdder connectionsAcquired = new LongAdder();
+        private final LongAdder connectionsOpened = new LongAdder();
+
+        EventListener listener() {
+            return new EventListener() {
+                @Override
+                public void callStart(Call call) {
+                    calls.increment();
+                }
+
+                @Override
+                public void callFailed(Call call, IOException ioe) {
+                    failedCalls.increment();
+                }
+
+                @Override
+                public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+                    connectionsOpened.increment();
+                }
+
+                @Override
+                public void connectionAcquired(Call call, Connection connection) {
+                    connectionsAcquired.increment();
+                }
+            };
+        }
+
+        Map<String, Object> snapshot(OkHttpClient client) {
+            long acquired = connectionsAcquired.sum();
+            long opened = connectionsOpened.sum();
+            long reused = Math.max(0, acquired - opened);
+
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("calls", calls.sum());
+            snapshot.put("failedCalls", failedCalls.sum());
+            snapshot.put("connectionsOpened", opened);
+            snapshot.put("connectionsReused", reused);
+            snapshot.put("reuseRatio", acquired == 0 ? 0.0 : (double) reused / acquired);
+            snapshot.put("poolIdle", client.connectionPool().idleConnectionCount());
+            snapshot.put("poolTotal", client.connectionPool().connectionCount());
+            return snapshot;
+        }
+    }
+}
@@ -25,6 +25,11 @@ public class McpProperties {
      */
     private HeartbeatConfig heartbeat = new HeartbeatConfig();
     
+    /**
+     * 传输层连接池配置（所有MCP服务共享）
+     */
+    private TransportConfig transport = new TransportConfig();
+    
     /**
      * MCP服务配置映射，key为服务名称，如mysql、redis等
      */
@@ -41,9 +46,50 @@ public class McpProperties {
         private boolean enabled = true;
         
         /**
-         * 心跳间隔（毫秒）
+         * 心跳基准间隔（毫秒）
          */
         private long interval = 10000;
+        
+        /**
+         * 心跳最小间隔（毫秒），失败后以此间隔加快探测
+         */
+        private long minInterval = 2000;
+        
+        /**
+         * 心跳最大间隔（毫秒），稳定的服务逐步退避到此间隔
+         */
+        private long maxInterval = 60000;
+        
+        /**
+         * 单次探测超时（毫秒），超时视为失败，不影响其他服务的探测
+         */
+        private long timeout = 3000;
+        
+        /**
+         * 间隔抖动比例（0~1），避免所有服务同时探测
+         */
+        private double jitter = 0.2;
+    }
+
+    /**
+     * 传输层连接池配置
+     */
+    @Data
+    public static class TransportConfig {
+        /**
+         * 连接池最大空闲连接数
+         */
+        private int maxIdleConnections = 32;
+        
+        /**
+         * 空闲连接保活时长（毫秒）
+         */
+        private long keepAlive = 300000;
+        
+        /**
+         * 单个服务的最大并发请求数
+         */
+        private int maxRequestsPerHost = 64;
     }
 
     /**
@@ -99,6 +145,29 @@ public class McpProperties {
          */
         private int readTimeout = 10000;
 
+        /**
+         * 是否使用h2c（明文HTTP/2，先验知识）
+         * 开启后对该服务只保持一条持久的多路复用连接，所有RPC并发复用；仅在服务端支持h2c时开启
+         */
+        private boolean h2c = false;
+
+        /**
+         * RPC合并窗口（毫秒），大于0时窗口内发往该服务的调用合并为一个JSON-RPC批量请求；
+         * 0表示不合并，仅在服务端支持批量请求时开启
+         */
+        private long batchWindow = 0;
+
+        /**
+         * 单个合并批次的最大调用数，达到后立即发送
+         */
+        private int maxBatchSize = 32;
+
+        /**
+         * 查询结果格式，通过X-Result-Format请求头与服务端协商：
+         * rows（默认）、columnar、columnar_dict；列式格式省去每行重复的列名，工具结果写入提示词时更省token
+         */
+        private String resultFormat;
+
         /**
          * 服务类型，默认为通用类型
          */
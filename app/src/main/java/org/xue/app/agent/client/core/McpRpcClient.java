@@ -0,0 +1,76 @@
+package org.xue.app.agent.client.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.xue.app.agent.client.exception.McpClientException;
+import org.xue.app.agent.client.model.JsonRpcRequest;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * MCP异步RPC客户端
+ * 供Agent工具循环使用，工具调用和Schema获取期间不阻塞线程，请求走服务的保活传输通道
+ */
+@Component
+public class McpRpcClient {
+    private static final Logger logger = LoggerFactory.getLogger(McpRpcClient.class);
+
+    /**
+     * 连接管理器
+     */
+    private final ConnectionManager connectionManager;
+
+    public McpRpcClient(ConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    /**
+     * 执行RPC调用，返回原始响应体
+     *
+     * @param serverName 服务名称
+     * @param method 方法名
+     * @param params 参数
+     * @return 原始JSON-RPC响应
+     */
+    public Mono<String> call(String serverName, String method, Object params) {
+        return call(serverName, method, params, null);
+    }
+
+    /**
+     * 在会话内执行RPC调用，服务端保证同一会话写入后能读到自己的写入
+     *
+     * @param serverName 服务名称
+     * @param method 方法名
+     * @param params 参数
+     * @param conversationId 会话ID，可为null
+     * @return 原始JSON-RPC响应
+     */
+    public Mono<String> call(String serverName, String method, Object params, String conversationId) {
+        McpServer server = connectionManager.getServer(serverName);
+        if (server == null) {
+            return Mono.error(new McpClientException("未找到服务: " + serverName));
+        }
+        JsonRpcRequest request = JsonRpcRequest.create(method, params);
+        request.setConversationId(conversationId);
+        // 超时由服务的传输通道按connectTimeout/readTimeout控制
+        return server.executeRpcAsync(request)
+                .doOnError(e -> logger.warn("RPC请求异常: {}.{} - {}", serverName, method, e.getMessage()));
+    }
+
+    /**
+     * 获取服务的API模式描述
+     *
+     * @param serverName 服务名称
+     * @param format API格式（如function_calling）
+     * @return API模式描述
+     */
+    public Mono<Map<String, Object>> fetchSchema(String serverName, String format) {
+        McpServer server = connectionManager.getServer(serverName);
+        if (server == null) {
+            return Mono.error(new McpClientException("未找到服务: " + serverName));
+        }
+        return server.fetchSchemaAsync(format);
+    }
+}
@@ -1,17 +1,26 @@
 package org.xue.app.agent.client.core;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
-import org.springframework.web.client.RestTemplate;
+import org.xue.app.agent.client.exception.McpClientException;
 import org.xue.app.agent.client.model.JsonRpcRequest;
 import org.xue.app.agent.client.model.JsonRpcResponse;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * MCP服务器连接
@@ -35,30 +44,52 @@ public class McpServer {
      */
     private final String serviceUrl;
 
+    private static final TypeReference<Map<String, Object>> SCHEMA_TYPE = new TypeReference<>() {};
+
+    private static final TypeReference<List<JsonNode>> BATCH_TYPE = new TypeReference<>() {};
+
     /**
-     * REST模板
+     * 服务端在模式描述响应中返回的版本头
      */
-    private final RestTemplate restTemplate;
+    private static final String SCHEMA_VERSION_HEADER = "X-Schema-Version";
 
     /**
-     * 连接状态
+     * HTTP传输通道（保活连接池，按服务配置超时）
      */
-    private boolean connected = false;
+    private final McpHttpTransport transport;
 
     /**
-     * 上次心跳时间
+     * RPC调用合并器，未开启合并时为null
      */
-    private long lastHeartbeatTime = 0;
+    @Getter(AccessLevel.NONE)
+    private final RpcCoalescer coalescer;
+
+    /**
+     * 连续成功多少次后视为稳定，开始拉长心跳间隔
+     */
+    private static final int STABLE_THRESHOLD = 3;
+
+    /**
+     * 连接健康状态，整体以不可变快照原子发布，请求线程无锁读取
+     */
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<HealthState> state = new AtomicReference<>(HealthState.INITIAL);
 
     /**
      * API模式描述
      */
-    private Map<String, Object> apiSchema;
+    private volatile Map<String, Object> apiSchema;
+
+    /**
+     * 服务端最近一次心跳报告的API模式版本，服务端不支持时为null
+     */
+    private volatile String schemaVersion;
 
     /**
-     * 连续失败次数
+     * 按格式缓存的API模式描述，版本未变时直接复用，否则以ETag做条件请求
      */
-    private final AtomicInteger failureCount = new AtomicInteger(0);
+    @Getter(AccessLevel.NONE)
+    private final Map<String, CachedSchema> schemaCache = new ConcurrentHashMap<>();
 
     /**
      * 构造函数
@@ -66,13 +97,17 @@ public class McpServer {
      * @param name 服务名称
      * @param config 服务配置
      * @param serviceUrl 服务URL
-     * @param restTemplate REST模板
+     * @param transport HTTP传输通道
      */
-    public McpServer(String name, McpProperties.ServerConfig config, String serviceUrl, RestTemplate restTemplate) {
+    public McpServer(String name, McpProperties.ServerConfig config, String serviceUrl, McpHttpTransport transport) {
         this.name = name;
         this.config = config;
         this.serviceUrl = serviceUrl;
-        this.restTemplate = restTemplate;
+        this.transport = transport;
+        this.coalescer = config.getBatchWindow() > 0
+                ? new RpcCoalescer(name, Duration.ofMillis(config.getBatchWindow()), config.getMaxBatchSize(),
+                        this::postSingle, this::postBatch)
+                : null;
         
         logger.debug("创建MCP服务连接 {} -> {}", name, serviceUrl);
     }
@@ -91,17 +126,14 @@ public class McpServer {
             boolean heartbeatSuccess = sendHeartbeat();
             
             if (heartbeatSuccess) {
-                connected = true;
-                failureCount.set(0);
                 logger.info("成功连接到MCP服务: {}", name);
                 return true;
             } else {
-                connected = false;
                 logger.warn("无法连接到MCP服务: {}", name);
                 return false;
             }
         } catch (Exception e) {
-            connected = false;
+            recordFailure();
             logger.warn("连接MCP服务失败: {} - {}", name, e.getMessage());
             return false;
         }
@@ -115,14 +147,13 @@ public class McpServer {
     @SuppressWarnings("unchecked")
     private Map<String, Object> fetchApiSchema() {
         try {
-            String schemaUrl = getSchemaUrl();
-            ResponseEntity<Map> response = restTemplate.getForEntity(schemaUrl, Map.class);
+            Map<String, Object> schema = transport.get(getSchemaUrl(), Map.class);
             
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+            if (schema != null) {
                 logger.debug("成功获取MCP服务API模式: {}", name);
-                return response.getBody();
+                return schema;
             } else {
-                logger.warn("获取MCP服务API模式失败: {} - 状态码: {}", name, response.getStatusCode());
+                logger.warn("获取MCP服务API模式失败: {} - 响应为空", name);
                 return new HashMap<>();
             }
         } catch (Exception e) {
@@ -132,44 +163,95 @@ public class McpServer {
     }
 
     /**
-     * 发送心跳
+     * 同步发送心跳，仅在初始化时使用，超时取服务的读取超时
      *
      * @return 心跳是否成功
      */
     public boolean sendHeartbeat() {
-        try {
-            JsonRpcRequest request = JsonRpcRequest.create("heartbeat", null);
-            JsonRpcResponse response = executeRpc(request);
-            
-            lastHeartbeatTime = System.currentTimeMillis();
-            
-            if (response != null && response.getError() == null) {
-                if (!connected) {
-                    logger.info("MCP服务已恢复连接: {}", name);
-                }
-                connected = true;
-                failureCount.set(0);
-                return true;
-            } else {
-                handleConnectionFailure();
-                return false;
-            }
-        } catch (Exception e) {
-            logger.debug("心跳检查失败: {} - {}", name, e.getMessage());
-            handleConnectionFailure();
-            return false;
+        return Boolean.TRUE.equals(probe(Duration.ofMillis(config.getReadTimeout())).block());
+    }
+
+    /**
+     * 异步探测一次，超过截止时间视为失败，结果写回连接状态
+     *
+     * @param deadline 单次探测截止时间
+     * @return 探测是否成功
+     */
+    public Mono<Boolean> probe(Duration deadline) {
+        return transport.postAsync(getRpcUrl(), JsonRpcRequest.create("heartbeat", null), JsonRpcResponse.class)
+                .map(response -> {
+                    updateSchemaVersion(response.getResult());
+                    return response.getError() == null;
+                })
+                .timeout(deadline)
+                .onErrorResume(e -> {
+                    logger.debug("心跳检查失败: {} - {}", name, e.getMessage());
+                    return Mono.just(false);
+                })
+                .defaultIfEmpty(false)
+                .doOnNext(success -> {
+                    if (success) {
+                        recordSuccess();
+                    } else {
+                        recordFailure();
+                    }
+                });
+    }
+
+    /**
+     * 计算下一次心跳的延迟
+     * 失败后以最小间隔加快探测，持续失败时指数退避回基准间隔；稳定的服务逐步退避到最大间隔；
+     * 结果叠加随机抖动，避免大量服务同时探测
+     *
+     * @param heartbeat 心跳配置
+     * @return 延迟（毫秒）
+     */
+    public long nextHeartbeatDelay(McpProperties.HeartbeatConfig heartbeat) {
+        HealthState current = state.get();
+        long base = heartbeat.getInterval();
+        long delay;
+        if (current.consecutiveFailures > 0) {
+            int shift = Math.min(current.consecutiveFailures - 1, 10);
+            delay = Math.min(base, heartbeat.getMinInterval() << shift);
+        } else if (current.consecutiveSuccesses >= STABLE_THRESHOLD) {
+            int steps = Math.min(current.consecutiveSuccesses - STABLE_THRESHOLD + 1, 16);
+            delay = Math.min(heartbeat.getMaxInterval(), (long) (base * Math.pow(1.5, steps)));
+        } else {
+            delay = base;
         }
+        double jitter = heartbeat.getJitter() * (ThreadLocalRandom.current().nextDouble() * 2 - 1);
+        return Math.max(heartbeat.getMinInterval(), (long) (delay * (1 + jitter)));
     }
 
     /**
-     * 处理连接失败
+     * 记录一次成功（心跳或RPC），必要时输出恢复日志
      */
-    private void handleConnectionFailure() {
-        int failures = failureCount.incrementAndGet();
-        
-        if (connected) {
-            logger.warn("MCP服务连接中断: {} (连续失败次数: {})", name, failures);
-            connected = false;
+    private void recordSuccess() {
+        long now = System.currentTimeMillis();
+        HealthState previous = state.getAndUpdate(s -> new HealthState(true, now, 0, Math.min(s.consecutiveSuccesses + 1, 1000)));
+        if (!previous.connected) {
+            logger.info("MCP服务已连接: {}", name);
+        }
+    }
+
+    /**
+     * 记录一次失败，必要时输出断开日志
+     */
+    private void recordFailure() {
+        HealthState current = state.updateAndGet(s -> new HealthState(false, s.lastHeartbeatTime, s.consecutiveFailures + 1, 0));
+        if (current.consecutiveFailures == 1) {
+            logger.warn("MCP服务连接中断: {}", name);
+        } else {
+            logger.debug("MCP服务仍不可用: {} (连续失败次数: {})", name, current.consecutiveFailures);
+        }
+    }
+
+    /**
+     * RPC调用的被动健康信号：只有连接层失败才标记断开，读超时等慢响应不影响连接状态
+     */
+    private void recordRpcError(Throwable e) {
+        if (e instanceof IOException && !(e instanceof InterruptedIOException)) {
+            recordFailure();
         }
     }
 
@@ -181,24 +263,117 @@ public class McpServer {
      */
     public JsonRpcResponse executeRpc(JsonRpcRequest request) {
         try {
-            String rpcUrl = getRpcUrl();
-            ResponseEntity<JsonRpcResponse> response = restTemplate.postForEntity(
-                    rpcUrl, 
-                    request, 
-                    JsonRpcResponse.class);
-            
-            if (response.getStatusCode() == HttpStatus.OK) {
-                return response.getBody();
-            } else {
-                logger.warn("RPC请求失败: {} - 状态码: {}", name, response.getStatusCode());
-                return null;
+            if (coalescer != null) {
+                JsonNode node = coalescer.submit(request).block();
+                return node == null ? null : transport.convert(node, JsonRpcResponse.class);
             }
+            JsonRpcResponse response = transport.post(getRpcUrl(), request, JsonRpcResponse.class);
+            recordSuccess();
+            return response;
         } catch (Exception e) {
+            recordRpcError(e);
             logger.warn("RPC请求异常: {} - {}", name, e.getMessage());
             return null;
         }
     }
 
+    /**
+     * 异步执行RPC请求，返回原始响应体；开启合并时与窗口内的其他调用合并发送
+     *
+     * @param request RPC请求
+     * @return 原始JSON-RPC响应
+     */
+    public Mono<String> executeRpcAsync(JsonRpcRequest request) {
+        if (coalescer != null) {
+            return coalescer.submit(request).map(JsonNode::toString);
+        }
+        return transport.postAsync(getRpcUrl(), request)
+                .doOnSuccess(body -> recordSuccess())
+                .doOnError(this::recordRpcError);
+    }
+
+    /**
+     * 以一个JSON-RPC批量请求发送多个调用，响应按请求顺序返回
+     * 服务端缺失的响应以错误响应占位
+     *
+     * @param requests RPC请求列表
+     * @return 与请求一一对应的RPC响应
+     */
+    public List<JsonRpcResponse> executeBatch(List<JsonRpcRequest> requests) {
+        if (requests.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            Map<String, JsonNode> byId = RpcCoalescer.indexById(postBatch(requests).block());
+            List<JsonRpcResponse> responses = new ArrayList<>(requests.size());
+            for (JsonRpcRequest request : requests) {
+                JsonNode node = byId.get(String.valueOf(request.getId()));
+                responses.add(node != null
+                        ? transport.convert(node, JsonRpcResponse.class)
+                        : JsonRpcResponse.error(request.getId(), -32603, "批量响应中缺少该请求的结果"));
+            }
+            return responses;
+        } catch (Exception e) {
+            logger.warn("批量RPC请求异常: {} - {}", name, e.getMessage());
+            throw new McpClientException("批量RPC请求失败: " + e.getMessage(), e);
+        }
+    }
+
+    private Mono<JsonNode> postSingle(JsonRpcRequest request) {
+        return transport.postAsync(getRpcUrl(), request, JsonNode.class)
+                .doOnSuccess(node -> recordSuccess())
+                .doOnError(this::recordRpcError);
+    }
+
+    private Mono<List<JsonNode>> postBatch(List<JsonRpcRequest> requests) {
+        return transport.postAsync(getRpcUrl(), requests, BATCH_TYPE)
+                .doOnSuccess(nodes -> recordSuccess())
+                .doOnError(this::recordRpcError);
+    }
+
+    /**
+     * 异步获取API模式描述
+     *
+     * @param format API格式（如function_calling）
+     * @return API模式描述
+     */
+    public Mono<Map<String, Object>> fetchSchemaAsync(String format) {
+        CachedSchema cached = schemaCache.get(format);
+        String currentVersion = schemaVersion;
+        if (cached != null && currentVersion != null && currentVersion.equals(cached.version)) {
+            return Mono.just(cached.schema);
+        }
+
+        // 版本未知或已变化，带上ETag重新校验，内容未变时服务端返回304
+        return transport.getIfNoneMatch(getSchemaUrl(format), cached == null ? null : cached.etag, SCHEMA_TYPE)
+                .map(response -> {
+                    String version = response.header(SCHEMA_VERSION_HEADER);
+                    if (response.isNotModified() && cached != null) {
+                        schemaCache.put(format, new CachedSchema(cached.schema, cached.etag, version));
+                        return cached.schema;
+                    }
+                    logger.debug("获取MCP服务API模式: {} - 格式: {}，版本: {}", name, format, version);
+                    schemaCache.put(format, new CachedSchema(response.getBody(), response.getEtag(), version));
+                    return response.getBody();
+                });
+    }
+
+    /**
+     * 记录心跳结果中的模式版本，版本变化后下次获取模式时重新校验
+     */
+    private void updateSchemaVersion(Object result) {
+        if (!(result instanceof Map)) {
+            return;
+        }
+        Object version = ((Map<?, ?>) result).get("schemaVersion");
+        if (version instanceof String && !version.equals(schemaVersion)) {
+            if (schemaVersion != null) {
+                logger.info("MCP服务 [{}] API模式版本变化: {} -> {}", name, schemaVersion, version);
+            }
+            schemaVersion = (String) version;
+        }
+    }
+
     /**
      * 获取Schema API URL
      * 
@@ -243,15 +418,57 @@ public class McpServer {
     }
 
     /**
-     * 判断服务是否已连接
+     * 判断服务是否已连接（无锁读取最近一次发布的状态，不触发网络请求）
      */
     public boolean isConnected() {
+        return state.get().connected;
+    }
 
-        sendHeartbeat();
-        // 如果超过心跳间隔两倍的时间没有成功心跳，则认为连接已断开
-        long heartbeatInterval = config.getRetry().getInterval();
-        boolean heartbeatTimeout = System.currentTimeMillis() - lastHeartbeatTime > heartbeatInterval * 2;
-        
-        return connected && !heartbeatTimeout;
+    /**
+     * 获取上次成功通信时间
+     */
+    public long getLastHeartbeatTime() {
+        return state.get().lastHeartbeatTime;
+    }
+
+    /**
+     * 获取连续失败次数
+     */
+    public int getFailureCount() {
+        return state.get().consecutiveFailures;
+    }
+
+    /**
+     * 连接健康状态快照
+     */
+    private static final class HealthState {
+        private static final HealthState INITIAL = new HealthState(false, 0, 0, 0);
+
+        private final boolean connected;
+        private final long lastHeartbeatTime;
+        private final int consecutiveFailures;
+        private final int consecutiveSuccesses;
+
+        private HealthState(boolean connected, long lastHeartbeatTime, int consecutiveFailures, int consecutiveSuccesses) {
+            this.connected = connected;
+            this.lastHeartbeatTime = lastHeartbeatTime;
+            this.consecutiveFailures = consecutiveFailures;
+            this.consecutiveSuccesses = consecutiveSuccesses;
+        }
+    }
+
+    /**
+     * 缓存的API模式描述
+     */
+    private static final class CachedSchema {
+        private final Map<String, Object> schema;
+        private final String etag;
+        private final String version;
+
+        private CachedSchema(Map<String, Object> schema, String etag, String version) {
+            this.schema = schema;
+            this.etag = etag;
+            this.version = version;
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,110 @@
+package org.xue.app.agent.client.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MCP传输层工厂
+ * 所有MCP服务共享一个保活连接池和调度器，按服务派生出各自超时配置的客户端，
+ * 工具调用和心跳不再每次重新建立TCP连接
+ */
+public class McpTransportFactory {
+    private static final Logger logger = LoggerFactory.getLogger(McpTransportFactory.class);
+
+    /**
+     * 查询结果格式协商请求头
+     */
+    private static final String RESULT_FORMAT_HEADER = "X-Result-Format";
+
+    /**
+     * 调用方剩余超时请求头，服务端据此设置查询截止时间，客户端放弃等待后不再占用数据库连接
+     */
+    private static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout";
+
+    /**
+     * 共享连接池和调度器的基础客户端
+     */
+    private final OkHttpClient sharedClient;
+
+    /**
+     * JSON序列化
+     */
+    private final ObjectMapper objectMapper;
+
+    public McpTransportFactory(McpProperties.TransportConfig config, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Math.max(64, config.getMaxRequestsPerHost() * 4));
+        dispatcher.setMaxRequestsPerHost(config.getMaxRequestsPerHost());
+
+        this.sharedClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(config.getMaxIdleConnections(), config.getKeepAlive(), TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .retryOnConnectionFailure(true)
+                .build();
+
+        logger.info("初始化MCP传输层 - 最大空闲连接: {}, 保活: {}ms, 单服务并发: {}",
+                config.getMaxIdleConnections(), config.getKeepAlive(), config.getMaxRequestsPerHost());
+    }
+
+    /**
+     * 为单个服务创建传输通道，连接超时和读取超时取自服务配置
+     *
+     * @param serverName 服务名称
+     * @param config 服务配置
+     * @return 传输通道
+     */
+    public McpHttpTransport create(String serverName, McpProperties.ServerConfig config) {
+        McpHttpTransport.TransportStats stats = new McpHttpTransport.TransportStats();
+
+        OkHttpClient.Builder builder = sharedClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeout()))
+                .readTimeout(Duration.ofMillis(config.getReadTimeout()))
+                .writeTimeout(Duration.ofMillis(config.getReadTimeout()))
+                // 整个调用的截止时间，防止慢响应分段到达时无限延长
+                .callTimeout(Duration.ofMillis((long) config.getConnectTimeout() + config.getReadTimeout()))
+                .eventListener(stats.listener());
+
+        if (config.isH2c()) {
+            if ("http".equalsIgnoreCase(config.getProtocol())) {
+                builder.protocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+                logger.info("MCP服务 {} 使用h2c持久多路复用连接", serverName);
+            } else {
+                logger.warn("MCP服务 {} 配置了h2c但协议为 {}，忽略h2c设置", serverName, config.getProtocol());
+            }
+        }
+
+        String requestTimeout = String.valueOf(config.getReadTimeout());
+        builder.addInterceptor(chain -> chain.proceed(chain.request().newBuilder()
+                .header(REQUEST_TIMEOUT_HEADER, requestTimeout)
+                .build()));
+
+        if (config.getResultFormat() != null && !config.getResultFormat().isEmpty()) {
+            String resultFormat = config.getResultFormat();
+            builder.addInterceptor(chain -> chain.proceed(chain.request().newBuilder()
+                    .header(RESULT_FORMAT_HEADER, resultFormat)
+                    .build()));
+        }
+
+        return new McpHttpTransport(serverName, builder.build(), objectMapper, stats);
+    }
+
+    /**
+     * 关闭连接池和调度线程，由Spring在容器关闭时调用
+     */
+    public void close() {
+        sharedClient.dispatcher().executorService().shutdown();
+        sharedClient.connectionPool().evictAll();
+        logger.info("MCP传输层已关闭");
+    }
+}
@@ -0,0 +1,134 @@
+package org.xue.app.agent.client.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xue.app.agent.client.exception.McpClientException;
+import org.xue.app.agent.client.model.JsonRpcRequest;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * RPC调用合并器
+ * 在一个很短的窗口内发往同一服务的调用合并为一个JSON-RPC批量请求，响应按id分发回各调用方。
+ * 窗口内只有一个调用时按普通单请求发送
+ */
+class RpcCoalescer {
+    private static final Logger logger = LoggerFactory.getLogger(RpcCoalescer.class);
+
+    private final String serverName;
+    private final Duration window;
+    private final int maxBatchSize;
+    private final Function<JsonRpcRequest, Mono<JsonNode>> singleSender;
+    private final Function<List<JsonRpcRequest>, Mono<List<JsonNode>>> batchSender;
+
+    private final Object lock = new Object();
+    private List<Pending> pending = new ArrayList<>();
+
+    RpcCoalescer(String serverName, Duration window, int maxBatchSize,
+                 Function<JsonRpcRequest, Mono<JsonNode>> singleSender,
+                 Function<List<JsonRpcRequest>, Mono<List<JsonNode>>> batchSender) {
+        this.serverName = serverName;
+        this.window = window;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.singleSender = singleSender;
+        this.batchSender = batchSender;
+    }
+
+    /**
+     * 提交一个调用，返回该调用对应的原始JSON-RPC响应
+     */
+    Mono<JsonNode> submit(JsonRpcRequest request) {
+        return Mono.create(sink -> enqueue(new Pending(request, sink)));
+    }
+
+    private void enqueue(Pending call) {
+        List<Pending> ready = null;
+        boolean scheduleFlush = false;
+        synchronized (lock) {
+            pending.add(call);
+            if (pending.size() >= maxBatchSize) {
+                ready = pending;
+                pending = new ArrayList<>();
+            } else if (pending.size() == 1) {
+                scheduleFlush = true;
+            }
+        }
+        if (ready != null) {
+            send(ready);
+        } else if (scheduleFlush) {
+            Mono.delay(window).subscribe(tick -> flush());
+        }
+    }
+
+    private void flush() {
+        List<Pending> ready;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            ready = pending;
+            pending = new ArrayList<>();
+        }
+        send(ready);
+    }
+
+    private void send(List<Pending> batch) {
+        if (batch.size() == 1) {
+            Pending only = batch.get(0);
+            singleSender.apply(only.request).subscribe(only.sink::success, only.sink::error);
+            return;
+        }
+
+        logger.debug("合并 {} 个RPC调用为批量请求: {}", batch.size(), serverName);
+        List<JsonRpcRequest> requests = new ArrayList<>(batch.size());
+        for (Pending call : batch) {
+            requests.add(call.request);
+        }
+        batchSender.apply(requests).subscribe(
+                responses -> dispatch(batch, responses),
+                error -> batch.forEach(call -> call.sink.error(error)));
+    }
+
+    private void dispatch(List<Pending> batch, List<JsonNode> responses) {
+        Map<String, JsonNode> byId = indexById(responses);
+        for (Pending call : batch) {
+            JsonNode response = byId.get(String.valueOf(call.request.getId()));
+            if (response == null) {
+                call.sink.error(new McpClientException("批量响应中缺少请求 " + call.request.getId() + " 的结果"));
+            } else {
+                call.sink.success(response);
+            }
+        }
+    }
+
+    /**
+     * 按id索引批量响应，id统一按字符串比较以兼容数字类型差异
+     */
+    static Map<String, JsonNode> indexById(List<JsonNode> responses) {
+        Map<String, JsonNode> byId = new HashMap<>();
+        if (responses != null) {
+            for (JsonNode response : responses) {
+                byId.put(response.path("id").asText(), response);
+            }
+        }
+        return byId;
+    }
+
+    private static final class Pending {
+        private final JsonRpcRequest request;
+        private final MonoSink<JsonNode> sink;
+
+        private Pending(JsonRpcRequest request, MonoSink<JsonNode> sink) {
+            this.request = request;
+            this.sink = sink;
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * JSON-RPC 2.0请求对象
  */
@@ -11,10 +13,20 @@ import lombok.Data;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class JsonRpcRequest {
+    /**
+     * 请求ID序列，批量请求依靠ID关联响应，同一毫秒内的请求也必须唯一
+     */
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong(System.currentTimeMillis());
+
     private String jsonrpc = "2.0";
     private String method;
     private Object params;
     private Object id;
+
+    /**
+     * 会话ID（扩展字段），服务端据此将同一会话写入后的读操作路由到主库
+     */
+    private String conversationId;
     
     /**
      * 创建一个新的JSON-RPC请求
@@ -23,7 +35,7 @@ public class JsonRpcRequest {
         JsonRpcRequest request = new JsonRpcRequest();
         request.method = method;
         request.params = params;
-        request.id = System.currentTimeMillis();
+        request.id = ID_SEQUENCE.incrementAndGet();
         return request;
     }
 } 
\ No newline at end of file
@@ -26,6 +26,11 @@ public class AgentProperties {
      */
     private int maxInteractions = 10;
     
+    /**
+     * 整轮对话（含所有工具调用）的超时（毫秒），小于 maxInteractions × llmApi.timeout 时按后者计算
+     */
+    private long turnTimeout = 0;
+    
     /**
      * 系统提示词
      */
@@ -11,6 +11,7 @@ import org.springframework.web.bind.annotation.RestController;
 import org.xue.app.agent.model.AgentRequest;
 import org.xue.app.agent.model.AgentResponse;
 import org.xue.app.agent.service.AgentService;
+import reactor.core.publisher.Mono;
 
 /**
  * Agent控制器
@@ -30,18 +31,17 @@ public class AgentController {
      * @return 处理结果
      */
     @PostMapping("/process")
-    public ResponseEntity<AgentResponse> process(@RequestBody AgentRequest request) {
+    public Mono<ResponseEntity<AgentResponse>> process(@RequestBody AgentRequest request) {
         log.info("接收到用户请求: {}", request);
         
         if (request.getQuery() == null || request.getQuery().trim().isEmpty()) {
-            return ResponseEntity.badRequest().body(AgentResponse.error("用户问题不能为空"));
+            return Mono.just(ResponseEntity.badRequest().body(AgentResponse.error("用户问题不能为空")));
         }
         
         if (request.getService() == null || request.getService().trim().isEmpty()) {
-            return ResponseEntity.badRequest().body(AgentResponse.error("服务名称不能为空"));
+            return Mono.just(ResponseEntity.badRequest().body(AgentResponse.error("服务名称不能为空")));
         }
         
-        AgentResponse response = agentService.process(request);
-        return ResponseEntity.ok(response);
+        return agentService.processAsync(request).map(ResponseEntity::ok);
     }
 } 
\ No newline at end of file
@@ -1,5 +1,6 @@
 package org.xue.app.agent.model.llm;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -40,6 +41,28 @@ public class Usage {
      */
     private TokenDetails completion_tokens_details;
     
+    /**
+     * 命中上下文缓存的提示词token数（DeepSeek）
+     */
+    private Integer prompt_cache_hit_tokens;
+    
+    /**
+     * 未命中上下文缓存的提示词token数（DeepSeek）
+     */
+    private Integer prompt_cache_miss_tokens;
+    
+    /**
+     * 获取命中前缀缓存的token数
+     * OpenAI返回在prompt_tokens_details.cached_tokens，DeepSeek返回在prompt_cache_hit_tokens
+     */
+    @JsonIgnore
+    public int getCachedTokens() {
+        if (prompt_tokens_details != null && prompt_tokens_details.getCached_tokens() != null) {
+            return prompt_tokens_details.getCached_tokens();
+        }
+        return prompt_cache_hit_tokens != null ? prompt_cache_hit_tokens : 0;
+    }
+    
     /**
      * token详情内部类
      */
@@ -0,0 +1,117 @@
+package org.xue.app.agent.prompt;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.xue.app.agent.model.llm.Message;
+import org.xue.app.agent.model.llm.Tool;
+import org.xue.app.agent.model.llm.ToolFunction;
+import org.xue.app.agent.model.llm.ToolParameter;
+import org.xue.app.agent.model.llm.Usage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * 提示词组装器
+ * 按"稳定内容在前、易变内容在后"的顺序组装请求，使相邻请求共享尽可能长的前缀，
+ * 从而命中OpenAI/DeepSeek的服务端前缀缓存（降低首token延迟与费用）：
+ * 系统规则 → 规范化排序的工具定义 → 历史对话前缀 → 本次请求的易变内容
+ */
+@Slf4j
+@Component
+public class PromptAssembler {
+
+    private final PromptCacheStats cacheStats;
+
+    public PromptAssembler(PromptCacheStats cacheStats) {
+        this.cacheStats = cacheStats;
+    }
+
+    /**
+     * 组装没有易变内容的消息列表（如工具循环中的后续交互，本轮问题已在对话中）
+     * @param systemPrompt 系统规则（稳定）
+     * @param conversation 历史对话（按时间顺序，只追加不改写）
+     * @return 按前缀稳定性排列的消息列表
+     */
+    public List<Message> assemble(String systemPrompt, List<Message> conversation) {
+        return assemble(systemPrompt, conversation, List.of());
+    }
+
+    /**
+     * 组装消息列表
+     * @param systemPrompt 系统规则（稳定）
+     * @param conversation 历史对话（按时间顺序，只追加不改写）
+     * @param volatileMessages 本次请求才有的内容（检索上下文、附件、当前问题等）
+     * @return 按前缀稳定性排列的消息列表
+     */
+    public List<Message> assemble(String systemPrompt, List<Message> conversation, List<Message> volatileMessages) {
+        List<Message> messages = new ArrayList<>(conversation.size() + volatileMessages.size() + 1);
+        if (systemPrompt != null && !systemPrompt.isEmpty()) {
+            messages.add(Message.systemMessage(systemPrompt));
+        }
+        for (Message message : conversation) {
+            // 系统规则只允许出现在最前面，历史中混入的系统消息会打断前缀
+            if (!"system".equals(message.getRole())) {
+                messages.add(message);
+            }
+        }
+        messages.addAll(volatileMessages);
+        return messages;
+    }
+
+    /**
+     * 工具定义规范化：按函数名排序，参数属性按键排序
+     * MCP服务返回顺序和HashMap迭代顺序都不稳定，不规范化会让每次请求的tools段都不同
+     */
+    public List<Tool> canonicalTools(Collection<Tool> tools) {
+        List<Tool> canonical = new ArrayList<>(tools.size());
+        for (Tool tool : tools) {
+            canonical.add(canonicalTool(tool));
+        }
+        canonical.sort(Comparator.comparing(PromptAssembler::toolName));
+        return canonical;
+    }
+
+    /**
+     * 记录一次调用的用量，统计前缀缓存命中情况
+     */
+    public void recordUsage(String model, Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        cacheStats.record(usage);
+        if (log.isDebugEnabled()) {
+            log.debug("提示词缓存: 模型={}, prompt_tokens={}, cached_tokens={}",
+                    model, usage.getPrompt_tokens(), usage.getCachedTokens());
+        }
+    }
+
+    private Tool canonicalTool(Tool tool) {
+        ToolFunction function = tool.getFunction();
+        if (function == null || function.getParameters() == null) {
+            return tool;
+        }
+        ToolParameter parameters = function.getParameters();
+        ToolParameter canonicalParameters = ToolParameter.builder()
+                .type(parameters.getType())
+                .properties(parameters.getProperties() != null ? new TreeMap<>(parameters.getProperties()) : null)
+                .required(parameters.getRequired() != null
+                        ? parameters.getRequired().stream().sorted().toList() : null)
+                .build();
+        return Tool.builder()
+                .type(tool.getType())
+                .function(ToolFunction.builder()
+                        .name(function.getName())
+                        .description(function.getDescription())
+                        .parameters(canonicalParameters)
+                        .build())
+                .build();
+    }
+
+    private static String toolName(Tool tool) {
+        return tool.getFunction() != null && tool.getFunction().getName() != null ? tool.getFunction().getName() : "";
+    }
+}
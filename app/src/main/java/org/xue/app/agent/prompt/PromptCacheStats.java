@@ -0,0 +1,48 @@
+package org.xue.app.agent.prompt;
+
+import org.springframework.stereotype.Component;
+import org.xue.app.agent.model.llm.Usage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 前缀缓存命中统计
+ * 累计服务端返回的cached token数，用于评估提示词布局调整后的缓存命中率
+ */
+@Component
+public class PromptCacheStats {
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder promptTokens = new LongAdder();
+    private final LongAdder cachedTokens = new LongAdder();
+    private final LongAdder cacheHitRequests = new LongAdder();
+
+    public void record(Usage usage) {
+        requests.increment();
+        if (usage.getPrompt_tokens() != null) {
+            promptTokens.add(usage.getPrompt_tokens());
+        }
+        int cached = usage.getCachedTokens();
+        if (cached > 0) {
+            cachedTokens.add(cached);
+            cacheHitRequests.increment();
+        }
+    }
+
+    /**
+     * 获取统计快照
+     */
+    public Map<String, Object> snapshot() {
+        long prompt = promptTokens.sum();
+        long cached = cachedTokens.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.sum());
+        stats.put("cacheHitRequests", cacheHitRequests.sum());
+        stats.put("promptTokens", prompt);
+        stats.put("cachedTokens", cached);
+        stats.put("cachedTokenRatio", prompt == 0 ? 0.0 : (double) cached / prompt);
+        return stats;
+    }
+}
@@ -2,6 +2,7 @@ package org.xue.app.agent.service;
 
 import org.xue.app.agent.model.AgentRequest;
 import org.xue.app.agent.model.AgentResponse;
+import reactor.core.publisher.Mono;
 
 /**
  * Agent服务接口
@@ -15,4 +16,12 @@ public interface AgentService {
      * @return 处理结果
      */
     AgentResponse process(AgentRequest request);
+    
+    /**
+     * 异步处理用户请求
+     *
+     * @param request 用户请求
+     * @return 处理结果
+     */
+    Mono<AgentResponse> processAsync(AgentRequest request);
 } 
\ No newline at end of file
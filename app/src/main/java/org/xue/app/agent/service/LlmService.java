@@ -2,6 +2,7 @@ package org.xue.app.agent.service;
 
 import org.xue.app.agent.model.llm.LlmRequest;
 import org.xue.app.agent.model.llm.LlmResponse;
+import reactor.core.publisher.Mono;
 
 /**
  * LLM服务接口
@@ -9,10 +10,19 @@ import org.xue.app.agent.model.llm.LlmResponse;
 public interface LlmService {
     
     /**
-     * 调用LLM服务
+     * 调用LLM服务（阻塞）
      *
      * @param request LLM请求
      * @return LLM响应
      */
     LlmResponse callLlm(LlmRequest request);
-} 
\ No newline at end of file
+    
+    /**
+     * 异步调用LLM服务
+     * 等待模型响应期间不占用调用线程
+     *
+     * @param request LLM请求
+     * @return LLM响应
+     */
+    Mono<LlmResponse> callLlmAsync(LlmRequest request);
+}
@@ -5,10 +5,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.xue.app.agent.client.core.McpClientTemplate;
 import org.xue.app.agent.config.AgentProperties;
 import org.xue.app.agent.model.AgentRequest;
@@ -16,6 +18,7 @@ import org.xue.app.agent.model.AgentResponse;
 import org.xue.app.agent.model.llm.*;
 import org.xue.app.agent.service.AgentService;
 import org.xue.app.agent.service.LlmService;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
 
@@ -41,71 +44,67 @@ public class DefaultAgentService implements AgentService {
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Autowired
+    @Qualifier("llmWebClient")
+    private WebClient llmWebClient;
+    
     @Override
     public AgentResponse process(AgentRequest request) {
-        try {
-            log.info("处理用户请求: {}", request);
-            
-            // 检查参数
-            if (request.getQuery() == null || request.getQuery().isEmpty()) {
-                return AgentResponse.error("用户问题不能为空");
-            }
-            
-            if (request.getService() == null || request.getService().isEmpty()) {
-                return AgentResponse.error("服务名称不能为空");
-            }
-            
-            // 获取服务状态
-            if (!isServiceAvailable(request.getService())) {
-                return AgentResponse.error("服务不可用: " + request.getService());
-            }
-            
-            // 将请求委托给ChatServiceClient进行处理
-            return processByAppService(request);
-            
-        } catch (Exception e) {
-            log.error("Agent处理异常", e);
-            return AgentResponse.error("处理失败: " + e.getMessage());
+        return processAsync(request).block();
+    }
+    
+    @Override
+    public Mono<AgentResponse> processAsync(AgentRequest request) {
+        log.info("处理用户请求: {}", request);
+        
+        // 检查参数
+        if (request.getQuery() == null || request.getQuery().isEmpty()) {
+            return Mono.just(AgentResponse.error("用户问题不能为空"));
         }
+        
+        if (request.getService() == null || request.getService().isEmpty()) {
+            return Mono.just(AgentResponse.error("服务名称不能为空"));
+        }
+        
+        // 获取服务状态（无锁读取心跳发布的状态），再将请求委托给app服务处理
+        return Mono.fromCallable(() -> isServiceAvailable(request.getService()))
+                .flatMap(available -> available
+                        ? processByAppService(request)
+                        : Mono.just(AgentResponse.error("服务不可用: " + request.getService())))
+                .onErrorResume(e -> {
+                    log.error("Agent处理异常", e);
+                    return Mono.just(AgentResponse.error("处理失败: " + e.getMessage()));
+                });
     }
     
     /**
      * 调用app模块的服务进行处理
      */
-    private AgentResponse processByAppService(AgentRequest request) {
-        try {
-            log.info("将请求转发到app服务进行处理: {}", request);
-            
-            // 构建请求正文
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("query", request.getQuery());
-            requestBody.put("service", request.getService());
-            requestBody.put("temperature", request.getTemperature());
-            
-            // 发送HTTP请求
-            String appServiceUrl = agentProperties.getAppServiceUrl();
-            if (appServiceUrl == null || appServiceUrl.isEmpty()) {
-                appServiceUrl = "http://localhost:8080"; // 默认本地地址
-            }
-            
-            String apiUrl = appServiceUrl + "/api/agent-process";
-            ResponseEntity<AgentResponse> response = restTemplate.postForEntity(
-                    apiUrl,
-                    requestBody,
-                    AgentResponse.class
-            );
-            
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                return response.getBody();
-            } else {
-                log.error("调用app服务失败，状态码: {}", response.getStatusCode());
-                return AgentResponse.error("调用处理服务失败: " + response.getStatusCode());
-            }
-            
-        } catch (Exception e) {
-            log.error("调用app服务异常", e);
-            return AgentResponse.error("调用处理服务异常: " + e.getMessage());
+    private Mono<AgentResponse> processByAppService(AgentRequest request) {
+        log.info("将请求转发到app服务进行处理: {}", request);
+        
+        // 构建请求正文
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("query", request.getQuery());
+        requestBody.put("service", request.getService());
+        requestBody.put("temperature", request.getTemperature());
+        
+        String appServiceUrl = agentProperties.getAppServiceUrl();
+        if (appServiceUrl == null || appServiceUrl.isEmpty()) {
+            appServiceUrl = "http://localhost:8080"; // 默认本地地址
         }
+        
+        // 转发的请求会跑完整的工具循环，使用与LLM调用相同的长响应超时
+        return llmWebClient.post()
+                .uri(appServiceUrl + "/api/agent-process")
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(AgentResponse.class)
+                .switchIfEmpty(Mono.fromSupplier(() -> AgentResponse.error("调用处理服务失败: 响应为空")))
+                .onErrorResume(e -> {
+                    log.error("调用app服务异常", e);
+                    return Mono.just(AgentResponse.error("调用处理服务异常: " + e.getMessage()));
+                });
     }
     
     /**
@@ -131,18 +130,14 @@ public class DefaultAgentService implements AgentService {
                 return Collections.emptyList();
             }
             
-            // 使用McpClientTemplate获取Schema URL
-            String schemaUrl = mcpTemplate.getSchemaUrl(serviceName, "function_calling");
-            
-            ResponseEntity<Map> response = restTemplate.getForEntity(schemaUrl, Map.class);
-            
-            if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
-                log.error("获取API模式描述失败: {}", response.getStatusCode());
+            // 通过McpClientTemplate获取模式描述，版本未变化时使用本地缓存
+            Map<String, Object> schemaData = mcpTemplate.getApiSchema(serviceName, "function_calling");
+            if (schemaData == null) {
+                log.error("获取API模式描述失败: {}", serviceName);
                 return Collections.emptyList();
             }
             
             List<Tool> tools = new ArrayList<>();
-            Map<String, Object> schemaData = response.getBody();
             if (schemaData.containsKey("functions")) {
                 List<Map<String, Object>> functions = (List<Map<String, Object>>) schemaData.get("functions");
                 
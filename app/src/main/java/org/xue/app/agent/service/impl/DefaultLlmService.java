@@ -2,54 +2,50 @@ package org.xue.app.agent.service.impl;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.xue.app.agent.config.AgentProperties;
 import org.xue.app.agent.model.llm.LlmRequest;
 import org.xue.app.agent.model.llm.LlmResponse;
 import org.xue.app.agent.service.LlmService;
+import reactor.core.publisher.Mono;
 
 /**
  * 默认LLM服务实现
+ * 基于WebClient的非阻塞调用
  */
 @Service
 public class DefaultLlmService implements LlmService {
     private static final Logger log = LoggerFactory.getLogger(DefaultLlmService.class);
     
-    @Autowired
-    private RestTemplate restTemplate;
+    private final WebClient llmWebClient;
     
-    @Autowired
-    private AgentProperties agentProperties;
+    private final AgentProperties agentProperties;
+    
+    public DefaultLlmService(@Qualifier("llmWebClient") WebClient llmWebClient, AgentProperties agentProperties) {
+        this.llmWebClient = llmWebClient;
+        this.agentProperties = agentProperties;
+    }
     
     @Override
     public LlmResponse callLlm(LlmRequest request) {
-        try {
-            // 设置请求头
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(agentProperties.getLlmApi().getKey());
-            
-            // 创建HTTP实体
-            HttpEntity<LlmRequest> entity = new HttpEntity<>(request, headers);
-            
-            // 发送请求
-            ResponseEntity<LlmResponse> response = restTemplate.postForEntity(
-                    agentProperties.getLlmApi().getUrl(),
-                    entity,
-                    LlmResponse.class
-            );
-            
-            // 返回响应
-            return response.getBody();
-        } catch (Exception e) {
-            log.error("调用LLM服务异常", e);
-            throw new RuntimeException("调用LLM服务失败: " + e.getMessage(), e);
-        }
+        return callLlmAsync(request).block();
+    }
+    
+    @Override
+    public Mono<LlmResponse> callLlmAsync(LlmRequest request) {
+        return llmWebClient.post()
+                .uri(agentProperties.getLlmApi().getUrl())
+                .contentType(MediaType.APPLICATION_JSON)
+                .headers(headers -> headers.setBearerAuth(agentProperties.getLlmApi().getKey()))
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(LlmResponse.class)
+                .onErrorMap(e -> {
+                    log.error("调用LLM服务异常", e);
+                    return new RuntimeException("调用LLM服务失败: " + e.getMessage(), e);
+                });
     }
-} 
\ No newline at end of file
+}
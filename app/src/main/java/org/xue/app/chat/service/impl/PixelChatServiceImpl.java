@@ -16,6 +16,10 @@ import org.xue.app.dto.ConversationUpdateDTO;
 import org.xue.app.repository.ChatMessageRepository;
 import org.xue.app.repository.ConversationRepository;
 import org.xue.app.agent.model.AgentResponse;
+import org.xue.app.agent.model.llm.Message;
+import org.xue.app.agent.prompt.PromptAssembler;
+import org.xue.app.client.model.ChatCompletionRequest;
+import org.xue.app.client.model.ChatCompletionResult;
 import org.xue.app.service.PromptsService;
 import org.xue.app.service.DocumentParserService;
 
@@ -42,6 +46,7 @@ public class PixelChatServiceImpl implements PixelChatService {
     private final ObjectMapper objectMapper;
     private final PromptsService promptsService;
     private final DocumentParserService documentParserService;
+    private final PromptAssembler promptAssembler;
 
     @Autowired
     public PixelChatServiceImpl(ConversationRepository conversationRepository,
@@ -49,13 +54,15 @@ public class PixelChatServiceImpl implements PixelChatService {
                                 OpenAiClient openAiClient,
                                 ObjectMapper objectMapper,
                                 PromptsService promptsService,
-                                DocumentParserService documentParserService) {
+                                DocumentParserService documentParserService,
+                                PromptAssembler promptAssembler) {
         this.conversationRepository = conversationRepository;
         this.chatMessageRepository = chatMessageRepository;
         this.openAiClient = openAiClient;
         this.objectMapper = objectMapper;
         this.promptsService = promptsService;
         this.documentParserService = documentParserService;
+        this.promptAssembler = promptAssembler;
     }
 
     @Value("${ai.openai.chat.options.model}")
@@ -222,7 +229,10 @@ public class PixelChatServiceImpl implements PixelChatService {
             // 1. 处理并解析附件内容
             String processedAttachments = processAndParseAttachments(requestDTO.getAttachments());
             
-            // 2. 保存用户消息（只保存用户原始输入）
+            // 2. 先读取历史消息作为稳定前缀，本次消息随后作为易变内容追加在末尾
+            List<ChatMessage> historyMessages = chatMessageRepository.findByConversationIdOrderByCreatedAtAsc(conversationId);
+            
+            // 3. 保存用户消息（只保存用户原始输入）
             ChatMessage userMessage = new ChatMessage();
             userMessage.setConversationId(conversationId);
             userMessage.setRole("user");
@@ -232,22 +242,20 @@ public class PixelChatServiceImpl implements PixelChatService {
             chatMessageRepository.save(userMessage);
             log.info("User message saved with ID: {} for conversation ID: {}", userMessage.getId(), conversationId);
 
-            // 3. 获取历史消息构建上下文
-            List<ChatMessage> historyMessages = chatMessageRepository.findByConversationIdOrderByCreatedAtAsc(conversationId);
-            
             // 4. 构建包含附件信息的完整消息内容（用于发送给AI）
             String messageWithAttachments = buildMessageWithAttachments(requestDTO.getMessage(), processedAttachments);
             
             // 5. 构建OpenAI请求（使用包含附件信息的消息）
-            String requestJson = buildOpenAiRequestWithAttachments(historyMessages, conversation.getModel(), messageWithAttachments);
+            ChatCompletionRequest chatRequest = buildOpenAiRequestWithAttachments(historyMessages, conversation.getModel(), messageWithAttachments);
             log.info("Built OpenAI request for conversation ID: {}", conversationId);
 
-            // 6. 调用OpenAI获取响应
-            String responseJson = openAiClient.chatSync(requestJson, conversation.getModel());
+            // 6. 调用OpenAI获取响应（请求体流式写出，响应增量解析）
+            ChatCompletionResult chatResult = openAiClient.chat(chatRequest);
             log.info("Received OpenAI response for conversation ID: {}", conversationId);
+            promptAssembler.recordUsage(chatRequest.getModel(), chatResult.getUsage());
 
             // 7. 解析响应并保存AI消息
-            String assistantReply = extractAssistantReply(responseJson);
+            String assistantReply = extractAssistantReply(chatResult);
             if (assistantReply != null && !assistantReply.isEmpty()) {
                 ChatMessage assistantMessage = new ChatMessage();
                 assistantMessage.setConversationId(conversationId);
@@ -265,7 +273,7 @@ public class PixelChatServiceImpl implements PixelChatService {
                     .content(assistantReply)
                     .message(assistantReply)
                     .interactions(1)
-                    .totalTokens(0)
+                    .totalTokens(chatResult.getTotalTokens())
                     .build();
             
             return agentResponse;
@@ -434,8 +442,9 @@ public class PixelChatServiceImpl implements PixelChatService {
 
     /**
      * 构建包含附件信息的OpenAI请求
+     * 历史消息按存储结果重建为稳定前缀，本次消息（含附件解析内容）作为易变内容放在最后
      */
-    private String buildOpenAiRequestWithAttachments(List<ChatMessage> historyMessages, String model, String currentMessageWithAttachments) throws Exception {
+    private ChatCompletionRequest buildOpenAiRequestWithAttachments(List<ChatMessage> historyMessages, String model, String currentMessageWithAttachments) {
         if(null==model || model.isEmpty()){
             model = defaultModel;
         }
@@ -444,41 +453,30 @@ public class PixelChatServiceImpl implements PixelChatService {
         double temperature = openAiClient.getTemperatureForModel(model);
         int maxTokens = openAiClient.getMaxTokensForModel(model);
         
-        Map<String, Object> request = new HashMap<>();
-        request.put("model", model);
-        request.put("stream", false);
-        
-        List<Map<String, String>> messages = new ArrayList<>();
-        
-        // 添加系统消息（针对文件处理进行优化）
-        Map<String, String> systemMessage = new HashMap<>();
-        systemMessage.put("role", "system");
-        systemMessage.put("content", promptsService.getPixelChatSystemPrompt());
-        messages.add(systemMessage);
-        
-        // 添加历史消息
+        // 历史消息作为稳定前缀：只追加、内容按存储结果确定性重建，保证相邻请求前缀一致
+        List<Message> conversation = new ArrayList<>(historyMessages.size());
         for (ChatMessage msg : historyMessages) {
-            Map<String, String> message = new HashMap<>();
-            message.put("role", msg.getRole());
-            
             // 如果是用户消息且有附件，构建包含附件信息的内容
+            String content = msg.getContent();
             if ("user".equals(msg.getRole()) && msg.getAttachments() != null && !msg.getAttachments().trim().isEmpty()) {
-                String contentWithAttachments = buildMessageWithAttachments(msg.getContent(), msg.getAttachments());
-                message.put("content", contentWithAttachments);
-            } else {
-                message.put("content", msg.getContent());
+                content = buildMessageWithAttachments(msg.getContent(), msg.getAttachments());
             }
-            
-            messages.add(message);
+            conversation.add(Message.builder().role(msg.getRole()).content(content).build());
         }
         
-        request.put("messages", messages);
-        request.put("max_tokens", maxTokens);
-        request.put("temperature", temperature);
+        // 系统提示词（针对文件处理进行优化）放在最前面，本次消息放在最后
+        List<Message> messages = promptAssembler.assemble(promptsService.getPixelChatSystemPrompt(),
+                conversation, List.of(Message.userMessage(currentMessageWithAttachments)));
         
         log.info("Building request for model: {}, temperature: {}, maxTokens: {}", model, temperature, maxTokens);
         
-        return objectMapper.writeValueAsString(request);
+        return ChatCompletionRequest.builder()
+                .model(model)
+                .stream(false)
+                .messages(messages)
+                .maxTokens(maxTokens)
+                .temperature(temperature)
+                .build();
     }
 
     /**
@@ -494,23 +492,11 @@ public class PixelChatServiceImpl implements PixelChatService {
     /**
      * 从OpenAI响应中提取AI回复内容
      */
-    private String extractAssistantReply(String responseJson) {
-        try {
-            JsonNode root = objectMapper.readTree(responseJson);
-            JsonNode choices = root.get("choices");
-            if (choices != null && choices.isArray() && choices.size() > 0) {
-                JsonNode firstChoice = choices.get(0);
-                JsonNode message = firstChoice.get("message");
-                if (message != null) {
-                    JsonNode content = message.get("content");
-                    if (content != null) {
-                        return content.asText();
-                    }
-                }
-            }
-        } catch (Exception e) {
-            log.error("Error parsing OpenAI response: {}", e.getMessage(), e);
+    private String extractAssistantReply(ChatCompletionResult chatResult) {
+        if (chatResult != null && chatResult.getContent() != null) {
+            return chatResult.getContent();
         }
+        log.error("OpenAI response contains no assistant content");
         return "抱歉，无法解析AI回复，请稍后再试。";
     }
 
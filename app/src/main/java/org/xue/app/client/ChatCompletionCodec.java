@@ -0,0 +1,147 @@
+package org.xue.app.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import org.xue.app.agent.model.llm.Usage;
+import org.xue.app.client.model.ChatCompletionRequest;
+import org.xue.app.client.model.ChatCompletionResult;
+
+import java.io.IOException;
+
+/**
+ * Chat Completions 请求/响应的流式编解码
+ * 请求通过JsonGenerator直接写入OkHttp的BufferedSink；
+ * 响应从BufferedSource增量解析，只物化需要的字段
+ */
+class ChatCompletionCodec {
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+
+    ChatCompletionCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * 创建流式写出的请求体
+     * 请求体可重复写出，重试拦截器多次proceed时每次都从类型化模型重新生成
+     */
+    RequestBody requestBody(ChatCompletionRequest request) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return JSON;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                JsonGenerator generator = jsonFactory.createGenerator(sink.outputStream());
+                // sink由OkHttp负责关闭
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                objectMapper.writeValue(generator, request);
+                generator.flush();
+            }
+        };
+    }
+
+    /**
+     * 从响应流中增量解析结果
+     */
+    ChatCompletionResult parse(BufferedSource source) throws IOException {
+        ChatCompletionResult.ChatCompletionResultBuilder builder = ChatCompletionResult.builder();
+        try (JsonParser parser = jsonFactory.createParser(source.inputStream())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("响应不是JSON对象");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "model" -> builder.model(parser.getValueAsString());
+                    case "choices" -> readFirstChoice(parser, value, builder);
+                    case "usage" -> {
+                        if (value == JsonToken.START_OBJECT) {
+                            builder.usage(objectMapper.readValue(parser, Usage.class));
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 从请求JSON中提取顶层model字段，读到该字段即停止
+     */
+    String extractModel(String requestJson) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(requestJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("model".equals(field)) {
+                    return parser.getValueAsString();
+                }
+                parser.skipChildren();
+            }
+        }
+        return null;
+    }
+
+    private void readFirstChoice(JsonParser parser, JsonToken value,
+                                 ChatCompletionResult.ChatCompletionResultBuilder builder) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        boolean first = true;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (first && token == JsonToken.START_OBJECT) {
+                readChoice(parser, builder);
+            } else {
+                parser.skipChildren();
+            }
+            first = false;
+        }
+    }
+
+    private void readChoice(JsonParser parser, ChatCompletionResult.ChatCompletionResultBuilder builder) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("message".equals(field) && value == JsonToken.START_OBJECT) {
+                readMessage(parser, builder);
+            } else if ("finish_reason".equals(field)) {
+                builder.finishReason(parser.getValueAsString());
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readMessage(JsonParser parser, ChatCompletionResult.ChatCompletionResultBuilder builder) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("content".equals(field)) {
+                builder.content(parser.getValueAsString());
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package org.xue.app.client;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.xue.app.client.model.ChatCompletionRequest;
+import org.xue.app.client.model.ChatCompletionResult;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -50,6 +54,12 @@ public class OpenAiClient {
     private final OkHttpClient openaiHttpClient;
     private final OkHttpClient deepseekHttpClient;
 
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json");
+
+    // 请求/响应流式编解码
+    private final ChatCompletionCodec codec = new ChatCompletionCodec(
+            new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false));
+
     public OpenAiClient(
             // OpenAI配置
             @Value("${ai.openai.api-key}") String openaiApiKey, 
@@ -224,16 +234,56 @@ public class OpenAiClient {
      */
     public String chatSync(String requestJson, String model) throws Exception {
         ModelConfig config = getModelConfig(model);
-        
-        Request request = new Request.Builder()
+        Request request = buildRequest(config, RequestBody.create(requestJson, JSON_MEDIA_TYPE));
+
+        return execute(config, request, model, body -> {
+            String responseBody = body.string();
+            log.info("收到API响应，模型: {}, 响应长度: {}", model, responseBody.length());
+            return responseBody;
+        });
+    }
+
+    /**
+     * 发送类型化的Chat Completions请求
+     * 请求体直接流式写入连接，响应从连接流中增量解析，只保留回复内容、完成原因和用量
+     * @param chatRequest 请求模型
+     * @return 解析后的结果
+     */
+    public ChatCompletionResult chat(ChatCompletionRequest chatRequest) throws Exception {
+        String model = chatRequest.getModel();
+        ModelConfig config = getModelConfig(model);
+        Request request = buildRequest(config, codec.requestBody(chatRequest));
+
+        return execute(config, request, model, body -> {
+            ChatCompletionResult result = codec.parse(body.source());
+            log.info("收到API响应，模型: {}, 完成原因: {}, 总token: {}", model, result.getFinishReason(), result.getTotalTokens());
+            return result;
+        });
+    }
+
+    private Request buildRequest(ModelConfig config, RequestBody body) {
+        return new Request.Builder()
                 .url(config.baseUrl + "/v1/chat/completions")
                 .addHeader("Authorization", "Bearer " + config.apiKey)
                 .addHeader("Content-Type", "application/json")
                 .addHeader("Accept", "application/json")
                 .addHeader("Connection", "keep-alive")
-                .post(RequestBody.create(requestJson, MediaType.parse("application/json")))
+                .post(body)
                 .build();
+    }
+
+    /**
+     * 响应体处理器，在响应关闭前读取响应体
+     */
+    @FunctionalInterface
+    private interface ResponseHandler<T> {
+        T handle(ResponseBody body) throws IOException;
+    }
 
+    /**
+     * 发送请求并处理响应，包含重试逻辑
+     */
+    private <T> T execute(ModelConfig config, Request request, String model, ResponseHandler<T> handler) throws Exception {
         log.info("发送同步请求，模型: {}, baseUrl: {}", model, config.baseUrl);
         
         int maxRetries = 3;
@@ -260,9 +310,11 @@ public class OpenAiClient {
                         throw new RuntimeException("调用API失败: " + response.code() + ", " + errorBody);
                     }
                     
-                    String responseBody = response.body() != null ? response.body().string() : "";
-                    log.info("收到API响应，模型: {}, 响应长度: {}", model, responseBody.length());
-                    return responseBody;
+                    ResponseBody body = response.body();
+                    if (body == null) {
+                        throw new IOException("API响应体为空");
+                    }
+                    return handler.handle(body);
                 }
             } catch (IOException e) {
                 lastException = e;
@@ -315,18 +367,7 @@ public class OpenAiClient {
      */
     private String extractModelFromRequest(String requestJson) {
         try {
-            // 简单的JSON解析，提取model字段
-            if (requestJson.contains("\"model\"")) {
-                int modelStart = requestJson.indexOf("\"model\"");
-                int colonIndex = requestJson.indexOf(":", modelStart);
-                if (colonIndex != -1) {
-                    int valueStart = requestJson.indexOf("\"", colonIndex) + 1;
-                    int valueEnd = requestJson.indexOf("\"", valueStart);
-                    if (valueStart > 0 && valueEnd > valueStart) {
-                        return requestJson.substring(valueStart, valueEnd);
-                    }
-                }
-            }
+            return codec.extractModel(requestJson);
         } catch (Exception e) {
             log.warn("解析请求JSON中的模型信息失败: {}", e.getMessage());
         }
@@ -0,0 +1,48 @@
+package org.xue.app.client.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.xue.app.agent.model.llm.Message;
+
+import java.util.List;
+
+/**
+ * Chat Completions 请求模型
+ * 由 OpenAiClient 直接流式写入请求体，不再先序列化为字符串
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChatCompletionRequest {
+    /**
+     * 模型名称
+     */
+    private String model;
+
+    /**
+     * 是否流式输出
+     */
+    private Boolean stream;
+
+    /**
+     * 消息列表
+     */
+    private List<Message> messages;
+
+    /**
+     * 最大token数
+     */
+    @JsonProperty("max_tokens")
+    private Integer maxTokens;
+
+    /**
+     * 温度参数
+     */
+    private Double temperature;
+}
@@ -0,0 +1,44 @@
+package org.xue.app.client.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.xue.app.agent.model.llm.Usage;
+
+/**
+ * Chat Completions 响应中实际需要的字段
+ * 只物化第一个choice的消息内容、完成原因、模型和用量，其余字段在解析时直接跳过
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatCompletionResult {
+    /**
+     * 响应模型名称
+     */
+    private String model;
+
+    /**
+     * 助手回复内容
+     */
+    private String content;
+
+    /**
+     * 完成原因
+     */
+    private String finishReason;
+
+    /**
+     * 使用统计
+     */
+    private Usage usage;
+
+    /**
+     * 获取总token数，缺失时返回0
+     */
+    public int getTotalTokens() {
+        return usage != null && usage.getTotal_tokens() != null ? usage.getTotal_tokens() : 0;
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.*;
 import org.xue.app.agent.model.AgentResponse;
 import org.xue.app.dto.*;
 import org.xue.app.service.ChatService;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
@@ -214,33 +215,36 @@ public class ChatController extends BaseController {
      * 发送消息并获取回复
      */
     @PostMapping("/send")
-    public ResponseEntity<AgentResponse> sendMessage(
+    public Mono<ResponseEntity<AgentResponse>> sendMessage(
             @RequestHeader(value = "Authorization", required = false) String authHeader,
             @RequestBody ChatRequestDTO requestDTO) {
         
         log.info("收到发送消息请求: {}, 认证头: {}", requestDTO, authHeader);
         ResponseEntity<AgentResponse> authResult = authenticate(authHeader);
-        if (authResult != null) return authResult;
+        if (authResult != null) return Mono.just(authResult);
         
         // 参数校验
         if (requestDTO.getMessage() == null || requestDTO.getMessage().trim().isEmpty()) {
             log.warn("发送消息失败: 用户问题为空");
-            return ResponseEntity.badRequest().body(AgentResponse.error("用户问题不能为空"));
+            return Mono.just(ResponseEntity.badRequest().body(AgentResponse.error("用户问题不能为空")));
         }
         
-        // 设置用户ID，必须有登录用户
+        // 设置用户ID，必须有登录用户（在请求线程上读取安全上下文）
         String userId = getCurrentUserId();
         if (userId != null) {
             requestDTO.setUserId(userId);
             log.info("自动设置消息所属用户ID: {}", userId);
         } else {
             log.error("未登录状态，无法发送消息");
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                .body(AgentResponse.error("请先登录后再发送消息"));
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(AgentResponse.error("请先登录后再发送消息")));
         }
         
-        AgentResponse response = chatService.sendMessage(requestDTO);
-        log.info("消息发送成功，状态: {}", response.getStatus());
-        return ResponseEntity.ok(response);
+        // 异步处理：工具循环执行期间释放Tomcat线程
+        return chatService.sendMessageAsync(requestDTO)
+                .map(response -> {
+                    log.info("消息发送成功，状态: {}", response.getStatus());
+                    return ResponseEntity.ok(response);
+                });
     }
-} 
\ No newline at end of file
+}
@@ -7,6 +7,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 // import org.xue.app.feign.DocumentClient; // 已移除
+import org.xue.app.agent.prompt.PromptCacheStats;
 import org.xue.app.service.DocumentManagementService;
 
 import java.util.HashMap;
@@ -23,10 +24,12 @@ import java.util.Map;
 public class HealthController {
 
     private final DocumentManagementService documentManagementService;
+    private final PromptCacheStats promptCacheStats;
 
     @Autowired
-    public HealthController(DocumentManagementService documentManagementService) {
+    public HealthController(DocumentManagementService documentManagementService, PromptCacheStats promptCacheStats) {
         this.documentManagementService = documentManagementService;
+        this.promptCacheStats = promptCacheStats;
     }
 
     /**
@@ -57,4 +60,12 @@ public class HealthController {
             return ResponseEntity.internalServerError().body(response);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 大模型前缀缓存命中统计
+     */
+    @GetMapping("/prompt-cache")
+    public ResponseEntity<Map<String, Object>> promptCache() {
+        return ResponseEntity.ok(promptCacheStats.snapshot());
+    }
+}
@@ -1,5 +1,6 @@
 package org.xue.app.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -42,16 +43,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
         
         try {
-            // 提取用户名
-            username = jwtService.extractUsername(jwt);
+            // 解析并校验令牌（签名和过期时间），只解析一次
+            Claims claims = jwtService.extractAllClaims(jwt);
+            username = claims.getSubject();
             
             // 如果用户名不为空且当前安全上下文中没有认证
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                // 加载用户详情
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                // 网关已转发用户信息时，必须与令牌主体一致
+                String gatewayUser = request.getHeader("X-User-Name");
                 
-                // 验证令牌是否有效
-                if (jwtService.validateToken(jwt, userDetails)) {
+                if (gatewayUser == null || gatewayUser.equals(username)) {
+                    // 由令牌声明和身份缓存构建主体，稳态下不再逐请求查询用户表
+                    UserDetails userDetails = buildPrincipal(claims);
+                    
                     // 创建认证令牌
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
@@ -92,6 +96,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
     
+    // 用户名取自已校验的令牌声明，角色取自带缓存的UserDetailsService（角色变更时缓存失效即生效），
+    // 主体中不保留密码哈希
+    private UserDetails buildPrincipal(Claims claims) {
+        UserDetails cached = userDetailsService.loadUserByUsername(claims.getSubject());
+        return new org.springframework.security.core.userdetails.User(
+                claims.getSubject(),
+                "",
+                cached.getAuthorities()
+        );
+    }
+
     // 判断是否为token验证请求
     private boolean isTokenValidationRequest(HttpServletRequest request) {
         String path = request.getRequestURI();
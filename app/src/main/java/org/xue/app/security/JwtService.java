@@ -1,9 +1,11 @@
 package org.xue.app.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -32,6 +34,16 @@ public class JwtService {
     @Value("${jwt.expiration:604800000}")  // 默认7天过期时间（毫秒）
     private long jwtExpiration;
 
+    // 解析器线程安全，启动时构建一次，避免每次解析都重新派生密钥
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void initParser() {
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(getSigningKey())
+                .build();
+    }
+
     // 从token中提取用户名
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -48,14 +60,9 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
-    // 从token提取所有声明信息
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    // 从token提取所有声明信息（签名或过期校验失败时抛出异常）
+    public Claims extractAllClaims(String token) {
+        return jwtParser.parseClaimsJws(token).getBody();
     }
 
     // 获取签名密钥
@@ -0,0 +1,154 @@
+package org.xue.app.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.xue.app.entity.User;
+import org.xue.app.repository.UserRepository;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 用户身份缓存
+ * 按用户名缓存用户快照，带TTL和容量上限，并在同一请求内做一次记忆化，
+ * 使认证过滤器、UserDetailsService和用户设置等服务在稳态下不再重复查询用户表。
+ * 修改密码、角色或用户设置后必须调用 {@link #invalidate(String)}。
+ */
+@Component
+public class UserIdentityCache {
+
+    private static final Logger log = LoggerFactory.getLogger(UserIdentityCache.class);
+
+    private static final String REQUEST_MEMO_ATTRIBUTE = UserIdentityCache.class.getName() + ".memo";
+
+    private final UserRepository userRepository;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Value("${app.identity-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${app.identity-cache.max-size:10000}")
+    private int maxSize;
+
+    public UserIdentityCache(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * 按用户名查找用户，依次命中请求内记忆、进程缓存，最后才查询数据库。
+     * 返回的是只读用途的快照副本，不能用于保存：需要修改用户时应从 {@link UserRepository} 加载托管实体，
+     * 保存后调用 {@link #invalidate(String)}。
+     */
+    public Optional<User> findByUsername(String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+
+        Map<String, User> memo = requestMemo();
+        if (memo != null && memo.containsKey(username)) {
+            return Optional.of(copyOf(memo.get(username)));
+        }
+
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(username);
+        User snapshot;
+        if (entry != null && entry.expiresAtMillis > now) {
+            snapshot = entry.user;
+        } else {
+            Optional<User> loaded = userRepository.findByUsername(username);
+            if (loaded.isEmpty()) {
+                // 不缓存不存在的用户，避免注册后短时间内仍查不到
+                entries.remove(username);
+                return Optional.empty();
+            }
+            snapshot = copyOf(loaded.get());
+            put(snapshot, now);
+            log.debug("用户身份缓存未命中，已从数据库加载 - 用户: {}", username);
+        }
+
+        if (memo != null) {
+            memo.put(username, snapshot);
+        }
+        return Optional.of(copyOf(snapshot));
+    }
+
+    /**
+     * 使指定用户的缓存失效（包括当前请求内的记忆）
+     */
+    public void invalidate(String username) {
+        if (username == null) {
+            return;
+        }
+        entries.remove(username);
+        Map<String, User> memo = requestMemo();
+        if (memo != null) {
+            memo.remove(username);
+        }
+        log.debug("用户身份缓存已失效 - 用户: {}", username);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void put(User snapshot, long now) {
+        if (entries.size() >= maxSize) {
+            evict(now);
+        }
+        entries.put(snapshot.getUsername(), new Entry(snapshot, now + ttlSeconds * 1000));
+    }
+
+    /**
+     * 容量达到上限时先清理过期条目，仍然不够则任意淘汰一批
+     */
+    private void evict(long now) {
+        entries.values().removeIf(e -> e.expiresAtMillis <= now);
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() >= maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, User> requestMemo() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Object memo = attributes.getAttribute(REQUEST_MEMO_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null) {
+            memo = new HashMap<String, User>();
+            attributes.setAttribute(REQUEST_MEMO_ATTRIBUTE, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+        return (Map<String, User>) memo;
+    }
+
+    /**
+     * 按属性复制，User新增字段时无需同步修改
+     */
+    private static User copyOf(User user) {
+        User copy = new User();
+        BeanUtils.copyProperties(user, copy);
+        return copy;
+    }
+
+    private static final class Entry {
+        private final User user;
+        private final long expiresAtMillis;
+
+        private Entry(User user, long expiresAtMillis) {
+            this.user = user;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
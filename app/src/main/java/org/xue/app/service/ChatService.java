@@ -2,6 +2,7 @@ package org.xue.app.service;
 
 import org.xue.app.dto.*;
 import org.xue.app.agent.model.AgentResponse;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
@@ -90,4 +91,13 @@ public interface ChatService {
      */
     AgentResponse sendMessage(ChatRequestDTO requestDTO);
 
+    /**
+     * 异步发送消息并获取回复
+     * 工具循环以非阻塞方式执行，等待LLM和MCP响应期间不占用请求线程
+     *
+     * @param requestDTO 聊天请求DTO
+     * @return 助手响应
+     */
+    Mono<AgentResponse> sendMessageAsync(ChatRequestDTO requestDTO);
+
 } 
\ No newline at end of file
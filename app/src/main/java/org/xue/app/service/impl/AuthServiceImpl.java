@@ -10,6 +10,7 @@ import org.xue.app.dto.*;
 import org.xue.app.entity.User;
 import org.xue.app.repository.UserRepository;
 import org.xue.app.security.JwtService;
+import org.xue.app.security.UserIdentityCache;
 import org.xue.app.service.AuthService;
 
 import java.util.ArrayList;
@@ -29,11 +30,14 @@ public class AuthServiceImpl implements AuthService {
     private final JwtService jwtService;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserIdentityCache userIdentityCache;
     
-    public AuthServiceImpl(JwtService jwtService, UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public AuthServiceImpl(JwtService jwtService, UserRepository userRepository, PasswordEncoder passwordEncoder,
+                           UserIdentityCache userIdentityCache) {
         this.jwtService = jwtService;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userIdentityCache = userIdentityCache;
     }
     
     @Override
@@ -55,7 +59,7 @@ public class AuthServiceImpl implements AuthService {
             if (request.getEmail() != null && !request.getEmail().trim().isEmpty()) {
                 userOptional = userRepository.findByEmail(request.getEmail());
             } else if (request.getUsername() != null && !request.getUsername().trim().isEmpty()) {
-                userOptional = userRepository.findByUsername(request.getUsername());
+                userOptional = userIdentityCache.findByUsername(request.getUsername());
             }
             
             if (userOptional.isEmpty()) {
@@ -121,7 +125,7 @@ public class AuthServiceImpl implements AuthService {
         }
         
         // 检查用户名是否已存在
-        if (userRepository.findByUsername(request.getUsername()).isPresent()) {
+        if (userIdentityCache.findByUsername(request.getUsername()).isPresent()) {
             return AuthResponse.failure("用户名已存在");
         }
         
@@ -183,7 +187,7 @@ public class AuthServiceImpl implements AuthService {
 
     @Override
     public AuthResponse getCurrentUser(String username) {
-        Optional<User> userOptional = userRepository.findByUsername(username);
+        Optional<User> userOptional = userIdentityCache.findByUsername(username);
         
         if (userOptional.isPresent()) {
             User user = userOptional.get();
@@ -207,7 +211,7 @@ public class AuthServiceImpl implements AuthService {
 
     @Override
     public String getCurrentUserId(String username) {
-        Optional<User> userOptional = userRepository.findByUsername(username);
+        Optional<User> userOptional = userIdentityCache.findByUsername(username);
 
         if (userOptional.isPresent()) {
             User user = userOptional.get();
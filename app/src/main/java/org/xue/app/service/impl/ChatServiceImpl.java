@@ -7,16 +7,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
-import org.springframework.web.client.RestTemplate;
 import org.xue.app.agent.client.core.McpClientTemplate;
+import org.xue.app.agent.client.core.McpRpcClient;
 import org.xue.app.agent.config.AgentProperties;
 import org.xue.app.agent.model.AgentResponse;
 import org.xue.app.agent.model.llm.*;
+import org.xue.app.agent.prompt.PromptAssembler;
 import org.xue.app.agent.service.AgentService;
 import org.xue.app.agent.service.LlmService;
 import org.xue.app.dto.*;
@@ -29,9 +29,15 @@ import org.xue.app.service.ChatService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 /**
@@ -58,7 +64,7 @@ public class ChatServiceImpl implements ChatService {
     private McpClientTemplate mcpTemplate;
     
     @Autowired
-    private RestTemplate restTemplate;
+    private McpRpcClient mcpRpcClient;
     
     @Autowired
     private AgentProperties agentProperties;
@@ -66,9 +72,12 @@ public class ChatServiceImpl implements ChatService {
     @Autowired
     private ObjectMapper objectMapper;
 
-    // 多轮对话消息上下文（可替换为Redis）
-    private final List<ChatMessage> messageHistory = new ArrayList<>();
-    
+    @Autowired
+    private PromptAssembler promptAssembler;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     /**
      * 日期时间格式化器
      */
@@ -214,12 +223,123 @@ public class ChatServiceImpl implements ChatService {
     }
     
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public AgentResponse sendMessage(ChatRequestDTO requestDTO) {
-        // 清空历史消息
-        messageHistory.clear();
-        
-        // 获取或创建对话
+        return sendMessageAsync(requestDTO).block();
+    }
+
+    /**
+     * 处理一轮对话
+     * 用户消息在本轮开始时立即写入；工具循环中产生的助手与工具消息先保存在本轮上下文中，
+     * 得到最终回复后在一个事务内写入。循环失败或超时时只写入错误或部分回复，不写入可能不完整的中间消息
+     */
+    @Override
+    public Mono<AgentResponse> sendMessageAsync(ChatRequestDTO requestDTO) {
+        // 对话准备（JPA）与工具列表获取并行进行，随后进入异步工具循环
+        return blocking(() -> prepareTurn(requestDTO))
+                .zipWith(loadToolIndex())
+                .flatMap(tuple -> {
+                    AgentTurn turn = tuple.getT1();
+                    turn.toolIndex = tuple.getT2();
+                    return runInteraction(turn)
+                            .timeout(turnTimeout())
+                            .onErrorResume(e -> {
+                                log.error("处理用户消息异常", e);
+                                return Mono.fromSupplier(() -> recoverFromError(turn, e));
+                            })
+                            .flatMap(response -> blocking(() -> completeTurn(turn, response)));
+                });
+    }
+
+    /**
+     * 整轮对话的超时：每次交互最多等待一次LLM超时，不小于 maxInteractions × llmApi.timeout；
+     * spring.mvc.async.request-timeout 需大于该值，保证超时后仍能返回已有的回复
+     */
+    private Duration turnTimeout() {
+        long perInteraction = agentProperties.getLlmApi().getTimeout();
+        long minimum = (long) agentProperties.getMaxInteractions() * perInteraction;
+        return Duration.ofMillis(Math.max(agentProperties.getTurnTimeout(), minimum));
+    }
+
+    /**
+     * 单次请求的工具循环状态
+     * 每个请求独立持有，不在请求之间共享
+     */
+    private static final class AgentTurn {
+        private final String conversationId;
+        private final Double temperature;
+        private final List<ChatMessage> history = new ArrayList<>();
+
+        /**
+         * history中已在本轮开始时写入的消息数（用户消息）
+         */
+        private int persistedCount;
+
+        /**
+         * 作为本轮回复的助手消息
+         */
+        private ChatMessage reply;
+
+        /**
+         * 工具循环是否因异常或超时中断，中断时中间消息可能不完整（如缺少工具结果）
+         */
+        private boolean failed;
+
+        private ToolIndex toolIndex;
+        private int interactionCount;
+        private int totalTokens;
+
+        private AgentTurn(String conversationId, Double temperature) {
+            this.conversationId = conversationId;
+            this.temperature = temperature;
+        }
+    }
+
+    /**
+     * 可用工具及其所属服务
+     */
+    private static final class ToolIndex {
+        private final List<Tool> tools;
+        private final Map<String, String> serviceByFunction;
+
+        private ToolIndex(List<Tool> tools, Map<String, String> serviceByFunction) {
+            this.tools = tools;
+            this.serviceByFunction = serviceByFunction;
+        }
+    }
+
+    /**
+     * 在弹性线程池上执行阻塞操作（JPA等），不阻塞调用线程
+     */
+    private <T> Mono<T> blocking(Callable<T> task) {
+        return Mono.fromCallable(task).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 获取或创建对话，并立即写入用户消息，后续LLM或MCP服务故障不会丢失用户输入
+     */
+    private AgentTurn prepareTurn(ChatRequestDTO requestDTO) {
+        return transactionTemplate.execute(status -> {
+            Conversation conversation = findOrCreateConversation(requestDTO);
+            AgentTurn turn = new AgentTurn(conversation.getId(), requestDTO.getTemperature());
+            
+            // 系统提示词不写入历史，每次请求由PromptAssembler统一放在最前面
+            
+            // 添加并保存用户消息
+            ChatMessage userMessage = new ChatMessage();
+            userMessage.setConversationId(conversation.getId());
+            userMessage.setRole("user");
+            userMessage.setContent(requestDTO.getMessage());
+            addMessage(turn, userMessage);
+            userMessage.setSequence(getNextSequence(conversation.getId()));
+            chatMessageRepository.save(userMessage);
+            turn.persistedCount = turn.history.size();
+            log.info("保存用户消息: {}", requestDTO.getMessage());
+            
+            return turn;
+        });
+    }
+
+    private Conversation findOrCreateConversation(ChatRequestDTO requestDTO) {
         Conversation conversation;
         if (requestDTO.getConversationId() == null || requestDTO.getConversationId().isEmpty()) {
             // 创建新对话
@@ -236,507 +356,377 @@ public class ChatServiceImpl implements ChatService {
                     .orElseThrow(() -> new RuntimeException("对话不存在，ID: " + requestDTO.getConversationId()));
             log.info("获取现有对话: {}", conversation.getId());
         }
+        return conversation;
+    }
+
+    /**
+     * 并发获取所有已连接服务的工具定义，同时建立函数名到服务的映射
+     * 整个工具循环只获取一次，避免每次工具调用都重新拉取schema
+     */
+    private Mono<ToolIndex> loadToolIndex() {
+        // 服务状态为心跳发布的快照，无锁读取
+        return Mono.fromSupplier(() -> mcpTemplate.getServersStatus())
+                .flatMapMany(serversStatus -> Flux.fromIterable(serversStatus.entrySet()))
+                .filter(entry -> Boolean.TRUE.equals(entry.getValue().get("connected")))
+                .flatMap(entry -> mcpRpcClient.fetchSchema(entry.getKey(), "function_calling")
+                        .map(schema -> Map.entry(entry.getKey(), parseToolsFromSchema(entry.getKey(), schema)))
+                        .onErrorResume(e -> {
+                            log.error("获取服务 {} 的工具异常: {}", entry.getKey(), e.getMessage());
+                            return Mono.empty();
+                        }))
+                .collectList()
+                .map(entries -> {
+                    List<Tool> tools = new ArrayList<>();
+                    Map<String, String> serviceByFunction = new HashMap<>();
+                    for (Map.Entry<String, List<Tool>> entry : entries) {
+                        for (Tool tool : entry.getValue()) {
+                            if (tool.getFunction() != null && tool.getFunction().getName() != null) {
+                                serviceByFunction.putIfAbsent(tool.getFunction().getName(), entry.getKey());
+                            }
+                        }
+                        tools.addAll(entry.getValue());
+                        log.info("从服务 {} 获取了 {} 个工具", entry.getKey(), entry.getValue().size());
+                    }
+                    log.info("总共获取了 {} 个工具", tools.size());
+                    // 工具定义在整个工具循环内保持不变，规范化排序后作为稳定前缀的一部分
+                    return new ToolIndex(promptAssembler.canonicalTools(tools), serviceByFunction);
+                });
+    }
+
+    /**
+     * 执行一次LLM交互，需要调用工具时执行工具后递归进入下一次交互
+     */
+    private Mono<AgentResponse> runInteraction(AgentTurn turn) {
+        if (turn.interactionCount >= agentProperties.getMaxInteractions()) {
+            return Mono.fromSupplier(() -> finishWithWarning(turn));
+        }
+        turn.interactionCount++;
+        log.info("开始第 {} 次交互", turn.interactionCount);
         
-        String conversationId = conversation.getId();
+        LlmRequest llmRequest = buildLlmRequest(turn);
         
-        try {
-            // 1. 本次请求的消息列表
-            List<ChatMessage> historyMessages = new ArrayList<>();
-            
-            // 2. 添加系统提示词（如果不存在）
-            boolean hasSystemMessage = historyMessages.stream().anyMatch(msg -> "system".equals(msg.getRole()));
-            if (!hasSystemMessage) {
-                ChatMessage systemMessage = new ChatMessage();
-                systemMessage.setConversationId(conversationId);
-                systemMessage.setRole("system");
-                systemMessage.setContent(agentProperties.getSystemPrompt());
-                systemMessage.setSequence(getNextSequence(conversationId));
-                chatMessageRepository.save(systemMessage);
-                addMessage(systemMessage);
-                log.info("添加系统提示词");
+        // 记录请求日志
+        log.info("发送请求到LLM:\n模型: {}\n温度: {}\n消息数量: {}", 
+                llmRequest.getModel(), 
+                llmRequest.getTemperature(),
+                llmRequest.getMessages().size());
+        
+        if (log.isDebugEnabled()) {
+            try {
+                log.debug("LLM请求详情: {}", objectMapper.writeValueAsString(llmRequest));
+            } catch (Exception e) {
+                log.debug("序列化LLM请求失败: {}", e.getMessage());
             }
-            
-            // 3. 添加用户消息
-            ChatMessage userMessage = new ChatMessage();
-            userMessage.setConversationId(conversationId);
-            userMessage.setRole("user");
-            userMessage.setContent(requestDTO.getMessage());
-            userMessage.setSequence(getNextSequence(conversationId));
-            chatMessageRepository.save(userMessage);
-            addMessage(userMessage);
-            log.info("添加用户消息: {}", requestDTO.getMessage());
-            
-            // 初始化统计变量
-            int interactionCount = 0;
-            int totalTokens = 0;
-            String finalContent = null;
-            
-            // 循环处理工具调用，最多循环10次
-            int maxInteractions = agentProperties.getMaxInteractions();
-            
-            while (interactionCount < maxInteractions) {
-                interactionCount++;
-                log.info("开始第 {} 次交互", interactionCount);
-                
-                // 构建LLM消息列表
-                List<Message> messages = convertChatMessagesToLlmMessages(messageHistory);
-
-                List<Tool> tools = getTools();
-                // 构建LLM请求
-                LlmRequest llmRequest = LlmRequest.builder()
-                        .model(agentProperties.getDefaultModel())
-                        .messages(messages)
-                        .tool_choice("auto")
-                        .temperature(requestDTO.getTemperature() != null ? 
-                                requestDTO.getTemperature() : agentProperties.getTemperature())
-                        .stream(false)
-                        .build();
-                /**
-                 * 携带空的tools，大模型会报错
-                 */
-                if (!CollectionUtils.isEmpty(tools)) {
-                    // 携带tools
-                    llmRequest.setTools(tools);
-                }
-
-                // 记录请求日志
-                log.info("发送请求到LLM:\n模型: {}\n温度: {}\n消息数量: {}", 
-                        llmRequest.getModel(), 
-                        llmRequest.getTemperature(),
-                        llmRequest.getMessages().size());
-                
-                if (log.isDebugEnabled()) {
-                    try {
-                        log.debug("LLM请求详情: {}", objectMapper.writeValueAsString(llmRequest));
-                    } catch (Exception e) {
-                        log.debug("序列化LLM请求失败: {}", e.getMessage());
-                    }
-                }
-                
-                // 发送请求到LLM
-                log.info("开始发送请求到LLM，时间: {}", LocalDateTime.now());
-                long startTime = System.currentTimeMillis();
-                LlmResponse llmResponse = llmService.callLlm(llmRequest);
-                long endTime = System.currentTimeMillis();
-                log.info("收到LLM响应，耗时: {}ms，时间: {}", (endTime - startTime), LocalDateTime.now());
-                
-                // 检查响应
-                if (llmResponse == null) {
+        }
+        
+        long startTime = System.currentTimeMillis();
+        return llmService.callLlmAsync(llmRequest)
+                .flatMap(llmResponse -> {
+                    log.info("收到LLM响应，耗时: {}ms", System.currentTimeMillis() - startTime);
+                    return handleLlmResponse(turn, llmRequest, llmResponse);
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
                     log.error("LLM响应为空");
-                    // 不清空messageHistory，保留之前可能的回复
                     return AgentResponse.error("LLM响应为空");
-                }
-                
-                // 累计token数
-                if (llmResponse.getUsage() != null) {
-                    totalTokens += llmResponse.getUsage().getTotal_tokens();
-                }
-                
-                log.info("收到LLM响应:\n状态: 成功\n总Token数: {}\n选项数量: {}", 
-                        llmResponse.getUsage() != null ? llmResponse.getUsage().getTotal_tokens() : "未知",
-                        llmResponse.getChoices() != null ? llmResponse.getChoices().size() : 0);
-                
-                if (log.isDebugEnabled()) {
-                    try {
-                        log.debug("LLM响应详情: {}", objectMapper.writeValueAsString(llmResponse));
-                    } catch (Exception e) {
-                        log.debug("序列化LLM响应失败: {}", e.getMessage());
-                    }
-                }
-                
-                if (llmResponse.getChoices() == null || llmResponse.getChoices().isEmpty()) {
-                    log.error("LLM响应无效：没有选项");
-                    // 不清空messageHistory，保留之前可能的回复
-                    return AgentResponse.error("LLM响应无效");
-                }
-                
-                AssistantMessage assistantMessage = llmResponse.getChoices().get(0).getMessage();
-                
-                // 检查是否有内容和工具调用
-                boolean hasContent = assistantMessage.getContent() != null && !assistantMessage.getContent().trim().isEmpty();
-                boolean hasToolCalls = assistantMessage.getTool_calls() != null && !assistantMessage.getTool_calls().isEmpty();
-                
-                log.info("LLM回复状态: hasContent={}, hasToolCalls={}", hasContent, hasToolCalls);
-                
-                // 退出条件: 有内容且没有工具调用
-                if (hasContent && !hasToolCalls) {
-                    log.info("满足退出条件: 有内容且没有工具调用，结束循环");
-                    finalContent = assistantMessage.getContent();
-                    
-                    // 保存最终的助手消息
-                    ChatMessage finalAssistantMessage = new ChatMessage();
-                    finalAssistantMessage.setConversationId(conversationId);
-                    finalAssistantMessage.setRole("assistant");
-                    finalAssistantMessage.setContent(finalContent);
-                    finalAssistantMessage.setSequence(getNextSequence(conversationId));
-                    chatMessageRepository.save(finalAssistantMessage);
-                    addMessage(finalAssistantMessage);
-                    
-                    break;
-                }
-                
-                // 保存助手消息（包含tool_calls）
-                ChatMessage assistantChatMessage = new ChatMessage();
-                assistantChatMessage.setConversationId(conversationId);
-                assistantChatMessage.setRole("assistant");
-                assistantChatMessage.setContent(assistantMessage.getContent() != null ?
-                        assistantMessage.getContent() : "");
-                
-                // 序列化tool_calls为JSON字符串并保存
-                if (hasToolCalls) {
-                    try {
-                        String toolCalls = objectMapper.writeValueAsString(assistantMessage.getTool_calls());
-                        assistantChatMessage.setTool_calls(toolCalls);
-                    } catch (Exception e) {
-                        log.error("序列化tool_calls失败: {}", e.getMessage());
-                    }
-                }
-                
-                assistantChatMessage.setSequence(getNextSequence(conversationId));
-                chatMessageRepository.save(assistantChatMessage);
-                addMessage(assistantChatMessage);
-                
-                // 如果没有工具调用但也没有内容，继续循环
-                if (!hasToolCalls) {
-                    log.warn("没有工具调用也没有足够内容，继续循环");
-                    continue;
-                }
-                
-                // 处理工具调用
-                log.info("LLM返回了 {} 个工具调用，开始处理", assistantMessage.getTool_calls().size());
-                
-                // 处理每个工具调用
-                for (ToolCall toolCall : assistantMessage.getTool_calls()) {
-                    String toolCallId = toolCall.getId();
-                    FunctionCall functionCall = toolCall.getFunction();
-                    
-                    if (functionCall == null) {
-                        log.warn("工具调用缺少function字段");
-                        continue;
-                    }
-                    
-                    String functionName = functionCall.getName();
-                    String argumentsJson = functionCall.getArguments();
-                    
-                    log.info("处理工具调用: {} - 参数: {}", functionName, argumentsJson);
-                    
-                    // 根据函数名确定对应的服务
-                    String serviceName = determineServiceName(functionName);
-                    
-                    if (serviceName == null || serviceName.isEmpty()) {
-                        String errorMsg = "未能确定函数对应的服务: " + functionName;
-                        log.error(errorMsg);
-                        
-                        // 保存错误消息作为工具结果
-                        saveFunctionCallMessage(conversationId, toolCallId, functionName, 
-                                "{\"error\":\"" + errorMsg + "\"}");
-                        
-                        // 添加错误结果到消息历史
-                        ChatMessage errorToolMessage = new ChatMessage();
-                        errorToolMessage.setConversationId(conversationId);
-                        errorToolMessage.setRole("tool");
-                        errorToolMessage.setContent("{\"error\":\"" + errorMsg + "\"}");
-                        errorToolMessage.setTool_call_id(toolCallId);
-                        errorToolMessage.setToolName(functionName);
-                        addMessage(errorToolMessage);
-                        continue;
-                    }
-                    
-                    // 执行函数调用
-                    String result = executeMcpFunction(serviceName, functionName, argumentsJson);
-                    
-                    // 保存函数调用结果
-                    saveFunctionCallMessage(conversationId, toolCallId, functionName, result);
-                    
-                    // 添加工具结果到消息历史
-                    ChatMessage toolMessage = new ChatMessage();
-                    toolMessage.setConversationId(conversationId);
-                    toolMessage.setRole("tool");
-                    toolMessage.setContent(result);
-                    toolMessage.setTool_call_id(toolCallId);
-                    toolMessage.setToolName(functionName);
-                    addMessage(toolMessage);
-                }
-            }
-            
-            // 处理最终结果
-            if (finalContent != null && !finalContent.isEmpty()) {
-                // 返回成功响应
-                return AgentResponse.success(finalContent, interactionCount, totalTokens);
-            } else {
-                // 返回警告响应，但确保提供可用的内容
-                String warningContent = "达到最大交互次数，这是目前的回复：\n\n";
-                
-                // 尝试找到最后一条助手消息作为回复内容
-                Optional<ChatMessage> lastAssistantMessage = messageHistory.stream()
-                        .filter(msg -> "assistant".equals(msg.getRole()) && msg.getContent() != null && !msg.getContent().isEmpty())
-                        .reduce((first, second) -> second);
-                
-                if (lastAssistantMessage.isPresent()) {
-                    warningContent += lastAssistantMessage.get().getContent();
-                    // 将最后一条助手消息保存为最终消息
-                    ChatMessage finalMessage = new ChatMessage();
-                    finalMessage.setConversationId(conversationId);
-                    finalMessage.setRole("assistant");
-                    finalMessage.setContent(warningContent);
-                    finalMessage.setSequence(getNextSequence(conversationId));
-                    chatMessageRepository.save(finalMessage);
-                    // 不需要清空消息历史，让前端显示这条消息
-                    return AgentResponse.warning(warningContent, interactionCount, totalTokens);
-                } else {
-                    return AgentResponse.warning("未能获取最终回复", interactionCount, totalTokens);
-                }
-            }
-        } catch (Exception e) {
-            log.error("处理用户消息异常", e);
-            
-            // 尝试找到最后一条助手消息作为回复内容
-            Optional<ChatMessage> lastAssistantMessage = messageHistory.stream()
-                    .filter(msg -> "assistant".equals(msg.getRole()) && msg.getContent() != null && !msg.getContent().isEmpty())
-                    .reduce((first, second) -> second);
+                }));
+    }
+
+    /**
+     * 构建LLM请求
+     */
+    private LlmRequest buildLlmRequest(AgentTurn turn) {
+        // 构建LLM消息列表：系统规则在前，对话按时间只追加，保证相邻交互前缀一致
+        List<Message> messages = promptAssembler.assemble(agentProperties.getSystemPrompt(),
+                convertChatMessagesToLlmMessages(turn.history));
+        
+        LlmRequest llmRequest = LlmRequest.builder()
+                .model(agentProperties.getDefaultModel())
+                .messages(messages)
+                .tool_choice("auto")
+                .temperature(turn.temperature != null ? turn.temperature : agentProperties.getTemperature())
+                .stream(false)
+                .build();
+        /**
+         * 携带空的tools，大模型会报错
+         */
+        if (!CollectionUtils.isEmpty(turn.toolIndex.tools)) {
+            // 携带tools
+            llmRequest.setTools(turn.toolIndex.tools);
+        }
+        return llmRequest;
+    }
+
+    /**
+     * 处理LLM响应：得到最终回复则结束，否则执行工具调用并继续下一次交互
+     */
+    private Mono<AgentResponse> handleLlmResponse(AgentTurn turn, LlmRequest llmRequest, LlmResponse llmResponse) {
+        // 累计token数
+        if (llmResponse.getUsage() != null) {
+            turn.totalTokens += llmResponse.getUsage().getTotal_tokens();
+            promptAssembler.recordUsage(llmRequest.getModel(), llmResponse.getUsage());
+        }
+        
+        log.info("收到LLM响应:\n状态: 成功\n总Token数: {}\n选项数量: {}", 
+                llmResponse.getUsage() != null ? llmResponse.getUsage().getTotal_tokens() : "未知",
+                llmResponse.getChoices() != null ? llmResponse.getChoices().size() : 0);
+        
+        if (llmResponse.getChoices() == null || llmResponse.getChoices().isEmpty()) {
+            log.error("LLM响应无效：没有选项");
+            return Mono.just(AgentResponse.error("LLM响应无效"));
+        }
+        
+        AssistantMessage assistantMessage = llmResponse.getChoices().get(0).getMessage();
+        
+        // 检查是否有内容和工具调用
+        boolean hasContent = assistantMessage.getContent() != null && !assistantMessage.getContent().trim().isEmpty();
+        boolean hasToolCalls = assistantMessage.getTool_calls() != null && !assistantMessage.getTool_calls().isEmpty();
+        
+        log.info("LLM回复状态: hasContent={}, hasToolCalls={}", hasContent, hasToolCalls);
+        
+        // 退出条件: 有内容且没有工具调用
+        if (hasContent && !hasToolCalls) {
+            log.info("满足退出条件: 有内容且没有工具调用，结束循环");
+            String finalContent = assistantMessage.getContent();
             
-            if (lastAssistantMessage.isPresent()) {
-                String errorContent = "处理过程中出现错误，但这是目前的回复：\n\n" + lastAssistantMessage.get().getContent();
-                // 保存最终的助手消息
-                ChatMessage errorMessage = new ChatMessage();
-                errorMessage.setConversationId(conversationId);
-                errorMessage.setRole("assistant");
-                errorMessage.setContent(errorContent);
-                errorMessage.setSequence(getNextSequence(conversationId));
-                chatMessageRepository.save(errorMessage);
-                // 不清空消息历史，保留之前的回复
-                return AgentResponse.error(errorContent);
-            } else {
-                // 清空消息历史
-                messageHistory.clear();
-                return AgentResponse.error("处理失败: " + e.getMessage());
+            ChatMessage finalAssistantMessage = new ChatMessage();
+            finalAssistantMessage.setConversationId(turn.conversationId);
+            finalAssistantMessage.setRole("assistant");
+            finalAssistantMessage.setContent(finalContent);
+            addReply(turn, finalAssistantMessage);
+            return Mono.just(AgentResponse.success(finalContent, turn.interactionCount, turn.totalTokens));
+        }
+        
+        // 保存助手消息（包含tool_calls）
+        ChatMessage assistantChatMessage = new ChatMessage();
+        assistantChatMessage.setConversationId(turn.conversationId);
+        assistantChatMessage.setRole("assistant");
+        assistantChatMessage.setContent(assistantMessage.getContent() != null ?
+                assistantMessage.getContent() : "");
+        
+        // 序列化tool_calls为JSON字符串并保存
+        if (hasToolCalls) {
+            try {
+                assistantChatMessage.setTool_calls(objectMapper.writeValueAsString(assistantMessage.getTool_calls()));
+            } catch (Exception e) {
+                log.error("序列化tool_calls失败: {}", e.getMessage());
             }
         }
+        
+        addMessage(turn, assistantChatMessage);
+        
+        // 如果没有工具调用但也没有内容，继续循环
+        if (!hasToolCalls) {
+            log.warn("没有工具调用也没有足够内容，继续循环");
+            return Mono.defer(() -> runInteraction(turn));
+        }
+        
+        log.info("LLM返回了 {} 个工具调用，开始处理", assistantMessage.getTool_calls().size());
+        return executeToolCalls(turn, assistantMessage.getTool_calls())
+                .then(Mono.defer(() -> runInteraction(turn)));
     }
-    
-    private void addMessage(ChatMessage message) {
-        // 添加消息时记录当前时间
-        LocalDateTime now = LocalDateTime.now().withNano((LocalDateTime.now().getNano() / 1_000_000) * 1_000_000);
-        message.setCreatedAt(now);
-        messageHistory.add(message);
+
+    /**
+     * 并发执行同一轮的所有工具调用，结果按调用顺序保存
+     */
+    private Mono<Void> executeToolCalls(AgentTurn turn, List<ToolCall> toolCalls) {
+        return Flux.fromIterable(toolCalls)
+                .filter(toolCall -> {
+                    if (toolCall.getFunction() == null) {
+                        log.warn("工具调用缺少function字段");
+                        return false;
+                    }
+                    return true;
+                })
+                .flatMapSequential(toolCall -> invokeTool(turn, toolCall)
+                        .map(result -> {
+                            ChatMessage toolMessage = new ChatMessage();
+                            toolMessage.setConversationId(turn.conversationId);
+                            toolMessage.setRole("tool");
+                            toolMessage.setContent(result);
+                            toolMessage.setTool_call_id(toolCall.getId());
+                            toolMessage.setToolName(toolCall.getFunction().getName());
+                            return toolMessage;
+                        }))
+                .doOnNext(toolMessage -> addMessage(turn, toolMessage))
+                .then();
     }
 
-    
     /**
-     * 保存函数调用消息到数据库
+     * 执行单个工具调用，失败时以错误JSON作为工具结果返回给LLM
      */
-    private void saveFunctionCallMessage(String conversationId, String toolCallId, String functionName, String toolResult) {
-        ChatMessage toolMessage = new ChatMessage();
-        toolMessage.setConversationId(conversationId);
-        toolMessage.setRole("tool");
-        toolMessage.setContent(toolResult);
-        toolMessage.setTool_call_id(toolCallId);
-        toolMessage.setToolName(functionName);
-        toolMessage.setSequence(getNextSequence(conversationId));
-        chatMessageRepository.save(toolMessage);
+    @SuppressWarnings("unchecked")
+    private Mono<String> invokeTool(AgentTurn turn, ToolCall toolCall) {
+        FunctionCall functionCall = toolCall.getFunction();
+        String functionName = functionCall.getName();
+        String argumentsJson = functionCall.getArguments();
+        
+        log.info("处理工具调用: {} - 参数: {}", functionName, argumentsJson);
+        
+        // 根据函数名确定对应的服务
+        String serviceName = turn.toolIndex.serviceByFunction.get(functionName);
+        if (serviceName == null || serviceName.isEmpty()) {
+            String errorMsg = "未能确定函数对应的服务: " + functionName;
+            log.error(errorMsg);
+            return Mono.just("{\"error\":\"" + errorMsg + "\"}");
+        }
+        
+        Map<String, Object> params;
+        try {
+            params = objectMapper.readValue(argumentsJson, Map.class);
+        } catch (JsonProcessingException e) {
+            log.error("解析参数异常", e);
+            return Mono.just("{\"error\":\"参数解析失败: " + e.getMessage() + "\"}");
+        }
+        
+        log.info("执行MCP函数: {}.{} - 参数: {}", serviceName, functionName, argumentsJson);
+        return mcpRpcClient.call(serviceName, functionName, params, turn.conversationId)
+                .defaultIfEmpty("{\"error\":\"调用服务失败: 响应为空\"}")
+                .onErrorResume(e -> {
+                    log.error("执行MCP函数异常", e);
+                    return Mono.just("{\"error\":\"执行函数失败: " + e.getMessage() + "\"}");
+                });
     }
 
-    private List<Tool> getTools() {
-        // 获取所有可用服务
-        Map<String, Map<String, Object>> serversStatus = mcpTemplate.getServersStatus();
+    /**
+     * 达到最大交互次数时，以最后一条助手消息作为回复
+     */
+    private AgentResponse finishWithWarning(AgentTurn turn) {
+        String warningContent = "达到最大交互次数，这是目前的回复：\n\n";
+        
+        Optional<ChatMessage> lastAssistantMessage = findLastAssistantMessage(turn);
+        if (lastAssistantMessage.isPresent()) {
+            warningContent += lastAssistantMessage.get().getContent();
+            // 将最后一条助手消息保存为最终消息
+            ChatMessage finalMessage = new ChatMessage();
+            finalMessage.setConversationId(turn.conversationId);
+            finalMessage.setRole("assistant");
+            finalMessage.setContent(warningContent);
+            addReply(turn, finalMessage);
+            return AgentResponse.warning(warningContent, turn.interactionCount, turn.totalTokens);
+        }
+        return AgentResponse.warning("未能获取最终回复", turn.interactionCount, turn.totalTokens);
+    }
 
-        List<Tool> tools = new ArrayList<>();
-        // 遍历所有服务，获取所有可用工具
-        for (Map.Entry<String, Map<String, Object>> entry : serversStatus.entrySet()) {
-            String serviceName = entry.getKey();
-            Map<String, Object> serviceStatus = entry.getValue();
+    /**
+     * 处理异常时，尽量以最后一条助手消息作为回复
+     */
+    private AgentResponse recoverFromError(AgentTurn turn, Throwable e) {
+        turn.failed = true;
+        Optional<ChatMessage> lastAssistantMessage = findLastAssistantMessage(turn);
+        if (lastAssistantMessage.isPresent()) {
+            String errorContent = "处理过程中出现错误，但这是目前的回复：\n\n" + lastAssistantMessage.get().getContent();
+            ChatMessage errorMessage = new ChatMessage();
+            errorMessage.setConversationId(turn.conversationId);
+            errorMessage.setRole("assistant");
+            errorMessage.setContent(errorContent);
+            addReply(turn, errorMessage);
+            return AgentResponse.error(errorContent);
+        }
+        return AgentResponse.error("处理失败: " + e.getMessage());
+    }
 
-            if (!(Boolean) serviceStatus.get("connected")) {
-                continue;
-            }
-            try {
-                List<Tool> serverTools = getToolsFromSchema(serviceName);
-                tools.addAll(serverTools);
-                log.info("从服务 {} 获取了 {} 个工具", serviceName, serverTools.size());
-            } catch (Exception e) {
-                log.error("获取服务 {} 的工具异常", serviceName, e);
+    private Optional<ChatMessage> findLastAssistantMessage(AgentTurn turn) {
+        return turn.history.stream()
+                .filter(msg -> "assistant".equals(msg.getRole()) && msg.getContent() != null && !msg.getContent().isEmpty())
+                .reduce((first, second) -> second);
+    }
+
+    /**
+     * 加入本次请求的上下文，未写入的消息在本轮结束时写入
+     */
+    private void addMessage(AgentTurn turn, ChatMessage message) {
+        // 添加消息时记录当前时间（毫秒精度）
+        LocalDateTime now = LocalDateTime.now();
+        message.setCreatedAt(now.withNano((now.getNano() / 1_000_000) * 1_000_000));
+        turn.history.add(message);
+    }
+
+    /**
+     * 加入作为本轮回复的助手消息
+     */
+    private void addReply(AgentTurn turn, ChatMessage message) {
+        addMessage(turn, message);
+        turn.reply = message;
+    }
+
+    /**
+     * 结束本轮，写入本轮尚未保存的消息
+     * 正常得到回复时在一个事务内写入全部助手与工具消息；失败、超时或没有回复时只写入错误或部分回复，
+     * 用户消息已在本轮开始时写入
+     */
+    private AgentResponse completeTurn(AgentTurn turn, AgentResponse response) {
+        List<ChatMessage> pending;
+        if (turn.reply != null && !turn.failed) {
+            pending = turn.history.subList(turn.persistedCount, turn.history.size());
+        } else {
+            ChatMessage reply = turn.reply;
+            if (reply == null) {
+                reply = new ChatMessage();
+                reply.setConversationId(turn.conversationId);
+                reply.setRole("assistant");
+                reply.setContent(response.getContent());
+                addMessage(turn, reply);
             }
+            log.warn("本轮对话未正常完成，只保存错误或部分回复，对话ID: {}", turn.conversationId);
+            pending = List.of(reply);
         }
-        log.info("总共获取了 {} 个工具", tools.size());
-        return tools;
+        transactionTemplate.execute(status -> {
+            int sequence = getNextSequence(turn.conversationId);
+            for (ChatMessage message : pending) {
+                message.setSequence(sequence++);
+            }
+            chatMessageRepository.saveAll(pending);
+            return null;
+        });
+        log.info("保存本轮对话消息 {} 条，对话ID: {}", pending.size(), turn.conversationId);
+        return response;
     }
 
     /**
-     * 从服务的schema获取工具列表
+     * 从服务的schema中解析工具列表
      *
      * @param serviceName 服务名称
+     * @param schemaData schema内容
      * @return 工具列表
      */
-    private List<Tool> getToolsFromSchema(String serviceName) {
+    @SuppressWarnings("unchecked")
+    private List<Tool> parseToolsFromSchema(String serviceName, Map<String, Object> schemaData) {
         List<Tool> tools = new ArrayList<>();
         
-        try {
-            // 检查服务是否可用
-            if (!mcpTemplate.isServerAvailable(serviceName)) {
-                log.warn("服务不可用: {}", serviceName);
-                return tools;
-            }
-            
-            // 获取服务的schema
-            String schemaUrl = mcpTemplate.getSchemaUrl(serviceName, "function_calling");
-            ResponseEntity<Map> response = restTemplate.getForEntity(schemaUrl, Map.class);
+        // 检查schema中是否有functions
+        if (schemaData.containsKey("functions")) {
+            List<Map<String, Object>> functions = (List<Map<String, Object>>) schemaData.get("functions");
             
-            if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
-                log.warn("获取服务schema失败: {}", serviceName);
-                return tools;
-            }
-            
-            Map<String, Object> schemaData = response.getBody();
-            
-            // 检查schema中是否有functions
-            if (schemaData.containsKey("functions")) {
-                List<Map<String, Object>> functions = (List<Map<String, Object>>) schemaData.get("functions");
+            // 转换为Tool对象
+            for (Map<String, Object> function : functions) {
+                String name = (String) function.get("name");
+                String description = (String) function.get("description");
                 
-                // 转换为Tool对象
-                for (Map<String, Object> function : functions) {
-                    String name = (String) function.get("name");
-                    String description = (String) function.get("description");
-                    
-                    // 获取参数信息
-                    ToolParameter parameters = null;
-                    if (function.containsKey("parameters")) {
-                        try {
-                            // 将parameters转换为ToolParameter对象
-                            String paramsJson = objectMapper.writeValueAsString(function.get("parameters"));
-                            parameters = objectMapper.readValue(paramsJson, ToolParameter.class);
-                        } catch (Exception e) {
-                            log.warn("解析函数 {} 的参数失败: {}", name, e.getMessage());
-                        }
-                    }
-                    
-                    // 创建Tool对象
-                    Tool tool = Tool.functionTool(name, description, parameters);
-                    tools.add(tool);
-                }
-            } else if (schemaData.containsKey("tools")) {
-                // 如果schema直接包含tools
-                try {
-                    String toolsJson = objectMapper.writeValueAsString(schemaData.get("tools"));
-                    List<Tool> schemaTools = objectMapper.readValue(toolsJson, 
-                            objectMapper.getTypeFactory().constructCollectionType(List.class, Tool.class));
-                    tools.addAll(schemaTools);
-                } catch (Exception e) {
-                    log.error("解析工具列表失败: {}", e.getMessage());
-                }
-            }
-            
-            log.debug("从服务 {} 获取了 {} 个工具", serviceName, tools.size());
-            
-        } catch (Exception e) {
-            log.error("获取服务 {} 工具异常", serviceName, e);
-        }
-        
-        return tools;
-    }
-    
-    /**
-     * 根据函数名确定服务名称
-     */
-    private String determineServiceName(String functionName) {
-        // 获取所有可用服务
-        Map<String, Map<String, Object>> serversStatus = mcpTemplate.getServersStatus();
-        
-        // 遍历所有服务，查找包含该函数的服务
-        for (Map.Entry<String, Map<String, Object>> entry : serversStatus.entrySet()) {
-            String serviceName = entry.getKey();
-            Map<String, Object> serviceStatus = entry.getValue();
-            
-            if (!(Boolean) serviceStatus.get("connected")) {
-                continue;
-            }
-            
-            try {
-                // 获取服务的schema
-                String schemaUrl = mcpTemplate.getSchemaUrl(serviceName, "function_calling");
-                ResponseEntity<Map> response = restTemplate.getForEntity(schemaUrl, Map.class);
-                
-                if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
-                    continue;
-                }
-                
-                Map<String, Object> schemaData = response.getBody();
-                if (schemaData.containsKey("functions")) {
-                    List<Map<String, Object>> functions = (List<Map<String, Object>>) schemaData.get("functions");
-                    
-                    // 检查服务是否包含指定的函数
-                    for (Map<String, Object> function : functions) {
-                        String name = (String) function.get("name");
-                        if (functionName.equals(name)) {
-                            return serviceName;
-                        }
-                    }
-                } else if (schemaData.containsKey("tools")) {
+                // 获取参数信息
+                ToolParameter parameters = null;
+                if (function.containsKey("parameters")) {
                     try {
-                        String toolsJson = objectMapper.writeValueAsString(schemaData.get("tools"));
-                        List<Map<String, Object>> tools = objectMapper.readValue(toolsJson, 
-                                objectMapper.getTypeFactory().constructCollectionType(List.class, Map.class));
-                        
-                        for (Map<String, Object> tool : tools) {
-                            if ("function".equals(tool.get("type"))) {
-                                Map<String, Object> function = (Map<String, Object>) tool.get("function");
-                                String name = (String) function.get("name");
-                                if (functionName.equals(name)) {
-                                    return serviceName;
-                                }
-                            }
-                        }
+                        parameters = objectMapper.convertValue(function.get("parameters"), ToolParameter.class);
                     } catch (Exception e) {
-                        log.warn("解析工具列表失败: {}", e.getMessage());
+                        log.warn("解析函数 {} 的参数失败: {}", name, e.getMessage());
                     }
                 }
+                
+                tools.add(Tool.functionTool(name, description, parameters));
+            }
+        } else if (schemaData.containsKey("tools")) {
+            // 如果schema直接包含tools
+            try {
+                List<Tool> schemaTools = objectMapper.convertValue(schemaData.get("tools"),
+                        objectMapper.getTypeFactory().constructCollectionType(List.class, Tool.class));
+                tools.addAll(schemaTools);
             } catch (Exception e) {
-                log.error("获取服务schema异常: " + serviceName, e);
+                log.error("解析工具列表失败: {}", e.getMessage());
             }
         }
         
-        return null;
-    }
-    
-    /**
-     * 执行MCP函数
-     */
-    private String executeMcpFunction(String serviceName, String functionName, String arguments) {
-        try {
-            log.info("执行MCP函数: {}.{} - 参数: {}", serviceName, functionName, arguments);
-            
-            // 检查服务是否存在
-            if (!mcpTemplate.isServerAvailable(serviceName)) {
-                return "{\"error\":\"服务不存在或未连接\"}";
-            }
-            
-            // 使用McpClientTemplate获取RPC URL
-            String rpcUrl = mcpTemplate.getRpcUrl(serviceName);
-            
-            // 解析参数
-            Map<String, Object> params = objectMapper.readValue(arguments, Map.class);
-            
-            // 构建RPC请求
-            Map<String, Object> rpcParams = new HashMap<>();
-            rpcParams.put("jsonrpc", "2.0");
-            rpcParams.put("method", functionName);
-            rpcParams.put("params", params);
-            rpcParams.put("id", System.currentTimeMillis());
-            
-            // 发送RPC请求
-            ResponseEntity<String> response = restTemplate.postForEntity(rpcUrl, rpcParams, String.class);
-            
-            if (response.getStatusCode() == HttpStatus.OK) {
-                return response.getBody();
-            } else {
-                return "{\"error\":\"调用服务失败: " + response.getStatusCode() + "\"}";
-            }
-        } catch (JsonProcessingException e) {
-            log.error("解析参数异常", e);
-            return "{\"error\":\"参数解析失败: " + e.getMessage() + "\"}";
-        } catch (Exception e) {
-            log.error("执行MCP函数异常", e);
-            return "{\"error\":\"执行函数失败: " + e.getMessage() + "\"}";
-        }
+        log.debug("从服务 {} 获取了 {} 个工具", serviceName, tools.size());
+        return tools;
     }
     
     /**
@@ -8,6 +8,7 @@ import org.springframework.web.multipart.MultipartFile;
 import org.xue.app.dto.UserSettingsDTO;
 import org.xue.app.entity.User;
 import org.xue.app.repository.UserRepository;
+import org.xue.app.security.UserIdentityCache;
 import org.xue.app.service.UserSettingsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,12 +32,15 @@ public class UserSettingsServiceImpl implements UserSettingsService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+
     @Value("${app.upload.avatar-dir:./uploads/avatars/}")
     private String avatarUploadDir;
 
     @Override
     public UserSettingsDTO getUserSettings(String username) {
-        Optional<User> userOptional = userRepository.findByUsername(username);
+        Optional<User> userOptional = userIdentityCache.findByUsername(username);
         if (userOptional.isPresent()) {
             User user = userOptional.get();
             UserSettingsDTO dto = new UserSettingsDTO();
@@ -49,6 +53,9 @@ public class UserSettingsServiceImpl implements UserSettingsService {
         return null;
     }
 
+    /**
+     * 修改用户时从数据库加载托管实体，缓存中的快照只用于读取，避免保存时覆盖快照之外的字段
+     */
     @Override
     public User updateUserSettings(String username, UserSettingsDTO userSettingsDTO) {
         Optional<User> userOptional = userRepository.findByUsername(username);
@@ -76,7 +83,9 @@ public class UserSettingsServiceImpl implements UserSettingsService {
                 }
             }
             
-            return userRepository.save(user);
+            User saved = userRepository.save(user);
+            userIdentityCache.invalidate(username);
+            return saved;
         }
         throw new RuntimeException("用户不存在");
     }
@@ -88,6 +97,7 @@ public class UserSettingsServiceImpl implements UserSettingsService {
             User user = userOptional.get();
             user.setNickname(nickname.trim());
             userRepository.save(user);
+            userIdentityCache.invalidate(username);
             return true;
         }
         return false;
@@ -100,6 +110,7 @@ public class UserSettingsServiceImpl implements UserSettingsService {
             User user = userOptional.get();
             user.setEmail(email.trim());
             userRepository.save(user);
+            userIdentityCache.invalidate(username);
             return true;
         }
         return false;
@@ -115,6 +126,7 @@ public class UserSettingsServiceImpl implements UserSettingsService {
             if (passwordEncoder.matches(currentPassword, user.getPassword())) {
                 user.setPassword(passwordEncoder.encode(newPassword));
                 userRepository.save(user);
+                userIdentityCache.invalidate(username);
                 return true;
             }
         }
@@ -171,6 +183,7 @@ public class UserSettingsServiceImpl implements UserSettingsService {
                 String avatarUrl = "/uploads/avatars/" + filename;
                 user.setAvatarUrl(avatarUrl);
                 userRepository.save(user);
+                userIdentityCache.invalidate(username);
                 logger.info("用户 {} 头像URL更新为: {}", username, avatarUrl);
                 return avatarUrl;
             }
@@ -185,7 +198,7 @@ public class UserSettingsServiceImpl implements UserSettingsService {
 
     @Override
     public boolean verifyCurrentPassword(String username, String currentPassword) {
-        Optional<User> userOptional = userRepository.findByUsername(username);
+        Optional<User> userOptional = userIdentityCache.findByUsername(username);
         if (userOptional.isPresent()) {
             User user = userOptional.get();
             return passwordEncoder.matches(currentPassword, user.getPassword());
@@ -0,0 +1,91 @@
+package org.xue.app.agent.client.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.xue.app.agent.client.model.JsonRpcResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * HeartbeatScheduler并发探测单元测试
+ */
+class HeartbeatSchedulerTest {
+
+    private HeartbeatScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    void testHungServerDoesNotDelayOtherServers() throws InterruptedException {
+        AtomicInteger hungProbes = new AtomicInteger();
+        AtomicInteger healthyProbes = new AtomicInteger();
+        McpServer hung = server("hung", hungProbes, Mono.never());
+        McpServer healthy = server("healthy", healthyProbes, Mono.just(JsonRpcResponse.success(1, null)));
+
+        Map<String, McpServer> servers = new LinkedHashMap<>();
+        servers.put("hung", hung);
+        servers.put("healthy", healthy);
+        ConnectionManager connectionManager = mock(ConnectionManager.class);
+        when(connectionManager.getAllServers()).thenReturn(servers);
+
+        McpProperties properties = new McpProperties();
+        McpProperties.HeartbeatConfig heartbeat = properties.getHeartbeat();
+        heartbeat.setInterval(50);
+        heartbeat.setMinInterval(20);
+        heartbeat.setMaxInterval(100);
+        // 单次超时远大于健康服务的探测间隔，串行探测时健康服务会被挂起的服务拖住
+        heartbeat.setTimeout(1000);
+        heartbeat.setJitter(0);
+
+        scheduler = new HeartbeatScheduler(connectionManager, properties);
+        scheduler.start();
+
+        long deadline = System.currentTimeMillis() + 800;
+        while (healthyProbes.get() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(healthyProbes.get() >= 5, "健康服务探测次数: " + healthyProbes.get());
+        assertTrue(healthy.isConnected());
+        assertEquals(1, hungProbes.get(), "挂起的服务在截止时间前不应重复派发探测");
+        assertFalse(hung.isConnected());
+    }
+
+    @Test
+    void testDisabledHeartbeatSchedulesNothing() {
+        ConnectionManager connectionManager = mock(ConnectionManager.class);
+        McpProperties properties = new McpProperties();
+        properties.getHeartbeat().setEnabled(false);
+
+        scheduler = new HeartbeatScheduler(connectionManager, properties);
+        scheduler.start();
+
+        verifyNoInteractions(connectionManager);
+    }
+
+    private static McpServer server(String name, AtomicInteger probes, Mono<JsonRpcResponse> response) {
+        McpHttpTransport transport = mock(McpHttpTransport.class);
+        when(transport.postAsync(anyString(), any(), eq(JsonRpcResponse.class)))
+                .thenAnswer(invocation -> {
+                    probes.incrementAndGet();
+                    return response;
+                });
+        return new McpServer(name, new McpProperties.ServerConfig(), "http://" + name + ":8080", transport);
+    }
+}
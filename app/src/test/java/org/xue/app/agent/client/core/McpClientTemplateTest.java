@@ -0,0 +1,64 @@
+package org.xue.app.agent.client.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * McpClientTemplate查询结果解码单元测试
+ */
+class McpClientTemplateTest {
+
+    @Test
+    void testRowFormatIsReturnedAsIs() {
+        List<Map<String, Object>> rows = List.of(Map.of("id", 1, "name", "张三"));
+        Map<String, Object> result = new HashMap<>();
+        result.put("rows", rows);
+
+        assertSame(rows, McpClientTemplate.toRowMaps(result));
+    }
+
+    @Test
+    void testColumnarFormatIsDecodedToRows() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("format", "columnar");
+        result.put("columns", List.of(
+                Map.of("name", "id", "type", "BIGINT"),
+                Map.of("name", "name", "type", "VARCHAR")));
+        result.put("rows", List.of(Arrays.asList(1, "张三"), Arrays.asList(2, null)));
+
+        List<Map<String, Object>> rows = McpClientTemplate.toRowMaps(result);
+
+        assertEquals(2, rows.size());
+        assertEquals(1, rows.get(0).get("id"));
+        assertEquals("张三", rows.get(0).get("name"));
+        assertTrue(rows.get(1).containsKey("name"));
+        assertNull(rows.get(1).get("name"));
+    }
+
+    @Test
+    void testDictionaryEncodedColumnIsExpanded() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("format", "columnar_dict");
+        result.put("columns", List.of(
+                Map.of("name", "id", "type", "BIGINT"),
+                Map.of("name", "status", "type", "VARCHAR", "dictionary", List.of("active", "disabled"))));
+        result.put("rows", List.of(
+                Arrays.asList(1, 0),
+                Arrays.asList(2, 1),
+                Arrays.asList(3, 0)));
+
+        List<Map<String, Object>> rows = McpClientTemplate.toRowMaps(result);
+
+        assertEquals("active", rows.get(0).get("status"));
+        assertEquals("disabled", rows.get(1).get("status"));
+        assertEquals("active", rows.get(2).get("status"));
+        // 未编码的数字列保持原值
+        assertEquals(3, rows.get(2).get("id"));
+    }
+}
@@ -0,0 +1,145 @@
+package org.xue.app.agent.client.core;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xue.app.agent.client.exception.McpServerException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * McpHttpTransport传输层单元测试
+ */
+class McpHttpTransportTest {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private McpTransportFactory factory;
+    private McpHttpTransport transport;
+    private String baseUrl;
+
+    private final AtomicReference<String> lastRequestTimeout = new AtomicReference<>();
+    private final AtomicReference<String> lastIfNoneMatch = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/api/rpc", exchange -> {
+            lastRequestTimeout.set(exchange.getRequestHeaders().getFirst("X-Request-Timeout"));
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 200, "{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"result\":{\"ok\":true}}", null);
+        });
+        server.createContext("/api/error", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 503, "{}", null);
+        });
+        server.createContext("/api/schema", exchange -> {
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            lastIfNoneMatch.set(ifNoneMatch);
+            if ("\"v1\"".equals(ifNoneMatch)) {
+                exchange.getResponseHeaders().set("ETag", "\"v1\"");
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+            } else {
+                respond(exchange, 200, "{\"tools\":[]}", "\"v1\"");
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        McpProperties.ServerConfig config = new McpProperties.ServerConfig();
+        config.setConnectTimeout(1000);
+        config.setReadTimeout(1500);
+        factory = new McpTransportFactory(new McpProperties.TransportConfig(), new ObjectMapper());
+        transport = factory.create("test", config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        factory.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void testPostSendsRequestTimeoutHeader() throws IOException {
+        Map<?, ?> response = transport.post(baseUrl + "/api/rpc", Map.of("method", "heartbeat"), Map.class);
+
+        assertEquals(Map.of("ok", true), response.get("result"));
+        assertEquals("1500", lastRequestTimeout.get());
+    }
+
+    @Test
+    void testSequentialCallsReuseKeepAliveConnection() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            transport.post(baseUrl + "/api/rpc", Map.of("method", "heartbeat"), Map.class);
+        }
+
+        Map<String, Object> stats = transport.getStats();
+        assertEquals(3L, stats.get("calls"));
+        assertEquals(1L, stats.get("connectionsOpened"));
+        assertEquals(2L, stats.get("connectionsReused"));
+        assertEquals(1, stats.get("poolTotal"));
+    }
+
+    @Test
+    void testErrorStatusRaisesServerExceptionWithCode() {
+        McpServerException sync = assertThrows(McpServerException.class,
+                () -> transport.post(baseUrl + "/api/error", Map.of(), Map.class));
+        assertEquals(503, sync.getErrorCode());
+
+        McpServerException async = assertThrows(McpServerException.class,
+                () -> transport.postAsync(baseUrl + "/api/error", Map.of()).block(Duration.ofSeconds(5)));
+        assertEquals(503, async.getErrorCode());
+    }
+
+    @Test
+    void testConditionalGetReturnsNotModifiedForMatchingEtag() {
+        McpHttpTransport.ConditionalResponse<Map<String, Object>> first =
+                transport.getIfNoneMatch(baseUrl + "/api/schema", null, MAP_TYPE).block(Duration.ofSeconds(5));
+        assertNotNull(first);
+        assertFalse(first.isNotModified());
+        assertEquals("\"v1\"", first.getEtag());
+        assertEquals(Map.of("tools", List.of()), first.getBody());
+        assertNull(lastIfNoneMatch.get());
+
+        McpHttpTransport.ConditionalResponse<Map<String, Object>> second =
+                transport.getIfNoneMatch(baseUrl + "/api/schema", first.getEtag(), MAP_TYPE).block(Duration.ofSeconds(5));
+        assertNotNull(second);
+        assertTrue(second.isNotModified());
+        assertNull(second.getBody());
+        assertEquals("\"v1\"", second.getEtag());
+        assertEquals("\"v1\"", lastIfNoneMatch.get());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body, String etag) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", etag);
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
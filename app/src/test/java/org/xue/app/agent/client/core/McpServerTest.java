@@ -0,0 +1,145 @@
+package org.xue.app.agent.client.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xue.app.agent.client.model.JsonRpcResponse;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * McpServer心跳探测与健康状态单元测试
+ */
+class McpServerTest {
+
+    private final AtomicReference<Mono<JsonRpcResponse>> nextProbe = new AtomicReference<>();
+    private McpServer server;
+    private McpProperties.HeartbeatConfig heartbeat;
+
+    @BeforeEach
+    void setUp() {
+        McpHttpTransport transport = mock(McpHttpTransport.class);
+        when(transport.postAsync(anyString(), any(), eq(JsonRpcResponse.class)))
+                .thenAnswer(invocation -> nextProbe.get());
+        server = new McpServer("test", new McpProperties.ServerConfig(), "http://localhost:8080", transport);
+
+        heartbeat = new McpProperties.HeartbeatConfig();
+        heartbeat.setInterval(1000);
+        heartbeat.setMinInterval(200);
+        heartbeat.setMaxInterval(5000);
+        heartbeat.setJitter(0);
+    }
+
+    @Test
+    void testSuccessfulProbePublishesConnectedState() {
+        assertFalse(server.isConnected());
+
+        assertTrue(probeWith(Mono.just(JsonRpcResponse.success(1, Map.of("status", "ok")))));
+
+        assertTrue(server.isConnected());
+        assertEquals(0, server.getFailureCount());
+        assertTrue(server.getLastHeartbeatTime() > 0);
+    }
+
+    @Test
+    void testErrorResponseAndTransportFailureMarkDisconnected() {
+        probeWith(Mono.just(JsonRpcResponse.success(1, null)));
+
+        assertFalse(probeWith(Mono.just(JsonRpcResponse.error(2, -32603, "内部错误"))));
+        assertFalse(server.isConnected());
+        assertEquals(1, server.getFailureCount());
+
+        assertFalse(probeWith(Mono.error(new ConnectException("Connection refused"))));
+        assertEquals(2, server.getFailureCount());
+    }
+
+    @Test
+    void testHungProbeFailsAtDeadline() {
+        nextProbe.set(Mono.never());
+
+        long start = System.nanoTime();
+        Boolean success = server.probe(Duration.ofMillis(100)).block(Duration.ofSeconds(5));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(Boolean.FALSE, success);
+        assertEquals(1, server.getFailureCount());
+        assertTrue(elapsedMillis < 2000, "探测应在截止时间附近结束，实际耗时 " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void testStableServerBacksOffToMaxInterval() {
+        assertEquals(1000, server.nextHeartbeatDelay(heartbeat));
+
+        succeedProbes(2);
+        assertEquals(1000, server.nextHeartbeatDelay(heartbeat));
+
+        succeedProbes(1);
+        assertEquals(1500, server.nextHeartbeatDelay(heartbeat));
+
+        succeedProbes(1);
+        assertEquals(2250, server.nextHeartbeatDelay(heartbeat));
+
+        succeedProbes(10);
+        assertEquals(5000, server.nextHeartbeatDelay(heartbeat));
+    }
+
+    @Test
+    void testFailuresSpeedUpProbingThenBackOffToBaseInterval() {
+        succeedProbes(5);
+
+        failProbes(1);
+        assertEquals(200, server.nextHeartbeatDelay(heartbeat));
+        failProbes(1);
+        assertEquals(400, server.nextHeartbeatDelay(heartbeat));
+        failProbes(1);
+        assertEquals(800, server.nextHeartbeatDelay(heartbeat));
+        failProbes(1);
+        assertEquals(1000, server.nextHeartbeatDelay(heartbeat));
+
+        // 恢复后从基准间隔重新开始累计
+        succeedProbes(1);
+        assertEquals(1000, server.nextHeartbeatDelay(heartbeat));
+    }
+
+    @Test
+    void testJitterStaysWithinBoundsAndNeverBelowMinInterval() {
+        heartbeat.setJitter(0.2);
+        for (int i = 0; i < 200; i++) {
+            long delay = server.nextHeartbeatDelay(heartbeat);
+            assertTrue(delay >= 800 && delay <= 1200, "抖动超出范围: " + delay);
+        }
+
+        heartbeat.setMinInterval(1000);
+        for (int i = 0; i < 200; i++) {
+            assertTrue(server.nextHeartbeatDelay(heartbeat) >= 1000);
+        }
+    }
+
+    private boolean probeWith(Mono<JsonRpcResponse> response) {
+        nextProbe.set(response);
+        return Boolean.TRUE.equals(server.probe(Duration.ofSeconds(1)).block(Duration.ofSeconds(5)));
+    }
+
+    private void succeedProbes(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(probeWith(Mono.just(JsonRpcResponse.success(i, null))));
+        }
+    }
+
+    private void failProbes(int times) {
+        for (int i = 0; i < times; i++) {
+            assertFalse(probeWith(Mono.error(new IOException("模拟失败"))));
+        }
+    }
+}
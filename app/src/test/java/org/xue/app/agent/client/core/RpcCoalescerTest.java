@@ -0,0 +1,152 @@
+package org.xue.app.agent.client.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.xue.app.agent.client.exception.McpClientException;
+import org.xue.app.agent.client.model.JsonRpcRequest;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RpcCoalescer调用合并单元测试
+ */
+class RpcCoalescerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<JsonRpcRequest> singles = Collections.synchronizedList(new ArrayList<>());
+    private final List<List<JsonRpcRequest>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void testIdenticalInFlightCallsAreCoalescedAndResolvedById() throws Exception {
+        // 服务端倒序返回，调用方仍按id拿到各自的响应
+        RpcCoalescer coalescer = coalescer(50, 10, requests -> {
+            List<JsonNode> responses = new ArrayList<>();
+            for (int i = requests.size() - 1; i >= 0; i--) {
+                responses.add(response(requests.get(i)));
+            }
+            return Mono.just(responses);
+        });
+
+        JsonRpcRequest first = JsonRpcRequest.create("listTables", null);
+        JsonRpcRequest second = JsonRpcRequest.create("listTables", null);
+        JsonRpcRequest third = JsonRpcRequest.create("getTableSchema", Map.of("tableName", "users"));
+        CompletableFuture<JsonNode> firstResult = coalescer.submit(first).toFuture();
+        CompletableFuture<JsonNode> secondResult = coalescer.submit(second).toFuture();
+        CompletableFuture<JsonNode> thirdResult = coalescer.submit(third).toFuture();
+
+        assertEquals(resultOf(first), firstResult.get(5, TimeUnit.SECONDS).path("result").asText());
+        assertEquals(resultOf(second), secondResult.get(5, TimeUnit.SECONDS).path("result").asText());
+        assertEquals(resultOf(third), thirdResult.get(5, TimeUnit.SECONDS).path("result").asText());
+
+        assertTrue(singles.isEmpty());
+        assertEquals(1, batches.size());
+        assertEquals(List.of(first, second, third), batches.get(0));
+    }
+
+    @Test
+    void testLoneCallIsSentAsSingleRequest() throws Exception {
+        RpcCoalescer coalescer = coalescer(20, 10, requests -> Mono.error(new AssertionError("不应发送批量请求")));
+
+        JsonRpcRequest request = JsonRpcRequest.create("listTables", null);
+        JsonNode response = coalescer.submit(request).block(Duration.ofSeconds(5));
+
+        assertNotNull(response);
+        assertEquals(resultOf(request), response.path("result").asText());
+        assertEquals(List.of(request), singles);
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    void testFullBatchIsSentWithoutWaitingForWindow() throws Exception {
+        RpcCoalescer coalescer = coalescer(60_000, 2, requests -> Mono.just(responses(requests)));
+
+        CompletableFuture<JsonNode> first = coalescer.submit(JsonRpcRequest.create("query", null)).toFuture();
+        CompletableFuture<JsonNode> second = coalescer.submit(JsonRpcRequest.create("query", null)).toFuture();
+
+        assertNotNull(first.get(5, TimeUnit.SECONDS));
+        assertNotNull(second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    void testMissingResponseFailsOnlyThatCall() throws Exception {
+        RpcCoalescer coalescer = coalescer(20, 10, requests -> Mono.just(responses(requests.subList(0, 1))));
+
+        CompletableFuture<JsonNode> answered = coalescer.submit(JsonRpcRequest.create("query", null)).toFuture();
+        CompletableFuture<JsonNode> dropped = coalescer.submit(JsonRpcRequest.create("query", null)).toFuture();
+
+        assertNotNull(answered.get(5, TimeUnit.SECONDS));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> dropped.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(McpClientException.class, e.getCause());
+    }
+
+    @Test
+    void testBatchFailureIsPropagatedToEveryCall() {
+        IllegalStateException failure = new IllegalStateException("连接被拒绝");
+        RpcCoalescer coalescer = coalescer(20, 10, requests -> Mono.error(failure));
+
+        CompletableFuture<JsonNode> first = coalescer.submit(JsonRpcRequest.create("query", null)).toFuture();
+        CompletableFuture<JsonNode> second = coalescer.submit(JsonRpcRequest.create("query", null)).toFuture();
+
+        assertSame(failure, assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS)).getCause());
+        assertSame(failure, assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS)).getCause());
+    }
+
+    @Test
+    void testIndexByIdMatchesNumericAndStringIds() {
+        List<JsonNode> responses = List.of(
+                objectMapper.createObjectNode().put("id", 7).put("result", "seven"),
+                objectMapper.createObjectNode().put("id", "abc").put("result", "abc"));
+
+        Map<String, JsonNode> byId = RpcCoalescer.indexById(responses);
+
+        assertEquals("seven", byId.get(String.valueOf(7L)).path("result").asText());
+        assertEquals("abc", byId.get("abc").path("result").asText());
+        assertTrue(RpcCoalescer.indexById(null).isEmpty());
+    }
+
+    private RpcCoalescer coalescer(long windowMillis, int maxBatchSize,
+                                   Function<List<JsonRpcRequest>, Mono<List<JsonNode>>> batchSender) {
+        return new RpcCoalescer("test", Duration.ofMillis(windowMillis), maxBatchSize,
+                request -> {
+                    singles.add(request);
+                    return Mono.just(response(request));
+                },
+                requests -> {
+                    batches.add(new ArrayList<>(requests));
+                    return batchSender.apply(requests);
+                });
+    }
+
+    private List<JsonNode> responses(List<JsonRpcRequest> requests) {
+        List<JsonNode> responses = new ArrayList<>();
+        for (JsonRpcRequest request : requests) {
+            responses.add(response(request));
+        }
+        return responses;
+    }
+
+    private JsonNode response(JsonRpcRequest request) {
+        return objectMapper.createObjectNode()
+                .put("jsonrpc", "2.0")
+                .put("id", ((Number) request.getId()).longValue())
+                .put("result", resultOf(request));
+    }
+
+    private static String resultOf(JsonRpcRequest request) {
+        return request.getMethod() + "#" + request.getId();
+    }
+}
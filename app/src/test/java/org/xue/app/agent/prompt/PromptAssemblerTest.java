@@ -0,0 +1,145 @@
+package org.xue.app.agent.prompt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.xue.app.agent.model.llm.Message;
+import org.xue.app.agent.model.llm.Tool;
+import org.xue.app.agent.model.llm.ToolParameter;
+import org.xue.app.agent.model.llm.ToolParameterProperty;
+import org.xue.app.agent.model.llm.Usage;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PromptAssembler提示词组装单元测试
+ */
+class PromptAssemblerTest {
+
+    private final PromptCacheStats cacheStats = new PromptCacheStats();
+    private final PromptAssembler assembler = new PromptAssembler(cacheStats);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testStableContentPrecedesVolatileContent() {
+        List<Message> conversation = List.of(
+                Message.userMessage("上一个问题"),
+                Message.assistantMessage("上一个回答"));
+        List<Message> volatileMessages = List.of(Message.userMessage("检索上下文与当前问题"));
+
+        List<Message> messages = assembler.assemble("系统规则", conversation, volatileMessages);
+
+        assertEquals(List.of("system", "user", "assistant", "user"), roles(messages));
+        assertEquals("系统规则", messages.get(0).getContent());
+        assertEquals("检索上下文与当前问题", messages.get(3).getContent());
+    }
+
+    @Test
+    void testAppendedConversationKeepsPreviousRequestAsPrefix() {
+        List<Message> turn = List.of(Message.userMessage("查询一下"));
+        List<Message> next = List.of(
+                Message.userMessage("查询一下"),
+                Message.assistantMessage(""),
+                Message.toolMessage("call-1", "query", "{\"rows\":[[1]]}"));
+
+        List<Message> first = assembler.assemble("系统规则", turn, List.of());
+        List<Message> second = assembler.assemble("系统规则", next, List.of());
+
+        assertEquals(first, second.subList(0, first.size()));
+    }
+
+    @Test
+    void testHistorySystemMessagesAreDroppedSoRulesStayFirst() {
+        // 旧版本会把系统提示词写入历史，重建时只保留最前面的一条
+        List<Message> conversation = List.of(
+                Message.systemMessage("旧系统规则"),
+                Message.userMessage("问题"),
+                Message.systemMessage("旧系统规则"));
+
+        List<Message> messages = assembler.assemble("系统规则", conversation, List.of());
+
+        assertEquals(List.of("system", "user"), roles(messages));
+        assertEquals("系统规则", messages.get(0).getContent());
+    }
+
+    @Test
+    void testCurrentTurnContentFollowsStoredHistory() {
+        // 本次问题与附件内容不在历史中，作为易变内容放在最后；下一轮它进入历史，前缀保持不变
+        List<Message> history = List.of(Message.userMessage("上一个问题"), Message.assistantMessage("上一个回答"));
+        Message current = Message.userMessage("本次问题\n[附件内容]");
+
+        List<Message> first = assembler.assemble("系统规则", history, List.of(current));
+        List<Message> nextHistory = List.of(history.get(0), history.get(1), current, Message.assistantMessage("本次回答"));
+        List<Message> second = assembler.assemble("系统规则", nextHistory);
+
+        assertEquals(current, first.get(first.size() - 1));
+        assertEquals(first, second.subList(0, first.size()));
+    }
+
+    @Test
+    void testEmptySystemPromptIsOmitted() {
+        List<Message> messages = assembler.assemble("", List.of(Message.userMessage("问题")), List.of());
+
+        assertEquals(List.of("user"), roles(messages));
+    }
+
+    @Test
+    void testCanonicalToolsSerializeIdenticallyRegardlessOfOrder() throws Exception {
+        List<Tool> first = List.of(
+                tool("query", List.of("sql", "params"), "sql", "params"),
+                tool("listTables", null));
+        List<Tool> second = List.of(
+                tool("listTables", null),
+                tool("query", List.of("params", "sql"), "params", "sql"));
+
+        String firstJson = objectMapper.writeValueAsString(assembler.canonicalTools(first));
+        String secondJson = objectMapper.writeValueAsString(assembler.canonicalTools(second));
+
+        assertEquals(firstJson, secondJson);
+        List<Tool> canonical = assembler.canonicalTools(second);
+        assertEquals("listTables", canonical.get(0).getFunction().getName());
+        assertEquals(List.of("params", "sql"), canonical.get(1).getFunction().getParameters().getRequired());
+    }
+
+    @Test
+    void testRecordUsageCountsCachedTokensFromBothProviders() {
+        // OpenAI返回在prompt_tokens_details中，DeepSeek返回在prompt_cache_hit_tokens中
+        assembler.recordUsage("gpt-4o", Usage.builder()
+                .prompt_tokens(1000)
+                .prompt_tokens_details(Usage.TokenDetails.builder().cached_tokens(768).build())
+                .build());
+        assembler.recordUsage("deepseek-chat", Usage.builder()
+                .prompt_tokens(1000)
+                .prompt_cache_hit_tokens(232)
+                .build());
+        assembler.recordUsage("deepseek-chat", Usage.builder().prompt_tokens(500).build());
+        assembler.recordUsage("deepseek-chat", null);
+
+        Map<String, Object> stats = cacheStats.snapshot();
+        assertEquals(3L, stats.get("requests"));
+        assertEquals(2L, stats.get("cacheHitRequests"));
+        assertEquals(2500L, stats.get("promptTokens"));
+        assertEquals(1000L, stats.get("cachedTokens"));
+        assertEquals(0.4, (double) stats.get("cachedTokenRatio"), 1e-9);
+    }
+
+    private static Tool tool(String name, List<String> required, String... propertyOrder) {
+        Map<String, ToolParameterProperty> properties = new LinkedHashMap<>();
+        for (String property : propertyOrder) {
+            properties.put(property, ToolParameterProperty.builder().type("string").description(property).build());
+        }
+        return Tool.functionTool(name, name + "描述", ToolParameter.builder()
+                .type("object")
+                .properties(properties)
+                .required(required)
+                .build());
+    }
+
+    private static List<String> roles(List<Message> messages) {
+        return messages.stream().map(Message::getRole).collect(Collectors.toList());
+    }
+}
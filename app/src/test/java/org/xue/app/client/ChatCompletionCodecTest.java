@@ -0,0 +1,67 @@
+package org.xue.app.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.xue.app.agent.model.llm.Message;
+import org.xue.app.client.model.ChatCompletionRequest;
+import org.xue.app.client.model.ChatCompletionResult;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChatCompletionCodec单元测试
+ */
+class ChatCompletionCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final ChatCompletionCodec codec = new ChatCompletionCodec(objectMapper);
+
+    @Test
+    void testRequestBodyWritesTypedRequest() throws Exception {
+        ChatCompletionRequest request = ChatCompletionRequest.builder()
+                .model("deepseek-chat")
+                .stream(false)
+                .messages(List.of(Message.systemMessage("sys"), Message.userMessage("你好")))
+                .maxTokens(256)
+                .temperature(0.5)
+                .build();
+
+        Buffer sink = new Buffer();
+        codec.requestBody(request).writeTo(sink);
+        JsonNode written = objectMapper.readTree(sink.readUtf8());
+
+        assertEquals("deepseek-chat", written.get("model").asText());
+        assertEquals(256, written.get("max_tokens").asInt());
+        assertEquals("你好", written.get("messages").get(1).get("content").asText());
+        assertFalse(written.get("messages").get(0).has("tool_calls"));
+    }
+
+    @Test
+    void testParseOnlyMaterializesNeededFields() throws Exception {
+        String json = "{\"id\":\"x\",\"model\":\"gpt-4o\",\"choices\":["
+                + "{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"hello\",\"tool_calls\":[{\"a\":1}]},\"finish_reason\":\"stop\"},"
+                + "{\"index\":1,\"message\":{\"content\":\"ignored\"}}],"
+                + "\"usage\":{\"prompt_tokens\":10,\"completion_tokens\":2,\"total_tokens\":12,"
+                + "\"prompt_tokens_details\":{\"cached_tokens\":8},\"prompt_cache_hit_tokens\":8}}";
+
+        ChatCompletionResult result = codec.parse(new Buffer().writeUtf8(json));
+
+        assertEquals("gpt-4o", result.getModel());
+        assertEquals("hello", result.getContent());
+        assertEquals("stop", result.getFinishReason());
+        assertEquals(12, result.getTotalTokens());
+        assertEquals(8, result.getUsage().getPrompt_tokens_details().getCached_tokens());
+    }
+
+    @Test
+    void testExtractModel() throws Exception {
+        assertEquals("gpt-4o", codec.extractModel("{\"messages\":[{\"model\":\"fake\"}],\"model\":\"gpt-4o\"}"));
+        assertNull(codec.extractModel("{\"messages\":[]}"));
+    }
+}
@@ -0,0 +1,138 @@
+package org.xue.app.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.xue.app.entity.User;
+import org.xue.app.repository.UserRepository;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * UserIdentityCache缓存、请求内记忆与失效单元测试
+ */
+class UserIdentityCacheTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private UserIdentityCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new UserIdentityCache(userRepository);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(cache, "maxSize", 100);
+        when(userRepository.findByUsername("alice")).thenAnswer(invocation -> Optional.of(user(1L, "alice")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void testRepeatedLookupsHitCache() {
+        assertTrue(cache.findByUsername("alice").isPresent());
+        assertTrue(cache.findByUsername("alice").isPresent());
+
+        verify(userRepository, times(1)).findByUsername("alice");
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testSnapshotsCopyEveryPropertyAndAreIndependent() {
+        User first = cache.findByUsername("alice").orElseThrow();
+        assertEquals(user(1L, "alice"), first);
+
+        first.setNickname("changed");
+        User second = cache.findByUsername("alice").orElseThrow();
+
+        assertEquals("alice的昵称", second.getNickname());
+        assertNotSame(first, second);
+    }
+
+    @Test
+    void testExpiredEntryIsReloaded() {
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 0L);
+
+        cache.findByUsername("alice");
+        cache.findByUsername("alice");
+
+        verify(userRepository, times(2)).findByUsername("alice");
+    }
+
+    @Test
+    void testMissingUserIsNotCached() {
+        when(userRepository.findByUsername("bob")).thenReturn(Optional.empty());
+
+        assertTrue(cache.findByUsername("bob").isEmpty());
+        assertTrue(cache.findByUsername("bob").isEmpty());
+
+        verify(userRepository, times(2)).findByUsername("bob");
+        assertEquals(0, cache.size());
+        assertTrue(cache.findByUsername(null).isEmpty());
+    }
+
+    @Test
+    void testInvalidateForcesReload() {
+        cache.findByUsername("alice");
+        cache.invalidate("alice");
+
+        assertEquals(0, cache.size());
+        cache.findByUsername("alice");
+        verify(userRepository, times(2)).findByUsername("alice");
+    }
+
+    @Test
+    void testRequestMemoServesLookupsWithinOneRequest() {
+        // TTL为0时进程缓存总是过期，同一请求内仍只查询一次
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 0L);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        cache.findByUsername("alice");
+        cache.findByUsername("alice");
+        verify(userRepository, times(1)).findByUsername("alice");
+
+        // 新请求不共享记忆
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        cache.findByUsername("alice");
+        verify(userRepository, times(2)).findByUsername("alice");
+    }
+
+    @Test
+    void testInvalidateAlsoClearsRequestMemo() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        cache.findByUsername("alice");
+        cache.invalidate("alice");
+        cache.findByUsername("alice");
+
+        verify(userRepository, times(2)).findByUsername("alice");
+    }
+
+    @Test
+    void testSizeIsBoundedByMaxSize() {
+        ReflectionTestUtils.setField(cache, "maxSize", 2);
+        for (long i = 0; i < 5; i++) {
+            String username = "user" + i;
+            when(userRepository.findByUsername(username)).thenReturn(Optional.of(user(i, username)));
+            cache.findByUsername(username);
+        }
+
+        assertTrue(cache.size() <= 2);
+    }
+
+    private static User user(Long id, String username) {
+        return new User(id, username, username + "的昵称", "{bcrypt}hash", username + "@example.com", "USER",
+                "/uploads/avatars/" + username + ".png");
+    }
+}
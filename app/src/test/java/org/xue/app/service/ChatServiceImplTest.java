@@ -0,0 +1,223 @@
+package org.xue.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.xue.app.agent.client.core.McpClientTemplate;
+import org.xue.app.agent.client.core.McpRpcClient;
+import org.xue.app.agent.config.AgentProperties;
+import org.xue.app.agent.model.AgentResponse;
+import org.xue.app.agent.model.llm.AssistantMessage;
+import org.xue.app.agent.model.llm.Choice;
+import org.xue.app.agent.model.llm.FunctionCall;
+import org.xue.app.agent.model.llm.LlmRequest;
+import org.xue.app.agent.model.llm.LlmResponse;
+import org.xue.app.agent.model.llm.Message;
+import org.xue.app.agent.model.llm.ToolCall;
+import org.xue.app.agent.prompt.PromptAssembler;
+import org.xue.app.agent.prompt.PromptCacheStats;
+import org.xue.app.agent.service.AgentService;
+import org.xue.app.agent.service.LlmService;
+import org.xue.app.dto.ChatRequestDTO;
+import org.xue.app.entity.ChatMessage;
+import org.xue.app.entity.Conversation;
+import org.xue.app.repository.ChatMessageRepository;
+import org.xue.app.repository.ConversationRepository;
+import org.xue.app.service.impl.ChatServiceImpl;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * ChatServiceImpl异步工具循环单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class ChatServiceImplTest {
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @Mock
+    private ChatMessageRepository chatMessageRepository;
+
+    @Mock
+    private AgentService agentService;
+
+    @Mock
+    private LlmService llmService;
+
+    @Mock
+    private McpClientTemplate mcpTemplate;
+
+    @Mock
+    private McpRpcClient mcpRpcClient;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private AgentProperties agentProperties = new AgentProperties();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private PromptAssembler promptAssembler = new PromptAssembler(new PromptCacheStats());
+
+    @InjectMocks
+    private ChatServiceImpl chatService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().when(conversationRepository.save(any(Conversation.class))).thenAnswer(invocation -> {
+            Conversation conversation = invocation.getArgument(0);
+            conversation.setId("c1");
+            return conversation;
+        });
+        lenient().when(mcpTemplate.getServersStatus())
+                .thenReturn(Map.of("mysql", Map.<String, Object>of("connected", true)));
+        lenient().when(mcpRpcClient.fetchSchema("mysql", "function_calling"))
+                .thenReturn(Mono.just(Map.of("functions", List.of(Map.of(
+                        "name", "query",
+                        "description", "执行查询",
+                        "parameters", Map.of("type", "object", "properties", Map.of()))))));
+    }
+
+    @Test
+    void testToolLoopSavesWholeTurnAfterFinalReply() {
+        when(chatMessageRepository.findMaxSequenceByConversationId("c1")).thenReturn(null, 1);
+        ToolCall toolCall = ToolCall.builder()
+                .id("call-1")
+                .type("function")
+                .function(FunctionCall.builder().name("query").arguments("{\"sql\":\"select 1\"}").build())
+                .build();
+        when(llmService.callLlmAsync(any(LlmRequest.class)))
+                .thenReturn(Mono.just(response(AssistantMessage.builder().role("assistant").content("")
+                        .tool_calls(List.of(toolCall)).build())))
+                .thenReturn(Mono.just(response(AssistantMessage.builder().role("assistant").content("结果是1").build())));
+        when(mcpRpcClient.call(eq("mysql"), eq("query"), any(), eq("c1"))).thenReturn(Mono.just("{\"rows\":[[1]]}"));
+
+        AgentResponse response = chatService.sendMessageAsync(request()).block(Duration.ofSeconds(5));
+
+        assertEquals("success", response.getStatus());
+        assertEquals("结果是1", response.getContent());
+        assertEquals(2, response.getInteractions());
+
+        // 第二次请求带上了工具结果
+        ArgumentCaptor<LlmRequest> requests = ArgumentCaptor.forClass(LlmRequest.class);
+        verify(llmService, times(2)).callLlmAsync(requests.capture());
+        // 系统提示词只出现一次且在最前面，第二次请求以第一次请求为前缀
+        List<Message> first = requests.getAllValues().get(0).getMessages();
+        List<Message> second = requests.getAllValues().get(1).getMessages();
+        assertEquals(List.of("system", "user"), first.stream().map(Message::getRole).collect(Collectors.toList()));
+        assertEquals(agentProperties.getSystemPrompt(), first.get(0).getContent());
+        assertEquals(first, second.subList(0, first.size()));
+        assertEquals("tool", requests.getAllValues().get(1).getMessages()
+                .get(requests.getAllValues().get(1).getMessages().size() - 1).getRole());
+
+        // 用户消息立即写入；其余消息在结束时一次写入，序号连续；系统提示词不写入历史
+        ArgumentCaptor<ChatMessage> user = ArgumentCaptor.forClass(ChatMessage.class);
+        verify(chatMessageRepository).save(user.capture());
+        assertEquals("user", user.getValue().getRole());
+        assertEquals(1, user.getValue().getSequence());
+        List<ChatMessage> messages = savedBatch();
+        assertEquals(List.of("assistant", "tool", "assistant"),
+                messages.stream().map(ChatMessage::getRole).collect(Collectors.toList()));
+        assertEquals(List.of(2, 3, 4),
+                messages.stream().map(ChatMessage::getSequence).collect(Collectors.toList()));
+        verify(conversationRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void testFailedLoopKeepsUserMessageAndSavesErrorReply() {
+        when(chatMessageRepository.findMaxSequenceByConversationId("c1")).thenReturn(null, 1);
+        when(llmService.callLlmAsync(any(LlmRequest.class))).thenReturn(Mono.error(new IllegalStateException("连接失败")));
+
+        AgentResponse response = chatService.sendMessageAsync(request()).block(Duration.ofSeconds(5));
+
+        assertEquals("error", response.getStatus());
+        verify(chatMessageRepository).save(argThat((ChatMessage message) -> "user".equals(message.getRole())));
+        // 只写入错误回复，对话保留
+        List<ChatMessage> messages = savedBatch();
+        assertEquals(1, messages.size());
+        assertEquals("assistant", messages.get(0).getRole());
+        assertEquals("处理失败: 连接失败", messages.get(0).getContent());
+        assertEquals(2, messages.get(0).getSequence());
+        verify(conversationRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void testFailedLoopDropsIncompleteToolMessages() {
+        ToolCall toolCall = ToolCall.builder()
+                .id("call-1")
+                .type("function")
+                .function(FunctionCall.builder().name("query").arguments("{}").build())
+                .build();
+        when(llmService.callLlmAsync(any(LlmRequest.class)))
+                .thenReturn(Mono.just(response(AssistantMessage.builder().role("assistant").content("先查询一下")
+                        .tool_calls(List.of(toolCall)).build())))
+                .thenReturn(Mono.error(new IllegalStateException("连接失败")));
+        when(mcpRpcClient.call(eq("mysql"), eq("query"), any(), eq("c1"))).thenReturn(Mono.just("{\"rows\":[]}"));
+
+        AgentResponse response = chatService.sendMessageAsync(request()).block(Duration.ofSeconds(5));
+
+        assertEquals("error", response.getStatus());
+        // 中间的助手与工具消息不写入，只写入以部分回复为内容的错误回复
+        List<ChatMessage> messages = savedBatch();
+        assertEquals(1, messages.size());
+        assertEquals("assistant", messages.get(0).getRole());
+        assertEquals(response.getContent(), messages.get(0).getContent());
+        assertTrue(messages.get(0).getContent().endsWith("先查询一下"));
+    }
+
+    @Test
+    void testTurnTimeoutReturnsError() {
+        agentProperties.setMaxInteractions(1);
+        agentProperties.getLlmApi().setTimeout(50);
+        when(llmService.callLlmAsync(any(LlmRequest.class))).thenReturn(Mono.never());
+
+        AgentResponse response = chatService.sendMessageAsync(request()).block(Duration.ofSeconds(5));
+
+        assertEquals("error", response.getStatus());
+        verify(chatMessageRepository).save(argThat((ChatMessage message) -> "user".equals(message.getRole())));
+        List<ChatMessage> messages = savedBatch();
+        assertEquals(1, messages.size());
+        assertEquals(response.getContent(), messages.get(0).getContent());
+    }
+
+    private List<ChatMessage> savedBatch() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ChatMessage>> saved = ArgumentCaptor.forClass(List.class);
+        verify(chatMessageRepository, times(1)).saveAll(saved.capture());
+        return saved.getValue();
+    }
+
+    private static ChatRequestDTO request() {
+        return ChatRequestDTO.builder().message("查询一下").build();
+    }
+
+    private static LlmResponse response(AssistantMessage message) {
+        return LlmResponse.builder()
+                .choices(List.of(Choice.builder().index(0).message(message).build()))
+                .build();
+    }
+}
@@ -0,0 +1,71 @@
+package org.xue.app.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.xue.app.dto.UserSettingsDTO;
+import org.xue.app.entity.User;
+import org.xue.app.repository.UserRepository;
+import org.xue.app.security.UserIdentityCache;
+import org.xue.app.service.impl.UserSettingsServiceImpl;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * UserSettingsServiceImpl修改用户设置单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class UserSettingsServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private UserIdentityCache userIdentityCache;
+
+    @InjectMocks
+    private UserSettingsServiceImpl userSettingsService;
+
+    @Test
+    void testUpdateSavesManagedEntityAndInvalidatesCache() {
+        User managed = new User(1L, "alice", "旧昵称", "hash", "alice@example.com", "ADMIN", "/uploads/avatars/a.png");
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(managed));
+        when(userRepository.save(managed)).thenReturn(managed);
+        UserSettingsDTO dto = new UserSettingsDTO();
+        dto.setNickname(" 新昵称 ");
+
+        User saved = userSettingsService.updateUserSettings("alice", dto);
+
+        // 保存的是数据库加载的实体，其余字段保持原值
+        assertSame(managed, saved);
+        assertEquals("新昵称", saved.getNickname());
+        assertEquals("ADMIN", saved.getRole());
+        assertEquals("/uploads/avatars/a.png", saved.getAvatarUrl());
+        verify(userIdentityCache, never()).findByUsername(any());
+        verify(userIdentityCache).invalidate("alice");
+    }
+
+    @Test
+    void testWrongCurrentPasswordDoesNotSave() {
+        User managed = new User(1L, "alice", "昵称", "hash", "alice@example.com", "USER", null);
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(managed));
+        when(passwordEncoder.matches("wrong", "hash")).thenReturn(false);
+
+        assertFalse(userSettingsService.updatePassword("alice", "wrong", "new"));
+
+        verify(userRepository, never()).save(any());
+        verify(userIdentityCache, never()).invalidate(any());
+    }
+}
@@ -3,6 +3,10 @@ package org.xue.core.client.fallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import org.xue.api.milvus.dto.BatchInsertChunksRequest;
+import org.xue.api.milvus.dto.BatchInsertChunksResponse;
+import org.xue.api.milvus.dto.BatchSearchChunksRequest;
+import org.xue.api.milvus.dto.ChunkHit;
 import org.xue.api.milvus.dto.InsertChunksRequest;
 import org.xue.api.milvus.dto.SearchChunksRequest;
 import org.xue.core.client.feign.MilvusFeign;
@@ -27,6 +31,12 @@ public class MilvusClientFallback implements MilvusFeign {
         log.error("【降级】调用Milvus插入分块失败");
     }
 
+    @Override
+    public BatchInsertChunksResponse insertChunksBatch(BatchInsertChunksRequest request) {
+        log.error("【降级】调用Milvus批量插入分块失败");
+        return new BatchInsertChunksResponse(0, 0, 0);
+    }
+
     @Override
     public List<String> searchChunks(SearchChunksRequest request) {
         log.error("【降级】调用Milvus搜索分块失败，返回空结果");
@@ -35,6 +45,18 @@ public class MilvusClientFallback implements MilvusFeign {
         return fallbackResults;
     }
 
+    @Override
+    public List<List<ChunkHit>> searchChunksBatch(BatchSearchChunksRequest request) {
+        log.error("【降级】调用Milvus批量搜索分块失败，返回空结果");
+        List<List<ChunkHit>> fallbackResults = new ArrayList<>();
+        if (request.getQueryTexts() != null) {
+            for (int i = 0; i < request.getQueryTexts().size(); i++) {
+                fallbackResults.add(new ArrayList<>());
+            }
+        }
+        return fallbackResults;
+    }
+
     @Override
     public void deleteById(String id) {
         log.error("【降级】调用Milvus删除分块失败，ID：{}", id);
@@ -8,6 +8,10 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.xue.api.milvus.dto.BatchInsertChunksRequest;
+import org.xue.api.milvus.dto.BatchInsertChunksResponse;
+import org.xue.api.milvus.dto.BatchSearchChunksRequest;
+import org.xue.api.milvus.dto.ChunkHit;
 import org.xue.api.milvus.dto.InsertChunksRequest;
 import org.xue.api.milvus.dto.SearchChunksRequest;
 import org.xue.core.client.fallback.MilvusClientFallback;
@@ -38,6 +42,14 @@ public interface MilvusFeign {
     @PostMapping("/chunks/insert")
     void insertChunks(@RequestBody InsertChunksRequest request);
 
+    /**
+     * 批量插入多个文档的分块，embedding按批请求，插入按消息大小分批
+     * @param request 包含多个文档（docText、docId）
+     * @return 写入的文档数、分块数及插入请求数
+     */
+    @PostMapping("/chunks/insert/batch")
+    BatchInsertChunksResponse insertChunksBatch(@RequestBody BatchInsertChunksRequest request);
+
     /**
      * 根据查询文本检索最相似的分块
      * @param request 包含查询文本（queryText）和返回结果数量（topK）
@@ -46,6 +58,14 @@ public interface MilvusFeign {
     @PostMapping("/chunks/search")
     List<String> searchChunks(@RequestBody SearchChunksRequest request);
 
+    /**
+     * 多条查询文本在一次检索中完成
+     * @param request 包含查询文本列表（queryTexts）和每条查询的返回数量（topK）
+     * @return 与查询顺序一致的命中列表，每个命中包含 id、score、docId 和分块文本
+     */
+    @PostMapping("/chunks/search/batch")
+    List<List<ChunkHit>> searchChunksBatch(@RequestBody BatchSearchChunksRequest request);
+
     /**
      * 根据文档 ID 删除对应分块
      * @param id 文档 ID
@@ -26,6 +26,8 @@ import org.springframework.beans.factory.annotation.Autowired;
  * 📁 文件操作工具集（来自FileOperationsService）：
  * - createFile: 创建文件并可选写入内容
  * - readFile: 智能读取文件内容（支持PDF、Word等）
+ * - readFileBytes: 按字节范围读取文件
+ * - readFileLines: 按行范围读取文件
  * - writeFile: 写入文件内容  
  * - deleteFile: 删除文件
  * - moveFile: 移动/重命名文件
@@ -33,7 +35,8 @@ import org.springframework.beans.factory.annotation.Autowired;
  * - insertLines: 在文件中插入新行
  * - createDirectory: 创建目录
  * - deleteDirectory: 删除目录及内容
- * - listDirectory: 列出目录内容
+ * - listDirectory: 分页列出目录内容（支持排序、过滤和递归）
+ * - searchFiles: 并行搜索文件内容
  * - getFileInfo: 获取文件/目录详细信息
  * 
  * 🔧 可用端点：
@@ -99,6 +102,8 @@ public class FileMcpApplication {
 		log.info("🛠️ 已注册的文件操作工具:");
 		log.info("   📄 createFile - 创建文件并可选写入内容");
 		log.info("   📖 readFile - 智能读取文件内容（支持PDF、Word等）");
+		log.info("   📑 readFileBytes - 按字节范围读取文件");
+		log.info("   📃 readFileLines - 按行范围读取文件");
 		log.info("   ✏️ writeFile - 写入文件内容");
 		log.info("   🗑️ deleteFile - 删除文件");
 		log.info("   🔄 moveFile - 移动/重命名文件");
@@ -106,7 +111,8 @@ public class FileMcpApplication {
 		log.info("   ➕ insertLines - 在文件中插入新行");
 		log.info("   📁 createDirectory - 创建目录");
 		log.info("   🗂️ deleteDirectory - 删除目录及内容");
-		log.info("   📂 listDirectory - 列出目录内容");
+		log.info("   📂 listDirectory - 分页列出目录内容（支持排序、过滤和递归）");
+		log.info("   🔍 searchFiles - 并行搜索文件内容");
 		log.info("   ℹ️ getFileInfo - 获取文件/目录详细信息");
 		log.info("");
 		log.info("📚 客户端配置示例:");
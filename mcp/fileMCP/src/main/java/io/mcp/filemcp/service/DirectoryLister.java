@@ -0,0 +1,288 @@
+package io.mcp.filemcp.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 目录列表
+ * 每个条目只读取一次BasicFileAttributes；分页采用键集游标：游标记录上一页最后一项的排序键，
+ * 下一页只保留排在游标之后的前limit项（有界堆），内存占用与目录大小无关
+ */
+public class DirectoryLister {
+
+    /**
+     * 排序方式
+     */
+    public enum SortKey {
+        /**
+         * 目录在前，再按名称
+         */
+        NAME,
+        SIZE,
+        MODIFIED
+    }
+
+    /**
+     * 列出目录
+     *
+     * @param directory 已校验的目录
+     * @param sortKey 排序方式
+     * @param descending 是否倒序
+     * @param glob 文件名（含“/”时为相对路径）的glob过滤，为空时不过滤
+     * @param cursor 上一页返回的游标，为空时从第一项开始
+     * @param limit 每页条目数
+     * @param maxDepth 递归深度，1表示只列出直接子项
+     */
+    public Page list(Path directory, SortKey sortKey, boolean descending, String glob, String cursor,
+                     int limit, int maxDepth) throws IOException {
+        Comparator<Entry> comparator = comparator(sortKey);
+        if (descending) {
+            comparator = comparator.reversed();
+        }
+        Collector collector = new Collector(comparator, cursor != null && !cursor.isBlank() ? decode(cursor) : null,
+                matcher(glob), glob != null && glob.contains("/"), limit);
+
+        if (maxDepth <= 1) {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    collector.accept(directory, entry, readAttributes(entry));
+                }
+            }
+        } else {
+            Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class), maxDepth, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (dir.equals(directory)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    if (dir.getFileName().toString().equals(ParsedTextCache.SIDECAR_DIRECTORY)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    collector.accept(directory, dir, attrs);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    // 达到深度上限的目录也通过visitFile传入
+                    collector.accept(directory, file, attrs);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        return collector.page();
+    }
+
+    /**
+     * 读取条目属性，符号链接目标不存在时退回读取链接本身
+     */
+    private static BasicFileAttributes readAttributes(Path entry) throws IOException {
+        try {
+            return Files.readAttributes(entry, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        }
+    }
+
+    private static PathMatcher matcher(String glob) {
+        if (glob == null || glob.isBlank()) {
+            return null;
+        }
+        return FileSystems.getDefault().getPathMatcher("glob:" + glob);
+    }
+
+    private static Comparator<Entry> comparator(SortKey sortKey) {
+        Comparator<Entry> byPath = Comparator.comparing(Entry::getPath);
+        switch (sortKey) {
+            case SIZE:
+                return Comparator.comparingLong(Entry::getSize).thenComparing(byPath);
+            case MODIFIED:
+                return Comparator.comparingLong(Entry::getModified).thenComparing(byPath);
+            case NAME:
+            default:
+                return Comparator.comparing((Entry entry) -> !entry.isDirectory()).thenComparing(byPath);
+        }
+    }
+
+    /**
+     * 游标为最后一项排序键的Base64编码：类型|大小|修改时间|相对路径
+     */
+    private static String encode(Entry entry) {
+        String key = (entry.directory ? "d" : "f") + "|" + entry.size + "|" + entry.modified + "|" + entry.path;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Entry decode(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = key.split("\\|", 4);
+            return new Entry(parts[3], parts[0].equals("d"), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor);
+        }
+    }
+
+    /**
+     * 过滤并保留游标之后排序最靠前的limit项
+     */
+    private static final class Collector {
+        private final Comparator<Entry> comparator;
+        private final Entry after;
+        private final PathMatcher matcher;
+
+        /**
+         * glob含“/”时匹配相对路径，否则只匹配文件名
+         */
+        private final boolean matchRelative;
+
+        private final int limit;
+
+        /**
+         * 按排序倒置的有界堆，堆顶是当前保留的最后一项
+         */
+        private final PriorityQueue<Entry> heap;
+
+        private long total;
+        private long remaining;
+
+        private Collector(Comparator<Entry> comparator, Entry after, PathMatcher matcher, boolean matchRelative,
+                          int limit) {
+            this.comparator = comparator;
+            this.after = after;
+            this.matcher = matcher;
+            this.matchRelative = matchRelative;
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, comparator.reversed());
+        }
+
+        private void accept(Path root, Path path, BasicFileAttributes attributes) {
+            Path relative = root.relativize(path);
+            String name = path.getFileName().toString();
+            if (name.equals(ParsedTextCache.SIDECAR_DIRECTORY)) {
+                return;
+            }
+            if (matcher != null && !matcher.matches(matchRelative ? relative : path.getFileName())) {
+                return;
+            }
+
+            Entry entry = new Entry(relative.toString().replace('\\', '/'), attributes.isDirectory(),
+                    attributes.isDirectory() ? 0 : attributes.size(), attributes.lastModifiedTime().toMillis());
+            total++;
+            if (after != null && comparator.compare(entry, after) <= 0) {
+                return;
+            }
+            remaining++;
+            heap.offer(entry);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+
+        private Page page() {
+            List<Entry> entries = new ArrayList<>(heap);
+            entries.sort(comparator);
+            boolean hasMore = remaining > entries.size();
+            String next = hasMore && !entries.isEmpty() ? encode(entries.get(entries.size() - 1)) : null;
+            return new Page(entries, total, remaining, next);
+        }
+    }
+
+    /**
+     * 目录条目
+     */
+    public static final class Entry {
+        private final String path;
+        private final boolean directory;
+        private final long size;
+        private final long modified;
+
+        private Entry(String path, boolean directory, long size, long modified) {
+            this.path = path;
+            this.directory = directory;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        /**
+         * 相对于所列目录的路径，以“/”分隔
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getModified() {
+            return modified;
+        }
+    }
+
+    /**
+     * 一页结果
+     */
+    public static final class Page {
+        private final List<Entry> entries;
+        private final long total;
+        private final long remaining;
+        private final String nextCursor;
+
+        private Page(List<Entry> entries, long total, long remaining, String nextCursor) {
+            this.entries = entries;
+            this.total = total;
+            this.remaining = remaining;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<Entry> getEntries() {
+            return entries;
+        }
+
+        /**
+         * 过滤后的条目总数
+         */
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * 本页之前已返回的条目数
+         */
+        public long getSkipped() {
+            return total - remaining;
+        }
+
+        /**
+         * 下一页游标，没有更多条目时为null
+         */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+}
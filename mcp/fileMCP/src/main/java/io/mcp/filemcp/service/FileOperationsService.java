@@ -1,19 +1,28 @@
 package io.mcp.filemcp.service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.reader.tika.TikaDocumentReader;
 import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 /**
  * MCP服务类，提供全面的文件和文件夹操作功能
@@ -33,6 +42,99 @@ public class FileOperationsService {
     @Value("${file.operations.allowed-extensions:.txt,.md,.json,.xml,.yaml,.yml,.properties,.log,.csv,.pdf,.doc,.docx,.xls,.xlsx,.ppt,.pptx,.rtf,.odt,.ods,.odp}")
     private String allowedExtensions;
 
+    /**
+     * 按范围读取时单次返回的最大字节数
+     */
+    private static final int MAX_RANGE_BYTES = 1024 * 1024;
+
+    /**
+     * 按字节范围读取的默认字节数
+     */
+    private static final int DEFAULT_RANGE_BYTES = 64 * 1024;
+
+    /**
+     * 按行读取的默认和最大行数
+     */
+    private static final int DEFAULT_RANGE_LINES = 200;
+    private static final int MAX_RANGE_LINES = 2000;
+
+    /**
+     * 文件行偏移索引，按行读取和统计行数时使用
+     */
+    private final LineIndexCache lineIndexCache = new LineIndexCache(64);
+
+    /**
+     * 流式行编辑，删除和插入行时使用
+     */
+    private final StreamingLineEditor lineEditor = new StreamingLineEditor(lineIndexCache);
+
+    /**
+     * Tika解析结果缓存的内存上限
+     */
+    @Value("${file.operations.parse-cache.max-size:64MB}")
+    private String parseCacheMaxSize;
+
+    /**
+     * 是否把解析结果持久化到基础目录下的旁路缓存目录
+     */
+    @Value("${file.operations.parse-cache.persistent:false}")
+    private boolean parseCachePersistent;
+
+    /**
+     * 旁路缓存目录的总大小上限
+     */
+    @Value("${file.operations.parse-cache.sidecar-max-size:1GB}")
+    private String parseCacheSidecarMaxSize;
+
+    /**
+     * Tika解析结果缓存
+     */
+    private final ParsedTextCache parsedTextCache = new ParsedTextCache(DataSize.ofMegabytes(64).toBytes());
+
+    /**
+     * 搜索默认和最大的上下文行数、匹配数，以及单次搜索输出的最大字节数
+     */
+    private static final int DEFAULT_SEARCH_CONTEXT = 2;
+    private static final int MAX_SEARCH_CONTEXT = 10;
+    private static final int DEFAULT_SEARCH_RESULTS = 100;
+    private static final int MAX_SEARCH_RESULTS = 1000;
+    private static final int MAX_SEARCH_BYTES = 64 * 1024;
+
+    /**
+     * 单行正则匹配的时间上限（毫秒）
+     */
+    private static final long SEARCH_MATCH_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * 目录列表默认和最大的每页条目数、递归深度
+     */
+    private static final int DEFAULT_LIST_ENTRIES = 200;
+    private static final int MAX_LIST_ENTRIES = 1000;
+    private static final int DEFAULT_LIST_DEPTH = 5;
+    private static final int MAX_LIST_DEPTH = 20;
+
+    private static final DateTimeFormatter LIST_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+    private final DirectoryLister directoryLister = new DirectoryLister();
+
+    /**
+     * 文件内容搜索
+     */
+    private final FileSearcher fileSearcher = new FileSearcher(parsedTextCache, this::parseWithTika,
+            path -> isPlainTextFile(getFileExtension(path.getFileName().toString().toLowerCase())),
+            path -> isSupportedByTika(getFileExtension(path.getFileName().toString().toLowerCase())),
+            SEARCH_MATCH_TIMEOUT_MILLIS);
+
+    @PostConstruct
+    public void init() {
+        Path sidecar = parseCachePersistent ? Paths.get(basePath).resolve(ParsedTextCache.SIDECAR_DIRECTORY) : null;
+        parsedTextCache.configure(DataSize.parse(parseCacheMaxSize).toBytes(), sidecar,
+                DataSize.parse(parseCacheSidecarMaxSize).toBytes());
+        log.info("文档解析缓存已配置，内存上限: {}，旁路缓存目录: {}，旁路缓存上限: {}", parseCacheMaxSize,
+                sidecar != null ? sidecar : "未启用", parseCacheSidecarMaxSize);
+    }
+
     /**
      * 创建文件到指定目录
      */
@@ -92,6 +194,130 @@ public class FileOperationsService {
         }
     }
 
+    /**
+     * 按字节范围读取文件
+     * 只映射请求的区间，范围边界对齐到完整的UTF-8字符
+     */
+    @Tool(description = "按字节范围读取文件内容，适合分段读取大型日志或CSV等纯文本文件。offset为起始字节偏移（从0开始），length为读取字节数（默认64KB，最大1MB）。返回内容前附带实际读取的字节范围和文件总大小，范围边界会对齐到完整的UTF-8字符，可以用返回的结束偏移继续读取下一段。")
+    public String readFileBytes(String filePath, long offset, @ToolParam(required = false) Integer length) {
+        try {
+            Path resolvedPath = resolveAndValidatePath(filePath);
+
+            if (!Files.exists(resolvedPath)) {
+                return "文件不存在: " + resolvedPath;
+            }
+
+            if (!Files.isRegularFile(resolvedPath)) {
+                return "不是一个文件: " + resolvedPath;
+            }
+
+            try (FileChannel channel = FileChannel.open(resolvedPath, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (offset < 0 || (offset >= size && size > 0)) {
+                    return "偏移超出范围: " + offset + " (文件大小: " + size + " 字节)";
+                }
+
+                int requested = length != null && length > 0 ? Math.min(length, MAX_RANGE_BYTES) : DEFAULT_RANGE_BYTES;
+                long end = Math.min(size, offset + requested);
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, end - offset);
+
+                // 起点落在多字节字符中间时向后跳过续字节，终点截断了字符时向前退到字符起始
+                int from = 0;
+                while (offset > 0 && from < buffer.limit() && from < 3 && isContinuationByte(buffer.get(from))) {
+                    from++;
+                }
+                int to = end < size ? utf8Boundary(buffer, buffer.limit()) : buffer.limit();
+                if (to < from) {
+                    to = from;
+                }
+                String content = StandardCharsets.UTF_8.decode(buffer.position(from).limit(to)).toString();
+
+                log.info("按字节读取成功: {} ({}-{})", resolvedPath, offset + from, offset + to);
+                return String.format("[字节 %d-%d / 共 %d 字节]%n", offset + from, offset + to, size) + content;
+            }
+
+        } catch (Exception e) {
+            log.error("按字节读取失败: {}", e.getMessage());
+            return "按字节读取失败: " + e.getMessage();
+        }
+    }
+
+    /**
+     * 按行范围读取文件
+     * 通过行偏移索引定位起始行，只映射需要的区间
+     */
+    @Tool(description = "按行范围读取文本文件，适合分页浏览大型日志或CSV文件。startLine使用1基索引（第一行为1），lineCount为读取行数（默认200行，最多2000行，单次最多返回1MB）。返回内容前附带实际读取的行范围和文件总行数。基于缓存的行偏移索引和内存映射读取，多GB的文件也只占用常量内存。")
+    public String readFileLines(String filePath, int startLine, @ToolParam(required = false) Integer lineCount) {
+        try {
+            Path resolvedPath = resolveAndValidatePath(filePath);
+
+            if (!Files.exists(resolvedPath)) {
+                return "文件不存在: " + resolvedPath;
+            }
+
+            if (!Files.isRegularFile(resolvedPath)) {
+                return "不是一个文件: " + resolvedPath;
+            }
+
+            LineIndexCache.LineIndex index = lineIndexCache.get(resolvedPath);
+            long totalLines = index.getLineCount();
+            long startIndex = startLine - 1L; // 转换为0基索引
+
+            if (startIndex < 0 || startIndex >= totalLines) {
+                return "行号超出范围: " + startLine + " (文件总行数: " + totalLines + ")";
+            }
+
+            int count = lineCount != null && lineCount > 0 ? Math.min(lineCount, MAX_RANGE_LINES) : DEFAULT_RANGE_LINES;
+
+            try (FileChannel channel = FileChannel.open(resolvedPath, StandardOpenOption.READ)) {
+                long start = index.offsetOf(channel, startIndex);
+                long limit = Math.min(index.getSize(), start + MAX_RANGE_BYTES);
+                long end = LineIndexCache.skipLines(channel, start, count, limit);
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+
+                boolean truncated = end == limit && end < index.getSize() && buffer.get(buffer.limit() - 1) != '\n';
+                if (truncated) {
+                    buffer.limit(utf8Boundary(buffer, buffer.limit()));
+                }
+                String content = StandardCharsets.UTF_8.decode(buffer).toString();
+
+                long lastLine = startIndex + content.chars().filter(c -> c == '\n').count()
+                        + (content.isEmpty() || content.endsWith("\n") ? 0 : 1);
+                log.info("按行读取成功: {} (行 {}-{})", resolvedPath, startLine, lastLine);
+                String header = String.format("[行 %d-%d / 共 %d 行%s]%n", startLine, lastLine, totalLines,
+                        truncated ? "，已达到单次读取上限，最后一行不完整" : "");
+                return header + content;
+            }
+
+        } catch (Exception e) {
+            log.error("按行读取失败: {}", e.getMessage());
+            return "按行读取失败: " + e.getMessage();
+        }
+    }
+
+    /**
+     * 是否为UTF-8多字节字符的续字节（10xxxxxx）
+     */
+    private static boolean isContinuationByte(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    /**
+     * 在不超过end的前提下返回最后一个完整UTF-8字符之后的位置
+     */
+    private static int utf8Boundary(ByteBuffer buffer, int end) {
+        int lead = end - 1;
+        while (lead >= 0 && lead > end - 4 && isContinuationByte(buffer.get(lead))) {
+            lead--;
+        }
+        if (lead < 0) {
+            return end;
+        }
+        int b = buffer.get(lead) & 0xFF;
+        int width = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+        return lead + width <= end ? end : lead;
+    }
+
     /**
      * 智能读取文件内容
      * 对于常见的文档格式（PDF、Word、Excel等）使用Tika解析
@@ -106,7 +332,24 @@ public class FileOperationsService {
             return Files.readString(filePath, StandardCharsets.UTF_8);
         }
         
-        // 使用Tika解析文档格式
+        // 使用Tika解析文档格式，相同版本的文档只解析一次
+        String parsed = parsedTextCache.get(filePath, this::parseWithTika);
+        if (parsed != null) {
+            return parsed;
+        }
+        
+        // 降级到纯文本读取
+        try {
+            return Files.readString(filePath, StandardCharsets.UTF_8);
+        } catch (Exception textException) {
+            throw new IOException("无法读取文件内容: " + textException.getMessage(), textException);
+        }
+    }
+
+    /**
+     * 使用Tika解析文档，解析失败时返回null
+     */
+    private String parseWithTika(Path filePath) {
         try {
             log.debug("尝试使用Tika解析文件: {}", filePath);
             
@@ -125,13 +368,7 @@ public class FileOperationsService {
         } catch (Exception tikaException) {
             log.warn("Tika解析失败，将降级到纯文本读取: {}", tikaException.getMessage());
         }
-        
-        // 降级到纯文本读取
-        try {
-            return Files.readString(filePath, StandardCharsets.UTF_8);
-        } catch (Exception textException) {
-            throw new IOException("无法读取文件内容: " + textException.getMessage(), textException);
-        }
+        return null;
     }
 
     /**
@@ -174,6 +411,7 @@ public class FileOperationsService {
             
             // 写入内容
             Files.write(resolvedPath, content.getBytes(StandardCharsets.UTF_8));
+            lineIndexCache.invalidate(resolvedPath);
             
             log.info("文件写入成功: {}", resolvedPath);
             return "文件写入成功: " + resolvedPath;
@@ -200,7 +438,9 @@ public class FileOperationsService {
                 return "不是一个文件: " + resolvedPath;
             }
             
+            parsedTextCache.invalidate(resolvedPath);
             Files.delete(resolvedPath);
+            lineIndexCache.invalidate(resolvedPath);
             
             log.info("文件删除成功: {}", resolvedPath);
             return "文件删除成功: " + resolvedPath;
@@ -232,7 +472,11 @@ public class FileOperationsService {
             Files.createDirectories(destinationResolved.getParent());
             
             // 移动文件
+            parsedTextCache.invalidate(sourceResolved);
+            parsedTextCache.invalidate(destinationResolved);
             Files.move(sourceResolved, destinationResolved, StandardCopyOption.REPLACE_EXISTING);
+            lineIndexCache.invalidate(sourceResolved);
+            lineIndexCache.invalidate(destinationResolved);
             
             log.info("文件移动成功: {} -> {}", sourceResolved, destinationResolved);
             return "文件移动成功: " + sourceResolved + " -> " + destinationResolved;
@@ -246,7 +490,7 @@ public class FileOperationsService {
     /**
      * 删除指定行
      */
-    @Tool(description = "删除文件中的指定行或行范围。使用1基索引（第一行为1）。如果不指定lineCount，默认删除1行。支持删除多行。")
+    @Tool(description = "删除文件中的指定行或行范围。使用1基索引（第一行为1）。如果不指定lineCount，默认删除1行。支持删除多行。以流式方式编辑，适用于大型文件。")
     public String deleteLines(String filePath, int startLine, Integer lineCount) {
         try {
             Path resolvedPath = resolveAndValidatePath(filePath);
@@ -255,24 +499,17 @@ public class FileOperationsService {
                 return "文件不存在: " + resolvedPath;
             }
             
-            List<String> lines = Files.readAllLines(resolvedPath, StandardCharsets.UTF_8);
+            long totalLines = lineIndexCache.get(resolvedPath).getLineCount();
             
             int count = lineCount != null ? lineCount : 1;
             int startIndex = startLine - 1; // 转换为0基索引
             
-            if (startIndex < 0 || startIndex >= lines.size()) {
-                return "行号超出范围: " + startLine + " (文件总行数: " + lines.size() + ")";
-            }
-            
-            int endIndex = Math.min(startIndex + count, lines.size());
-            
-            // 删除指定行
-            for (int i = endIndex - 1; i >= startIndex; i--) {
-                lines.remove(i);
+            if (startIndex < 0 || startIndex >= totalLines) {
+                return "行号超出范围: " + startLine + " (文件总行数: " + totalLines + ")";
             }
             
-            // 写回文件
-            Files.write(resolvedPath, lines, StandardCharsets.UTF_8);
+            // 流式删除指定行，不把文件读入内存
+            lineEditor.replaceLines(resolvedPath, startIndex, Math.max(count, 0), List.of());
             
             log.info("删除行成功: {} (行 {}-{})", resolvedPath, startLine, startLine + count - 1);
             return String.format("删除行成功: %s (删除了第 %d 行开始的 %d 行)", resolvedPath, startLine, count);
@@ -286,7 +523,7 @@ public class FileOperationsService {
     /**
      * 在指定行插入内容
      */
-    @Tool(description = "在文件的指定行位置插入新内容。使用1基索引（第一行为1）。支持插入多行内容（使用\\n分隔）。插入位置的原有内容会向下移动。")
+    @Tool(description = "在文件的指定行位置插入新内容。使用1基索引（第一行为1），行号为总行数加1时追加到文件末尾。支持插入多行内容（使用\\n分隔）。插入位置的原有内容会向下移动。以流式方式编辑，适用于大型文件。")
     public String insertLines(String filePath, int lineNumber, String content) {
         try {
             Path resolvedPath = resolveAndValidatePath(filePath);
@@ -295,24 +532,19 @@ public class FileOperationsService {
                 return "文件不存在: " + resolvedPath;
             }
             
-            List<String> lines = Files.readAllLines(resolvedPath, StandardCharsets.UTF_8);
+            long totalLines = lineIndexCache.get(resolvedPath).getLineCount();
             
             int insertIndex = lineNumber - 1; // 转换为0基索引
             
-            if (insertIndex < 0 || insertIndex > lines.size()) {
-                return "行号超出范围: " + lineNumber + " (文件总行数: " + lines.size() + ")";
+            if (insertIndex < 0 || insertIndex > totalLines) {
+                return "行号超出范围: " + lineNumber + " (文件总行数: " + totalLines + ")";
             }
             
             // 按行分割插入的内容
             String[] contentLines = content.split("\n");
             
-            // 在指定位置插入内容
-            for (int i = 0; i < contentLines.length; i++) {
-                lines.add(insertIndex + i, contentLines[i]);
-            }
-            
-            // 写回文件
-            Files.write(resolvedPath, lines, StandardCharsets.UTF_8);
+            // 流式插入，插入位置之前和之后的内容直接按字节拷贝
+            lineEditor.replaceLines(resolvedPath, insertIndex, 0, Arrays.asList(contentLines));
             
             log.info("插入内容成功: {} (在第 {} 行)", resolvedPath, lineNumber);
             return String.format("插入内容成功: %s (在第 %d 行插入了 %d 行)", resolvedPath, lineNumber, contentLines.length);
@@ -380,9 +612,15 @@ public class FileOperationsService {
 
     /**
      * 列出目录内容
+     * 每个条目只读取一次文件属性，按游标分页返回
      */
-    @Tool(description = "列出指定目录中的所有文件和子目录。显示每个项目的类型（文件或目录）、名称和大小信息。结果按名称排序。")
-    public String listDirectory(String directoryPath) {
+    @Tool(description = "列出指定目录中的文件和子目录，显示每个项目的类型（[DIR]或[FILE]）、名称、大小和最后修改时间，结果分页返回。sortBy为排序方式：name（目录在前再按名称，默认）、size、modified，前加“-”表示倒序，如-modified；glob为过滤模式，如*.log，含“/”时匹配相对路径，如logs/**/*.log；cursor为上一页返回的游标；limit为每页条目数（默认200，最多1000）；recursive为true时递归列出子目录，maxDepth为递归深度（默认5，最多20）。")
+    public String listDirectory(String directoryPath, @ToolParam(required = false) String sortBy,
+                                @ToolParam(required = false) String glob,
+                                @ToolParam(required = false) String cursor,
+                                @ToolParam(required = false) Integer limit,
+                                @ToolParam(required = false) Boolean recursive,
+                                @ToolParam(required = false) Integer maxDepth) {
         try {
             Path resolvedPath = resolveAndValidatePath(directoryPath);
             
@@ -394,27 +632,33 @@ public class FileOperationsService {
                 return "路径不是目录: " + resolvedPath;
             }
             
-            try (Stream<Path> paths = Files.list(resolvedPath)) {
-                List<String> contents = paths
-                        .map(path -> {
-                            String type = Files.isDirectory(path) ? "[DIR]" : "[FILE]";
-                            String size = "";
-                            if (Files.isRegularFile(path)) {
-                                try {
-                                    long bytes = Files.size(path);
-                                    size = " (" + formatFileSize(bytes) + ")";
-                                } catch (IOException e) {
-                                    size = " (size unknown)";
-                                }
-                            }
-                            return type + " " + path.getFileName() + size;
-                        })
-                        .sorted()
-                        .collect(Collectors.toList());
-                
-                log.info("目录列表获取成功: {}", resolvedPath);
-                return "目录内容:\n" + String.join("\n", contents);
+            boolean descending = sortBy != null && sortBy.trim().startsWith("-");
+            DirectoryLister.SortKey sortKey = parseSortKey(sortBy);
+            int pageSize = limit != null && limit > 0 ? Math.min(limit, MAX_LIST_ENTRIES) : DEFAULT_LIST_ENTRIES;
+            int depth = Boolean.TRUE.equals(recursive)
+                    ? (maxDepth != null && maxDepth > 0 ? Math.min(maxDepth, MAX_LIST_DEPTH) : DEFAULT_LIST_DEPTH)
+                    : 1;
+            
+            DirectoryLister.Page page = directoryLister.list(resolvedPath, sortKey, descending, glob, cursor, pageSize, depth);
+            
+            StringBuilder output = new StringBuilder();
+            long first = page.getSkipped() + 1;
+            output.append(page.getEntries().isEmpty()
+                    ? String.format("目录内容 (共 %d 项):", page.getTotal())
+                    : String.format("目录内容 (第 %d-%d 项，共 %d 项):", first, first + page.getEntries().size() - 1, page.getTotal()));
+            for (DirectoryLister.Entry entry : page.getEntries()) {
+                output.append("\n").append(entry.isDirectory() ? "[DIR] " : "[FILE] ").append(entry.getPath()).append(" (");
+                if (!entry.isDirectory()) {
+                    output.append(formatFileSize(entry.getSize())).append(", ");
+                }
+                output.append(LIST_TIME_FORMAT.format(Instant.ofEpochMilli(entry.getModified()))).append(")");
             }
+            if (page.getNextCursor() != null) {
+                output.append("\n还有更多内容，使用 cursor=").append(page.getNextCursor()).append(" 获取下一页");
+            }
+            
+            log.info("目录列表获取成功: {} ({} 项)", resolvedPath, page.getEntries().size());
+            return output.toString();
             
         } catch (Exception e) {
             log.error("列出目录失败: {}", e.getMessage());
@@ -422,6 +666,82 @@ public class FileOperationsService {
         }
     }
 
+    private DirectoryLister.SortKey parseSortKey(String sortBy) {
+        if (sortBy == null || sortBy.isBlank()) {
+            return DirectoryLister.SortKey.NAME;
+        }
+        String key = sortBy.trim().replaceFirst("^-", "").toUpperCase(Locale.ROOT);
+        for (DirectoryLister.SortKey sortKey : DirectoryLister.SortKey.values()) {
+            if (sortKey.name().equals(key)) {
+                return sortKey;
+            }
+        }
+        throw new IllegalArgumentException("不支持的排序方式: " + sortBy + "（可选 name、size、modified）");
+    }
+
+    /**
+     * 搜索文件内容
+     */
+    @Tool(description = "在目录树中并行搜索文件内容，只返回匹配行及其上下文，无需逐个读取整个文件。query为搜索内容；directoryPath为起始目录（为空时搜索整个基础目录）；regex为true时按正则表达式匹配，否则按字面文本匹配；ignoreCase为true时忽略大小写；includeDocuments为true时同时搜索PDF、Word等文档提取的文本（首次需要解析，较慢）；contextLines为上下文行数（默认2，最多10）；maxResults为最多返回的匹配数（默认100，最多1000），输出总量不超过64KB（UTF-8）。单行只匹配前64K个字符，正则单行匹配超过2秒时停止搜索。结果按文件分组，匹配行格式为“行号: 内容”，上下文行格式为“行号- 内容”。")
+    public String searchFiles(String query, @ToolParam(required = false) String directoryPath,
+                              @ToolParam(required = false) Boolean regex,
+                              @ToolParam(required = false) Boolean ignoreCase,
+                              @ToolParam(required = false) Boolean includeDocuments,
+                              @ToolParam(required = false) Integer contextLines,
+                              @ToolParam(required = false) Integer maxResults) {
+        try {
+            if (query == null || query.isEmpty()) {
+                return "搜索内容不能为空";
+            }
+            
+            Path resolvedPath = resolveAndValidatePath(directoryPath == null || directoryPath.isBlank() ? "." : directoryPath);
+            
+            if (!Files.isDirectory(resolvedPath)) {
+                return "目录不存在: " + resolvedPath;
+            }
+            
+            int flags = Boolean.TRUE.equals(ignoreCase) ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0;
+            Pattern pattern = Pattern.compile(Boolean.TRUE.equals(regex) ? query : Pattern.quote(query), flags);
+            int context = contextLines != null ? Math.max(0, Math.min(contextLines, MAX_SEARCH_CONTEXT)) : DEFAULT_SEARCH_CONTEXT;
+            int limit = maxResults != null && maxResults > 0 ? Math.min(maxResults, MAX_SEARCH_RESULTS) : DEFAULT_SEARCH_RESULTS;
+            
+            long start = System.currentTimeMillis();
+            FileSearcher.SearchResult result = fileSearcher.search(resolvedPath, pattern, context, limit,
+                    MAX_SEARCH_BYTES, Boolean.TRUE.equals(includeDocuments));
+            log.info("文件搜索完成: {} (匹配: {}, 文件: {}, 耗时: {}ms)", resolvedPath, result.getMatchCount(),
+                    result.getFilesScanned(), System.currentTimeMillis() - start);
+            
+            if (result.isTimedOut() && result.getFiles().isEmpty()) {
+                return "搜索文件失败: 正则表达式匹配超时，请简化表达式 (已搜索 " + result.getFilesScanned() + " 个文件)";
+            }
+            if (result.getFiles().isEmpty()) {
+                return "未找到匹配内容: " + query + " (已搜索 " + result.getFilesScanned() + " 个文件)";
+            }
+            
+            Path base = Paths.get(basePath);
+            StringBuilder output = new StringBuilder();
+            output.append(String.format("搜索完成: 在 %d 个文件中找到 %d 处匹配，涉及 %d 个文件",
+                    result.getFilesScanned(), result.getMatchCount(), result.getFiles().size()));
+            if (result.isTimedOut()) {
+                output.append("（正则表达式匹配超时，结果不完整，请简化表达式）");
+            } else if (result.isTruncated()) {
+                output.append("（已达到结果上限，结果不完整，请缩小搜索范围）");
+            }
+            output.append("\n");
+            for (FileSearcher.FileMatches file : result.getFiles()) {
+                output.append("\n== ").append(base.relativize(file.getPath())).append(" ==\n");
+                for (String line : file.getLines()) {
+                    output.append(line).append("\n");
+                }
+            }
+            return output.toString();
+            
+        } catch (Exception e) {
+            log.error("搜索文件失败: {}", e.getMessage());
+            return "搜索文件失败: " + e.getMessage();
+        }
+    }
+
     /**
      * 获取文件信息
      */
@@ -444,7 +764,8 @@ public class FileOperationsService {
                 // 对于文本文件显示行数，对于其他文件显示格式信息
                 String extension = getFileExtension(resolvedPath.getFileName().toString().toLowerCase());
                 if (isPlainTextFile(extension)) {
-                    info.append("行数: ").append(Files.readAllLines(resolvedPath).size()).append("\n");
+                    // 只扫描换行符字节，不解码也不把整个文件读入内存
+                    info.append("行数: ").append(lineIndexCache.get(resolvedPath).getLineCount()).append("\n");
                 } else {
                     info.append("格式: ").append(extension.isEmpty() ? "未知" : extension.substring(1).toUpperCase()).append("\n");
                     info.append("解析支持: ").append(isSupportedByTika(extension) ? "是（Tika解析）" : "否（仅二进制）").append("\n");
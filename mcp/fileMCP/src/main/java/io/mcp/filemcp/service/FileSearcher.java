@@ -0,0 +1,461 @@
+package io.mcp.filemcp.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * 文件内容搜索
+ * 以fork-join方式并行遍历目录树，每个目录一个任务；文本文件按块流式读取逐行匹配，
+ * 文档格式通过解析缓存取得提取文本后匹配。匹配数或输出字节数达到上限后所有任务尽快停止。
+ * 单行只匹配前64K个字符，超出部分跳过不缓存；单行匹配超过时间上限时视为表达式回溯失控，停止整个搜索
+ */
+@Slf4j
+public class FileSearcher {
+
+    /**
+     * 单行输出的最大字符数，避免压缩后的单行文件撑满结果
+     */
+    private static final int MAX_LINE_LENGTH = 500;
+
+    /**
+     * 流式读取的缓冲区大小
+     */
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 参与匹配的单行最大字符数，压缩后的单行文件或二进制文件也只占用常量内存
+     */
+    private static final int MAX_SCAN_LINE_LENGTH = 64 * 1024;
+
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final ParsedTextCache parsedTextCache;
+    private final ParsedTextCache.Parser documentParser;
+    private final Predicate<Path> textFile;
+    private final Predicate<Path> documentFile;
+    private final long matchTimeoutNanos;
+
+    /**
+     * @param parsedTextCache 文档解析缓存
+     * @param documentParser 文档解析函数
+     * @param textFile 是否按纯文本搜索
+     * @param documentFile 是否为可解析的文档格式
+     * @param matchTimeoutMillis 单行匹配的时间上限（毫秒）
+     */
+    public FileSearcher(ParsedTextCache parsedTextCache, ParsedTextCache.Parser documentParser,
+                        Predicate<Path> textFile, Predicate<Path> documentFile, long matchTimeoutMillis) {
+        this.parsedTextCache = parsedTextCache;
+        this.documentParser = documentParser;
+        this.textFile = textFile;
+        this.documentFile = documentFile;
+        this.matchTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(matchTimeoutMillis);
+    }
+
+    /**
+     * 在目录树中搜索
+     *
+     * @param root 已校验的起始目录
+     * @param pattern 匹配模式
+     * @param contextLines 匹配行前后输出的上下文行数
+     * @param maxMatches 最多返回的匹配数
+     * @param maxBytes 最多返回的输出字节数（UTF-8）
+     * @param includeDocuments 是否搜索PDF、Word等文档的提取文本
+     */
+    public SearchResult search(Path root, Pattern pattern, int contextLines, int maxMatches, long maxBytes,
+                               boolean includeDocuments) {
+        Search search = new Search(pattern, contextLines, maxMatches, maxBytes, includeDocuments);
+        pool.invoke(new DirectoryTask(root, search));
+
+        List<FileMatches> files = new ArrayList<>(search.results);
+        files.sort(Comparator.comparing(FileMatches::getPath));
+        int matchCount = files.stream().mapToInt(FileMatches::getMatchCount).sum();
+        return new SearchResult(files, matchCount, search.filesScanned.get(), search.stopped.get(),
+                search.timedOut.get());
+    }
+
+    /**
+     * 单次搜索的共享状态
+     */
+    private static final class Search {
+        private final Pattern pattern;
+        private final int contextLines;
+        private final int maxMatches;
+        private final long maxBytes;
+        private final boolean includeDocuments;
+
+        private final AtomicInteger matches = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicInteger filesScanned = new AtomicInteger();
+        private final AtomicBoolean stopped = new AtomicBoolean();
+        private final AtomicBoolean timedOut = new AtomicBoolean();
+        private final List<FileMatches> results = Collections.synchronizedList(new ArrayList<>());
+
+        private Search(Pattern pattern, int contextLines, int maxMatches, long maxBytes, boolean includeDocuments) {
+            this.pattern = pattern;
+            this.contextLines = contextLines;
+            this.maxMatches = maxMatches;
+            this.maxBytes = maxBytes;
+            this.includeDocuments = includeDocuments;
+        }
+
+        /**
+         * 为一处匹配及其上下文预留输出额度，超出上限时停止整个搜索
+         */
+        private boolean reserve(long outputBytes) {
+            if (stopped.get()) {
+                return false;
+            }
+            if (matches.incrementAndGet() > maxMatches || bytes.addAndGet(outputBytes) > maxBytes) {
+                stopped.set(true);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private final class DirectoryTask extends RecursiveAction {
+        private final Path directory;
+        private final Search search;
+
+        private DirectoryTask(Path directory, Search search) {
+            this.directory = directory;
+            this.search = search;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    if (search.stopped.get()) {
+                        break;
+                    }
+                    if (entry.getFileName().toString().equals(ParsedTextCache.SIDECAR_DIRECTORY)) {
+                        continue;
+                    }
+                    // 不跟随符号链接，避免跳出基础目录或形成环
+                    BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) {
+                        DirectoryTask task = new DirectoryTask(entry, search);
+                        task.fork();
+                        subtasks.add(task);
+                    } else if (attributes.isRegularFile()) {
+                        searchFile(entry, search);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("搜索时读取目录失败: {} - {}", directory, e.getMessage());
+            }
+            for (DirectoryTask task : subtasks) {
+                task.join();
+            }
+        }
+    }
+
+    private void searchFile(Path file, Search search) {
+        try {
+            if (textFile.test(file)) {
+                search.filesScanned.incrementAndGet();
+                try (Reader reader = new InputStreamReader(Files.newInputStream(file),
+                        StandardCharsets.UTF_8.newDecoder()
+                                .onMalformedInput(CodingErrorAction.REPLACE)
+                                .onUnmappableCharacter(CodingErrorAction.REPLACE))) {
+                    scan(file, new LineReader(reader), search);
+                }
+            } else if (search.includeDocuments && documentFile.test(file)) {
+                String text = parsedTextCache.get(file, documentParser);
+                if (text != null) {
+                    search.filesScanned.incrementAndGet();
+                    scan(file, new LineReader(new StringReader(text)), search);
+                }
+            }
+        } catch (IOException e) {
+            log.debug("搜索时读取文件失败: {} - {}", file, e.getMessage());
+        } catch (MatchTimeoutException e) {
+            log.warn("正则匹配超时，停止搜索: {} - {}", file, search.pattern.pattern());
+            search.timedOut.set(true);
+            search.stopped.set(true);
+        }
+    }
+
+    /**
+     * 逐行匹配，输出格式与grep一致：匹配行为“行号: 内容”，上下文行为“行号- 内容”，不连续的片段之间用“--”分隔
+     */
+    private void scan(Path file, LineReader reader, Search search) throws IOException {
+        List<String> output = new ArrayList<>();
+        Deque<String> before = new ArrayDeque<>(search.contextLines + 1);
+        int matchCount = 0;
+        long lineNumber = 0;
+        long lastOutput = 0;
+        int afterRemaining = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null && !search.stopped.get()) {
+            lineNumber++;
+            if (search.pattern.matcher(new DeadlineCharSequence(line, System.nanoTime() + matchTimeoutNanos)).find()) {
+                List<String> block = new ArrayList<>();
+                if (lastOutput > 0 && lineNumber - before.size() > lastOutput + 1) {
+                    block.add("--");
+                }
+                long contextStart = lineNumber - before.size();
+                for (String context : before) {
+                    block.add(format(contextStart++, '-', context));
+                }
+                block.add(format(lineNumber, ':', line));
+
+                long blockBytes = 0;
+                for (String item : block) {
+                    blockBytes += utf8Length(item) + 1;
+                }
+                if (!search.reserve(blockBytes)) {
+                    break;
+                }
+                output.addAll(block);
+                matchCount++;
+                before.clear();
+                lastOutput = lineNumber;
+                afterRemaining = search.contextLines;
+            } else if (afterRemaining > 0) {
+                String context = format(lineNumber, '-', line);
+                if (search.bytes.addAndGet(utf8Length(context) + 1) > search.maxBytes) {
+                    search.stopped.set(true);
+                    break;
+                }
+                output.add(context);
+                lastOutput = lineNumber;
+                afterRemaining--;
+            } else if (search.contextLines > 0) {
+                if (before.size() == search.contextLines) {
+                    before.removeFirst();
+                }
+                before.addLast(line);
+            }
+        }
+
+        if (matchCount > 0) {
+            search.results.add(new FileMatches(file, output, matchCount));
+        }
+    }
+
+    private static String format(long lineNumber, char separator, String line) {
+        String content = line.length() > MAX_LINE_LENGTH ? line.substring(0, MAX_LINE_LENGTH) + "..." : line;
+        return lineNumber + String.valueOf(separator) + " " + content;
+    }
+
+    /**
+     * 字符串按UTF-8编码的字节数，不实际编码
+     */
+    static long utf8Length(String text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 逐行读取，行尾支持\n、\r\n和\r；单行超过上限的部分读过即丢弃，不会把整行读入内存
+     */
+    private static final class LineReader {
+        private final Reader reader;
+        private final char[] buffer = new char[READ_BUFFER_SIZE];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private boolean skipLineFeed;
+
+        private LineReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return 下一行（最多MAX_SCAN_LINE_LENGTH个字符），已到末尾时返回null
+         */
+        private String readLine() throws IOException {
+            line.setLength(0);
+            boolean read = false;
+            while (true) {
+                if (position >= limit) {
+                    limit = reader.read(buffer, 0, buffer.length);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        return read ? line.toString() : null;
+                    }
+                }
+                char c = buffer[position++];
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (c == '\n') {
+                        continue;
+                    }
+                }
+                if (c == '\n') {
+                    return line.toString();
+                }
+                if (c == '\r') {
+                    skipLineFeed = true;
+                    return line.toString();
+                }
+                read = true;
+                if (line.length() < MAX_SCAN_LINE_LENGTH) {
+                    line.append(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * 正则匹配超过时间上限
+     */
+    private static final class MatchTimeoutException extends RuntimeException {
+        private MatchTimeoutException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * 读取字符时检查截止时间的字符序列，回溯失控的表达式会在上限后中断而不是一直占用搜索线程
+     */
+    private static final class DeadlineCharSequence implements CharSequence {
+        private final CharSequence text;
+        private final long deadline;
+        private int reads;
+
+        private DeadlineCharSequence(CharSequence text, long deadline) {
+            this.text = text;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public char charAt(int index) {
+            // 每读取一定次数检查一次时间，避免每个字符都调用nanoTime
+            if ((++reads & 0xFFF) == 0 && System.nanoTime() - deadline > 0) {
+                throw new MatchTimeoutException();
+            }
+            return text.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new DeadlineCharSequence(text.subSequence(start, end), deadline);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+
+    /**
+     * 单个文件的匹配结果
+     */
+    public static final class FileMatches {
+        private final Path path;
+        private final List<String> lines;
+        private final int matchCount;
+
+        private FileMatches(Path path, List<String> lines, int matchCount) {
+            this.path = path;
+            this.lines = lines;
+            this.matchCount = matchCount;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public List<String> getLines() {
+            return lines;
+        }
+
+        public int getMatchCount() {
+            return matchCount;
+        }
+    }
+
+    /**
+     * 搜索结果
+     */
+    public static final class SearchResult {
+        private final List<FileMatches> files;
+        private final int matchCount;
+        private final int filesScanned;
+        private final boolean truncated;
+        private final boolean timedOut;
+
+        private SearchResult(List<FileMatches> files, int matchCount, int filesScanned, boolean truncated,
+                             boolean timedOut) {
+            this.files = files;
+            this.matchCount = matchCount;
+            this.filesScanned = filesScanned;
+            this.truncated = truncated;
+            this.timedOut = timedOut;
+        }
+
+        public List<FileMatches> getFiles() {
+            return files;
+        }
+
+        public int getMatchCount() {
+            return matchCount;
+        }
+
+        public int getFilesScanned() {
+            return filesScanned;
+        }
+
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        /**
+         * 是否因正则匹配超时而提前停止
+         */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+    }
+}
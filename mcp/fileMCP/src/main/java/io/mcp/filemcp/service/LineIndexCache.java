@@ -0,0 +1,185 @@
+package io.mcp.filemcp.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 文件行偏移索引缓存
+ * 首次按行访问文件时以内存映射方式顺序扫描换行符（不做字符解码），每隔固定行数记录一个行首偏移（稀疏索引），
+ * 定位任意行只需从最近的检查点向后扫描；文件大小或修改时间变化后索引失效并在下次访问时重建
+ */
+@Slf4j
+public class LineIndexCache {
+
+    /**
+     * 检查点间隔行数，定位任意行最多向后扫描这么多行
+     */
+    static final int CHECKPOINT_INTERVAL = 1024;
+
+    /**
+     * 单次内存映射的窗口大小，避免超过单个映射2GB的上限
+     */
+    private static final int SCAN_WINDOW = 64 * 1024 * 1024;
+
+    private final Map<Path, LineIndex> indexes;
+
+    /**
+     * @param maxEntries 最多缓存的文件数，按最近访问淘汰
+     */
+    public LineIndexCache(int maxEntries) {
+        int limit = Math.max(1, maxEntries);
+        this.indexes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, LineIndex> eldest) {
+                return size() > limit;
+            }
+        });
+    }
+
+    /**
+     * 获取文件的行索引，缓存的索引与文件当前大小、修改时间不一致时重建
+     *
+     * @param path 已校验的文件路径
+     */
+    public LineIndex get(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        LineIndex cached = indexes.get(path);
+        if (cached != null && cached.matches(attributes)) {
+            return cached;
+        }
+
+        long start = System.currentTimeMillis();
+        LineIndex index = build(path, attributes.lastModifiedTime());
+        indexes.put(path, index);
+        log.debug("行索引构建完成: {} (行数: {}, 大小: {}, 耗时: {}ms)",
+                path, index.getLineCount(), index.getSize(), System.currentTimeMillis() - start);
+        return index;
+    }
+
+    /**
+     * 丢弃文件的行索引，文件被本服务修改或删除后调用
+     */
+    public void invalidate(Path path) {
+        indexes.remove(path);
+    }
+
+    private LineIndex build(Path path, FileTime lastModified) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] checkpoints = new long[16];
+            int checkpointCount = 1;
+            long newlines = 0;
+            byte last = '\n';
+
+            for (long position = 0; position < size; position += SCAN_WINDOW) {
+                long length = Math.min(SCAN_WINDOW, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                for (int i = 0; i < length; i++) {
+                    if (buffer.get(i) != '\n') {
+                        continue;
+                    }
+                    newlines++;
+                    if (newlines % CHECKPOINT_INTERVAL == 0) {
+                        if (checkpointCount == checkpoints.length) {
+                            checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+                        }
+                        checkpoints[checkpointCount++] = position + i + 1;
+                    }
+                }
+                last = buffer.get((int) length - 1);
+            }
+
+            // 与Files.readAllLines一致：末尾没有换行符的最后一行也计为一行
+            long lineCount = newlines + (size > 0 && last != '\n' ? 1 : 0);
+            return new LineIndex(size, lastModified, Arrays.copyOf(checkpoints, checkpointCount), lineCount);
+        }
+    }
+
+    /**
+     * 从from开始向后跳过指定行数
+     *
+     * @param channel 文件通道
+     * @param from 起始字节偏移
+     * @param lines 需要跳过的换行符个数
+     * @param limit 扫描的结束偏移（不含）
+     * @return 第lines个换行符之后的偏移，先到达limit时返回limit
+     */
+    static long skipLines(FileChannel channel, long from, long lines, long limit) throws IOException {
+        long remaining = lines;
+        long position = from;
+        while (remaining > 0 && position < limit) {
+            long length = Math.min(SCAN_WINDOW, limit - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(i) == '\n' && --remaining == 0) {
+                    return position + i + 1;
+                }
+            }
+            position += length;
+        }
+        return remaining == 0 ? position : limit;
+    }
+
+    /**
+     * 单个文件的稀疏行索引，不可变
+     */
+    public static final class LineIndex {
+        private final long size;
+        private final FileTime lastModified;
+
+        /**
+         * 第 i * CHECKPOINT_INTERVAL 行（0基）的行首偏移
+         */
+        private final long[] checkpoints;
+
+        private final long lineCount;
+
+        private LineIndex(long size, FileTime lastModified, long[] checkpoints, long lineCount) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.checkpoints = checkpoints;
+            this.lineCount = lineCount;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLineCount() {
+            return lineCount;
+        }
+
+        /**
+         * 第line行（0基）的行首偏移，line不小于总行数时返回文件大小
+         *
+         * @param channel 同一文件的通道
+         */
+        public long offsetOf(FileChannel channel, long line) throws IOException {
+            if (line <= 0) {
+                return 0;
+            }
+            if (line >= lineCount) {
+                return size;
+            }
+            int checkpoint = (int) Math.min(line / CHECKPOINT_INTERVAL, checkpoints.length - 1);
+            long from = checkpoints[checkpoint];
+            return skipLines(channel, from, line - (long) checkpoint * CHECKPOINT_INTERVAL, size);
+        }
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return attributes.size() == size && attributes.lastModifiedTime().equals(lastModified);
+        }
+    }
+}
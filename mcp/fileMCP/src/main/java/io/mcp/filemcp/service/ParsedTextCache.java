@@ -0,0 +1,427 @@
+package io.mcp.filemcp.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文档解析结果缓存
+ * 以（规范路径，大小，修改时间）为键缓存Tika提取的文本，内存中按总字节数做LRU淘汰，
+ * 同一版本文档的并发未命中只解析一次；可选地把结果写入基础目录下的旁路缓存目录，服务重启后无需重新解析。
+ * 旁路缓存在启动时清理源文件已删除或已变化的条目，总大小超过上限时按最近使用淘汰
+ */
+@Slf4j
+public class ParsedTextCache {
+
+    /**
+     * 旁路缓存目录名，列目录和搜索时应跳过
+     */
+    public static final String SIDECAR_DIRECTORY = ".mcp-parse-cache";
+
+    /**
+     * 文档解析函数
+     */
+    @FunctionalInterface
+    public interface Parser {
+        /**
+         * @return 提取的文本，无法解析时返回null（不缓存）
+         */
+        String parse(Path path) throws IOException;
+    }
+
+    /**
+     * 超过该时长的临时文件视为写入中断的残留
+     */
+    private static final long STALE_TEMP_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Map<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 正在解析的文档版本到解析结果，同一版本的并发请求等待同一次解析
+     */
+    private final Map<List<Object>, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private long maxBytes;
+    private long totalBytes;
+
+    /**
+     * 旁路缓存目录，为null时只使用内存缓存
+     */
+    private volatile Path sidecarDirectory;
+
+    private volatile long sidecarMaxBytes = Long.MAX_VALUE;
+
+    /**
+     * 旁路缓存文件的估算总字节数，超过上限时触发清理
+     */
+    private final AtomicLong sidecarBytes = new AtomicLong();
+
+    private final Object sidecarLock = new Object();
+
+    public ParsedTextCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 调整缓存配置，启用旁路缓存时先清理一次旁路缓存目录
+     *
+     * @param maxBytes 内存缓存的总字节数上限
+     * @param sidecarDirectory 旁路缓存目录，为null时不持久化
+     * @param sidecarMaxBytes 旁路缓存目录的总字节数上限
+     */
+    public void configure(long maxBytes, Path sidecarDirectory, long sidecarMaxBytes) {
+        synchronized (this) {
+            this.maxBytes = maxBytes;
+            evict();
+        }
+        this.sidecarMaxBytes = sidecarMaxBytes;
+        this.sidecarDirectory = sidecarDirectory;
+        if (sidecarDirectory != null && Files.isDirectory(sidecarDirectory)) {
+            pruneSidecar(sidecarDirectory);
+        }
+    }
+
+    /**
+     * 获取文档文本，缓存未命中或文件已变化时调用parser解析
+     *
+     * @param path 已校验的文件路径
+     * @param parser 解析函数
+     * @return 提取的文本，parser返回null时为null
+     */
+    public String get(Path path, Parser parser) throws IOException {
+        Path canonical = path.toRealPath();
+        BasicFileAttributes attributes = Files.readAttributes(canonical, BasicFileAttributes.class);
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+
+        String cached = cached(canonical, size, modified);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<Object> version = List.of(canonical, size, modified);
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(version, future);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            // 上一次解析可能刚好在检查内存缓存之后完成
+            String text = cached(canonical, size, modified);
+            if (text == null) {
+                text = load(canonical, size, modified, parser);
+            }
+            future.complete(text);
+            return text;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(version, future);
+        }
+    }
+
+    private synchronized String cached(Path canonical, long size, long modified) {
+        Entry entry = entries.get(canonical);
+        return entry != null && entry.matches(size, modified) ? entry.text : null;
+    }
+
+    private String load(Path canonical, long size, long modified, Parser parser) throws IOException {
+        String text = readSidecar(canonical, size, modified);
+        if (text == null) {
+            long start = System.currentTimeMillis();
+            text = parser.parse(canonical);
+            if (text == null) {
+                return null;
+            }
+            log.debug("文档解析完成: {} (文本长度: {}, 耗时: {}ms)", canonical, text.length(), System.currentTimeMillis() - start);
+            writeSidecar(canonical, size, modified, text);
+        }
+
+        put(canonical, new Entry(size, modified, text));
+        return text;
+    }
+
+    private static String await(CompletableFuture<String> running) throws IOException {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 丢弃文件的缓存，包括旁路缓存文件；需在文件删除或移动之前调用，以便解析出与缓存一致的规范路径
+     */
+    public void invalidate(Path path) {
+        Path key;
+        try {
+            key = path.toRealPath();
+        } catch (IOException e) {
+            key = path.toAbsolutePath().normalize();
+        }
+        synchronized (this) {
+            Entry removed = entries.remove(key);
+            if (removed != null) {
+                totalBytes -= removed.bytes();
+            }
+        }
+        Path directory = sidecarDirectory;
+        if (directory != null) {
+            deleteSidecarFile(directory.resolve(sidecarName(key)));
+        }
+    }
+
+    private synchronized void put(Path key, Entry entry) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            totalBytes -= previous.bytes();
+        }
+        // 单个文档超过上限时不放入内存，避免把其他条目全部挤出
+        if (entry.bytes() > maxBytes) {
+            return;
+        }
+        entries.put(key, entry);
+        totalBytes += entry.bytes();
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            totalBytes -= iterator.next().bytes();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 读取旁路缓存文件，首行记录源文件的大小、修改时间和路径，不一致时视为未命中；
+     * 命中时更新缓存文件的修改时间，清理时按它淘汰最久未使用的条目
+     */
+    private String readSidecar(Path path, long size, long modified) {
+        Path directory = sidecarDirectory;
+        if (directory == null) {
+            return null;
+        }
+        Path file = directory.resolve(sidecarName(path));
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!header(size, modified, path).equals(reader.readLine())) {
+                return null;
+            }
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[8192];
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, n);
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            log.debug("从旁路缓存读取解析结果: {}", path);
+            return text.toString();
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("读取解析缓存文件失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeSidecar(Path path, long size, long modified, String text) {
+        Path directory = sidecarDirectory;
+        if (directory == null) {
+            return;
+        }
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, "entry", ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(header(size, modified, path));
+                writer.write('\n');
+                writer.write(text);
+            }
+            long written = Files.size(temp);
+            Path target = directory.resolve(sidecarName(path));
+            long replaced = sizeOrZero(target);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (sidecarBytes.addAndGet(written - replaced) > sidecarMaxBytes) {
+                pruneSidecar(directory);
+            }
+        } catch (IOException e) {
+            log.warn("写入解析缓存文件失败: {}", e.getMessage());
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // 临时文件清理失败不影响读取
+                }
+            }
+        }
+    }
+
+    /**
+     * 清理旁路缓存目录：删除写入中断残留的临时文件、源文件已删除或已变化的条目，
+     * 总大小仍超过上限时从最久未使用的条目开始删除，直到不超过上限的90%
+     */
+    private void pruneSidecar(Path directory) {
+        synchronized (sidecarLock) {
+            List<Path> kept = new ArrayList<>();
+            Map<Path, BasicFileAttributes> attributes = new LinkedHashMap<>();
+            long total = 0;
+            int removed = 0;
+            long now = System.currentTimeMillis();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    BasicFileAttributes fileAttributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    String name = file.getFileName().toString();
+                    boolean stale = name.endsWith(".tmp")
+                            ? now - fileAttributes.lastModifiedTime().toMillis() > STALE_TEMP_MILLIS
+                            : name.endsWith(".txt") && !isCurrent(file);
+                    if (stale) {
+                        deleteSidecarFile(file);
+                        removed++;
+                    } else if (name.endsWith(".txt")) {
+                        kept.add(file);
+                        attributes.put(file, fileAttributes);
+                        total += fileAttributes.size();
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("清理解析缓存目录失败: {}", e.getMessage());
+                return;
+            }
+
+            long limit = sidecarMaxBytes;
+            if (total > limit) {
+                kept.sort(Comparator.comparing(file -> attributes.get(file).lastModifiedTime()));
+                long target = limit / 10 * 9;
+                for (Path file : kept) {
+                    if (total <= target) {
+                        break;
+                    }
+                    deleteSidecarFile(file);
+                    total -= attributes.get(file).size();
+                    removed++;
+                }
+            }
+            sidecarBytes.set(total);
+            if (removed > 0) {
+                log.info("已清理解析缓存文件 {} 个，剩余 {} 字节", removed, total);
+            }
+        }
+    }
+
+    /**
+     * 缓存文件首行记录的源文件仍存在且大小、修改时间一致
+     */
+    private static boolean isCurrent(Path file) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            String[] parts = header != null ? header.split(" ", 3) : new String[0];
+            if (parts.length < 3) {
+                return false;
+            }
+            Path source = Paths.get(parts[2]);
+            BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+            return header.equals(header(attributes.size(), attributes.lastModifiedTime().toMillis(), source))
+                    && file.getFileName().toString().equals(sidecarName(source));
+        } catch (IOException | InvalidPathException e) {
+            return false;
+        }
+    }
+
+    private void deleteSidecarFile(Path file) {
+        try {
+            long size = sizeOrZero(file);
+            if (Files.deleteIfExists(file) && file.getFileName().toString().endsWith(".txt")) {
+                sidecarBytes.addAndGet(-size);
+            }
+        } catch (IOException e) {
+            log.warn("删除解析缓存文件失败: {}", e.getMessage());
+        }
+    }
+
+    private static long sizeOrZero(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String header(long size, long modified, Path path) {
+        return size + " " + modified + " " + path;
+    }
+
+    /**
+     * 旁路缓存文件名取路径的SHA-256，同一文档只保留最新一份
+     */
+    private static String sidecarName(Path path) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(path.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash) + ".txt";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final long size;
+        private final long modified;
+        private final String text;
+
+        private Entry(long size, long modified, String text) {
+            this.size = size;
+            this.modified = modified;
+            this.text = text;
+        }
+
+        private boolean matches(long size, long modified) {
+            return this.size == size && this.modified == modified;
+        }
+
+        /**
+         * 按UTF-16估算内存占用
+         */
+        private long bytes() {
+            return (long) text.length() * 2;
+        }
+    }
+}
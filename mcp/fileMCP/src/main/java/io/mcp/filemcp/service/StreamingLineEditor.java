@@ -0,0 +1,175 @@
+package io.mcp.filemcp.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.List;
+
+/**
+ * 流式行编辑
+ * 借助行偏移索引定位编辑区间的字节偏移，把编辑点之前和之后的字节直接从原文件拷贝到同目录的临时文件，
+ * 中间写入新内容，刷盘后原子替换原文件；内存占用与文件大小无关，进程中途崩溃时原文件保持不变。
+ * 只有删除到文件末尾（截断）或纯追加时才直接修改原文件，这两种操作不会改动已有的行；
+ * 其他编辑即使靠近文件末尾也走临时文件替换，原地重写末尾的行在崩溃时会损坏这些行。
+ * 插入的行沿用文件已有的换行符（LF或CRLF），避免产生混合换行
+ */
+@Slf4j
+public class StreamingLineEditor {
+
+    private final LineIndexCache lineIndexCache;
+
+    public StreamingLineEditor(LineIndexCache lineIndexCache) {
+        this.lineIndexCache = lineIndexCache;
+    }
+
+    /**
+     * 用新内容替换文件中的行区间
+     *
+     * @param path 已校验的文件路径
+     * @param startLine 起始行（0基），可以等于总行数表示在末尾操作
+     * @param deleteCount 删除的行数，超出文件末尾的部分忽略
+     * @param insertLines 在起始行位置插入的行，不含换行符
+     */
+    public void replaceLines(Path path, long startLine, long deleteCount, List<String> insertLines) throws IOException {
+        LineIndexCache.LineIndex index = lineIndexCache.get(path);
+        try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = index.getSize();
+            long start = index.offsetOf(source, startLine);
+            long end = index.offsetOf(source, startLine + deleteCount);
+
+            // 最后一行没有换行符时，在其后追加内容需要先补一个换行符
+            boolean needsNewline = start == size && size > 0 && !endsWithNewline(source, size);
+            String separator = insertLines == null || insertLines.isEmpty()
+                    ? "\n" : lineSeparator(source, index, start, needsNewline);
+            byte[] insertion = encode(insertLines, needsNewline, separator);
+
+            if (end == size && insertion.length == 0) {
+                // 删除到文件末尾：一次截断完成
+                source.truncate(start);
+                source.force(true);
+                log.debug("截断文件: {} ({} -> {} 字节)", path, size, start);
+            } else if (start == size) {
+                // 末尾追加：原有内容不动，崩溃最多留下不完整的追加内容
+                writeFully(source, ByteBuffer.wrap(insertion), size);
+                source.force(true);
+                log.debug("追加到文件末尾: {} ({} 字节)", path, insertion.length);
+            } else {
+                rewrite(path, source, size, start, end, insertion);
+            }
+        } finally {
+            lineIndexCache.invalidate(path);
+        }
+    }
+
+    /**
+     * 拷贝[0, start)、写入新内容、拷贝[end, size)到临时文件，再原子替换原文件
+     */
+    private void rewrite(Path path, FileChannel source, long size, long start, long end, byte[] insertion)
+            throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, "." + path.getFileName() + ".", ".tmp");
+        boolean moved = false;
+        try {
+            copyPermissions(path, temp);
+            try (FileChannel target = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                transferFully(source, 0, start, target);
+                target.write(ByteBuffer.wrap(insertion));
+                transferFully(source, end, size - end, target);
+                // 替换前刷盘，避免崩溃后留下已替换但内容为空的文件
+                target.force(true);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+            log.debug("重写文件: {} (替换字节 {}-{}，新内容 {} 字节)", path, start, end, insertion.length);
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private static byte[] encode(List<String> lines, boolean leadingNewline, String separator) {
+        if (lines == null || lines.isEmpty()) {
+            return new byte[0];
+        }
+        StringBuilder builder = new StringBuilder();
+        if (leadingNewline) {
+            builder.append(separator);
+        }
+        for (String line : lines) {
+            // 按\n拆分CRLF内容时行尾残留的\r去掉，统一使用文件的换行符
+            String text = line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+            builder.append(text).append(separator);
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 确定插入内容使用的换行符：优先取编辑点之前最近一行的换行符，编辑点之前没有换行时取第一行的，
+     * 文件中没有换行符时使用\n
+     */
+    private static String lineSeparator(FileChannel channel, LineIndexCache.LineIndex index, long start,
+                                        boolean needsNewline) throws IOException {
+        // 编辑点位于没有换行符的最后一行之后时，最近的换行在最后一行行首之前
+        long lineEnd = needsNewline ? index.offsetOf(channel, index.getLineCount() - 1) : start;
+        if (lineEnd == 0) {
+            lineEnd = index.offsetOf(channel, 1);
+        }
+        if (lineEnd == 0 || byteAt(channel, lineEnd - 1) != '\n') {
+            return "\n";
+        }
+        return lineEnd >= 2 && byteAt(channel, lineEnd - 2) == '\r' ? "\r\n" : "\n";
+    }
+
+    private static boolean endsWithNewline(FileChannel channel, long size) throws IOException {
+        return byteAt(channel, size - 1) == '\n';
+    }
+
+    private static byte byteAt(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        channel.read(buffer, position);
+        return buffer.get(0);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    /**
+     * transferTo单次可能只传输部分字节，循环直到完成
+     */
+    private static void transferFully(FileChannel source, long position, long count, FileChannel target)
+            throws IOException {
+        long transferred = 0;
+        while (transferred < count) {
+            long n = source.transferTo(position + transferred, count - transferred, target);
+            if (n <= 0) {
+                throw new IOException("文件在编辑过程中被截断");
+            }
+            transferred += n;
+        }
+    }
+
+    private static void copyPermissions(Path from, Path to) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(from, PosixFileAttributeView.class);
+        if (view != null) {
+            Files.setPosixFilePermissions(to, view.readAttributes().permissions());
+        }
+    }
+}
@@ -71,6 +71,37 @@ class FileOperationsServiceTest {
         assertEquals(markdownContent, content);
     }
 
+    @Test
+    void testReadFileLines() {
+        // 超过一个检查点间隔的多行文件
+        StringBuilder builder = new StringBuilder();
+        for (int i = 1; i <= 3000; i++) {
+            builder.append("Line ").append(i).append("\n");
+        }
+        fileOperationsService.createFile("large.log", builder.toString());
+
+        String result = fileOperationsService.readFileLines("large.log", 2049, 2);
+
+        assertTrue(result.startsWith("[行 2049-2050 / 共 3000 行]"));
+        assertTrue(result.endsWith("Line 2049\nLine 2050\n"));
+
+        // 文件修改后行索引重建
+        fileOperationsService.insertLines("large.log", 1, "Header");
+        assertTrue(fileOperationsService.readFileLines("large.log", 1, 1).endsWith("Header\n"));
+        assertTrue(fileOperationsService.getFileInfo("large.log").contains("行数: 3001"));
+    }
+
+    @Test
+    void testReadFileBytes() {
+        fileOperationsService.createFile("bytes.txt", "中文ABC");
+
+        // 起点落在“中”的中间，对齐到下一个完整字符
+        String result = fileOperationsService.readFileBytes("bytes.txt", 1, 5);
+
+        assertTrue(result.startsWith("[字节 3-6 / 共 9 字节]"));
+        assertTrue(result.endsWith("文"));
+    }
+
     @Test
     void testWriteFile() {
         String result = fileOperationsService.writeFile("test.txt", "New Content");
@@ -95,12 +126,36 @@ class FileOperationsServiceTest {
         fileOperationsService.createFile("file1.txt", "content1");
         fileOperationsService.createDirectory("subdir");
         
-        String result = fileOperationsService.listDirectory(".");
+        String result = fileOperationsService.listDirectory(".", null, null, null, null, null, null);
         
         assertTrue(result.contains("[FILE] file1.txt"));
         assertTrue(result.contains("[DIR] subdir"));
     }
 
+    @Test
+    void testListDirectoryPaginationAndFilter() {
+        for (int i = 1; i <= 5; i++) {
+            fileOperationsService.createFile("logs/app" + i + ".log", "x".repeat(i));
+        }
+        fileOperationsService.createFile("logs/nested/deep.log", "deep");
+        fileOperationsService.createFile("logs/readme.txt", "readme");
+
+        // 按大小倒序，每页2项
+        String first = fileOperationsService.listDirectory("logs", "-size", "*.log", null, 2, null, null);
+        assertTrue(first.startsWith("目录内容 (第 1-2 项，共 5 项):"));
+        assertTrue(first.indexOf("[FILE] app5.log") < first.indexOf("[FILE] app4.log"));
+        assertFalse(first.contains("readme.txt"));
+
+        String cursor = first.substring(first.indexOf("cursor=") + 7, first.indexOf(" 获取下一页"));
+        String second = fileOperationsService.listDirectory("logs", "-size", "*.log", cursor, 2, null, null);
+        assertTrue(second.startsWith("目录内容 (第 3-4 项，共 5 项):"));
+        assertTrue(second.contains("[FILE] app3.log"));
+
+        // 递归列出子目录中的文件
+        String recursive = fileOperationsService.listDirectory("logs", null, "*.log", null, null, true, null);
+        assertTrue(recursive.contains("[FILE] nested/deep.log"));
+    }
+
     @Test
     void testInsertLines() {
         // 创建多行文件
@@ -140,6 +195,31 @@ class FileOperationsServiceTest {
         assertEquals("Line 4", lines[1]);
     }
 
+    @Test
+    void testEditLinesAtEndOfFile() {
+        // 最后一行没有换行符，追加时先补换行符，换行符沿用文件的CRLF
+        fileOperationsService.createFile("tail.txt", "Line 1\r\nLine 2");
+
+        fileOperationsService.insertLines("tail.txt", 3, "Line 3");
+        assertEquals("Line 1\r\nLine 2\r\nLine 3\r\n", fileOperationsService.readFile("tail.txt"));
+
+        // 删除到文件末尾，其余行的换行符保持原样
+        fileOperationsService.deleteLines("tail.txt", 2, 5);
+        assertEquals("Line 1\r\n", fileOperationsService.readFile("tail.txt"));
+    }
+
+    @Test
+    void testInsertLinesKeepsCrlfLineEndings() {
+        fileOperationsService.createFile("crlf.txt", "Line 1\r\nLine 2\r\nLine 3\r\n");
+
+        // 插入内容本身的换行符统一为文件的换行符
+        fileOperationsService.insertLines("crlf.txt", 1, "New A\r\nNew B");
+        fileOperationsService.insertLines("crlf.txt", 4, "New C");
+
+        assertEquals("New A\r\nNew B\r\nLine 1\r\nNew C\r\nLine 2\r\nLine 3\r\n",
+                fileOperationsService.readFile("crlf.txt"));
+    }
+
     @Test
     void testMoveFile() {
         // 创建源文件
@@ -159,6 +239,19 @@ class FileOperationsServiceTest {
         assertEquals("Content to move", readDest);
     }
 
+    @Test
+    void testSearchFiles() {
+        fileOperationsService.createFile("logs/app.log", "start\nERROR first\nok\nok\nok\nerror second\n");
+        fileOperationsService.createFile("notes.md", "no match here");
+
+        String result = fileOperationsService.searchFiles("error", null, false, true, false, 1, null);
+
+        assertTrue(result.contains("找到 2 处匹配，涉及 1 个文件"));
+        assertTrue(result.contains("== logs/app.log =="));
+        assertTrue(result.contains("1- start\n2: ERROR first\n3- ok\n--\n5- ok\n6: error second"));
+        assertFalse(result.contains("notes.md"));
+    }
+
     @Test
     void testDeleteFile() {
         // 创建文件
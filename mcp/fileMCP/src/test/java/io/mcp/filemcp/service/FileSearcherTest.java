@@ -0,0 +1,69 @@
+package io.mcp.filemcp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 文件内容搜索测试类
+ */
+class FileSearcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final FileSearcher searcher = new FileSearcher(new ParsedTextCache(1024 * 1024), path -> null,
+            path -> true, path -> false, 200);
+
+    @Test
+    void testUtf8Length() {
+        assertEquals(1, FileSearcher.utf8Length("a"));
+        assertEquals(6, FileSearcher.utf8Length("中文"));
+        assertEquals(4, FileSearcher.utf8Length("😀"));
+    }
+
+    @Test
+    void testOutputLimitCountsUtf8Bytes() throws Exception {
+        // 每行约100个字符、300字节，按字符计数时10行都能放下
+        String line = "错".repeat(100);
+        Files.writeString(tempDir.resolve("zh.txt"), (line + "\n").repeat(10));
+
+        FileSearcher.SearchResult result = searcher.search(tempDir, Pattern.compile("错"), 0, 100, 1500, false);
+
+        assertTrue(result.isTruncated());
+        assertEquals(4, result.getMatchCount());
+    }
+
+    @Test
+    void testBacktrackingRegexTimesOut() throws Exception {
+        Files.writeString(tempDir.resolve("a.txt"), "a".repeat(5000) + "!\n");
+
+        long start = System.currentTimeMillis();
+        FileSearcher.SearchResult result = searcher.search(tempDir, Pattern.compile("(a+)+b"), 0, 100, 64 * 1024, false);
+
+        assertTrue(result.isTimedOut());
+        assertTrue(result.getFiles().isEmpty());
+        assertTrue(System.currentTimeMillis() - start < 10_000);
+    }
+
+    @Test
+    void testLongSingleLineIsBounded() throws Exception {
+        // 单行超过64K字符时只匹配前64K，之后的行号仍然正确
+        String minified = "needle" + "x".repeat(200_000) + "hidden";
+        Files.writeString(tempDir.resolve("min.js"), minified + "\r\nnext needle\rhidden\n");
+
+        FileSearcher.SearchResult result = searcher.search(tempDir, Pattern.compile("needle|hidden"), 0, 100, 64 * 1024, false);
+
+        List<String> lines = result.getFiles().get(0).getLines();
+        assertEquals(3, result.getMatchCount());
+        assertTrue(lines.get(0).startsWith("1: needle") && lines.get(0).endsWith("..."));
+        assertEquals("2: next needle", lines.get(1));
+        assertEquals("3: hidden", lines.get(2));
+    }
+}
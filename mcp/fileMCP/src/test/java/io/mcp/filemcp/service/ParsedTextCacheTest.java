@@ -0,0 +1,165 @@
+package io.mcp.filemcp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 文档解析结果缓存测试类
+ */
+class ParsedTextCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testParseOncePerVersion() throws Exception {
+        Path document = Files.writeString(tempDir.resolve("report.docx"), "v1");
+        AtomicInteger parses = new AtomicInteger();
+        ParsedTextCache.Parser parser = path -> "text-" + parses.incrementAndGet();
+
+        ParsedTextCache cache = new ParsedTextCache(1024);
+        assertEquals("text-1", cache.get(document, parser));
+        assertEquals("text-1", cache.get(document, parser));
+
+        // 文件大小变化后重新解析
+        Files.writeString(document, "version 2");
+        assertEquals("text-2", cache.get(document, parser));
+    }
+
+    @Test
+    void testSidecarSurvivesRestart() throws Exception {
+        Path document = Files.writeString(tempDir.resolve("report.pdf"), "content");
+        Path sidecar = tempDir.resolve(ParsedTextCache.SIDECAR_DIRECTORY);
+        AtomicInteger parses = new AtomicInteger();
+        ParsedTextCache.Parser parser = path -> "text-" + parses.incrementAndGet();
+
+        ParsedTextCache first = new ParsedTextCache(1024);
+        first.configure(1024, sidecar, 1024 * 1024);
+        assertEquals("text-1", first.get(document, parser));
+
+        // 新实例从旁路缓存读取，不再解析
+        ParsedTextCache second = new ParsedTextCache(1024);
+        second.configure(1024, sidecar, 1024 * 1024);
+        assertEquals("text-1", second.get(document, parser));
+        assertEquals(1, parses.get());
+
+        second.invalidate(document);
+        assertEquals("text-2", second.get(document, parser));
+    }
+
+    @Test
+    void testConcurrentMissesParseOnce() throws Exception {
+        Path document = Files.writeString(tempDir.resolve("slow.pdf"), "content");
+        AtomicInteger parses = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ParsedTextCache.Parser parser = path -> {
+            parses.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "text";
+        };
+        ParsedTextCache cache = new ParsedTextCache(1024);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> cache.get(document, parser)));
+            }
+            // 等其他请求都到达后再让解析完成
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("text", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, parses.get());
+    }
+
+    @Test
+    void testStartupPrunesOrphanedSidecarFiles() throws Exception {
+        Path kept = Files.writeString(tempDir.resolve("kept.docx"), "kept");
+        Path deleted = Files.writeString(tempDir.resolve("deleted.docx"), "deleted");
+        Path sidecar = tempDir.resolve(ParsedTextCache.SIDECAR_DIRECTORY);
+        ParsedTextCache first = new ParsedTextCache(1024);
+        first.configure(1024, sidecar, 1024 * 1024);
+        first.get(kept, path -> "kept text");
+        first.get(deleted, path -> "deleted text");
+        Files.delete(deleted);
+        Path temp = Files.writeString(sidecar.resolve("entry1.tmp"), "partial");
+        Files.setLastModifiedTime(temp, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)));
+
+        ParsedTextCache second = new ParsedTextCache(1024);
+        second.configure(1024, sidecar, 1024 * 1024);
+
+        try (var files = Files.list(sidecar)) {
+            assertEquals(1, files.count());
+        }
+        assertEquals("kept text", second.get(kept, path -> fail("应从旁路缓存读取")));
+    }
+
+    @Test
+    void testSidecarSizeCapEvictsLeastRecentlyUsed() throws Exception {
+        Path sidecar = tempDir.resolve(ParsedTextCache.SIDECAR_DIRECTORY);
+        ParsedTextCache cache = new ParsedTextCache(1024);
+        // 每个缓存文件为首行加400字节文本，上限只够放两个
+        cache.configure(1024, sidecar, 1200);
+        List<Path> documents = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Path document = Files.writeString(tempDir.resolve("doc" + i + ".pdf"), "v" + i);
+            documents.add(document);
+            cache.get(document, path -> "x".repeat(400));
+            // 按写入顺序设置使用时间，避免依赖文件系统的时间精度
+            Files.setLastModifiedTime(newest(sidecar), FileTime.fromMillis(1000L * (i + 1)));
+        }
+
+        long total = 0;
+        try (var files = Files.list(sidecar)) {
+            for (Path file : files.toList()) {
+                total += Files.size(file);
+            }
+        }
+        assertTrue(total <= 1200, "旁路缓存总大小超过上限: " + total);
+
+        // 最久未使用的条目已被淘汰，重启后需要重新解析
+        AtomicInteger parses = new AtomicInteger();
+        ParsedTextCache restarted = new ParsedTextCache(1024);
+        restarted.configure(1024, sidecar, 1200);
+        restarted.get(documents.get(0), path -> "p" + parses.incrementAndGet());
+        assertEquals(1, parses.get());
+    }
+
+    /**
+     * 修改时间最新的旁路缓存文件，即刚写入的那个
+     */
+    private static Path newest(Path sidecar) throws Exception {
+        Path newest = null;
+        try (var files = Files.list(sidecar)) {
+            for (Path file : files.toList()) {
+                if (newest == null || Files.getLastModifiedTime(file).compareTo(Files.getLastModifiedTime(newest)) > 0) {
+                    newest = file;
+                }
+            }
+        }
+        return newest;
+    }
+}
@@ -0,0 +1,341 @@
+package org.xue.mcp_mysql.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据库元数据目录
+ * 从information_schema一次性批量加载当前库所有表的列和主键，表结构查询直接读内存；
+ * 经update/batch执行的DDL语句按表增量刷新，另可按固定间隔全量刷新以感知外部变更。
+ * 常规加载走只读副本，DDL之后的刷新走主库，避免读到副本上尚未同步的旧结构
+ */
+@Component
+public class MetadataCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetadataCatalog.class);
+
+    private static final String TABLES_SQL =
+            "SELECT TABLE_NAME FROM information_schema.TABLES "
+                    + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_TYPE = 'BASE TABLE'";
+
+    private static final String COLUMNS_SQL =
+            "SELECT TABLE_NAME, COLUMN_NAME, DATA_TYPE, COLUMN_TYPE, IS_NULLABLE, ORDINAL_POSITION, COLUMN_COMMENT, COLUMN_KEY, "
+                    + "COALESCE(CHARACTER_MAXIMUM_LENGTH, NUMERIC_PRECISION, DATETIME_PRECISION, 0) AS COLUMN_SIZE "
+                    + "FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE()";
+
+    /**
+     * 目录键为小写表名；lower_case_table_names=0（Linux默认）时TABLE_NAME区分大小写，需按小写比较
+     */
+    private static final String TABLE_FILTER = " AND LOWER(TABLE_NAME) IN (:tables)";
+
+    private static final String COLUMNS_ORDER = " ORDER BY TABLE_NAME, ORDINAL_POSITION";
+
+    private final JdbcTemplate readJdbcTemplate;
+    private final NamedParameterJdbcTemplate readNamedTemplate;
+    private final NamedParameterJdbcTemplate primaryNamedTemplate;
+
+    /**
+     * 全量刷新间隔（毫秒），0表示只在DDL时刷新
+     */
+    @Value("${mcp.metadata.refresh-interval:300000}")
+    private long refreshInterval;
+
+    /**
+     * 查询元数据最多缓存的SQL条数
+     */
+    @Value("${mcp.metadata.query-cache-size:256}")
+    private int queryCacheSize;
+
+    private final Object refreshLock = new Object();
+
+    /**
+     * 不可变快照，刷新时整体替换
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * 规范化SQL到结果集列信息，任何DDL后清空
+     */
+    private Map<String, List<Map<String, Object>>> queryMetadata;
+
+    private ScheduledExecutorService executor;
+
+    @Autowired
+    public MetadataCatalog(DataSource dataSource, @Qualifier("readDataSource") DataSource readDataSource) {
+        this(new JdbcTemplate(readDataSource), new NamedParameterJdbcTemplate(readDataSource),
+                new NamedParameterJdbcTemplate(dataSource));
+    }
+
+    MetadataCatalog(JdbcTemplate readJdbcTemplate, NamedParameterJdbcTemplate readNamedTemplate,
+                    NamedParameterJdbcTemplate primaryNamedTemplate) {
+        this.readJdbcTemplate = readJdbcTemplate;
+        this.readNamedTemplate = readNamedTemplate;
+        this.primaryNamedTemplate = primaryNamedTemplate;
+    }
+
+    @PostConstruct
+    public void start() {
+        int limit = Math.max(1, queryCacheSize);
+        queryMetadata = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<Map<String, Object>>> eldest) {
+                return size() > limit;
+            }
+        });
+
+        if (refreshInterval <= 0) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metadata-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 启动后立即预加载，之后按间隔全量刷新
+        executor.scheduleWithFixedDelay(this::scheduledRefresh, 0, refreshInterval, TimeUnit.MILLISECONDS);
+        logger.info("元数据目录定时刷新已启用，间隔: {}ms", refreshInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 获取所有表名，按名称排序
+     *
+     * @throws DataAccessException 首次加载失败
+     */
+    public List<String> listTables() {
+        return current().tables;
+    }
+
+    /**
+     * 获取表的列信息；目录中没有该表时按表刷新一次，以感知外部新建的表
+     *
+     * @param tableName 表名
+     * @return 列信息，表不存在时返回空列表
+     * @throws DataAccessException 加载失败
+     */
+    public List<Map<String, Object>> getTableSchema(String tableName) {
+        String key = tableName.toLowerCase(Locale.ROOT);
+        List<Map<String, Object>> columns = current().columns.get(key);
+        if (columns == null) {
+            refresh(Set.of(key));
+            columns = current().columns.get(key);
+        }
+        return columns != null ? columns : Collections.emptyList();
+    }
+
+    /**
+     * 获取查询结果集的列信息，按规范化SQL缓存预编译得到的结果
+     *
+     * @param sql 查询语句
+     * @throws DataAccessException 预编译失败
+     */
+    public List<Map<String, Object>> getQueryMetadata(String sql) {
+        String key = SqlTableExtractor.normalize(sql);
+        List<Map<String, Object>> cached = queryMetadata.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<Map<String, Object>> metadata = readJdbcTemplate.execute((ConnectionCallback<List<Map<String, Object>>>) conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                List<Map<String, Object>> columns = new ArrayList<>();
+                ResultSetMetaData rsMetaData = stmt.getMetaData();
+                if (rsMetaData == null) {
+                    return columns;
+                }
+                for (int i = 1; i <= rsMetaData.getColumnCount(); i++) {
+                    Map<String, Object> column = new HashMap<>();
+                    column.put("name", rsMetaData.getColumnName(i));
+                    column.put("label", rsMetaData.getColumnLabel(i));
+                    column.put("type", rsMetaData.getColumnTypeName(i));
+                    column.put("className", rsMetaData.getColumnClassName(i));
+                    column.put("precision", rsMetaData.getPrecision(i));
+                    column.put("scale", rsMetaData.getScale(i));
+                    columns.add(column);
+                }
+                return columns;
+            }
+        });
+        metadata = Collections.unmodifiableList(metadata);
+        queryMetadata.put(key, metadata);
+        return metadata;
+    }
+
+    /**
+     * 语句执行成功后调用，DDL语句触发对应表的刷新
+     *
+     * @param sql 已执行的语句
+     */
+    public void onStatementExecuted(String sql) {
+        if (!SqlTableExtractor.isDdl(sql)) {
+            return;
+        }
+        queryMetadata.clear();
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            refresh(SqlTableExtractor.writeTables(sql), primaryNamedTemplate);
+        } catch (DataAccessException e) {
+            // 刷新失败时丢弃快照，下次访问重新全量加载
+            logger.warn("DDL后刷新元数据失败: {}", e.getMessage());
+            snapshot = null;
+        }
+    }
+
+    /**
+     * 刷新元数据
+     *
+     * @param tables 需要刷新的表（小写），为null或空时全量刷新
+     */
+    public void refresh(Set<String> tables) {
+        refresh(tables, readNamedTemplate);
+    }
+
+    private void refresh(Set<String> tables, NamedParameterJdbcTemplate template) {
+        synchronized (refreshLock) {
+            Snapshot base = snapshot;
+            if (base == null || tables == null || tables.isEmpty()) {
+                snapshot = load(null, Snapshot.EMPTY, template);
+                return;
+            }
+            snapshot = load(tables, base, template);
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (refreshLock) {
+                if (snapshot == null) {
+                    snapshot = load(null, Snapshot.EMPTY, readNamedTemplate);
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private void scheduledRefresh() {
+        try {
+            refresh(null);
+            queryMetadata.clear();
+        } catch (Exception e) {
+            logger.warn("定时刷新元数据失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从information_schema加载，tables为null时加载全部，否则只重新加载指定表并合并到base
+     */
+    private Snapshot load(Set<String> tables, Snapshot base, NamedParameterJdbcTemplate template) {
+        long start = System.currentTimeMillis();
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String filter = "";
+        if (tables != null) {
+            params.addValue("tables", tables);
+            filter = TABLE_FILTER;
+        }
+
+        Map<String, String> tableNames = new TreeMap<>();
+        for (String table : base.tables) {
+            String key = table.toLowerCase(Locale.ROOT);
+            if (tables == null || !tables.contains(key)) {
+                tableNames.put(key, table);
+            }
+        }
+        template.query(TABLES_SQL + filter, params, rs -> {
+            String name = rs.getString("TABLE_NAME");
+            tableNames.put(name.toLowerCase(Locale.ROOT), name);
+        });
+
+        Map<String, List<Map<String, Object>>> loaded = new HashMap<>();
+        template.query(COLUMNS_SQL + filter + COLUMNS_ORDER, params, rs -> {
+            Map<String, Object> column = new HashMap<>();
+            column.put("name", rs.getString("COLUMN_NAME"));
+            column.put("type", typeName(rs.getString("DATA_TYPE"), rs.getString("COLUMN_TYPE")));
+            column.put("size", (int) Math.min(rs.getLong("COLUMN_SIZE"), Integer.MAX_VALUE));
+            column.put("nullable", "YES".equals(rs.getString("IS_NULLABLE")));
+            column.put("position", rs.getInt("ORDINAL_POSITION"));
+            column.put("remarks", rs.getString("COLUMN_COMMENT"));
+            column.put("primaryKey", "PRI".equals(rs.getString("COLUMN_KEY")));
+            loaded.computeIfAbsent(rs.getString("TABLE_NAME").toLowerCase(Locale.ROOT), k -> new ArrayList<>())
+                    .add(Collections.unmodifiableMap(column));
+        });
+
+        Map<String, List<Map<String, Object>>> columns = new HashMap<>();
+        for (String key : tableNames.keySet()) {
+            List<Map<String, Object>> tableColumns = loaded.get(key);
+            if (tableColumns == null) {
+                tableColumns = base.columns.get(key);
+            }
+            if (tableColumns != null) {
+                columns.put(key, Collections.unmodifiableList(tableColumns));
+            }
+        }
+
+        logger.debug("加载元数据完成，表数量: {}，{}，耗时: {}ms", tableNames.size(),
+                tables == null ? "全量" : "增量" + tables, System.currentTimeMillis() - start);
+        return new Snapshot(List.copyOf(tableNames.values()), columns);
+    }
+
+    /**
+     * 与JDBC的TYPE_NAME保持一致：大写类型名，无符号数值类型追加UNSIGNED
+     */
+    private static String typeName(String dataType, String columnType) {
+        String type = dataType.toUpperCase(Locale.ROOT);
+        if (columnType != null && columnType.toLowerCase(Locale.ROOT).contains("unsigned")) {
+            type += " UNSIGNED";
+        }
+        return type;
+    }
+
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(Collections.emptyList(), Collections.emptyMap());
+
+        private final List<String> tables;
+
+        /**
+         * 小写表名到列信息
+         */
+        private final Map<String, List<Map<String, Object>>> columns;
+
+        private Snapshot(List<String> tables, Map<String, List<Map<String, Object>>> columns) {
+            this.tables = tables;
+            this.columns = columns;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package org.xue.mcp_mysql.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.xue.mcp_mysql.config.QueryCacheProperties;
+import org.xue.mcp_mysql.model.SqlQueryResult;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 只读查询结果缓存
+ * 以规范化SQL和绑定参数为键，记录结果依赖的表；写语句执行后按表失效。
+ * 按条数和估算字节数做LRU淘汰，过期时间可按表配置。
+ * 每张表维护一个写入代数，查询开始前记录代数，写回缓存时代数已变化则放弃，避免并发写入期间缓存旧结果
+ */
+@Component
+public class QueryResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryResultCache.class);
+
+    private final QueryCacheProperties properties;
+
+    /**
+     * 按访问顺序排列，队首最久未使用
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long totalBytes;
+
+    private final Map<String, AtomicLong> tableGenerations = new ConcurrentHashMap<>();
+
+    /**
+     * 无法识别影响范围的写语句使全部缓存失效
+     */
+    private final AtomicLong globalGeneration = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public QueryResultCache(QueryCacheProperties properties) {
+        this.properties = properties;
+        if (properties.isEnabled()) {
+            logger.info("查询结果缓存已启用，最大条数: {}，最大字节数: {}，默认过期: {}ms",
+                    properties.getMaxEntries(), properties.getMaxBytes(), properties.getTtl());
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 生成缓存键
+     */
+    public String key(String sql, Map<String, Object> params, String cursor, String format) {
+        String paramText = params == null || params.isEmpty() ? "" : new TreeMap<>(params).toString();
+        return SqlTableExtractor.normalize(sql) + '\u0001' + paramText + '\u0001' + cursor + '\u0001' + format;
+    }
+
+    /**
+     * 查找未过期的缓存结果
+     *
+     * @return 缓存结果，不存在或已过期时返回null
+     */
+    public SqlQueryResult get(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                hits.increment();
+                return entry.result;
+            }
+            if (entry != null) {
+                remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 执行查询前记录依赖表的写入代数
+     */
+    public Generations snapshot(Set<String> tables) {
+        long[] generations = new long[tables.size()];
+        int i = 0;
+        for (String table : tables) {
+            generations[i++] = generation(table).get();
+        }
+        return new Generations(globalGeneration.get(), generations);
+    }
+
+    /**
+     * 写入查询结果，期间依赖表有写入时放弃
+     *
+     * @param key 缓存键
+     * @param tables 依赖的表
+     * @param before 查询前的写入代数
+     * @param result 查询结果
+     * @param bytes 结果的估算字节数
+     */
+    public void put(String key, Set<String> tables, Generations before, SqlQueryResult result, long bytes) {
+        long ttl = ttlFor(tables);
+        if (ttl <= 0 || bytes > properties.getMaxBytes() / 4) {
+            return;
+        }
+
+        synchronized (entries) {
+            // 在锁内比较代数，失效操作同样在锁内清理，二者不会交错
+            if (!before.equals(snapshot(tables))) {
+                return;
+            }
+            remove(key);
+            entries.put(key, new Entry(result, tables, System.currentTimeMillis() + ttl, bytes));
+            totalBytes += bytes;
+
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while ((entries.size() > properties.getMaxEntries() || totalBytes > properties.getMaxBytes())
+                    && eldest.hasNext()) {
+                totalBytes -= eldest.next().getValue().bytes;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * 写语句执行后使相关缓存失效；处于事务中时在提交后再失效一次，
+     * 防止提交前其他请求读到旧数据并写回缓存
+     *
+     * @param sql 写语句
+     */
+    public void invalidateForWrite(String sql) {
+        if (!isEnabled()) {
+            return;
+        }
+        Set<String> tables = SqlTableExtractor.writeTables(sql);
+        invalidate(tables);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(tables);
+                }
+            });
+        }
+    }
+
+    /**
+     * 使依赖指定表的缓存失效
+     *
+     * @param tables 表名集合，为null时清空全部缓存
+     */
+    public void invalidate(Set<String> tables) {
+        synchronized (entries) {
+            if (tables == null) {
+                globalGeneration.incrementAndGet();
+                invalidations.add(entries.size());
+                entries.clear();
+                totalBytes = 0;
+                return;
+            }
+            for (String table : tables) {
+                generation(table).incrementAndGet();
+            }
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next().getValue();
+                if (entry.dependsOnAny(tables)) {
+                    totalBytes -= entry.bytes;
+                    it.remove();
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", total == 0 ? 0.0 : (double) hitCount / total);
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+            stats.put("bytes", totalBytes);
+        }
+        return stats;
+    }
+
+    private long ttlFor(Set<String> tables) {
+        long ttl = properties.getTtl();
+        for (String table : tables) {
+            Long tableTtl = properties.getTableTtl().get(table);
+            if (tableTtl != null) {
+                ttl = Math.min(ttl, tableTtl);
+            }
+        }
+        return ttl;
+    }
+
+    private AtomicLong generation(String table) {
+        return tableGenerations.computeIfAbsent(table, t -> new AtomicLong());
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.bytes;
+        }
+    }
+
+    /**
+     * 依赖表的写入代数快照
+     */
+    public static final class Generations {
+        private final long global;
+        private final long[] tables;
+
+        private Generations(long global, long[] tables) {
+            this.global = global;
+            this.tables = tables;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Generations)) {
+                return false;
+            }
+            Generations other = (Generations) o;
+            return global == other.global && Arrays.equals(tables, other.tables);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(global) * 31 + Arrays.hashCode(tables);
+        }
+    }
+
+    private static final class Entry {
+        private final SqlQueryResult result;
+        private final Set<String> tables;
+        private final long expiresAt;
+        private final long bytes;
+
+        private Entry(SqlQueryResult result, Set<String> tables, long expiresAt, long bytes) {
+            this.result = result;
+            this.tables = tables;
+            this.expiresAt = expiresAt;
+            this.bytes = bytes;
+        }
+
+        private boolean dependsOnAny(Set<String> changed) {
+            for (String table : changed) {
+                if (tables.contains(table)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
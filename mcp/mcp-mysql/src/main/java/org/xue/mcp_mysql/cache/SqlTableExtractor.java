@@ -0,0 +1,295 @@
+package org.xue.mcp_mysql.cache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 轻量级SQL表名提取
+ * 不做完整语法分析，只在去掉注释和字符串字面量后按关键字定位表名；
+ * 用于缓存依赖和失效判断，宁可多提取（多失效）也不漏提取
+ */
+public final class SqlTableExtractor {
+
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/|--[^\\n]*|#[^\\n]*", Pattern.DOTALL);
+
+    private static final Pattern LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'|\"(?:[^\"\\\\]|\\\\.|\"\")*\"");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Pattern TOKEN = Pattern.compile(
+            "`[^`]+`(?:\\.`[^`]+`|\\.[A-Za-z_][A-Za-z0-9_$]*)*"
+                    + "|[A-Za-z_][A-Za-z0-9_$]*(?:\\.`[^`]+`|\\.[A-Za-z_][A-Za-z0-9_$]*)*"
+                    + "|[(),;]");
+
+    /**
+     * 结果随时间或会话变化的函数，包含这些函数的查询不缓存
+     */
+    private static final Set<String> VOLATILE_FUNCTIONS = Set.of(
+            "now", "sysdate", "curdate", "curtime", "current_date", "current_time", "current_timestamp",
+            "localtime", "localtimestamp", "unix_timestamp", "utc_date", "utc_time", "utc_timestamp",
+            "rand", "uuid", "uuid_short", "last_insert_id", "found_rows", "row_count", "connection_id",
+            "current_user", "user", "session_user", "system_user", "database", "schema", "sleep", "get_lock");
+
+    /**
+     * 紧跟在表名之后时不是别名的关键字
+     */
+    private static final Set<String> CLAUSE_KEYWORDS = Set.of(
+            "where", "join", "left", "right", "inner", "outer", "cross", "natural", "straight_join", "on", "using",
+            "group", "order", "limit", "having", "union", "except", "intersect", "window", "for", "lock",
+            "into", "set", "values", "value", "select", "partition", "force", "use", "ignore", "as", "from",
+            "to", "rename", "add", "drop", "modify", "change", "alter", "like", "with", "returning");
+
+    /**
+     * 结束FROM子句的关键字
+     */
+    private static final Set<String> FROM_END_KEYWORDS = Set.of(
+            "where", "group", "order", "having", "limit", "union", "except", "intersect", "window", "select",
+            "into", "for", "lock");
+
+    /**
+     * 聚合函数，出现在最外层查询时需要读取全部输入行才能产生结果
+     */
+    private static final Set<String> AGGREGATE_FUNCTIONS = Set.of(
+            "count", "sum", "avg", "min", "max", "group_concat", "json_arrayagg", "json_objectagg",
+            "std", "stddev", "stddev_pop", "stddev_samp", "variance", "var_pop", "var_samp",
+            "bit_and", "bit_or", "bit_xor");
+
+    /**
+     * DDL语句的起始关键字
+     */
+    private static final Set<String> DDL_KEYWORDS = Set.of("create", "alter", "drop", "rename", "truncate");
+
+    private SqlTableExtractor() {
+    }
+
+    /**
+     * 提取可缓存的只读查询所依赖的表
+     *
+     * @param sql SQL语句
+     * @return 表名集合（小写，不含库名）；非只读查询、加锁读或包含易变函数时返回null
+     */
+    public static Set<String> readTables(String sql) {
+        List<String> tokens = tokenize(sql);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        String first = tokens.get(0);
+        if (!first.equals("select") && !first.equals("with") && !first.equals("(")) {
+            return null;
+        }
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            // SELECT ... INTO、FOR UPDATE、LOCK IN SHARE MODE
+            if (token.equals("into") || token.equals("lock")
+                    || (token.equals("for") && i + 1 < tokens.size()
+                    && (tokens.get(i + 1).equals("update") || tokens.get(i + 1).equals("share")))) {
+                return null;
+            }
+            boolean call = i + 1 < tokens.size() && tokens.get(i + 1).equals("(");
+            // CURRENT_TIMESTAMP、LOCALTIME等可以不带括号使用
+            boolean bare = token.startsWith("current_") || token.startsWith("localtime");
+            if (VOLATILE_FUNCTIONS.contains(token) && (call || bare)) {
+                return null;
+            }
+        }
+
+        Set<String> tables = new LinkedHashSet<>();
+        collectAfter(tokens, Set.of("from", "join", "straight_join"), tables);
+        collectCommaJoins(tokens, tables);
+        return tables.isEmpty() ? null : tables;
+    }
+
+    /**
+     * 提取写语句（DML/DDL）影响的表
+     *
+     * @param sql SQL语句
+     * @return 表名集合（小写，不含库名）；无法识别时返回null，调用方应视为影响所有表
+     */
+    public static Set<String> writeTables(String sql) {
+        List<String> tokens = tokenize(sql);
+        Set<String> tables = new LinkedHashSet<>();
+        collectAfter(tokens, Set.of("into", "update", "from", "join", "table", "truncate", "to"), tables);
+        return tables.isEmpty() ? null : tables;
+    }
+
+    /**
+     * 是否为DDL语句
+     */
+    public static boolean isDdl(String sql) {
+        List<String> tokens = tokenize(sql);
+        return !tokens.isEmpty() && DDL_KEYWORDS.contains(tokens.get(0));
+    }
+
+    /**
+     * 是否为只读查询语句（SELECT、WITH或括号开头）
+     */
+    public static boolean isSelect(String sql) {
+        List<String> tokens = tokenize(sql);
+        if (tokens.isEmpty()) {
+            return false;
+        }
+        String first = tokens.get(0);
+        return first.equals("select") || first.equals("with") || first.equals("(");
+    }
+
+    /**
+     * 最外层是否已有LIMIT子句（子查询中的LIMIT不算）
+     */
+    public static boolean hasLimit(String sql) {
+        int depth = 0;
+        for (String token : tokenize(sql)) {
+            if (token.equals("(")) {
+                depth++;
+            } else if (token.equals(")")) {
+                depth--;
+            } else if (depth == 0 && token.equals("limit")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 最外层SELECT列表或HAVING中是否调用了聚合函数（子查询中的不算）
+     */
+    public static boolean hasAggregate(String sql) {
+        List<String> tokens = tokenize(sql);
+        int depth = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (token.equals("(")) {
+                depth++;
+            } else if (token.equals(")")) {
+                depth--;
+            } else if (depth == 0 && AGGREGATE_FUNCTIONS.contains(token)
+                    && i + 1 < tokens.size() && tokens.get(i + 1).equals("(")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 规范化SQL文本：去掉首尾空白和末尾分号，连续空白合并为一个空格（字符串字面量内不处理）
+     */
+    public static String normalize(String sql) {
+        StringBuilder normalized = new StringBuilder(sql.length());
+        Matcher literal = LITERAL.matcher(sql);
+        int last = 0;
+        while (literal.find()) {
+            normalized.append(WHITESPACE.matcher(sql.substring(last, literal.start())).replaceAll(" "))
+                    .append(literal.group());
+            last = literal.end();
+        }
+        normalized.append(WHITESPACE.matcher(sql.substring(last)).replaceAll(" "));
+        
+        String result = normalized.toString().trim();
+        while (result.endsWith(";")) {
+            result = result.substring(0, result.length() - 1).trim();
+        }
+        return result;
+    }
+
+    private static void collectAfter(List<String> tokens, Set<String> markers, Set<String> tables) {
+        for (int i = 0; i < tokens.size(); i++) {
+            if (!markers.contains(tokens.get(i))) {
+                continue;
+            }
+            // FROM a, b 与 DROP TABLE a, b 可以列出多张表
+            boolean list = tokens.get(i).equals("from") || tokens.get(i).equals("table");
+            int j = i + 1;
+            // 跳过 IGNORE、LOW_PRIORITY、IF NOT EXISTS 等修饰词
+            while (j < tokens.size() && isModifier(tokens.get(j))) {
+                j++;
+            }
+            while (j < tokens.size()) {
+                String name = tokens.get(j);
+                if (name.equals("(") || CLAUSE_KEYWORDS.contains(name) || isPunctuation(name)) {
+                    break;
+                }
+                tables.add(tableName(name));
+                j++;
+                // 跳过别名
+                if (j < tokens.size() && tokens.get(j).equals("as")) {
+                    j += 2;
+                } else if (j < tokens.size() && !CLAUSE_KEYWORDS.contains(tokens.get(j)) && !isPunctuation(tokens.get(j))) {
+                    j++;
+                }
+                if (list && j < tokens.size() && tokens.get(j).equals(",")) {
+                    j++;
+                } else {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * FROM子句中以逗号连接的表，包括出现在JOIN ... ON条件之后的，按括号层级分别跟踪是否处于FROM子句
+     */
+    private static void collectCommaJoins(List<String> tokens, Set<String> tables) {
+        Deque<Boolean> scopes = new ArrayDeque<>();
+        boolean inFrom = false;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (token.equals("(")) {
+                scopes.push(inFrom);
+                inFrom = false;
+            } else if (token.equals(")")) {
+                inFrom = !scopes.isEmpty() && scopes.pop();
+            } else if (token.equals("from")) {
+                inFrom = true;
+            } else if (FROM_END_KEYWORDS.contains(token)) {
+                inFrom = false;
+            } else if (inFrom && token.equals(",") && i + 1 < tokens.size()) {
+                String next = tokens.get(i + 1);
+                if (!next.equals("(") && !CLAUSE_KEYWORDS.contains(next) && !isPunctuation(next)) {
+                    tables.add(tableName(next));
+                }
+            }
+        }
+    }
+
+    private static boolean isModifier(String token) {
+        return token.equals("ignore") || token.equals("low_priority") || token.equals("quick")
+                || token.equals("delayed") || token.equals("high_priority") || token.equals("if")
+                || token.equals("not") || token.equals("exists") || token.equals("table")
+                || token.equals("temporary");
+    }
+
+    private static boolean isPunctuation(String token) {
+        return token.equals("(") || token.equals(")") || token.equals(",") || token.equals(";");
+    }
+
+    /**
+     * 去掉库名前缀和反引号
+     */
+    private static String tableName(String identifier) {
+        String name = identifier;
+        int dot = name.lastIndexOf('.');
+        if (dot >= 0) {
+            name = name.substring(dot + 1);
+        }
+        return name.replace("`", "");
+    }
+
+    private static List<String> tokenize(String sql) {
+        List<String> tokens = new ArrayList<>();
+        if (sql == null) {
+            return tokens;
+        }
+        String stripped = LITERAL.matcher(COMMENT.matcher(sql).replaceAll(" ")).replaceAll(" ? ");
+        Matcher matcher = TOKEN.matcher(stripped);
+        while (matcher.find()) {
+            tokens.add(matcher.group().toLowerCase(Locale.ROOT));
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,40 @@
+package org.xue.mcp_mysql.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.xue.mcp_mysql.routing.ReadRoutingDataSource;
+import org.xue.mcp_mysql.routing.ReplicaRouter;
+
+import javax.sql.DataSource;
+
+/**
+ * 数据源配置
+ * 主库数据源仍按spring.datasource配置，写操作和事务使用主库；
+ * 只读操作使用readDataSource，在可用的只读副本之间路由
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRouter replicaRouter(DataSource dataSource, DataSourceProperties properties,
+                                       ReplicaProperties replicaProperties) {
+        return new ReplicaRouter(dataSource, replicaProperties, properties.determineUsername(),
+                properties.determinePassword(), properties.determineDriverClassName());
+    }
+
+    @Bean(name = "readDataSource")
+    public DataSource readDataSource(ReplicaRouter replicaRouter) {
+        return new ReadRoutingDataSource(replicaRouter);
+    }
+}
@@ -0,0 +1,42 @@
+package org.xue.mcp_mysql.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 查询结果缓存配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mcp.query.cache")
+public class QueryCacheProperties {
+
+    /**
+     * 是否启用查询结果缓存，默认关闭
+     */
+    private boolean enabled = false;
+
+    /**
+     * 最多缓存的结果数
+     */
+    private int maxEntries = 1000;
+
+    /**
+     * 缓存结果的估算总字节数上限
+     */
+    private long maxBytes = 64L * 1024 * 1024;
+
+    /**
+     * 默认过期时间（毫秒）
+     */
+    private long ttl = 60000;
+
+    /**
+     * 按表设置的过期时间（毫秒），键为小写表名；查询涉及多张表时取最小值，0表示不缓存涉及该表的查询
+     */
+    private Map<String, Long> tableTtl = new HashMap<>();
+}
@@ -0,0 +1,43 @@
+package org.xue.mcp_mysql.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 查询执行线程池配置
+ * 只读查询在此线程池上执行，请求线程只负责等待截止时间，超时或客户端断开时可以主动取消语句
+ */
+@Configuration
+public class QueryExecutorConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryExecutorConfig.class);
+
+    /**
+     * 并发查询数，需小于数据库连接池大小，为写操作和元数据查询保留连接
+     */
+    @Value("${mcp.query.executor.concurrency:12}")
+    private int concurrency;
+
+    @Value("${mcp.query.executor.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Bean(name = "queryExecutor")
+    public ThreadPoolTaskExecutor queryExecutor() {
+        logger.info("初始化查询执行线程池，并发数: {}，队列容量: {}", concurrency, queueCapacity);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("query-");
+        // 队列满时直接拒绝，由调用方返回繁忙错误，不占用请求线程执行
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,74 @@
+package org.xue.mcp_mysql.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 查询成本守卫配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mcp.query.guard")
+public class QueryGuardProperties {
+
+    /**
+     * 超出阈值时的处理方式
+     */
+    public enum Action {
+        /**
+         * 直接拒绝
+         */
+        REJECT,
+        /**
+         * 追加LIMIT后执行，已有LIMIT时拒绝
+         */
+        LIMIT,
+        /**
+         * 进入低并发队列执行，等待超时则拒绝
+         */
+        QUEUE
+    }
+
+    /**
+     * 是否启用
+     */
+    private boolean enabled = true;
+
+    /**
+     * 预估扫描行数上限
+     */
+    private long maxRows = 1_000_000;
+
+    /**
+     * 预估查询成本上限（EXPLAIN中的query_cost）
+     */
+    private double maxCost = 200_000;
+
+    private Action action = Action.LIMIT;
+
+    /**
+     * LIMIT方式追加的行数
+     */
+    private int limit = 1000;
+
+    /**
+     * QUEUE方式下高成本查询的并发数
+     */
+    private int queueConcurrency = 2;
+
+    /**
+     * QUEUE方式下的最长等待时间（毫秒）
+     */
+    private long queueTimeout = 30000;
+
+    /**
+     * 执行计划缓存条数
+     */
+    private int planCacheSize = 512;
+
+    /**
+     * 执行计划缓存过期时间（毫秒），数据量变化后重新评估
+     */
+    private long planTtl = 600000;
+}
@@ -0,0 +1,72 @@
+package org.xue.mcp_mysql.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 只读副本配置
+ * 未配置副本时所有读操作仍走主库
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mcp.datasource.read")
+public class ReplicaProperties {
+
+    /**
+     * 副本选择策略
+     */
+    public enum Strategy {
+        /**
+         * 轮询
+         */
+        ROUND_ROBIN,
+        /**
+         * 选择活动连接最少的副本
+         */
+        LEAST_CONNECTIONS
+    }
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    private Strategy strategy = Strategy.ROUND_ROBIN;
+
+    /**
+     * 允许的最大复制延迟（秒），超过时暂时不向该副本路由
+     */
+    private long maxLagSeconds = 5;
+
+    /**
+     * 复制延迟检查间隔（毫秒）
+     */
+    private long lagCheckInterval = 5000;
+
+    /**
+     * 写入后读主库的时间窗口（毫秒），对同一会话的读和读已写入表的查询生效，应不小于最大复制延迟
+     */
+    private long stickyWindow = 10000;
+
+    /**
+     * 单个副本
+     */
+    @Data
+    public static class Replica {
+
+        private String url;
+
+        /**
+         * 用户名，未配置时与主库相同
+         */
+        private String username;
+
+        /**
+         * 密码，未配置时与主库相同
+         */
+        private String password;
+
+        private int maximumPoolSize = 10;
+    }
+}
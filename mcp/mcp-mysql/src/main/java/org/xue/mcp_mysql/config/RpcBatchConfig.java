@@ -0,0 +1,67 @@
+package org.xue.mcp_mysql.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * JSON-RPC线程池配置
+ * 异步处理的JSON-RPC请求在请求线程池上执行；批量请求中相互独立的只读调用在批量线程池上并发执行
+ */
+@Configuration
+public class RpcBatchConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(RpcBatchConfig.class);
+
+    /**
+     * 并发线程数，需小于数据库连接池大小，避免批量请求占满连接
+     */
+    @Value("${mcp.rpc.batch.concurrency:8}")
+    private int concurrency;
+
+    @Value("${mcp.rpc.batch.queue-capacity:256}")
+    private int queueCapacity;
+
+    /**
+     * 同时处理的JSON-RPC请求数。模块定义了自己的Executor后Spring Boot不再创建applicationTaskExecutor，
+     * 异步请求必须显式指定线程池，否则会退回为每个请求新建线程的SimpleAsyncTaskExecutor
+     */
+    @Value("${mcp.rpc.request.concurrency:64}")
+    private int requestConcurrency;
+
+    @Value("${mcp.rpc.request.queue-capacity:256}")
+    private int requestQueueCapacity;
+
+    @Bean(name = "rpcRequestExecutor")
+    public ThreadPoolTaskExecutor rpcRequestExecutor() {
+        logger.info("初始化JSON-RPC请求线程池，并发数: {}，队列容量: {}", requestConcurrency, requestQueueCapacity);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(requestConcurrency);
+        executor.setMaxPoolSize(requestConcurrency);
+        executor.setQueueCapacity(requestQueueCapacity);
+        executor.setThreadNamePrefix("rpc-request-");
+        // 队列满时由容器线程同步处理，形成背压
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "rpcBatchExecutor")
+    public ThreadPoolTaskExecutor rpcBatchExecutor() {
+        logger.info("初始化JSON-RPC批量执行线程池，并发数: {}", concurrency);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("rpc-batch-");
+        // 队列满时由请求线程自己执行，形成背压
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
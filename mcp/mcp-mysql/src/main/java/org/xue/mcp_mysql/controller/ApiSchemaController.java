@@ -3,15 +3,17 @@ package org.xue.mcp_mysql.controller;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.xue.mcp_mysql.enums.ApiFormatType;
+import org.xue.mcp_mysql.model.ApiSchemaSnapshot;
 import org.xue.mcp_mysql.service.ExposureApiService;
 
-import java.util.Map;
-
 /**
  * API模式描述控制器
  * 提供API模式描述接口
@@ -22,6 +24,11 @@ public class ApiSchemaController {
     
     private static final Logger logger = LoggerFactory.getLogger(ApiSchemaController.class);
     
+    /**
+     * 模式版本响应头，与心跳结果中的schemaVersion一致
+     */
+    public static final String SCHEMA_VERSION_HEADER = "X-Schema-Version";
+    
     private final ExposureApiService exposureApiService;
     
     @Autowired
@@ -31,12 +38,13 @@ public class ApiSchemaController {
     
     /**
      * 获取API模式描述
+     * 返回启动时预先序列化的内容，If-None-Match与当前ETag一致时返回304
      * 
      * @param format 格式类型，可选值：function_calling, rpc_json
      * @return API模式描述
      */
     @GetMapping
-    public Map<String, Object> getApiSchema(
+    public ResponseEntity<byte[]> getApiSchema(
             @RequestParam(value = "format", defaultValue = "rpc_json") String format) {
         logger.debug("请求API模式描述，格式: {}", format);
         
@@ -49,6 +57,13 @@ public class ApiSchemaController {
             formatType = ApiFormatType.RPC_JSON; // 默认格式
         }
         
-        return exposureApiService.getApiDescription(formatType);
+        // 响应带ETag时，Spring会比对If-None-Match，一致则直接返回304且不写响应体
+        ApiSchemaSnapshot snapshot = exposureApiService.getApiSchema(formatType);
+        return ResponseEntity.ok()
+                .eTag(snapshot.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .header(SCHEMA_VERSION_HEADER, exposureApiService.getSchemaVersion())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.getJson());
     }
 } 
\ No newline at end of file
@@ -0,0 +1,91 @@
+package org.xue.mcp_mysql.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.xue.mcp_mysql.enums.ResultFormat;
+import org.xue.mcp_mysql.execution.QueryContext;
+import org.xue.mcp_mysql.execution.QueryExecutor;
+import org.xue.mcp_mysql.service.DatabaseService;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 流式查询控制器
+ * 结果边从数据库读取边写入HTTP响应，适合大结果集的分页导出
+ */
+@RestController
+@RequestMapping("${spring.application.name}/api/query")
+public class QueryStreamController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(QueryStreamController.class);
+    
+    private final DatabaseService databaseService;
+    private final QueryExecutor queryExecutor;
+    
+    @Autowired
+    public QueryStreamController(DatabaseService databaseService, QueryExecutor queryExecutor) {
+        this.databaseService = databaseService;
+        this.queryExecutor = queryExecutor;
+    }
+    
+    /**
+     * 流式执行查询
+     * 请求体：sql、params（可选）、cursor（可选，上一页返回的nextCursor）、format（可选，rows或columnar）、
+     * timeout（可选，毫秒，也可通过X-Request-Timeout请求头指定）。
+     * 语句超时按截止时间设置；客户端断开时写出失败，语句随之关闭
+     * 
+     * @param request 查询请求
+     * @param requestTimeout 调用方剩余超时（毫秒）
+     * @param conversationId 调用方的会话ID
+     * @return 流式输出的查询结果
+     */
+    @PostMapping("/stream")
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<StreamingResponseBody> streamQuery(
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = RpcController.REQUEST_TIMEOUT_HEADER, required = false) Long requestTimeout,
+            @RequestHeader(value = RpcController.CONVERSATION_ID_HEADER, required = false) String conversationId) {
+        Object sql = request.get("sql");
+        if (!(sql instanceof String) || ((String) sql).isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        Object params = request.get("params");
+        Map<String, Object> queryParams = params instanceof Map ? (Map<String, Object>) params : Collections.emptyMap();
+        Object cursor = request.get("cursor");
+        Object format = request.get("format");
+        logger.debug("流式查询请求: {}", sql);
+        
+        Object timeout = request.get("timeout");
+        QueryContext context = queryExecutor.newContext(
+                timeout instanceof Number ? ((Number) timeout).longValue() : requestTimeout, conversationId);
+        
+        StreamingResponseBody body = out -> {
+            try {
+                context.call(() -> {
+                    databaseService.streamQuery(
+                            (String) sql, queryParams, cursor instanceof String ? (String) cursor : null,
+                            ResultFormat.from(format instanceof String ? (String) format : null), out);
+                    return null;
+                });
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+}
@@ -1,19 +1,36 @@
 package org.xue.mcp_mysql.controller;
 
+import com.fasterxml.jackson.databind.util.RawValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.xue.mcp_mysql.service.impl.MCPDatabaseRpcServiceImpl;
-import org.xue.mcp_mysql.service.ExposureApiService;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.xue.mcp_mysql.enums.ApiFormatType;
+import org.xue.mcp_mysql.execution.QueryContext;
+import org.xue.mcp_mysql.execution.QueryExecutor;
+import org.xue.mcp_mysql.rpc.RpcMethod;
+import org.xue.mcp_mysql.rpc.RpcMethodRegistry;
+import org.xue.mcp_mysql.service.ExposureApiService;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 /**
  * JSON-RPC控制器
@@ -25,55 +42,234 @@ public class RpcController {
     
     private static final Logger logger = LoggerFactory.getLogger(RpcController.class);
     
-    private final MCPDatabaseRpcServiceImpl jsonRpcService;
-    private final ExposureApiService exposureApiService;
+    /**
+     * 会修改数据的方法，在批量请求中按顺序串行执行，作为前后只读调用的分隔点
+     */
+    private static final Set<String> WRITE_METHODS = Set.of("update", "batch");
+    
+    /**
+     * 查询结果格式协商请求头，取值见ResultFormat
+     */
+    public static final String RESULT_FORMAT_HEADER = "X-Result-Format";
+    
+    /**
+     * 调用方剩余超时（毫秒）请求头，请求对象中的timeout字段优先
+     */
+    public static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout";
+    
+    /**
+     * 调用方会话ID请求头，请求对象中的conversationId字段优先；同一会话写入后的读操作路由到主库
+     */
+    public static final String CONVERSATION_ID_HEADER = "X-Conversation-Id";
+    
+    /**
+     * 异步请求在最大查询超时之外额外等待的时间，用于返回取消后的结果
+     */
+    private static final long ASYNC_TIMEOUT_GRACE = 5000;
+    
+    private final RpcMethodRegistry rpcMethodRegistry;
+    private final ThreadPoolTaskExecutor rpcRequestExecutor;
+    private final Executor rpcBatchExecutor;
+    private final QueryExecutor queryExecutor;
+    
+    @Value("${mcp.rpc.batch.max-size:100}")
+    private int maxBatchSize;
     
     @Autowired
-    public RpcController(MCPDatabaseRpcServiceImpl jsonRpcService, ExposureApiService exposureApiService) {
-        this.jsonRpcService = jsonRpcService;
-        this.exposureApiService = exposureApiService;
+    public RpcController(RpcMethodRegistry rpcMethodRegistry, ExposureApiService exposureApiService,
+                         @Qualifier("rpcRequestExecutor") ThreadPoolTaskExecutor rpcRequestExecutor,
+                         @Qualifier("rpcBatchExecutor") Executor rpcBatchExecutor, QueryExecutor queryExecutor) {
+        this.rpcMethodRegistry = rpcMethodRegistry;
+        this.rpcRequestExecutor = rpcRequestExecutor;
+        this.rpcBatchExecutor = rpcBatchExecutor;
+        this.queryExecutor = queryExecutor;
+        
+        // API Schema方法不对大模型暴露，作为内置方法注册
+        rpcMethodRegistry.registerBuiltin("getApiSchema", params -> {
+            ApiFormatType formatType = ApiFormatType.RPC_JSON;
+            if (params instanceof Map && "function_calling".equalsIgnoreCase(String.valueOf(((Map<?, ?>) params).get("format")))) {
+                formatType = ApiFormatType.FUNCTION_CALLING;
+            }
+            // 直接输出启动时序列化好的JSON
+            return new RawValue(new String(exposureApiService.getApiSchema(formatType).getJson(), StandardCharsets.UTF_8));
+        });
     }
     
     /**
      * 处理JSON-RPC POST请求
+     * 支持单个请求对象和JSON-RPC 2.0批量请求数组。
+     * 请求在有界的请求线程池上异步处理，客户端断开或超时时Spring中断处理线程，正在执行的查询随之取消
      */
     @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public Map<String, Object> handleJsonRpc(@RequestBody(required = false) Map<String, Object> request) {
+    public WebAsyncTask<ResponseEntity<Object>> handleJsonRpc(
+            @RequestBody(required = false) Object request,
+            @RequestHeader(value = RESULT_FORMAT_HEADER, required = false) String resultFormat,
+            @RequestHeader(value = REQUEST_TIMEOUT_HEADER, required = false) Long requestTimeout,
+            @RequestHeader(value = CONVERSATION_ID_HEADER, required = false) String conversationId) {
         logger.debug("接收到JSON-RPC请求: {}", request);
         
-        Map<String, Object> response = new HashMap<>();
-        response.put("jsonrpc", "2.0");
+        CallOptions options = new CallOptions(resultFormat, requestTimeout, conversationId);
+        WebAsyncTask<ResponseEntity<Object>> task = new WebAsyncTask<>(
+                queryExecutor.getMaxTimeout() + ASYNC_TIMEOUT_GRACE,
+                rpcRequestExecutor,
+                () -> dispatch(request, options));
+        task.onTimeout(() -> ResponseEntity.ok(errorResponse(null, -32603, "请求处理超时")));
+        return task;
+    }
+    
+    private ResponseEntity<Object> dispatch(Object request, CallOptions options) throws InterruptedException {
+        if (request instanceof List) {
+            List<?> batch = (List<?>) request;
+            if (batch.isEmpty()) {
+                return ResponseEntity.ok(errorResponse(null, -32600, "无效的请求，批量请求不能为空"));
+            }
+            if (batch.size() > maxBatchSize) {
+                return ResponseEntity.ok(errorResponse(null, -32600, "批量请求过大，最多允许 " + maxBatchSize + " 个"));
+            }
+            List<Map<String, Object>> responses = handleBatch(batch, options);
+            // 全部为通知时不返回内容
+            return responses.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(responses);
+        }
         
+        Map<String, Object> response = handleSingle(request, options.resultFormat, contextFor(request, options));
+        // 单个通知同样执行但不返回内容
+        return isNotification(request) ? ResponseEntity.noContent().build() : ResponseEntity.ok(response);
+    }
+    
+    /**
+     * 处理批量请求
+     * 连续的只读调用并发执行，写调用等待之前的调用完成后串行执行，保证与请求顺序一致的写入语义；
+     * 响应按请求顺序返回并通过id关联，通知（无id字段）不返回响应。
+     * 等待期间处理线程被中断（客户端断开）时取消批量中所有调用的查询
+     */
+    private List<Map<String, Object>> handleBatch(List<?> batch, CallOptions options) throws InterruptedException {
+        String resultFormat = options.resultFormat;
+        List<CompletableFuture<Map<String, Object>>> results = new ArrayList<>(batch.size());
+        List<CompletableFuture<Map<String, Object>>> pendingReads = new ArrayList<>();
+        List<QueryContext> contexts = new ArrayList<>(batch.size());
+        
+        try {
+            for (Object item : batch) {
+                QueryContext context = contextFor(item, options);
+                contexts.add(context);
+                if (isWrite(item)) {
+                    // 写调用前等待已提交的只读调用完成
+                    await(CompletableFuture.allOf(pendingReads.toArray(new CompletableFuture[0])));
+                    pendingReads.clear();
+                    results.add(CompletableFuture.completedFuture(handleSingle(item, resultFormat, context)));
+                } else {
+                    CompletableFuture<Map<String, Object>> future = CompletableFuture.supplyAsync(
+                            () -> handleSingle(item, resultFormat, context), rpcBatchExecutor);
+                    pendingReads.add(future);
+                    results.add(future);
+                }
+            }
+            
+            List<Map<String, Object>> responses = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                Map<String, Object> response = await(results.get(i));
+                if (!isNotification(batch.get(i))) {
+                    responses.add(response);
+                }
+            }
+            return responses;
+        } catch (InterruptedException e) {
+            logger.info("批量请求处理被中断，取消 {} 个调用的查询", contexts.size());
+            contexts.forEach(QueryContext::cancel);
+            throw e;
+        }
+    }
+    
+    /**
+     * 可中断地等待，handleSingle本身不抛出异常
+     */
+    private static <T> T await(CompletableFuture<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+    
+    /**
+     * 按请求对象的timeout、conversationId字段或对应请求头创建查询上下文
+     */
+    private QueryContext contextFor(Object request, CallOptions options) {
+        Long timeout = options.requestTimeout;
+        String conversationId = options.conversationId;
+        if (request instanceof Map) {
+            Object timeoutField = ((Map<?, ?>) request).get("timeout");
+            if (timeoutField instanceof Number) {
+                timeout = ((Number) timeoutField).longValue();
+            }
+            Object conversationField = ((Map<?, ?>) request).get("conversationId");
+            if (conversationField instanceof String) {
+                conversationId = (String) conversationField;
+            }
+        }
+        return queryExecutor.newContext(timeout, conversationId);
+    }
+    
+    /**
+     * 处理单个请求对象
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> handleSingle(Object rawRequest, String resultFormat, QueryContext context) {
         // 处理空请求
-        if (request == null) {
-            response.put("id", null);
-            Map<String, Object> error = new HashMap<>();
-            error.put("code", -32700);
-            error.put("message", "无效的JSON请求");
-            response.put("error", error);
-            return response;
+        if (rawRequest == null) {
+            return errorResponse(null, -32700, "无效的JSON请求");
         }
+        if (!(rawRequest instanceof Map)) {
+            return errorResponse(null, -32600, "无效的请求，请求必须是JSON对象");
+        }
+        Map<String, Object> request = (Map<String, Object>) rawRequest;
         
         // 提取请求ID和方法
         Object id = request.get("id");
-        String method = (String) request.get("method");
+        Object method = request.get("method");
         Object params = request.get("params");
         
-        response.put("id", id);
+        // 请求头协商的结果格式作为查询的默认格式，params中显式指定的format优先
+        if (resultFormat != null && "query".equals(method) && params instanceof Map
+                && !((Map<?, ?>) params).containsKey("format")) {
+            Map<String, Object> withFormat = new HashMap<>((Map<String, Object>) params);
+            withFormat.put("format", resultFormat);
+            params = withFormat;
+        }
         
-        if (method == null) {
-            Map<String, Object> error = new HashMap<>();
-            error.put("code", -32600);
-            error.put("message", "无效的请求，缺少method字段");
-            response.put("error", error);
-            return response;
+        if (!(method instanceof String)) {
+            return errorResponse(id, -32600, "无效的请求，缺少method字段");
+        }
+        
+        // 根据方法名查找预先构建的分发项
+        RpcMethod rpcMethod = rpcMethodRegistry.get((String) method);
+        if (rpcMethod == null) {
+            return errorResponse(id, -32601, "未知方法: " + method);
         }
         
+        Map<String, Object> response = new HashMap<>();
+        response.put("jsonrpc", "2.0");
+        response.put("id", id);
+        
         try {
-            // 根据方法名调用对应的服务方法
-            Object result = callServiceMethod(method, params);
+            Object boundParams = params;
+            Object result = context.call(() -> {
+                try {
+                    return rpcMethod.invoke(boundParams);
+                } catch (Exception | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            });
             response.put("result", result);
-        } catch (Exception e) {
+        } catch (IllegalArgumentException e) {
+            logger.warn("RPC请求参数无效: {} - {}", method, e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", -32602);
+            error.put("message", "参数无效: " + e.getMessage());
+            response.put("error", error);
+        } catch (Throwable e) {
             logger.error("处理RPC请求时发生错误: {}", e.getMessage(), e);
             Map<String, Object> error = new HashMap<>();
             error.put("code", -32603);
@@ -85,90 +281,41 @@ public class RpcController {
         return response;
     }
     
+    private Map<String, Object> errorResponse(Object id, int code, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("jsonrpc", "2.0");
+        response.put("id", id);
+        Map<String, Object> error = new HashMap<>();
+        error.put("code", code);
+        error.put("message", message);
+        response.put("error", error);
+        return response;
+    }
+    
+    private boolean isWrite(Object request) {
+        if (!(request instanceof Map)) {
+            return false;
+        }
+        Object method = ((Map<?, ?>) request).get("method");
+        return method instanceof String && WRITE_METHODS.contains(method);
+    }
+    
+    private boolean isNotification(Object request) {
+        return request instanceof Map && !((Map<?, ?>) request).containsKey("id");
+    }
+    
     /**
-     * 根据方法名调用服务方法
+     * 请求头中对整个HTTP请求生效的调用选项
      */
-    private Object callServiceMethod(String methodName, Object params) throws Exception {
-        // 心跳检查方法
-        if ("heartbeat".equals(methodName)) {
-            return jsonRpcService.heartbeat();
-        }
-        
-        // API Schema方法
-        if ("getApiSchema".equals(methodName)) {
-            ApiFormatType formatType = ApiFormatType.RPC_JSON;
-            if (params instanceof Map) {
-                Map<String, Object> paramsMap = (Map<String, Object>) params;
-                String format = (String) paramsMap.get("format");
-                if ("function_calling".equalsIgnoreCase(format)) {
-                    formatType = ApiFormatType.FUNCTION_CALLING;
-                }
-            }
-            
-            return exposureApiService.getApiDescription(formatType);
-        }
-        
-        // 数据库元数据方法
-        if ("getDatabaseMetadata".equals(methodName)) {
-            return jsonRpcService.getDatabaseMetadata();
-        }
+    private static final class CallOptions {
+        private final String resultFormat;
+        private final Long requestTimeout;
+        private final String conversationId;
         
-        // 列出表名方法
-        if ("listTables".equals(methodName)) {
-            return jsonRpcService.listTables();
-        }
-        
-        // 查询元数据方法
-        if ("getQueryMetadata".equals(methodName) && params instanceof Map) {
-            Map<String, Object> paramsMap = (Map<String, Object>) params;
-            String sql = (String) paramsMap.get("sql");
-            if (sql != null) {
-                return jsonRpcService.getQueryMetadata(sql);
-            }
+        private CallOptions(String resultFormat, Long requestTimeout, String conversationId) {
+            this.resultFormat = resultFormat;
+            this.requestTimeout = requestTimeout;
+            this.conversationId = conversationId;
         }
-        
-        // 表结构方法
-        if ("getTableSchema".equals(methodName) && params instanceof Map) {
-            Map<String, Object> paramsMap = (Map<String, Object>) params;
-            String tableName = (String) paramsMap.get("tableName");
-            if (tableName != null) {
-                return jsonRpcService.getTableSchema(tableName);
-            }
-        }
-        
-        // 查询方法
-        if ("query".equals(methodName) && params instanceof Map) {
-            Map<String, Object> paramsMap = (Map<String, Object>) params;
-            String sql = (String) paramsMap.get("sql");
-            @SuppressWarnings("unchecked")
-            Map<String, Object> queryParams = (Map<String, Object>) paramsMap.get("params");
-            if (sql != null) {
-                return jsonRpcService.query(sql, queryParams);
-            }
-        }
-        
-        // 更新方法
-        if ("update".equals(methodName) && params instanceof Map) {
-            Map<String, Object> paramsMap = (Map<String, Object>) params;
-            String sql = (String) paramsMap.get("sql");
-            @SuppressWarnings("unchecked")
-            Map<String, Object> updateParams = (Map<String, Object>) paramsMap.get("params");
-            if (sql != null) {
-                return jsonRpcService.update(sql, updateParams);
-            }
-        }
-        
-        // 批量执行方法
-        if ("batch".equals(methodName) && params instanceof Map) {
-            Map<String, Object> paramsMap = (Map<String, Object>) params;
-            @SuppressWarnings("unchecked")
-            Object statements = paramsMap.get("statements");
-            if (statements instanceof java.util.List) {
-                return jsonRpcService.batch((java.util.List<Map<String, Object>>) statements);
-            }
-        }
-        
-        // 如果没有找到匹配的方法
-        throw new Exception("未知方法: " + methodName);
     }
-} 
\ No newline at end of file
+}
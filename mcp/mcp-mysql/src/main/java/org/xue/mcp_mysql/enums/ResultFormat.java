@@ -0,0 +1,53 @@
+package org.xue.mcp_mysql.enums;
+
+/**
+ * 查询结果格式枚举
+ * 由每次请求协商，默认按行输出对象
+ */
+public enum ResultFormat {
+    /**
+     * 每行为一个以列名为键的对象
+     */
+    ROWS("rows"),
+    
+    /**
+     * 列头（列名和类型）加按位置排列的行数组，列名只出现一次
+     */
+    COLUMNAR("columnar"),
+    
+    /**
+     * 在列式格式基础上，对重复较多的字符串列做字典编码，行中存放字典下标
+     */
+    COLUMNAR_DICT("columnar_dict");
+    
+    private final String value;
+    
+    ResultFormat(String value) {
+        this.value = value;
+    }
+    
+    public String getValue() {
+        return value;
+    }
+    
+    /**
+     * 是否为列式格式
+     */
+    public boolean isColumnar() {
+        return this != ROWS;
+    }
+    
+    /**
+     * 按名称解析，为空或无法识别时使用默认的行格式
+     */
+    public static ResultFormat from(String value) {
+        if (value != null) {
+            for (ResultFormat format : values()) {
+                if (format.value.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+        }
+        return ROWS;
+    }
+}
@@ -0,0 +1,133 @@
+package org.xue.mcp_mysql.execution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 单次调用的查询上下文
+ * 记录调用方的截止时间和正在执行的语句，截止时间到达或客户端断开时取消所有语句；
+ * 通过线程变量在请求线程和查询线程之间传递
+ */
+public final class QueryContext {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryContext.class);
+
+    private static final ThreadLocal<QueryContext> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 截止时间（毫秒时间戳）
+     */
+    private final long deadline;
+
+    /**
+     * 调用方的会话ID，用于写后读一致的路由，可为null
+     */
+    private final String conversationId;
+
+    private final Set<Statement> running = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean cancelled;
+
+    /**
+     * @param timeoutMillis 从现在起的超时时间（毫秒）
+     * @param conversationId 调用方的会话ID，可为null
+     */
+    public QueryContext(long timeoutMillis, String conversationId) {
+        this.deadline = System.currentTimeMillis() + Math.max(1, timeoutMillis);
+        this.conversationId = conversationId;
+    }
+
+    /**
+     * 获取当前线程的查询上下文
+     *
+     * @return 查询上下文，不在调用范围内时返回null
+     */
+    public static QueryContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在此上下文中执行任务
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        QueryContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.call();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * 距截止时间的剩余毫秒数
+     */
+    public long remainingMillis() {
+        return deadline - System.currentTimeMillis();
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 语句执行前登记：按剩余时间设置语句超时，取消时可以找到该语句
+     *
+     * @throws SQLTimeoutException 已取消或已超过截止时间
+     */
+    public void track(Statement statement) throws SQLException {
+        long remaining = remainingMillis();
+        if (cancelled || remaining <= 0) {
+            throw new SQLTimeoutException("查询已取消或超过截止时间");
+        }
+        // 语句超时只能按秒设置，向上取整；精确的截止时间由等待方负责
+        statement.setQueryTimeout((int) Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000));
+        running.add(statement);
+        // 登记前后恰好被取消时也要取消该语句
+        if (cancelled) {
+            cancelQuietly(statement);
+        }
+    }
+
+    /**
+     * 语句执行完毕后注销
+     */
+    public void untrack(Statement statement) {
+        if (statement != null) {
+            running.remove(statement);
+        }
+    }
+
+    /**
+     * 取消所有正在执行的语句，MySQL驱动通过另一个连接发送KILL QUERY中止服务端执行
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Statement statement : running) {
+            cancelQuietly(statement);
+        }
+    }
+
+    private static void cancelQuietly(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            logger.debug("取消语句失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.xue.mcp_mysql.execution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 有截止时间的查询执行器
+ * 查询在有界线程池上执行，调用线程按当前查询上下文的截止时间等待；
+ * 超时或调用线程被中断（客户端断开）时取消正在执行的语句并释放连接
+ */
+@Component
+public class QueryExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryExecutor.class);
+
+    private final ThreadPoolTaskExecutor queryExecutor;
+
+    /**
+     * 调用方未指定截止时间时的默认超时（毫秒）
+     */
+    @Value("${mcp.query.timeout.default:30000}")
+    private long defaultTimeout;
+
+    /**
+     * 调用方可指定的最大超时（毫秒）
+     */
+    @Value("${mcp.query.timeout.max:120000}")
+    private long maxTimeout;
+
+    @Autowired
+    public QueryExecutor(@Qualifier("queryExecutor") ThreadPoolTaskExecutor queryExecutor) {
+        this.queryExecutor = queryExecutor;
+    }
+
+    /**
+     * 按调用方要求的超时创建查询上下文
+     *
+     * @param requestedTimeout 调用方要求的超时（毫秒），为null或非正数时使用默认值，超过上限时按上限处理
+     * @param conversationId 调用方的会话ID，可为null
+     */
+    public QueryContext newContext(Long requestedTimeout, String conversationId) {
+        long timeout = requestedTimeout != null && requestedTimeout > 0 ? requestedTimeout : defaultTimeout;
+        return new QueryContext(Math.min(timeout, maxTimeout), conversationId);
+    }
+
+    public long getMaxTimeout() {
+        return maxTimeout;
+    }
+
+    /**
+     * 执行查询任务
+     *
+     * @param task 查询任务，其中执行的语句需通过 {@link QueryContext#track} 登记
+     * @return 任务结果
+     * @throws QueryTimeoutException 超过截止时间或调用方已断开
+     * @throws TransientDataAccessResourceException 执行队列已满
+     */
+    public <T> T execute(Callable<T> task) {
+        QueryContext current = QueryContext.current();
+        QueryContext context = current != null ? current : newContext(null, null);
+
+        Future<T> future;
+        try {
+            future = queryExecutor.submit(() -> context.call(task));
+        } catch (TaskRejectedException e) {
+            logger.warn("查询执行队列已满，拒绝查询");
+            throw new TransientDataAccessResourceException("查询繁忙，请稍后重试", e);
+        }
+
+        try {
+            return future.get(Math.max(0, context.remainingMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abort(context, future);
+            throw new QueryTimeoutException("查询超过截止时间，已取消");
+        } catch (InterruptedException e) {
+            abort(context, future);
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException("调用方已断开，查询已取消");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private void abort(QueryContext context, Future<?> future) {
+        logger.info("取消查询，剩余时间: {}ms", context.remainingMillis());
+        context.cancel();
+        future.cancel(true);
+    }
+}
@@ -0,0 +1,84 @@
+package org.xue.mcp_mysql.guard;
+
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 查询成本守卫的判定结果
+ * QUEUE方式放行时持有一个执行许可，调用方执行完毕后必须close释放
+ */
+public final class GuardDecision implements AutoCloseable {
+
+    private static final GuardDecision ALLOW = new GuardDecision(false, null, null, null);
+
+    private final boolean rejected;
+
+    /**
+     * 实际执行的SQL，追加LIMIT时为改写后的语句
+     */
+    private final String sql;
+
+    /**
+     * 判定详情，正常放行时为null
+     */
+    private final Map<String, Object> details;
+
+    private final Semaphore permit;
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private GuardDecision(boolean rejected, String sql, Map<String, Object> details, Semaphore permit) {
+        this.rejected = rejected;
+        this.sql = sql;
+        this.details = details;
+        this.permit = permit;
+    }
+
+    static GuardDecision allow() {
+        return ALLOW;
+    }
+
+    static GuardDecision reject(Map<String, Object> details) {
+        return new GuardDecision(true, null, details, null);
+    }
+
+    static GuardDecision rewrite(String sql, Map<String, Object> details) {
+        return new GuardDecision(false, sql, details, null);
+    }
+
+    static GuardDecision queued(Map<String, Object> details, Semaphore permit) {
+        return new GuardDecision(false, null, details, permit);
+    }
+
+    public boolean isRejected() {
+        return rejected;
+    }
+
+    /**
+     * 获取实际执行的SQL
+     *
+     * @param original 原始SQL
+     */
+    public String sqlOr(String original) {
+        return sql != null ? sql : original;
+    }
+
+    public Map<String, Object> getDetails() {
+        return details;
+    }
+
+    /**
+     * 拒绝原因，未拒绝时为null
+     */
+    public String getReason() {
+        return details != null ? (String) details.get("reason") : null;
+    }
+
+    @Override
+    public void close() {
+        if (permit != null && released.compareAndSet(false, true)) {
+            permit.release();
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package org.xue.mcp_mysql.guard;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.stereotype.Component;
+import org.xue.mcp_mysql.cache.SqlTableExtractor;
+import org.xue.mcp_mysql.config.QueryGuardProperties;
+import org.xue.mcp_mysql.execution.QueryContext;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询成本守卫
+ * 执行只读查询前通过EXPLAIN FORMAT=JSON估算扫描行数和成本，超出阈值时按配置拒绝、追加LIMIT或排队执行，
+ * 并返回结构化原因供大模型调整查询。执行计划按规范化SQL缓存。
+ * 只有计划能在取够行数后提前结束时才追加LIMIT；分组、文件排序、去重、聚合等需要先处理全部行，追加LIMIT不降低成本，直接拒绝
+ */
+@Component
+public class QueryCostGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryCostGuard.class);
+
+    private static final String SUGGESTION =
+            "请为WHERE条件添加可用索引的过滤、避免无连接条件的多表关联（笛卡尔积）、减少查询的列和行，或添加LIMIT";
+
+    /**
+     * 需要先读取全部输入行才能产生结果的计划节点，最外层LIMIT对它们之前的扫描不起作用
+     */
+    private static final Set<String> FULL_INPUT_OPERATIONS = Set.of(
+            "grouping_operation", "duplicates_removal", "windowing", "union_result", "materialized_from_subquery");
+
+    private final QueryGuardProperties properties;
+    private final JdbcOperations jdbcOperations;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 高成本查询的执行许可，QUEUE方式使用
+     */
+    private final Semaphore expensivePermits;
+
+    private final Map<String, PlanEstimate> plans;
+
+    public QueryCostGuard(QueryGuardProperties properties, @Qualifier("readDataSource") DataSource readDataSource,
+                          ObjectMapper objectMapper) {
+        this.properties = properties;
+        // 在查询实际执行的副本上评估执行计划
+        this.jdbcOperations = new JdbcTemplate(readDataSource);
+        this.objectMapper = objectMapper;
+        this.expensivePermits = new Semaphore(Math.max(1, properties.getQueueConcurrency()), true);
+
+        int limit = Math.max(1, properties.getPlanCacheSize());
+        this.plans = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PlanEstimate> eldest) {
+                return size() > limit;
+            }
+        });
+    }
+
+    /**
+     * 评估查询并给出判定，非只读查询和无法获取执行计划的查询直接放行（由执行阶段报告错误）
+     *
+     * @param sql 查询语句
+     * @param params 命名参数
+     * @return 判定结果，调用方执行完毕后需close
+     */
+    public GuardDecision check(String sql, Map<String, Object> params) {
+        if (!properties.isEnabled() || !SqlTableExtractor.isSelect(sql)) {
+            return GuardDecision.allow();
+        }
+
+        PlanEstimate plan = estimate(sql, params);
+        if (plan == null) {
+            return GuardDecision.allow();
+        }
+
+        String reason = exceeded(plan);
+        if (reason == null) {
+            return GuardDecision.allow();
+        }
+
+        Map<String, Object> details = details(plan, reason);
+        switch (properties.getAction()) {
+            case LIMIT:
+                if (!plan.fullInputOperations.isEmpty() || SqlTableExtractor.hasAggregate(sql)) {
+                    // LIMIT只截断最终结果，分组、排序、去重、聚合仍会扫描全部行
+                    details.put("reason", reason + "，且查询包含分组、排序、去重或聚合，追加LIMIT不能减少扫描行数");
+                    details.put("fullInputOperations", plan.fullInputOperations);
+                    return reject(details, sql);
+                }
+                if (!SqlTableExtractor.hasLimit(sql)) {
+                    String limited = appendLimit(sql, properties.getLimit());
+                    details.put("action", "limited");
+                    details.put("limit", properties.getLimit());
+                    logger.info("查询成本超限，追加LIMIT {}: {} - {}", properties.getLimit(), reason, sql);
+                    return GuardDecision.rewrite(limited, details);
+                }
+                // 已有LIMIT仍超限，说明成本来自扫描而非结果集，只能拒绝
+                return reject(details, sql);
+            case QUEUE:
+                try {
+                    if (expensivePermits.tryAcquire(queueWait(), TimeUnit.MILLISECONDS)) {
+                        details.put("action", "queued");
+                        logger.info("查询成本超限，排队执行: {} - {}", reason, sql);
+                        return GuardDecision.queued(details, expensivePermits);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                details.put("reason", reason + "，且等待高成本查询执行队列超时");
+                return reject(details, sql);
+            case REJECT:
+            default:
+                return reject(details, sql);
+        }
+    }
+
+    /**
+     * 排队等待时间，不超过调用方查询上下文的剩余时间
+     */
+    private long queueWait() {
+        long wait = properties.getQueueTimeout();
+        QueryContext context = QueryContext.current();
+        if (context != null) {
+            wait = Math.min(wait, context.remainingMillis());
+        }
+        return Math.max(0, wait);
+    }
+
+    /**
+     * 去掉末尾分号后另起一行追加LIMIT，避免被末尾的单行注释吞掉
+     */
+    static String appendLimit(String sql, int limit) {
+        String trimmed = sql.strip();
+        while (trimmed.endsWith(";")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1).strip();
+        }
+        return trimmed + "\nLIMIT " + limit;
+    }
+
+    private GuardDecision reject(Map<String, Object> details, String sql) {
+        details.put("action", "rejected");
+        logger.warn("查询成本超限，拒绝执行: {} - {}", details.get("reason"), sql);
+        return GuardDecision.reject(details);
+    }
+
+    /**
+     * 超出阈值时返回原因，否则返回null
+     */
+    private String exceeded(PlanEstimate plan) {
+        if (plan.examinedRows > properties.getMaxRows()) {
+            return String.format("预估扫描行数 %d 超过上限 %d", plan.examinedRows, properties.getMaxRows());
+        }
+        if (plan.cost > properties.getMaxCost()) {
+            return String.format("预估查询成本 %.1f 超过上限 %.1f", plan.cost, properties.getMaxCost());
+        }
+        return null;
+    }
+
+    private Map<String, Object> details(PlanEstimate plan, String reason) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("reason", reason);
+        details.put("estimatedRows", plan.examinedRows);
+        details.put("estimatedCost", plan.cost);
+        details.put("maxRows", properties.getMaxRows());
+        details.put("maxCost", properties.getMaxCost());
+        details.put("fullScanTables", plan.fullScanTables);
+        details.put("suggestion", SUGGESTION);
+        return details;
+    }
+
+    /**
+     * 获取执行计划估算，优先使用缓存
+     *
+     * @return 估算结果，EXPLAIN失败时返回null
+     */
+    private PlanEstimate estimate(String sql, Map<String, Object> params) {
+        String key = SqlTableExtractor.normalize(sql);
+        PlanEstimate cached = plans.get(key);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            return cached;
+        }
+
+        try {
+            String json = explain(sql, params);
+            if (json == null) {
+                return null;
+            }
+            PlanEstimate plan = parse(objectMapper.readTree(json), System.currentTimeMillis() + properties.getPlanTtl());
+            plans.put(key, plan);
+            logger.debug("执行计划估算: 行数 {}，成本 {}，全表扫描 {} - {}",
+                    plan.examinedRows, plan.cost, plan.fullScanTables, sql);
+            return plan;
+        } catch (DataAccessException | JsonProcessingException e) {
+            logger.debug("获取执行计划失败，跳过成本检查: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 执行EXPLAIN FORMAT=JSON
+     * 与查询本身一样登记到调用方的查询上下文，按截止时间设置语句超时，超时或断开时可被取消
+     */
+    private String explain(String sql, Map<String, Object> params) {
+        MapSqlParameterSource paramSource = new MapSqlParameterSource(params);
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement("EXPLAIN FORMAT=JSON " + sql);
+        String jdbcSql = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
+        Object[] args = NamedParameterUtils.buildValueArray(parsedSql, paramSource, null);
+        List<SqlParameter> declaredParams = NamedParameterUtils.buildSqlParameterList(parsedSql, paramSource);
+        PreparedStatementCreator statementCreator =
+                new PreparedStatementCreatorFactory(jdbcSql, declaredParams).newPreparedStatementCreator(args);
+
+        QueryContext context = QueryContext.current();
+        PreparedStatement[] created = new PreparedStatement[1];
+        PreparedStatementCreator trackedCreator = con -> {
+            PreparedStatement ps = statementCreator.createPreparedStatement(con);
+            created[0] = ps;
+            if (context != null) {
+                context.track(ps);
+            }
+            return ps;
+        };
+        try {
+            return jdbcOperations.query(trackedCreator, rs -> rs.next() ? rs.getString(1) : null);
+        } finally {
+            if (context != null) {
+                context.untrack(created[0]);
+            }
+        }
+    }
+
+    /**
+     * 解析EXPLAIN FORMAT=JSON的输出
+     * 扫描行数按嵌套循环累计：每张表的单次扫描行数乘以前序表产生的行数，无连接条件的关联会因此迅速放大
+     */
+    static PlanEstimate parse(JsonNode root, long expiresAt) {
+        JsonNode queryBlock = root.path("query_block");
+        double cost = queryBlock.path("cost_info").path("query_cost").asDouble(0);
+        Set<String> fullScans = new LinkedHashSet<>();
+        long rows = examinedRows(queryBlock, fullScans);
+        Set<String> fullInput = new LinkedHashSet<>();
+        collectFullInputOperations(queryBlock, fullInput);
+        return new PlanEstimate(rows, cost, new ArrayList<>(fullScans), new ArrayList<>(fullInput), expiresAt);
+    }
+
+    /**
+     * 收集需要读取全部输入的计划节点；排序只有在使用文件排序（没有可用索引）时才需要先读完全部行
+     */
+    private static void collectFullInputOperations(JsonNode node, Set<String> found) {
+        if (node.isArray()) {
+            for (JsonNode child : node) {
+                collectFullInputOperations(child, found);
+            }
+            return;
+        }
+        if (!node.isObject()) {
+            return;
+        }
+        var fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String key = field.getKey();
+            if (FULL_INPUT_OPERATIONS.contains(key)
+                    || (key.equals("ordering_operation") && field.getValue().path("using_filesort").asBoolean(false))) {
+                found.add(key);
+            }
+            if (field.getValue().isContainerNode()) {
+                collectFullInputOperations(field.getValue(), found);
+            }
+        }
+    }
+
+    private static long examinedRows(JsonNode node, Set<String> fullScans) {
+        if (node.isArray()) {
+            long total = 0;
+            for (JsonNode child : node) {
+                total = saturatedAdd(total, examinedRows(child, fullScans));
+            }
+            return total;
+        }
+        if (!node.isObject()) {
+            return 0;
+        }
+
+        long total = 0;
+        JsonNode table = node.path("table");
+        if (table.isObject()) {
+            total = saturatedAdd(total, scan(table, 1, fullScans));
+        }
+
+        JsonNode nestedLoop = node.path("nested_loop");
+        if (nestedLoop.isArray()) {
+            double prefix = 1;
+            for (JsonNode item : nestedLoop) {
+                JsonNode joined = item.path("table");
+                if (joined.isObject()) {
+                    total = saturatedAdd(total, scan(joined, prefix, fullScans));
+                    // rows_produced_per_join是关联到该表为止的累计输出行数，即下一张表的扫描次数
+                    prefix = Math.max(1, joined.path("rows_produced_per_join").asDouble(prefix));
+                } else {
+                    total = saturatedAdd(total, examinedRows(item, fullScans));
+                }
+            }
+        }
+
+        // 子查询、派生表、UNION等其他分支
+        var fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!field.getKey().equals("table") && !field.getKey().equals("nested_loop")
+                    && field.getValue().isContainerNode()) {
+                total = saturatedAdd(total, examinedRows(field.getValue(), fullScans));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 单张表的扫描行数，包括其内部的物化子查询
+     */
+    private static long scan(JsonNode table, double loops, Set<String> fullScans) {
+        double perScan = table.path("rows_examined_per_scan").asDouble(0);
+        if ("ALL".equals(table.path("access_type").asText())) {
+            fullScans.add(table.path("table_name").asText());
+        }
+        long rows = (long) Math.min(Long.MAX_VALUE, perScan * loops);
+        var fields = table.fields();
+        while (fields.hasNext()) {
+            JsonNode value = fields.next().getValue();
+            if (value.isContainerNode()) {
+                rows = saturatedAdd(rows, examinedRows(value, fullScans));
+            }
+        }
+        return rows;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * 执行计划估算结果
+     */
+    static final class PlanEstimate {
+        private final long examinedRows;
+        private final double cost;
+        private final List<String> fullScanTables;
+
+        /**
+         * 需要读取全部输入的计划节点，为空时追加LIMIT可以让执行提前结束
+         */
+        private final List<String> fullInputOperations;
+
+        private final long expiresAt;
+
+        private PlanEstimate(long examinedRows, double cost, List<String> fullScanTables,
+                             List<String> fullInputOperations, long expiresAt) {
+            this.examinedRows = examinedRows;
+            this.cost = cost;
+            this.fullScanTables = fullScanTables;
+            this.fullInputOperations = fullInputOperations;
+            this.expiresAt = expiresAt;
+        }
+
+        long getExaminedRows() {
+            return examinedRows;
+        }
+
+        List<String> getFullScanTables() {
+            return fullScanTables;
+        }
+
+        List<String> getFullInputOperations() {
+            return fullInputOperations;
+        }
+    }
+}
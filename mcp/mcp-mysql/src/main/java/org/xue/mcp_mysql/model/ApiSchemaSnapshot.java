@@ -0,0 +1,30 @@
+package org.xue.mcp_mysql.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * API模式描述快照
+ * 启动时生成一次，保存描述对象、预先序列化的JSON和内容哈希
+ */
+@Getter
+@AllArgsConstructor
+public class ApiSchemaSnapshot {
+
+    /**
+     * API描述
+     */
+    private final Map<String, Object> description;
+
+    /**
+     * 预先序列化的JSON（UTF-8）
+     */
+    private final byte[] json;
+
+    /**
+     * 内容哈希，用作HTTP ETag（已带引号）
+     */
+    private final String etag;
+}
@@ -22,10 +22,25 @@ public class SqlQueryResult {
     private String status = "success";
     
     /**
-     * 结果行数据
+     * 结果格式，见ResultFormat
+     */
+    private String format = "rows";
+    
+    /**
+     * 结果行数据（行格式）
      */
     private List<Map<String, Object>> rows = new ArrayList<>();
     
+    /**
+     * 列信息（列式格式），包含name、type，字典编码的列另有dictionary
+     */
+    private List<Map<String, Object>> columns;
+    
+    /**
+     * 按列顺序排列的行数据（列式格式）
+     */
+    private List<List<Object>> values;
+    
     /**
      * 错误信息（如果有）
      */
@@ -35,4 +50,19 @@ public class SqlQueryResult {
      * 结果行数
      */
     private int count;
+    
+    /**
+     * 是否因达到行数或数据量上限而截断
+     */
+    private boolean truncated;
+    
+    /**
+     * 下一页的分页游标，未截断时为null
+     */
+    private String nextCursor;
+    
+    /**
+     * 查询成本守卫的判定详情（拒绝、追加LIMIT或排队时），正常执行时为null
+     */
+    private Map<String, Object> guard;
 } 
\ No newline at end of file
@@ -22,6 +22,16 @@ public class SqlUpdateResult {
      */
     private int affected;
     
+    /**
+     * 是否有语句的影响行数未知（驱动返回SUCCESS_NO_INFO），为true时affected只是已知行数的下限
+     */
+    private boolean affectedUnknown;
+    
+    /**
+     * 批处理中每条语句的影响行数，-2（SUCCESS_NO_INFO）表示执行成功但驱动未返回行数
+     */
+    private int[] counts;
+    
     /**
      * 错误信息（如果有）
      */
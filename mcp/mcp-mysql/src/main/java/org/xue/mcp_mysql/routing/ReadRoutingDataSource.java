@@ -0,0 +1,23 @@
+package org.xue.mcp_mysql.routing;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * 只读数据源
+ * 每次获取连接时由 {@link ReplicaRouter} 决定使用哪个副本，没有可用副本时回退到主库
+ */
+public class ReadRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaRouter router;
+
+    public ReadRoutingDataSource(ReplicaRouter router) {
+        this.router = router;
+        setTargetDataSources(router.getTargetDataSources());
+        setDefaultTargetDataSource(router.getPrimary());
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return router.route();
+    }
+}
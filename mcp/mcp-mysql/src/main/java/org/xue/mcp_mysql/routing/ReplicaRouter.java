@@ -0,0 +1,338 @@
+package org.xue.mcp_mysql.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.xue.mcp_mysql.config.ReplicaProperties;
+import org.xue.mcp_mysql.execution.QueryContext;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 只读副本路由
+ * 按策略在复制延迟未超限的副本中选择一个；会话最近有写入时读主库，保证写后读一致。
+ * 另外按表记录最近写入时间，窗口内读这些表的查询走主库，避免副本上的旧数据在缓存失效后被重新缓存
+ */
+public class ReplicaRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    public static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final ReplicaProperties properties;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger roundRobin = new AtomicInteger();
+
+    /**
+     * 会话ID到最近一次写入时间
+     */
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    /**
+     * 小写表名到最近一次写入时间
+     */
+    private final Map<String, Long> tableWrites = new ConcurrentHashMap<>();
+
+    /**
+     * 最近一次无法识别写入表的写操作时间，视为写了所有表
+     */
+    private volatile long lastUnknownWrite;
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param primary 主库数据源
+     * @param properties 副本配置
+     * @param defaultUsername 主库用户名，副本未配置时使用
+     * @param defaultPassword 主库密码，副本未配置时使用
+     * @param driverClassName JDBC驱动类名
+     */
+    public ReplicaRouter(DataSource primary, ReplicaProperties properties,
+                         String defaultUsername, String defaultPassword, String driverClassName) {
+        this.primary = primary;
+        this.properties = properties;
+
+        for (ReplicaProperties.Replica config : properties.getReplicas()) {
+            String name = "replica-" + replicas.size();
+            // 不在构造时建立连接，副本不可用不影响启动
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName(name);
+            dataSource.setJdbcUrl(config.getUrl());
+            dataSource.setUsername(config.getUsername() != null ? config.getUsername() : defaultUsername);
+            dataSource.setPassword(config.getPassword() != null ? config.getPassword() : defaultPassword);
+            if (driverClassName != null) {
+                dataSource.setDriverClassName(driverClassName);
+            }
+            dataSource.setMaximumPoolSize(config.getMaximumPoolSize());
+            // 副本故障时尽快失败，由延迟检查将其排除
+            dataSource.setConnectionTimeout(3000);
+            replicas.add(new Replica(name, dataSource));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (replicas.isEmpty()) {
+            logger.info("未配置只读副本，读操作使用主库");
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-lag-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 首次检查完成前副本视为不可用，读操作走主库
+        executor.scheduleWithFixedDelay(this::checkReplicas, 0, properties.getLagCheckInterval(), TimeUnit.MILLISECONDS);
+        logger.info("只读副本路由已启用，副本数: {}，策略: {}，最大延迟: {}s",
+                replicas.size(), properties.getStrategy(), properties.getMaxLagSeconds());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            replica.dataSource.close();
+        }
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    /**
+     * 路由键到数据源，供ReadRoutingDataSource使用
+     */
+    public Map<Object, Object> getTargetDataSources() {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (Replica replica : replicas) {
+            targets.put(replica.name, replica.dataSource);
+        }
+        return targets;
+    }
+
+    /**
+     * 为当前读操作选择数据源
+     *
+     * @return 路由键
+     */
+    public String route() {
+        if (replicas.isEmpty()) {
+            return PRIMARY;
+        }
+        QueryContext context = QueryContext.current();
+        if (context != null && isSticky(context.getConversationId())) {
+            return PRIMARY;
+        }
+
+        List<Replica> healthy = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                healthy.add(replica);
+            }
+        }
+        if (healthy.isEmpty()) {
+            return PRIMARY;
+        }
+
+        if (properties.getStrategy() == ReplicaProperties.Strategy.LEAST_CONNECTIONS) {
+            Replica least = healthy.get(0);
+            for (Replica replica : healthy) {
+                if (replica.activeConnections() < least.activeConnections()) {
+                    least = replica;
+                }
+            }
+            return least.name;
+        }
+        return healthy.get(Math.floorMod(roundRobin.getAndIncrement(), healthy.size())).name;
+    }
+
+    /**
+     * 记录写操作，之后一个时间窗口内同一会话的读操作、以及任何会话读这些表的查询走主库。
+     * 在事务中时提交后再记录一次，时间窗口从数据对副本可见的起点开始计算
+     *
+     * @param context 写操作所在的查询上下文，没有会话ID时不记录会话
+     * @param tables 写入的表（小写），为null时视为写了所有表
+     */
+    public void recordWrite(QueryContext context, Set<String> tables) {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        String conversationId = context != null ? context.getConversationId() : null;
+        stamp(conversationId, tables);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stamp(conversationId, tables);
+                }
+            });
+        }
+    }
+
+    /**
+     * 查询的表是否在时间窗口内有写入，是则应读主库
+     *
+     * @param tables 查询依赖的表（小写），为null时无法判断，返回false
+     */
+    public boolean isRecentlyWritten(Set<String> tables) {
+        if (replicas.isEmpty() || tables == null) {
+            return false;
+        }
+        long since = System.currentTimeMillis() - properties.getStickyWindow();
+        if (lastUnknownWrite >= since) {
+            return true;
+        }
+        for (String table : tables) {
+            Long lastWrite = tableWrites.get(table);
+            if (lastWrite != null && lastWrite >= since) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取各副本状态
+     */
+    public List<Map<String, Object>> getStatus() {
+        List<Map<String, Object>> status = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", replica.name);
+            item.put("healthy", replica.healthy);
+            item.put("lagSeconds", replica.lagSeconds);
+            item.put("activeConnections", replica.activeConnections());
+            if (replica.error != null) {
+                item.put("error", replica.error);
+            }
+            status.add(item);
+        }
+        return status;
+    }
+
+    private void stamp(String conversationId, Set<String> tables) {
+        long now = System.currentTimeMillis();
+        if (conversationId != null) {
+            lastWrites.put(conversationId, now);
+        }
+        if (tables == null) {
+            lastUnknownWrite = now;
+        } else {
+            for (String table : tables) {
+                tableWrites.put(table, now);
+            }
+        }
+    }
+
+    private boolean isSticky(String conversationId) {
+        if (conversationId == null) {
+            return false;
+        }
+        Long lastWrite = lastWrites.get(conversationId);
+        return lastWrite != null && System.currentTimeMillis() - lastWrite < properties.getStickyWindow();
+    }
+
+    /**
+     * 检查各副本复制延迟并更新可路由状态，同时清理过期的写入记录
+     */
+    void checkReplicas() {
+        for (Replica replica : replicas) {
+            try {
+                Long lag = replica.readLag();
+                replica.lagSeconds = lag;
+                replica.error = lag == null ? "复制未运行" : null;
+                boolean healthy = lag != null && lag <= properties.getMaxLagSeconds();
+                if (healthy != replica.healthy) {
+                    logger.info("只读副本 {} {}，复制延迟: {}s", replica.name, healthy ? "恢复可用" : "暂停路由", lag);
+                }
+                replica.healthy = healthy;
+            } catch (Exception e) {
+                if (replica.healthy) {
+                    logger.warn("只读副本 {} 不可用，暂停路由: {}", replica.name, e.getMessage());
+                }
+                replica.healthy = false;
+                replica.lagSeconds = null;
+                replica.error = e.getMessage();
+            }
+        }
+
+        // 清理已过时间窗口的写入记录
+        long expired = System.currentTimeMillis() - properties.getStickyWindow();
+        lastWrites.values().removeIf(time -> time < expired);
+        tableWrites.values().removeIf(time -> time < expired);
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final HikariDataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+
+        private volatile boolean healthy;
+        private volatile Long lagSeconds;
+        private volatile String error;
+
+        /**
+         * MySQL 8.0.22起使用SHOW REPLICA STATUS，旧版本回退到SHOW SLAVE STATUS
+         */
+        private volatile boolean legacyStatus;
+
+        private Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+        }
+
+        /**
+         * 读取复制延迟
+         *
+         * @return 延迟秒数；不是复制从库时为0，复制线程未运行时为null
+         */
+        private Long readLag() {
+            List<Map<String, Object>> rows;
+            if (!legacyStatus) {
+                try {
+                    rows = jdbcTemplate.queryForList("SHOW REPLICA STATUS");
+                } catch (DataAccessException e) {
+                    legacyStatus = true;
+                    rows = jdbcTemplate.queryForList("SHOW SLAVE STATUS");
+                }
+            } else {
+                rows = jdbcTemplate.queryForList("SHOW SLAVE STATUS");
+            }
+            if (rows.isEmpty()) {
+                return 0L;
+            }
+            Map<String, Object> status = rows.get(0);
+            Object lag = status.containsKey("Seconds_Behind_Source")
+                    ? status.get("Seconds_Behind_Source") : status.get("Seconds_Behind_Master");
+            return lag instanceof Number ? ((Number) lag).longValue() : null;
+        }
+
+        private int activeConnections() {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            return pool != null ? pool.getActiveConnections() : 0;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.xue.mcp_mysql.rpc;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.xue.mcp_mysql.annotation.FunctionCallable;
+import org.xue.mcp_mysql.annotation.FunctionParam;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * RPC方法分发项
+ * 启动时由注解元数据预先构建：方法句柄已绑定目标对象并展开为 (Object[])Object，
+ * 参数绑定器直接把JSON参数转换为方法的声明类型，调用时不再反射
+ */
+public final class RpcMethod {
+
+    private final String name;
+    private final String description;
+
+    /**
+     * 对应的接口方法，内置方法为null
+     */
+    private final Method method;
+
+    /**
+     * 绑定目标对象并展开参数后的方法句柄
+     */
+    private final MethodHandle handle;
+
+    private final ParamBinder[] binders;
+
+    private RpcMethod(String name, String description, Method method, MethodHandle handle, ParamBinder[] binders) {
+        this.name = name;
+        this.description = description;
+        this.method = method;
+        this.handle = handle;
+        this.binders = binders;
+    }
+
+    /**
+     * 由 {@link FunctionCallable} 标注的方法构建
+     *
+     * @param target 目标Bean
+     * @param method 标注的方法（通常声明在接口上）
+     * @param objectMapper 参数转换使用的ObjectMapper
+     */
+    static RpcMethod of(Object target, Method method, ObjectMapper objectMapper) throws IllegalAccessException {
+        method.trySetAccessible();
+        MethodHandle handle = MethodHandles.lookup().unreflect(method).bindTo(target);
+        int arity = method.getParameterCount();
+        handle = handle.asType(handle.type().generic()).asSpreader(Object[].class, arity);
+
+        Parameter[] parameters = method.getParameters();
+        ParamBinder[] binders = new ParamBinder[arity];
+        for (int i = 0; i < arity; i++) {
+            Parameter parameter = parameters[i];
+            FunctionParam annotation = parameter.getAnnotation(FunctionParam.class);
+            JavaType type = objectMapper.getTypeFactory().constructType(parameter.getParameterizedType());
+            boolean required = parameter.getType().isPrimitive() || (annotation != null && annotation.required());
+            String description = annotation != null ? annotation.description() : "";
+            binders[i] = new ParamBinder(parameter.getName(), description, i, type, required, objectMapper);
+        }
+
+        FunctionCallable callable = method.getAnnotation(FunctionCallable.class);
+        return new RpcMethod(method.getName(), callable.description(), method, handle, binders);
+    }
+
+    /**
+     * 构建不对大模型暴露的内置方法，处理函数直接接收原始params
+     */
+    static RpcMethod builtin(String name, Function<Object, Object> function) {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup()
+                    .findVirtual(Function.class, "apply", MethodType.methodType(Object.class, Object.class))
+                    .bindTo(function)
+                    .asSpreader(Object[].class, 1);
+            return new RpcMethod(name, "", null, handle, new ParamBinder[]{ParamBinder.RAW});
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("构建内置RPC方法失败: " + name, e);
+        }
+    }
+
+    /**
+     * 绑定参数并调用
+     *
+     * @param params JSON-RPC的params，可以是命名参数对象或位置参数数组
+     * @return 方法返回值
+     * @throws IllegalArgumentException 参数缺失或类型不匹配
+     */
+    public Object invoke(Object params) throws Throwable {
+        Object[] args = new Object[binders.length];
+        for (int i = 0; i < binders.length; i++) {
+            args[i] = binders[i].bind(params);
+        }
+        return (Object) handle.invokeExact(args);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 是否为注解声明的方法（会出现在API模式描述中）
+     */
+    public boolean isAnnotated() {
+        return method != null;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * 按声明顺序返回参数，API模式描述与调用时的参数绑定使用同一份元数据；内置方法返回空列表
+     */
+    public List<ParamBinder> getParams() {
+        return isAnnotated() ? List.of(binders) : List.of();
+    }
+
+    /**
+     * 参数绑定器
+     */
+    public static final class ParamBinder {
+
+        /**
+         * 原样传递整个params的绑定器，供内置方法使用
+         */
+        private static final ParamBinder RAW = new ParamBinder(null, "", -1, null, false, null);
+
+        private final String name;
+        private final String description;
+        private final int index;
+        private final JavaType type;
+        private final boolean required;
+        private final ObjectMapper objectMapper;
+
+        private ParamBinder(String name, String description, int index, JavaType type, boolean required,
+                            ObjectMapper objectMapper) {
+            this.name = name;
+            this.description = description;
+            this.index = index;
+            this.type = type;
+            this.required = required;
+            this.objectMapper = objectMapper;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * 参数的声明类型（擦除泛型后）
+         */
+        public Class<?> getType() {
+            return type.getRawClass();
+        }
+
+        /**
+         * 是否必需：基本类型参数或 {@link FunctionParam#required()} 为true
+         */
+        public boolean isRequired() {
+            return required;
+        }
+
+        Object bind(Object params) {
+            if (this == RAW) {
+                return params;
+            }
+
+            Object value = null;
+            if (params instanceof Map) {
+                value = ((Map<?, ?>) params).get(name);
+            } else if (params instanceof List) {
+                List<?> positional = (List<?>) params;
+                value = index < positional.size() ? positional.get(index) : null;
+            }
+
+            if (value == null) {
+                if (required) {
+                    throw new IllegalArgumentException("缺少必需参数: " + name);
+                }
+                return null;
+            }
+
+            // JSON解析出的值已是目标类型时直接使用（String、Map、List等），否则按声明类型转换
+            if (!type.isPrimitive() && type.getRawClass().isInstance(value)) {
+                return value;
+            }
+            try {
+                return objectMapper.convertValue(value, type);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("参数类型不匹配: " + name + " - " + e.getMessage(), e);
+            }
+        }
+    }
+}
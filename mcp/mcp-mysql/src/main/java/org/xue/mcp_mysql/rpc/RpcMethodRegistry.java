@@ -0,0 +1,112 @@
+package org.xue.mcp_mysql.rpc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.xue.mcp_mysql.annotation.FunctionCallable;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * RPC方法注册表
+ * 启动时扫描所有Bean（包括其实现的接口）上的 {@link FunctionCallable} 方法，自动注册为RPC方法；
+ * 每次调用只需一次哈希查找
+ */
+@Component
+public class RpcMethodRegistry implements BeanPostProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RpcMethodRegistry.class);
+
+    /**
+     * 参数转换专用，不依赖容器中的ObjectMapper，避免后置处理器提前初始化其他Bean
+     */
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, RpcMethod> methods = new ConcurrentHashMap<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        Class<?> targetClass = AopUtils.getTargetClass(bean);
+        if (targetClass.getName().startsWith("org.springframework.")) {
+            return bean;
+        }
+
+        for (Method method : findCallableMethods(targetClass)) {
+            try {
+                register(RpcMethod.of(bean, method, objectMapper));
+            } catch (IllegalAccessException e) {
+                logger.error("注册RPC方法失败: {}.{} - {}", beanName, method.getName(), e.getMessage());
+            }
+        }
+        return bean;
+    }
+
+    /**
+     * 注册不对大模型暴露的内置方法（如getApiSchema），处理函数直接接收原始params
+     */
+    public void registerBuiltin(String name, Function<Object, Object> function) {
+        register(RpcMethod.builtin(name, function));
+    }
+
+    /**
+     * 按方法名查找
+     *
+     * @return RPC方法，不存在时返回null
+     */
+    public RpcMethod get(String name) {
+        return methods.get(name);
+    }
+
+    /**
+     * 获取注解声明的方法，按方法名排序，用于生成API模式描述
+     */
+    public List<RpcMethod> getAnnotatedMethods() {
+        List<RpcMethod> annotated = new ArrayList<>();
+        for (RpcMethod method : methods.values()) {
+            if (method.isAnnotated()) {
+                annotated.add(method);
+            }
+        }
+        annotated.sort(Comparator.comparing(RpcMethod::getName));
+        return annotated;
+    }
+
+    private void register(RpcMethod method) {
+        RpcMethod existing = methods.putIfAbsent(method.getName(), method);
+        if (existing != null) {
+            logger.warn("RPC方法名重复，忽略后注册的方法: {}", method.getName());
+        } else {
+            logger.info("注册RPC方法: {}", method.getName());
+        }
+    }
+
+    /**
+     * 查找类及其所有接口上标注了FunctionCallable的公共方法
+     */
+    private static Set<Method> findCallableMethods(Class<?> targetClass) {
+        Set<Method> found = new LinkedHashSet<>();
+        Set<Class<?>> types = new LinkedHashSet<>(ClassUtils.getAllInterfacesForClassAsSet(targetClass));
+        types.add(targetClass);
+        for (Class<?> type : types) {
+            for (Method method : type.getMethods()) {
+                if (method.isAnnotationPresent(FunctionCallable.class)) {
+                    found.add(method);
+                }
+            }
+        }
+        return found;
+    }
+}
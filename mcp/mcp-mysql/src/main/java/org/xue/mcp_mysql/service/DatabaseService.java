@@ -1,8 +1,11 @@
 package org.xue.mcp_mysql.service;
 
+import org.xue.mcp_mysql.enums.ResultFormat;
 import org.xue.mcp_mysql.model.SqlQueryResult;
 import org.xue.mcp_mysql.model.SqlUpdateResult;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -20,6 +23,32 @@ public interface DatabaseService {
      */
     SqlQueryResult executeQuery(String sql, Map<String, Object> params);
     
+    /**
+     * 分页执行SQL查询
+     * 通过服务端游标逐批读取，达到行数或数据量上限时停止读取并返回下一页游标
+     * 
+     * @param sql SQL查询语句
+     * @param params 查询参数
+     * @param cursor 上一页返回的游标，首页为null
+     * @param format 结果格式
+     * @return 查询结果
+     */
+    SqlQueryResult executeQuery(String sql, Map<String, Object> params, String cursor, ResultFormat format);
+    
+    /**
+     * 流式执行SQL查询，边读取边写入输出流，内存占用与结果集大小无关
+     * 输出为JSON对象：format、columns（列式格式）、rows、count、truncated、nextCursor、status、error
+     * 
+     * @param sql SQL查询语句
+     * @param params 查询参数
+     * @param cursor 上一页返回的游标，首页为null
+     * @param format 结果格式，字典编码需要完整结果，流式输出时按普通列式格式处理
+     * @param out 输出流
+     * @throws IOException 写入输出流失败
+     */
+    void streamQuery(String sql, Map<String, Object> params, String cursor, ResultFormat format,
+                     OutputStream out) throws IOException;
+    
     /**
      * 执行SQL更新（INSERT/UPDATE/DELETE）
      * 
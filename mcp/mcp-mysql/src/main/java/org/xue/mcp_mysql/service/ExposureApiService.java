@@ -1,6 +1,7 @@
 package org.xue.mcp_mysql.service;
 
 import org.xue.mcp_mysql.enums.ApiFormatType;
+import org.xue.mcp_mysql.model.ApiSchemaSnapshot;
 
 import java.util.Map;
 
@@ -16,4 +17,17 @@ public interface ExposureApiService {
      * @return API描述JSON
      */
     Map<String, Object> getApiDescription(ApiFormatType formatType);
+    
+    /**
+     * 获取预先序列化的API描述快照
+     * @param formatType API格式类型
+     * @return API描述快照
+     */
+    ApiSchemaSnapshot getApiSchema(ApiFormatType formatType);
+    
+    /**
+     * 获取API模式版本，任一格式的描述内容变化时版本随之变化
+     * @return 模式版本
+     */
+    String getSchemaVersion();
 }
@@ -15,20 +15,20 @@ public interface MCPDatabaseRpcService {
     /**
      * 执行SQL查询
      */
-    @FunctionCallable(description = "执行SQL查询语句")
-    Map<String, Object> query(@FunctionParam(description = "SQL查询语句(其中的表名、表结构字段信息、数据库信息可以通过“获取所有表名”、“获取表结构”、“获取数据库元数据”方法获取，不要随意猜测)如：SELECT * FROM 表名 WHERE 字段 >or= :字段值") String sql, @FunctionParam(description = "命名参数映射，如：{\"minAge\": 18}")Map<String, Object> params);
+    @FunctionCallable(description = "执行SQL查询语句，单次返回的行数和数据量有上限，超出时truncated为true，可用nextCursor获取下一页。翻页按偏移量重新执行同一条查询，需要翻页的查询必须带能唯一确定行顺序的ORDER BY（如主键），否则各页之间可能重复或遗漏行；数据量大时应先用WHERE缩小范围，不要依赖多次翻页")
+    Map<String, Object> query(@FunctionParam(description = "SQL查询语句(其中的表名、表结构字段信息、数据库信息可以通过“获取所有表名”、“获取表结构”、“获取数据库元数据”方法获取，不要随意猜测)如：SELECT * FROM 表名 WHERE 字段 >or= :字段值", required = true) String sql, @FunctionParam(description = "命名参数映射，如：{\"minAge\": 18}")Map<String, Object> params, @FunctionParam(description = "分页游标，传入上一次查询结果中的nextCursor以获取下一页（sql和params须与上一次完全相同），首次查询不传") String cursor, @FunctionParam(description = "结果格式：rows（默认，每行为对象）、columnar（columns列头加按位置排列的rows数组）、columnar_dict（在columnar基础上，带dictionary的列中行值为字典下标）") String format);
     
     /**
      * 执行SQL更新（INSERT/UPDATE/DELETE）
      */
     @FunctionCallable(description = "执行SQL更新语句（INSERT/UPDATE/DELETE）")
-    Map<String, Object> update(@FunctionParam(description = "SQL更新语句(其中的表名、表结构字段信息、数据库信息可以通过“获取所有表名”、“获取表结构”、“获取数据库元数据”方法获取，不要随意猜测)，如：INSERT INTO 表名 (字段1, 字段2) VALUES (:值1, :值2)") String sql, @FunctionParam(description = "命名参数映射，如：{\"name\": \"张三\", \"age\": 25}") Map<String, Object> params);
+    Map<String, Object> update(@FunctionParam(description = "SQL更新语句(其中的表名、表结构字段信息、数据库信息可以通过“获取所有表名”、“获取表结构”、“获取数据库元数据”方法获取，不要随意猜测)，如：INSERT INTO 表名 (字段1, 字段2) VALUES (:值1, :值2)", required = true) String sql, @FunctionParam(description = "命名参数映射，如：{\"name\": \"张三\", \"age\": 25}") Map<String, Object> params);
     
     /**
      * 批量执行SQL语句（在事务中）
      */
     @FunctionCallable(description = "批量执行SQL语句（在事务中）")
-    Map<String, Object> batch(@FunctionParam(description = "SQL语句列表，每个语句包含sql和params(其中的表名、表结构字段信息、数据库信息可以通过“获取所有表名”、“获取表结构”、“获取数据库元数据”方法获取，不要随意猜测)") List<Map<String, Object>> statements);
+    Map<String, Object> batch(@FunctionParam(description = "SQL语句列表，每个语句包含sql和params(其中的表名、表结构字段信息、数据库信息可以通过“获取所有表名”、“获取表结构”、“获取数据库元数据”方法获取，不要随意猜测)", required = true) List<Map<String, Object>> statements);
     
     /**
      * 获取所有表名
@@ -40,7 +40,7 @@ public interface MCPDatabaseRpcService {
      * 获取表结构
      */
     @FunctionCallable(description = "获取表结构")
-    List<Map<String, Object>> getTableSchema(@FunctionParam(description = "表名，如：users") String tableName);
+    List<Map<String, Object>> getTableSchema(@FunctionParam(description = "表名，如：users", required = true) String tableName);
     
     /**
      * 获取数据库元数据
@@ -52,7 +52,7 @@ public interface MCPDatabaseRpcService {
      * 获取查询元数据
      */
     @FunctionCallable(description = "获取查询元数据（列信息）")
-    List<Map<String, Object>> getQueryMetadata(@FunctionParam(description = "SQL查询语句，如：SELECT id, name FROM userss") String sql);
+    List<Map<String, Object>> getQueryMetadata(@FunctionParam(description = "SQL查询语句，如：SELECT id, name FROM userss", required = true) String sql);
     
     /**
      * 心跳检查
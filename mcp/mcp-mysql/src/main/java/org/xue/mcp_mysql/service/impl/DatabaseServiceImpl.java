@@ -1,21 +1,44 @@
 package org.xue.mcp_mysql.service.impl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.SqlParameter;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.MetaDataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.xue.mcp_mysql.cache.MetadataCatalog;
+import org.xue.mcp_mysql.cache.QueryResultCache;
+import org.xue.mcp_mysql.cache.SqlTableExtractor;
+import org.xue.mcp_mysql.enums.ResultFormat;
+import org.xue.mcp_mysql.execution.QueryContext;
+import org.xue.mcp_mysql.execution.QueryExecutor;
+import org.xue.mcp_mysql.guard.GuardDecision;
+import org.xue.mcp_mysql.guard.QueryCostGuard;
 import org.xue.mcp_mysql.model.SqlQueryResult;
 import org.xue.mcp_mysql.model.SqlUpdateResult;
+import org.xue.mcp_mysql.routing.ReplicaRouter;
 import org.xue.mcp_mysql.service.DatabaseService;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.sql.*;
 import java.util.*;
 
@@ -28,37 +51,397 @@ public class DatabaseServiceImpl implements DatabaseService {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseServiceImpl.class);
     
     private final JdbcTemplate jdbcTemplate;
+    
+    /**
+     * 只读查询使用，路由到只读副本
+     */
+    private final JdbcTemplate readJdbcTemplate;
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
     private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final QueryResultCache queryResultCache;
+    private final MetadataCatalog metadataCatalog;
+    private final QueryCostGuard queryCostGuard;
+    private final QueryExecutor queryExecutor;
+    private final ReplicaRouter replicaRouter;
+    
+    /**
+     * 每次从数据库取回的行数
+     */
+    @Value("${mcp.query.fetch-size:500}")
+    private int fetchSize;
+    
+    /**
+     * 单页最多返回的行数
+     */
+    @Value("${mcp.query.max-rows:1000}")
+    private int maxRows;
+    
+    /**
+     * 单页结果的估算字节数上限
+     */
+    @Value("${mcp.query.max-bytes:1048576}")
+    private long maxBytes;
     
     @Autowired
-    public DatabaseServiceImpl(DataSource dataSource) {
+    public DatabaseServiceImpl(DataSource dataSource, @Qualifier("readDataSource") DataSource readDataSource,
+                               ObjectMapper objectMapper, QueryResultCache queryResultCache,
+                               MetadataCatalog metadataCatalog, QueryCostGuard queryCostGuard,
+                               QueryExecutor queryExecutor, ReplicaRouter replicaRouter) {
         this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.queryResultCache = queryResultCache;
+        this.metadataCatalog = metadataCatalog;
+        this.queryCostGuard = queryCostGuard;
+        this.queryExecutor = queryExecutor;
+        this.replicaRouter = replicaRouter;
         this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.readJdbcTemplate = new JdbcTemplate(readDataSource);
         this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
     }
 
     @Override
     public SqlQueryResult executeQuery(String sql, Map<String, Object> params) {
-        logger.debug("执行查询: {}, 参数: {}", sql, params);
+        return executeQuery(sql, params, null, ResultFormat.ROWS);
+    }
+
+    @Override
+    public SqlQueryResult executeQuery(String sql, Map<String, Object> params, String cursor, ResultFormat format) {
+        logger.debug("执行查询: {}, 参数: {}, 格式: {}", sql, params, format);
+        
+        // 只缓存能识别出依赖表的只读查询
+        Set<String> tables = queryResultCache.isEnabled() ? SqlTableExtractor.readTables(sql) : null;
+        String cacheKey = null;
+        QueryResultCache.Generations generations = null;
+        if (tables != null) {
+            cacheKey = queryResultCache.key(sql, params, cursor, format.getValue());
+            SqlQueryResult cached = queryResultCache.get(cacheKey);
+            if (cached != null) {
+                logger.debug("命中查询缓存: {}", sql);
+                return cached;
+            }
+            generations = queryResultCache.snapshot(tables);
+        }
+        
         SqlQueryResult result = new SqlQueryResult();
+        result.setFormat(format.getValue());
+        
+        GuardDecision decision = queryCostGuard.check(sql, params);
+        result.setGuard(decision.getDetails());
+        if (decision.isRejected()) {
+            result.setStatus("error");
+            result.setError(decision.getReason());
+            result.setRows(Collections.emptyList());
+            return result;
+        }
         
         try {
-            MapSqlParameterSource paramSource = new MapSqlParameterSource(params);
-            List<Map<String, Object>> rows = namedParameterJdbcTemplate.queryForList(sql, paramSource);
-            result.setRows(rows);
-            result.setCount(rows.size());
+            List<Map<String, Object>> rows = new ArrayList<>();
+            List<List<Object>> values = new ArrayList<>();
+            List<Map<String, Object>> columns = new ArrayList<>();
+            // 在查询线程池上执行，超过调用方截止时间时取消语句
+            QueryPage page = queryExecutor.execute(() -> readPage(decision.sqlOr(sql), params, cursor, format, new RowHandler() {
+                @Override
+                public void columns(List<Map<String, Object>> columnInfo) {
+                    columns.addAll(columnInfo);
+                }
+                
+                @Override
+                public void row(String[] names, Object[] rowValues) {
+                    if (format.isColumnar()) {
+                        values.add(Arrays.asList(rowValues));
+                    } else {
+                        rows.add(toRowMap(names, rowValues));
+                    }
+                }
+            }));
+            
+            if (format.isColumnar()) {
+                if (format == ResultFormat.COLUMNAR_DICT) {
+                    dictionaryEncode(columns, values);
+                }
+                result.setColumns(columns);
+                result.setValues(values);
+                result.setRows(Collections.emptyList());
+            } else {
+                result.setRows(rows);
+            }
+            result.setCount(page.count);
+            result.setTruncated(page.truncated);
+            result.setNextCursor(page.nextCursor);
             result.setStatus("success");
+            
+            if (cacheKey != null) {
+                queryResultCache.put(cacheKey, tables, generations, result, page.bytes);
+            }
         } catch (DataAccessException e) {
             logger.error("查询执行失败: {}", e.getMessage(), e);
             result.setStatus("error");
             result.setError(e.getMessage());
             result.setRows(Collections.emptyList());
+        } finally {
+            decision.close();
         }
         
         return result;
     }
 
+    @Override
+    public void streamQuery(String sql, Map<String, Object> params, String cursor, ResultFormat format,
+                            OutputStream out) throws IOException {
+        logger.debug("流式查询: {}, 参数: {}, 格式: {}", sql, params, format);
+        // 字典编码需要读完整页才能确定，流式输出时退化为普通列式格式
+        ResultFormat streamFormat = format == ResultFormat.COLUMNAR_DICT ? ResultFormat.COLUMNAR : format;
+        
+        // 生成器写满内部缓冲区即写出到响应流，已写出的行不在内存中保留
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("format", streamFormat.getValue());
+            
+            boolean[] rowsStarted = {false};
+            RowHandler handler = new RowHandler() {
+                @Override
+                public void columns(List<Map<String, Object>> columnInfo) throws IOException {
+                    if (streamFormat.isColumnar()) {
+                        generator.writeFieldName("columns");
+                        generator.writeObject(columnInfo);
+                    }
+                    generator.writeArrayFieldStart("rows");
+                    rowsStarted[0] = true;
+                }
+                
+                @Override
+                public void row(String[] names, Object[] rowValues) throws IOException {
+                    if (streamFormat.isColumnar()) {
+                        generator.writeStartArray();
+                        for (Object value : rowValues) {
+                            generator.writeObject(value);
+                        }
+                        generator.writeEndArray();
+                    } else {
+                        generator.writeObject(toRowMap(names, rowValues));
+                    }
+                }
+            };
+            
+            QueryPage page = null;
+            String error = null;
+            GuardDecision decision = queryCostGuard.check(sql, params);
+            try {
+                if (decision.isRejected()) {
+                    error = decision.getReason();
+                } else {
+                    page = readPage(decision.sqlOr(sql), params, cursor, streamFormat, handler);
+                }
+            } catch (UncheckedIOException e) {
+                // 客户端断开等写出失败，直接结束
+                throw e.getCause();
+            } catch (DataAccessException | IllegalArgumentException e) {
+                logger.error("流式查询执行失败: {}", e.getMessage(), e);
+                error = e.getMessage();
+            } finally {
+                decision.close();
+            }
+            
+            if (!rowsStarted[0]) {
+                generator.writeArrayFieldStart("rows");
+            }
+            generator.writeEndArray();
+            if (page != null) {
+                generator.writeNumberField("count", page.count);
+                generator.writeBooleanField("truncated", page.truncated);
+                generator.writeStringField("nextCursor", page.nextCursor);
+                generator.writeStringField("status", "success");
+            } else {
+                generator.writeStringField("status", "error");
+                generator.writeStringField("error", error);
+            }
+            if (decision.getDetails() != null) {
+                generator.writeFieldName("guard");
+                generator.writeObject(decision.getDetails());
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * 通过服务端游标读取一页结果，读取过程中按行数和估算字节数截断
+     * 分页按偏移量实现（见 {@link QueryCursor}）：重新执行同一条SQL并跳过之前页的行，
+     * 不改写SQL，行顺序的稳定性依赖调用方的ORDER BY
+     * 
+     * @param sql SQL查询语句
+     * @param params 查询参数
+     * @param cursor 分页游标
+     * @param format 结果格式，用于估算输出字节数
+     * @param handler 结果处理器，先回调一次列信息，之后每读取一行回调一次
+     * @return 分页信息
+     */
+    private QueryPage readPage(String sql, Map<String, Object> params, String cursor, ResultFormat format,
+                               RowHandler handler) {
+        long offset = QueryCursor.decode(cursor, sql, params);
+        
+        // 与NamedParameterJdbcTemplate相同的命名参数解析，额外控制fetchSize和maxRows
+        MapSqlParameterSource paramSource = new MapSqlParameterSource(params);
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+        String jdbcSql = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
+        Object[] args = NamedParameterUtils.buildValueArray(parsedSql, paramSource, null);
+        List<SqlParameter> declaredParams = NamedParameterUtils.buildSqlParameterList(parsedSql, paramSource);
+        PreparedStatementCreator statementCreator =
+                new PreparedStatementCreatorFactory(jdbcSql, declaredParams).newPreparedStatementCreator(args);
+        
+        // 登记到调用方的查询上下文，按截止时间设置语句超时，超时或断开时可被取消
+        QueryContext context = QueryContext.current();
+        PreparedStatement[] created = new PreparedStatement[1];
+        PreparedStatementCreator boundedCreator = con -> {
+            PreparedStatement ps = statementCreator.createPreparedStatement(con);
+            created[0] = ps;
+            if (context != null) {
+                context.track(ps);
+            }
+            // 需配合连接参数useCursorFetch=true，MySQL才会按fetchSize分批返回
+            ps.setFetchSize(fetchSize);
+            // 多读一行用于判断是否还有下一页
+            ps.setMaxRows((int) Math.min(Integer.MAX_VALUE, offset + maxRows + 1));
+            return ps;
+        };
+        
+        // 依赖的表刚有写入时副本可能尚未同步，读主库，避免旧数据在缓存失效后被重新缓存
+        JdbcTemplate template = replicaRouter.isRecentlyWritten(SqlTableExtractor.readTables(sql))
+                ? jdbcTemplate : readJdbcTemplate;
+        
+        QueryPage page;
+        try {
+            page = template.query(boundedCreator, rs -> {
+                ResultSetMetaData metaData = rs.getMetaData();
+                int columnCount = metaData.getColumnCount();
+                String[] columnNames = new String[columnCount];
+                List<Map<String, Object>> columnInfo = new ArrayList<>(columnCount);
+                // 行格式每行都重复列名，列式格式只有数组开销
+                long rowOverhead = 2;
+                for (int i = 0; i < columnCount; i++) {
+                    columnNames[i] = JdbcUtils.lookupColumnName(metaData, i + 1);
+                    rowOverhead += format.isColumnar() ? 1 : columnNames[i].length() + 4;
+                    Map<String, Object> column = new LinkedHashMap<>();
+                    column.put("name", columnNames[i]);
+                    column.put("type", metaData.getColumnTypeName(i + 1));
+                    columnInfo.add(column);
+                }
+                
+                try {
+                    handler.columns(columnInfo);
+                    
+                    // 跳过之前页的行，只移动游标不构造对象
+                    for (long skipped = 0; skipped < offset; skipped++) {
+                        if (!rs.next()) {
+                            return new QueryPage(0, 0, false, null);
+                        }
+                    }
+                    
+                    int count = 0;
+                    long bytes = 0;
+                    boolean truncated = false;
+                    while (rs.next()) {
+                        if (count >= maxRows) {
+                            truncated = true;
+                            break;
+                        }
+                        Object[] rowValues = new Object[columnCount];
+                        long rowBytes = rowOverhead;
+                        for (int i = 0; i < columnCount; i++) {
+                            rowValues[i] = JdbcUtils.getResultSetValue(rs, i + 1);
+                            rowBytes += estimateSize(rowValues[i]);
+                        }
+                        // 至少返回一行，保证分页总能前进
+                        if (count > 0 && bytes + rowBytes > maxBytes) {
+                            truncated = true;
+                            break;
+                        }
+                        handler.row(columnNames, rowValues);
+                        count++;
+                        bytes += rowBytes;
+                    }
+                    String nextCursor = truncated ? QueryCursor.encode(sql, params, offset + count) : null;
+                    return new QueryPage(count, bytes, truncated, nextCursor);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } finally {
+            if (context != null) {
+                context.untrack(created[0]);
+            }
+        }
+        
+        if (page != null && page.truncated) {
+            logger.info("查询结果已截断，返回 {} 行，约 {} 字节: {}", page.count, page.bytes, sql);
+        }
+        return page;
+    }
+
+    private static Map<String, Object> toRowMap(String[] names, Object[] values) {
+        Map<String, Object> row = new LinkedHashMap<>(names.length * 4 / 3 + 1);
+        for (int i = 0; i < names.length; i++) {
+            row.put(names[i], values[i]);
+        }
+        return row;
+    }
+
+    /**
+     * 对重复较多的字符串列做字典编码：列信息中加入dictionary，行中的值替换为字典下标
+     * 只有不同值的数量不超过非空值数量一半的列才编码，避免字典本身比原值更大
+     */
+    private static void dictionaryEncode(List<Map<String, Object>> columns, List<List<Object>> values) {
+        for (int col = 0; col < columns.size(); col++) {
+            Map<String, Integer> dictionary = new LinkedHashMap<>();
+            int nonNull = 0;
+            boolean encodable = true;
+            for (List<Object> row : values) {
+                Object value = row.get(col);
+                if (value == null) {
+                    continue;
+                }
+                if (!(value instanceof String)) {
+                    encodable = false;
+                    break;
+                }
+                nonNull++;
+                dictionary.putIfAbsent((String) value, dictionary.size());
+            }
+            if (!encodable || nonNull < 2 || dictionary.size() * 2 > nonNull) {
+                continue;
+            }
+            
+            for (List<Object> row : values) {
+                Object value = row.get(col);
+                if (value != null) {
+                    row.set(col, dictionary.get(value));
+                }
+            }
+            columns.get(col).put("dictionary", new ArrayList<>(dictionary.keySet()));
+        }
+    }
+
+    /**
+     * 估算单个值序列化为JSON后的字节数
+     */
+    private static long estimateSize(Object value) {
+        if (value == null) {
+            return 4;
+        }
+        if (value instanceof CharSequence) {
+            return ((CharSequence) value).length() + 2;
+        }
+        if (value instanceof byte[]) {
+            // Base64编码
+            return ((byte[]) value).length * 4L / 3 + 2;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return 8;
+        }
+        // 日期时间等
+        return 24;
+    }
+
     @Override
     public SqlUpdateResult executeUpdate(String sql, Map<String, Object> params) {
         logger.debug("执行更新: {}, 参数: {}", sql, params);
@@ -69,6 +452,9 @@ public class DatabaseServiceImpl implements DatabaseService {
             int affected = namedParameterJdbcTemplate.update(sql, paramSource);
             result.setAffected(affected);
             result.setStatus("success");
+            queryResultCache.invalidateForWrite(sql);
+            metadataCatalog.onStatementExecuted(sql);
+            replicaRouter.recordWrite(QueryContext.current(), SqlTableExtractor.writeTables(sql));
         } catch (DataAccessException e) {
             logger.error("更新执行失败: {}", e.getMessage(), e);
             result.setStatus("error");
@@ -84,23 +470,48 @@ public class DatabaseServiceImpl implements DatabaseService {
     public SqlUpdateResult executeBatch(List<Map<String, Object>> statements) {
         logger.debug("执行批处理, 语句数量: {}", statements.size());
         SqlUpdateResult result = new SqlUpdateResult();
+        int[] counts = new int[statements.size()];
         int totalAffected = 0;
+        int groups = 0;
         
         try {
-            for (Map<String, Object> stmt : statements) {
-                String sql = (String) stmt.get("sql");
-                @SuppressWarnings("unchecked")
-                Map<String, Object> params = (Map<String, Object>) stmt.getOrDefault("params", Collections.emptyMap());
+            // 相邻且SQL文本相同的语句合并为一组，通过JDBC批量执行；只合并相邻语句以保持原有执行顺序
+            int start = 0;
+            while (start < statements.size()) {
+                String sql = (String) statements.get(start).get("sql");
+                int end = start + 1;
+                while (end < statements.size() && Objects.equals(sql, statements.get(end).get("sql"))) {
+                    end++;
+                }
                 
-                MapSqlParameterSource paramSource = new MapSqlParameterSource(params);
-                int affected = namedParameterJdbcTemplate.update(sql, paramSource);
-                totalAffected += affected;
+                int[] groupCounts = executeGroup(sql, statements.subList(start, end));
+                System.arraycopy(groupCounts, 0, counts, start, groupCounts.length);
+                queryResultCache.invalidateForWrite(sql);
+                metadataCatalog.onStatementExecuted(sql);
+                replicaRouter.recordWrite(QueryContext.current(), SqlTableExtractor.writeTables(sql));
+                groups++;
+                start = end;
+            }
+            
+            int unknown = 0;
+            for (int count : counts) {
+                // 驱动改写为多值INSERT时返回SUCCESS_NO_INFO，影响行数未知，单独标记而不是当作0行
+                if (count == Statement.SUCCESS_NO_INFO) {
+                    unknown++;
+                } else if (count > 0) {
+                    totalAffected += count;
+                }
             }
+            logger.debug("批处理完成, 语句数量: {}, 分组数: {}, 影响行数未知的语句数: {}", statements.size(), groups, unknown);
             
             result.setAffected(totalAffected);
+            result.setAffectedUnknown(unknown > 0);
+            result.setCounts(counts);
             result.setStatus("success");
         } catch (DataAccessException e) {
             logger.error("批处理执行失败: {}", e.getMessage(), e);
+            // 异常已被捕获，需显式标记回滚，避免已执行的语句被提交
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             result.setStatus("error");
             result.setError(e.getMessage());
             result.setAffected(0);
@@ -109,71 +520,48 @@ public class DatabaseServiceImpl implements DatabaseService {
         return result;
     }
 
+    /**
+     * 执行一组SQL相同的语句，单条时直接执行，多条时使用JDBC批量执行
+     * 
+     * @param sql SQL语句
+     * @param group 语句列表
+     * @return 每条语句的影响行数
+     */
+    @SuppressWarnings("unchecked")
+    private int[] executeGroup(String sql, List<Map<String, Object>> group) {
+        if (group.size() == 1) {
+            Map<String, Object> params = (Map<String, Object>) group.get(0).getOrDefault("params", Collections.emptyMap());
+            return new int[]{namedParameterJdbcTemplate.update(sql, new MapSqlParameterSource(params))};
+        }
+        
+        SqlParameterSource[] batchParams = new SqlParameterSource[group.size()];
+        for (int i = 0; i < group.size(); i++) {
+            Map<String, Object> params = (Map<String, Object>) group.get(i).getOrDefault("params", Collections.emptyMap());
+            batchParams[i] = new MapSqlParameterSource(params);
+        }
+        return namedParameterJdbcTemplate.batchUpdate(sql, batchParams);
+    }
+
     @Override
     public List<String> listTables() {
         logger.debug("获取所有表名");
-        List<String> tables = new ArrayList<>();
-        
         try {
-            tables = (List<String>) JdbcUtils.extractDatabaseMetaData(dataSource, databaseMetaData -> {
-                List<String> tableNames = new ArrayList<>();
-                try (ResultSet rs = databaseMetaData.getTables(null, null, "%", new String[]{"TABLE"})) {
-                    while (rs.next()) {
-                        tableNames.add(rs.getString("TABLE_NAME"));
-                    }
-                    return tableNames;
-                }
-            });
-        } catch (MetaDataAccessException e) {
+            return metadataCatalog.listTables();
+        } catch (DataAccessException e) {
             logger.error("获取表名失败: {}", e.getMessage(), e);
+            return new ArrayList<>();
         }
-        
-        return tables;
     }
 
     @Override
     public List<Map<String, Object>> getTableSchema(String tableName) {
         logger.debug("获取表结构: {}", tableName);
-        List<Map<String, Object>> columns = new ArrayList<>();
-        
         try {
-            columns = (List<Map<String, Object>>) JdbcUtils.extractDatabaseMetaData(dataSource, databaseMetaData -> {
-                List<Map<String, Object>> tableColumns = new ArrayList<>();
-                try (ResultSet rs = databaseMetaData.getColumns(null, null, tableName, "%")) {
-                    while (rs.next()) {
-                        Map<String, Object> column = new HashMap<>();
-                        column.put("name", rs.getString("COLUMN_NAME"));
-                        column.put("type", rs.getString("TYPE_NAME"));
-                        column.put("size", rs.getInt("COLUMN_SIZE"));
-                        column.put("nullable", rs.getBoolean("NULLABLE"));
-                        column.put("position", rs.getInt("ORDINAL_POSITION"));
-                        column.put("remarks", rs.getString("REMARKS"));
-                        tableColumns.add(column);
-                    }
-                    return tableColumns;
-                }
-            });
-            
-            // 获取主键信息
-            List<String> primaryKeys = (List<String>) JdbcUtils.extractDatabaseMetaData(dataSource, databaseMetaData -> {
-                List<String> keys = new ArrayList<>();
-                try (ResultSet rs = databaseMetaData.getPrimaryKeys(null, null, tableName)) {
-                    while (rs.next()) {
-                        keys.add(rs.getString("COLUMN_NAME"));
-                    }
-                    return keys;
-                }
-            });
-            
-            // 标记主键列
-            for (Map<String, Object> column : columns) {
-                column.put("primaryKey", primaryKeys.contains(column.get("name")));
-            }
-        } catch (MetaDataAccessException e) {
+            return metadataCatalog.getTableSchema(tableName);
+        } catch (DataAccessException e) {
             logger.error("获取表结构失败: {}", e.getMessage(), e);
+            return new ArrayList<>();
         }
-        
-        return columns;
     }
 
     @Override
@@ -203,28 +591,12 @@ public class DatabaseServiceImpl implements DatabaseService {
     @Override
     public List<Map<String, Object>> getQueryMetadata(String sql) {
         logger.debug("获取查询元数据: {}", sql);
-        List<Map<String, Object>> metadata = new ArrayList<>();
-        
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            ResultSetMetaData rsMetaData = stmt.getMetaData();
-            int columnCount = rsMetaData.getColumnCount();
-            
-            for (int i = 1; i <= columnCount; i++) {
-                Map<String, Object> column = new HashMap<>();
-                column.put("name", rsMetaData.getColumnName(i));
-                column.put("label", rsMetaData.getColumnLabel(i));
-                column.put("type", rsMetaData.getColumnTypeName(i));
-                column.put("className", rsMetaData.getColumnClassName(i));
-                column.put("precision", rsMetaData.getPrecision(i));
-                column.put("scale", rsMetaData.getScale(i));
-                metadata.add(column);
-            }
-        } catch (SQLException e) {
+        try {
+            return metadataCatalog.getQueryMetadata(sql);
+        } catch (DataAccessException e) {
             logger.error("获取查询元数据失败: {}", e.getMessage(), e);
+            return new ArrayList<>();
         }
-        
-        return metadata;
     }
 
     @Override
@@ -240,6 +612,13 @@ public class DatabaseServiceImpl implements DatabaseService {
             result.put("status", "ok");
             result.put("timestamp", timestamp);
             result.put("responseTime", System.currentTimeMillis() - timestamp);
+            if (queryResultCache.isEnabled()) {
+                result.put("queryCache", queryResultCache.getStats());
+            }
+            List<Map<String, Object>> replicas = replicaRouter.getStatus();
+            if (!replicas.isEmpty()) {
+                result.put("replicas", replicas);
+            }
             
         } catch (DataAccessException e) {
             logger.error("心跳检查失败: {}", e.getMessage(), e);
@@ -250,4 +629,33 @@ public class DatabaseServiceImpl implements DatabaseService {
         
         return result;
     }
-} 
\ No newline at end of file
+
+    /**
+     * 查询结果处理器
+     */
+    private interface RowHandler {
+        /**
+         * 读取任何行之前回调一次
+         */
+        void columns(List<Map<String, Object>> columnInfo) throws IOException;
+
+        void row(String[] names, Object[] values) throws IOException;
+    }
+
+    /**
+     * 一页查询结果的统计信息
+     */
+    private static final class QueryPage {
+        private final int count;
+        private final long bytes;
+        private final boolean truncated;
+        private final String nextCursor;
+
+        private QueryPage(int count, long bytes, boolean truncated, String nextCursor) {
+            this.count = count;
+            this.bytes = bytes;
+            this.truncated = truncated;
+            this.nextCursor = nextCursor;
+        }
+    }
+}
@@ -1,27 +1,75 @@
 package org.xue.mcp_mysql.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.xue.mcp_mysql.annotation.FunctionCallable;
-import org.xue.mcp_mysql.annotation.FunctionParam;
 import org.xue.mcp_mysql.enums.ApiFormatType;
+import org.xue.mcp_mysql.model.ApiSchemaSnapshot;
+import org.xue.mcp_mysql.rpc.RpcMethod;
+import org.xue.mcp_mysql.rpc.RpcMethodRegistry;
 import org.xue.mcp_mysql.service.ExposureApiService;
-import org.xue.mcp_mysql.service.MCPDatabaseRpcService;
 
-import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 /**
  * API暴露服务实现类
- * 通过反射解析接口注解，生成不同格式的API描述
+ * 由RPC方法注册表中的方法和参数元数据生成不同格式的API描述；
+ * 描述在所有Bean初始化完成（方法注册完毕）后生成，并按格式缓存为预序列化的字节和内容哈希
  */
 @Service
-public class ExposureApiServiceImpl implements ExposureApiService {
+public class ExposureApiServiceImpl implements ExposureApiService, SmartInitializingSingleton {
 
     private static final Logger logger = LoggerFactory.getLogger(ExposureApiServiceImpl.class);
     
+    private static final HexFormat HEX = HexFormat.of();
+    
+    /**
+     * 按键排序序列化，保证相同的描述得到相同的字节和哈希
+     */
+    private final ObjectWriter schemaWriter;
+    
+    private final Map<ApiFormatType, ApiSchemaSnapshot> snapshots = new EnumMap<>(ApiFormatType.class);
+    
+    private final RpcMethodRegistry rpcMethodRegistry;
+    
+    private String schemaVersion;
+    
+    @Autowired
+    public ExposureApiServiceImpl(ObjectMapper objectMapper, RpcMethodRegistry rpcMethodRegistry) {
+        this.schemaWriter = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        this.rpcMethodRegistry = rpcMethodRegistry;
+    }
+    
+    /**
+     * RPC方法在各Bean初始化后才注册，因此在所有单例初始化完成后生成描述
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        init();
+    }
+    
+    /**
+     * 为每种格式生成一次API描述并序列化，之后的请求直接返回快照
+     */
+    public void init() {
+        MessageDigest versionDigest = sha256();
+        for (ApiFormatType formatType : ApiFormatType.values()) {
+            ApiSchemaSnapshot snapshot = buildSnapshot(formatType);
+            snapshots.put(formatType, snapshot);
+            versionDigest.update(snapshot.getJson());
+        }
+        schemaVersion = HEX.formatHex(versionDigest.digest(), 0, 8);
+        logger.info("API描述已生成，模式版本: {}", schemaVersion);
+    }
+    
     /**
      * 获取API描述
      * @param formatType API格式类型
@@ -29,109 +77,69 @@ public class ExposureApiServiceImpl implements ExposureApiService {
      */
     @Override
     public Map<String, Object> getApiDescription(ApiFormatType formatType) {
+        return getApiSchema(formatType).getDescription();
+    }
+    
+    @Override
+    public ApiSchemaSnapshot getApiSchema(ApiFormatType formatType) {
+        return snapshots.get(formatType);
+    }
+    
+    @Override
+    public String getSchemaVersion() {
+        return schemaVersion;
+    }
+    
+    private ApiSchemaSnapshot buildSnapshot(ApiFormatType formatType) {
+        Map<String, Object> description = Collections.unmodifiableMap(generateApiDescription(formatType));
+        try {
+            byte[] json = schemaWriter.writeValueAsBytes(description);
+            String etag = "\"" + HEX.formatHex(sha256().digest(json), 0, 8) + "\"";
+            return new ApiSchemaSnapshot(description, json, etag);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化API描述失败: " + formatType, e);
+        }
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * 由RPC方法注册表生成API描述，描述中的参数与调用时的参数绑定使用同一份元数据
+     * @param formatType API格式类型
+     * @return API描述JSON
+     */
+    private Map<String, Object> generateApiDescription(ApiFormatType formatType) {
         logger.debug("生成API描述，格式类型: {}", formatType);
         
-        try {
-            // 解析MCPDatabaseRpcService接口的方法
-            Class<MCPDatabaseRpcService> apiClass = MCPDatabaseRpcService.class;
-            Method[] methods = apiClass.getDeclaredMethods();
-            
-            // 根据请求的格式类型返回不同格式的API描述
-            if (formatType == ApiFormatType.FUNCTION_CALLING) {
-                return generateFunctionCallingFormat(methods);
-            } else {
-                return generateRpcJsonFormat(methods);
-            }
-        } catch (Exception e) {
-            logger.error("生成API描述时出错: {}", e.getMessage(), e);
-            Map<String, Object> error = new HashMap<>();
-            error.put("error", "生成API描述失败: " + e.getMessage());
-            return error;
+        // 注册表已按方法名排序，保证输出稳定
+        List<RpcMethod> methods = rpcMethodRegistry.getAnnotatedMethods();
+        
+        // 根据请求的格式类型返回不同格式的API描述
+        if (formatType == ApiFormatType.FUNCTION_CALLING) {
+            return generateFunctionCallingFormat(methods);
+        } else {
+            return generateRpcJsonFormat(methods);
         }
     }
     
     /**
      * 生成Function Calling格式的API描述
-     * @param methods 方法数组
+     * @param methods RPC方法列表
      * @return Function Calling格式的API描述
      */
-    private Map<String, Object> generateFunctionCallingFormat(Method[] methods) {
+    private Map<String, Object> generateFunctionCallingFormat(List<RpcMethod> methods) {
         List<Map<String, Object>> tools = new ArrayList<>();
         
-        for (Method method : methods) {
-            FunctionCallable callable = method.getAnnotation(FunctionCallable.class);
-            if (callable == null) {
-                continue;
-            }
-            
+        for (RpcMethod method : methods) {
             Map<String, Object> tool = new HashMap<>();
-            Map<String, Object> function = new HashMap<>();
-            
-            // 获取方法名和描述
-            String methodName = method.getName();
-            String description = callable.description();
-            
-            function.put("name", methodName);
-            function.put("description", description);
-            
-            // 解析参数
-            Map<String, Object> parameters = new HashMap<>();
-            parameters.put("type", "object");
-            Map<String, Object> properties = new HashMap<>();
-            List<String> required = new ArrayList<>();
-            
-            Parameter[] params = method.getParameters();
-            for (Parameter param : params) {
-                FunctionParam annotation = param.getAnnotation(FunctionParam.class);
-                if (annotation != null) {
-                    String paramName = param.getName();
-                    String paramDesc = annotation.description();
-                    Class<?> paramType = param.getType();
-                    
-                    Map<String, Object> property = new HashMap<>();
-                    property.put("description", paramDesc);
-                    
-                    // 根据参数类型设置类型描述
-                    if (paramType == String.class) {
-                        property.put("type", "string");
-                    } else if (paramType == Integer.class || paramType == int.class || 
-                               paramType == Long.class || paramType == long.class || 
-                               paramType == Double.class || paramType == double.class || 
-                               paramType == Float.class || paramType == float.class) {
-                        property.put("type", "number");
-                    } else if (paramType == Boolean.class || paramType == boolean.class) {
-                        property.put("type", "boolean");
-                    } else if (paramType == List.class || paramType.isArray()) {
-                        property.put("type", "array");
-                        if (paramName.equals("statements")) {
-                            Map<String, Object> items = new HashMap<>();
-                            items.put("type", "object");
-                            property.put("items", items);
-                        }
-                    } else if (Map.class.isAssignableFrom(paramType)) {
-                        property.put("type", "object");
-                    } else {
-                        property.put("type", "object");
-                    }
-                    
-                    properties.put(paramName, property);
-                    
-                    // 如果不是Map<String, Object> params参数，认为是必需的
-                    if (!(paramType == Map.class && paramName.equals("params"))) {
-                        required.add(paramName);
-                    }
-                }
-            }
-            
-            parameters.put("properties", properties);
-            if (!required.isEmpty()) {
-                parameters.put("required", required);
-            }
-            
-            function.put("parameters", parameters);
-            tool.put("function", function);
+            tool.put("function", describeFunction(method, ApiFormatType.FUNCTION_CALLING));
             tool.put("type", "function");
-            
             tools.add(tool);
         }
         
@@ -143,88 +151,14 @@ public class ExposureApiServiceImpl implements ExposureApiService {
     
     /**
      * 生成RPC JSON格式的API描述
-     * @param methods 方法数组
+     * @param methods RPC方法列表
      * @return RPC JSON格式的API描述
      */
-    private Map<String, Object> generateRpcJsonFormat(Method[] methods) {
+    private Map<String, Object> generateRpcJsonFormat(List<RpcMethod> methods) {
         List<Map<String, Object>> functions = new ArrayList<>();
         
-        for (Method method : methods) {
-            FunctionCallable callable = method.getAnnotation(FunctionCallable.class);
-            if (callable == null) {
-                continue;
-            }
-            
-            Map<String, Object> function = new HashMap<>();
-            
-            // 获取方法名和描述
-            String methodName = method.getName();
-            String description = callable.description();
-            
-            function.put("name", methodName);
-            function.put("description", description);
-            
-            // 解析参数
-            Map<String, Object> parameters = new HashMap<>();
-            parameters.put("type", "object");
-            Map<String, Object> properties = new HashMap<>();
-            List<String> required = new ArrayList<>();
-            
-            Parameter[] params = method.getParameters();
-            for (Parameter param : params) {
-                FunctionParam annotation = param.getAnnotation(FunctionParam.class);
-                if (annotation != null) {
-                    String paramName = param.getName();
-                    String paramDesc = annotation.description();
-                    Class<?> paramType = param.getType();
-                    
-                    Map<String, Object> property = new HashMap<>();
-                    property.put("description", paramDesc);
-                    
-                    // 根据参数类型设置类型描述
-                    if (paramType == String.class) {
-                        property.put("type", "string");
-                    } else if (paramType == Integer.class || paramType == int.class || 
-                               paramType == Long.class || paramType == long.class || 
-                               paramType == Double.class || paramType == double.class || 
-                               paramType == Float.class || paramType == float.class) {
-                        property.put("type", "number");
-                    } else if (paramType == Boolean.class || paramType == boolean.class) {
-                        property.put("type", "boolean");
-                    } else if (paramType == List.class || paramType.isArray()) {
-                        property.put("type", "array");
-                        Map<String, Object> items = new HashMap<>();
-                        items.put("type", "object");
-                        property.put("items", items);
-                    } else if (Map.class.isAssignableFrom(paramType)) {
-                        property.put("type", "object");
-                        
-                        // 如果是params参数，添加additionalProperties
-                        if (paramName.equals("params")) {
-                            Map<String, Object> additionalProps = new HashMap<>();
-                            List<String> types = new ArrayList<>();
-                            types.add("string");
-                            types.add("number");
-                            types.add("boolean");
-                            additionalProps.put("type", types);
-                            property.put("additionalProperties", additionalProps);
-                        }
-                    } else {
-                        property.put("type", "object");
-                    }
-                    
-                    properties.put(paramName, property);
-                    required.add(paramName);
-                }
-            }
-            
-            parameters.put("properties", properties);
-            if (!required.isEmpty()) {
-                parameters.put("required", required);
-            }
-            
-            function.put("parameters", parameters);
-            functions.add(function);
+        for (RpcMethod method : methods) {
+            functions.add(describeFunction(method, ApiFormatType.RPC_JSON));
         }
         
         Map<String, Object> result = new HashMap<>();
@@ -232,4 +166,76 @@ public class ExposureApiServiceImpl implements ExposureApiService {
         
         return result;
     }
+    
+    /**
+     * 生成单个方法的描述（name、description和JSON Schema形式的parameters）
+     */
+    private Map<String, Object> describeFunction(RpcMethod method, ApiFormatType formatType) {
+        Map<String, Object> function = new HashMap<>();
+        function.put("name", method.getName());
+        function.put("description", method.getDescription());
+        
+        // 解析参数，required与调用时的校验一致（包括基本类型参数）
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("type", "object");
+        Map<String, Object> properties = new HashMap<>();
+        List<String> required = new ArrayList<>();
+        
+        for (RpcMethod.ParamBinder param : method.getParams()) {
+            properties.put(param.getName(), describeParam(param, formatType));
+            if (param.isRequired()) {
+                required.add(param.getName());
+            }
+        }
+        
+        parameters.put("properties", properties);
+        if (!required.isEmpty()) {
+            parameters.put("required", required);
+        }
+        
+        function.put("parameters", parameters);
+        return function;
+    }
+    
+    /**
+     * 根据参数类型生成参数描述
+     */
+    private Map<String, Object> describeParam(RpcMethod.ParamBinder param, ApiFormatType formatType) {
+        String paramName = param.getName();
+        Class<?> paramType = param.getType();
+        
+        Map<String, Object> property = new HashMap<>();
+        property.put("description", param.getDescription());
+        
+        if (paramType == String.class) {
+            property.put("type", "string");
+        } else if (paramType == Integer.class || paramType == int.class || 
+                   paramType == Long.class || paramType == long.class || 
+                   paramType == Double.class || paramType == double.class || 
+                   paramType == Float.class || paramType == float.class) {
+            property.put("type", "number");
+        } else if (paramType == Boolean.class || paramType == boolean.class) {
+            property.put("type", "boolean");
+        } else if (List.class.isAssignableFrom(paramType) || paramType.isArray()) {
+            property.put("type", "array");
+            // Function Calling格式只为批量语句声明元素类型
+            if (formatType == ApiFormatType.RPC_JSON || paramName.equals("statements")) {
+                Map<String, Object> items = new HashMap<>();
+                items.put("type", "object");
+                property.put("items", items);
+            }
+        } else {
+            property.put("type", "object");
+            
+            // RPC JSON格式中，命名参数映射的值限定为基本类型
+            if (formatType == ApiFormatType.RPC_JSON && Map.class.isAssignableFrom(paramType)
+                    && paramName.equals("params")) {
+                Map<String, Object> additionalProps = new HashMap<>();
+                additionalProps.put("type", List.of("string", "number", "boolean"));
+                property.put("additionalProperties", additionalProps);
+            }
+        }
+        
+        return property;
+    }
 }
@@ -4,13 +4,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.xue.mcp_mysql.enums.ResultFormat;
 import org.xue.mcp_mysql.model.SqlQueryResult;
 import org.xue.mcp_mysql.model.SqlUpdateResult;
 import org.xue.mcp_mysql.service.DatabaseService;
+import org.xue.mcp_mysql.service.ExposureApiService;
 import org.xue.mcp_mysql.service.MCPDatabaseRpcService;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -24,30 +27,46 @@ public class MCPDatabaseRpcServiceImpl implements MCPDatabaseRpcService {
     private static final Logger logger = LoggerFactory.getLogger(MCPDatabaseRpcServiceImpl.class);
     
     private final DatabaseService databaseService;
+    private final ExposureApiService exposureApiService;
     
     @Autowired
-    public MCPDatabaseRpcServiceImpl(DatabaseService databaseService) {
+    public MCPDatabaseRpcServiceImpl(DatabaseService databaseService, ExposureApiService exposureApiService) {
         this.databaseService = databaseService;
+        this.exposureApiService = exposureApiService;
     }
     
     /**
      * 执行SQL查询
      */
     @Override
-    public Map<String, Object> query(String sql, Map<String, Object> params) {
+    public Map<String, Object> query(String sql, Map<String, Object> params, String cursor, String format) {
         logger.debug("RPC调用: executeQuery, SQL: {}", sql);
         try {
             // 确保params不为null
             Map<String, Object> safeParams = params != null ? params : Collections.emptyMap();
-            SqlQueryResult queryResult = databaseService.executeQuery(sql, safeParams);
+            ResultFormat resultFormat = ResultFormat.from(format);
+            SqlQueryResult queryResult = databaseService.executeQuery(sql, safeParams, cursor, resultFormat);
             
-            Map<String, Object> result = new HashMap<>();
-            result.put("rows", queryResult.getRows());
+            Map<String, Object> result = new LinkedHashMap<>();
+            if (resultFormat.isColumnar() && queryResult.getColumns() != null) {
+                result.put("format", queryResult.getFormat());
+                result.put("columns", queryResult.getColumns());
+                result.put("rows", queryResult.getValues());
+            } else {
+                result.put("rows", queryResult.getRows());
+            }
             result.put("status", queryResult.getStatus());
             result.put("count", queryResult.getCount());
+            if (queryResult.isTruncated()) {
+                result.put("truncated", true);
+                result.put("nextCursor", queryResult.getNextCursor());
+            }
             if (queryResult.getError() != null) {
                 result.put("error", queryResult.getError());
             }
+            if (queryResult.getGuard() != null) {
+                result.put("guard", queryResult.getGuard());
+            }
             
             return result;
         } catch (Exception e) {
@@ -103,6 +122,12 @@ public class MCPDatabaseRpcServiceImpl implements MCPDatabaseRpcService {
             
             Map<String, Object> result = new HashMap<>();
             result.put("affected", batchResult.getAffected());
+            if (batchResult.isAffectedUnknown()) {
+                result.put("affectedUnknown", true);
+            }
+            if (batchResult.getCounts() != null) {
+                result.put("counts", batchResult.getCounts());
+            }
             result.put("status", batchResult.getStatus());
             if (batchResult.getError() != null) {
                 result.put("error", batchResult.getError());
@@ -185,15 +210,18 @@ public class MCPDatabaseRpcServiceImpl implements MCPDatabaseRpcService {
     @Override
     public Map<String, Object> heartbeat() {
         logger.debug("RPC调用: heartbeat");
+        Map<String, Object> result;
         try {
-            return databaseService.heartbeat();
+            result = databaseService.heartbeat();
         } catch (Exception e) {
             logger.error("心跳检查出错: {}", e.getMessage(), e);
-            Map<String, Object> result = new HashMap<>();
+            result = new HashMap<>();
             result.put("status", "error");
             result.put("error", e.getMessage());
             result.put("timestamp", System.currentTimeMillis());
-            return result;
         }
+        // 客户端据此判断是否需要重新获取API模式描述
+        result.put("schemaVersion", exposureApiService.getSchemaVersion());
+        return result;
     }
 } 
\ No newline at end of file
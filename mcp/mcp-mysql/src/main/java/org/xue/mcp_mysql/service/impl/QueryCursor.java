@@ -0,0 +1,62 @@
+package org.xue.mcp_mysql.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 查询分页游标
+ * 编码下一页的起始偏移量和查询指纹，指纹用于拒绝在不同查询之间误用游标。
+ * 游标是偏移量而不是键集位置：每一页都重新执行查询并跳过之前的行，读取第n页的代价与n成正比；
+ * 查询没有唯一确定行顺序的ORDER BY，或两次翻页之间数据有变化时，页与页之间可能重复或遗漏行
+ */
+final class QueryCursor {
+
+    private QueryCursor() {
+    }
+
+    /**
+     * 生成游标
+     *
+     * @param sql SQL语句
+     * @param params 查询参数
+     * @param offset 下一页起始偏移量
+     * @return 游标字符串
+     */
+    static String encode(String sql, Map<String, Object> params, long offset) {
+        String token = offset + ":" + fingerprint(sql, params);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标得到起始偏移量
+     *
+     * @param cursor 游标字符串，为空时从头开始
+     * @return 起始偏移量
+     * @throws IllegalArgumentException 游标格式错误或与当前查询不匹配
+     */
+    static long decode(String cursor, String sql, Map<String, Object> params) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        long offset;
+        String fingerprint;
+        try {
+            String token = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = token.indexOf(':');
+            offset = Long.parseLong(token.substring(0, separator));
+            fingerprint = token.substring(separator + 1);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor);
+        }
+        if (offset < 0 || !fingerprint.equals(fingerprint(sql, params))) {
+            throw new IllegalArgumentException("分页游标与当前查询不匹配");
+        }
+        return offset;
+    }
+
+    private static String fingerprint(String sql, Map<String, Object> params) {
+        return Integer.toHexString(Objects.hash(sql, params == null || params.isEmpty() ? null : params));
+    }
+}
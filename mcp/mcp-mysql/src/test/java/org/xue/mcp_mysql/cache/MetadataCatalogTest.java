@@ -0,0 +1,101 @@
+package org.xue.mcp_mysql.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MetadataCatalogTest {
+
+    /**
+     * 模拟information_schema：表名按lower_case_table_names=0区分大小写比较
+     */
+    private final List<String[]> columns = new ArrayList<>();
+
+    private MetadataCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        NamedParameterJdbcTemplate template = mock(NamedParameterJdbcTemplate.class);
+        doAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            SqlParameterSource params = invocation.getArgument(1);
+            RowCallbackHandler handler = invocation.getArgument(2);
+            Collection<?> filter = sql.contains(":tables") ? (Collection<?>) params.getValue("tables") : null;
+            boolean lower = sql.contains("LOWER(TABLE_NAME)");
+            boolean tablesOnly = !sql.contains("information_schema.COLUMNS");
+            List<String> seen = new ArrayList<>();
+            for (String[] column : columns) {
+                String table = column[0];
+                if (filter != null && !filter.contains(lower ? table.toLowerCase(Locale.ROOT) : table)) {
+                    continue;
+                }
+                if (tablesOnly && seen.contains(table)) {
+                    continue;
+                }
+                seen.add(table);
+                handler.processRow(row(column));
+            }
+            return null;
+        }).when(template).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+
+        catalog = new MetadataCatalog(mock(JdbcTemplate.class), template, template);
+        catalog.start();
+    }
+
+    @Test
+    void missOnMixedCaseTableLoadsIt() {
+        columns.add(new String[]{"users", "id"});
+        assertEquals(List.of("users"), catalog.listTables());
+
+        // 目录加载后外部新建的表
+        columns.add(new String[]{"Orders", "id"});
+        List<Map<String, Object>> schema = catalog.getTableSchema("Orders");
+
+        assertEquals(1, schema.size());
+        assertEquals("id", schema.get(0).get("name"));
+        assertEquals(List.of("Orders", "users"), catalog.listTables());
+    }
+
+    @Test
+    void ddlRefreshKeepsMixedCaseTable() {
+        columns.add(new String[]{"Orders", "id"});
+        assertEquals(List.of("Orders"), catalog.listTables());
+
+        columns.add(new String[]{"Orders", "note"});
+        catalog.onStatementExecuted("ALTER TABLE Orders ADD COLUMN note VARCHAR(10)");
+
+        assertEquals(List.of("Orders"), catalog.listTables());
+        assertEquals(2, catalog.getTableSchema("orders").size());
+    }
+
+    private static ResultSet row(String[] column) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("TABLE_NAME")).thenReturn(column[0]);
+        when(rs.getString("COLUMN_NAME")).thenReturn(column[1]);
+        when(rs.getString("DATA_TYPE")).thenReturn("bigint");
+        when(rs.getString("COLUMN_TYPE")).thenReturn("bigint");
+        when(rs.getLong("COLUMN_SIZE")).thenReturn(19L);
+        when(rs.getString("IS_NULLABLE")).thenReturn("NO");
+        when(rs.getInt("ORDINAL_POSITION")).thenReturn(1);
+        when(rs.getString("COLUMN_COMMENT")).thenReturn("");
+        when(rs.getString("COLUMN_KEY")).thenReturn("id".equals(column[1]) ? "PRI" : "");
+        return rs;
+    }
+}
@@ -0,0 +1,197 @@
+package org.xue.mcp_mysql.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.xue.mcp_mysql.config.QueryCacheProperties;
+import org.xue.mcp_mysql.model.SqlQueryResult;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class QueryResultCacheTest {
+
+    private static final Set<String> USERS = Set.of("users");
+    private static final Set<String> ORDERS = Set.of("orders");
+
+    private QueryCacheProperties properties;
+    private QueryResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new QueryCacheProperties();
+        properties.setEnabled(true);
+        properties.setMaxEntries(100);
+        properties.setMaxBytes(1000);
+        cache = new QueryResultCache(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void cachedResultIsReturnedUntilItsTableIsWritten() {
+        SqlQueryResult result = new SqlQueryResult();
+        put("users-all", USERS, result, 100);
+        put("orders-all", ORDERS, new SqlQueryResult(), 100);
+
+        assertSame(result, cache.get("users-all"));
+        cache.invalidateForWrite("UPDATE users SET name = 'a' WHERE id = 1");
+
+        assertNull(cache.get("users-all"));
+        assertNotNull(cache.get("orders-all"));
+        assertEquals(1L, cache.getStats().get("invalidations"));
+    }
+
+    @Test
+    void putIsRejectedWhenTableWasWrittenDuringQuery() {
+        QueryResultCache.Generations before = cache.snapshot(USERS);
+        QueryResultCache.Generations unrelated = cache.snapshot(ORDERS);
+
+        // 查询执行期间另一个请求写入了users
+        cache.invalidate(USERS);
+        cache.put("users-all", USERS, before, new SqlQueryResult(), 100);
+        cache.put("orders-all", ORDERS, unrelated, new SqlQueryResult(), 100);
+
+        assertNull(cache.get("users-all"));
+        assertNotNull(cache.get("orders-all"));
+    }
+
+    @Test
+    void staleResultCachedBeforeCommitIsInvalidatedAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        cache.invalidateForWrite("INSERT INTO users (name) VALUES ('a')");
+
+        // 提交前其他请求仍读到旧数据，其代数快照在语句执行之后，写回不会被拒绝
+        put("users-all", USERS, new SqlQueryResult(), 100);
+        assertNotNull(cache.get("users-all"));
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+
+        assertNull(cache.get("users-all"));
+    }
+
+    @Test
+    void byteAccountingFollowsPutReplaceAndInvalidate() {
+        put("a", USERS, new SqlQueryResult(), 100);
+        put("b", ORDERS, new SqlQueryResult(), 200);
+        assertEquals(300L, cache.getStats().get("bytes"));
+
+        // 覆盖同一个键时先减去旧条目
+        put("a", USERS, new SqlQueryResult(), 50);
+        assertEquals(250L, cache.getStats().get("bytes"));
+        assertEquals(2, cache.getStats().get("entries"));
+
+        cache.invalidate(USERS);
+        assertEquals(200L, cache.getStats().get("bytes"));
+
+        cache.invalidate(ORDERS);
+        assertEquals(0L, cache.getStats().get("bytes"));
+        assertEquals(0, cache.getStats().get("entries"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedWhenBytesExceedLimit() {
+        for (String key : new String[]{"a", "b", "c", "d", "e"}) {
+            put(key, USERS, new SqlQueryResult(), 200);
+        }
+        assertEquals(1000L, cache.getStats().get("bytes"));
+
+        // 访问a后b成为最久未使用的条目
+        assertNotNull(cache.get("a"));
+        put("f", USERS, new SqlQueryResult(), 200);
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("f"));
+        assertEquals(1000L, cache.getStats().get("bytes"));
+        assertEquals(1L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedWhenEntriesExceedLimit() {
+        properties.setMaxEntries(2);
+        put("a", USERS, new SqlQueryResult(), 10);
+        put("b", USERS, new SqlQueryResult(), 10);
+        assertNotNull(cache.get("a"));
+
+        put("c", USERS, new SqlQueryResult(), 10);
+
+        assertNull(cache.get("b"));
+        assertEquals(20L, cache.getStats().get("bytes"));
+    }
+
+    @Test
+    void oversizedResultIsNotCached() {
+        put("big", USERS, new SqlQueryResult(), 251);
+
+        assertNull(cache.get("big"));
+        assertEquals(0L, cache.getStats().get("bytes"));
+    }
+
+    @Test
+    void zeroTableTtlDisablesCachingForQueriesOnThatTable() {
+        properties.getTableTtl().put("audit_log", 0L);
+
+        put("audit", Set.of("audit_log", "users"), new SqlQueryResult(), 10);
+        put("users-all", USERS, new SqlQueryResult(), 10);
+
+        assertNull(cache.get("audit"));
+        assertNotNull(cache.get("users-all"));
+    }
+
+    @Test
+    void expiredEntryIsRemovedOnRead() throws InterruptedException {
+        properties.getTableTtl().put("users", 1L);
+        put("users-all", USERS, new SqlQueryResult(), 100);
+        Thread.sleep(5);
+
+        assertNull(cache.get("users-all"));
+        assertEquals(0L, cache.getStats().get("bytes"));
+    }
+
+    @Test
+    void writeWithUnknownTargetInvalidatesEverything() {
+        QueryResultCache.Generations before = cache.snapshot(ORDERS);
+        put("users-all", USERS, new SqlQueryResult(), 100);
+        put("orders-all", ORDERS, new SqlQueryResult(), 100);
+
+        cache.invalidateForWrite("CALL refresh_all()");
+
+        assertNull(cache.get("users-all"));
+        assertNull(cache.get("orders-all"));
+        assertEquals(0L, cache.getStats().get("bytes"));
+        // 全局代数变化，失效前开始的查询也不能写回
+        cache.put("orders-all", ORDERS, before, new SqlQueryResult(), 100);
+        assertNull(cache.get("orders-all"));
+    }
+
+    @Test
+    void keyNormalizesWhitespaceButKeepsParamsCursorAndFormat() {
+        String sql = "SELECT * FROM users WHERE id = :id";
+        String key = cache.key(sql, Map.of("id", 1), null, "rows");
+
+        assertEquals(key, cache.key("SELECT *\n  FROM users WHERE id = :id;", Map.of("id", 1), null, "rows"));
+        assertNotEquals(key, cache.key(sql, Map.of("id", 2), null, "rows"));
+        assertNotEquals(key, cache.key(sql, Map.of("id", 1), "c1", "rows"));
+        assertNotEquals(key, cache.key(sql, Map.of("id", 1), null, "columnar"));
+    }
+
+    private void put(String key, Set<String> tables, SqlQueryResult result, long bytes) {
+        cache.put(key, tables, cache.snapshot(tables), result, bytes);
+    }
+}
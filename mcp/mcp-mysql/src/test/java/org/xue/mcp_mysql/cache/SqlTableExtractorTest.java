@@ -0,0 +1,47 @@
+package org.xue.mcp_mysql.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SqlTableExtractorTest {
+
+    @Test
+    void readTablesFromJoins() {
+        assertEquals(Set.of("orders", "users", "items"), SqlTableExtractor.readTables(
+                "SELECT * FROM orders o JOIN users u ON o.user_id = u.id, items i WHERE i.order_id = o.id"));
+        assertEquals(Set.of("users"), SqlTableExtractor.readTables("select * from `db`.`users` where name = 'from x'"));
+    }
+
+    @Test
+    void nonCacheableQueries() {
+        assertNull(SqlTableExtractor.readTables("SELECT * FROM users FOR UPDATE"));
+        assertNull(SqlTableExtractor.readTables("SELECT NOW() FROM users"));
+        assertNull(SqlTableExtractor.readTables("UPDATE users SET name = 'a'"));
+    }
+
+    @Test
+    void writeTablesAndDdl() {
+        assertEquals(Set.of("users"), SqlTableExtractor.writeTables("UPDATE users SET name = :name WHERE id = :id"));
+        assertEquals(Set.of("orders"), SqlTableExtractor.writeTables("insert into orders (id) values (1)"));
+        assertTrue(SqlTableExtractor.isDdl("ALTER TABLE users ADD COLUMN age INT"));
+    }
+
+    @Test
+    void aggregateOnlyAtOuterLevel() {
+        assertTrue(SqlTableExtractor.hasAggregate("SELECT status, COUNT(*) FROM orders GROUP BY status"));
+        assertFalse(SqlTableExtractor.hasAggregate("SELECT * FROM orders WHERE id = (SELECT MAX(id) FROM orders)"));
+        assertFalse(SqlTableExtractor.hasAggregate("SELECT 'count(' FROM orders"));
+    }
+
+    @Test
+    void normalizeKeepsLiterals() {
+        assertEquals("SELECT * FROM t WHERE a = '  x'",
+                SqlTableExtractor.normalize("SELECT *\n  FROM t   WHERE a = '  x';"));
+    }
+}
@@ -0,0 +1,248 @@
+package org.xue.mcp_mysql.controller;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.xue.mcp_mysql.execution.QueryExecutor;
+import org.xue.mcp_mysql.rpc.RpcMethodRegistry;
+import org.xue.mcp_mysql.service.ExposureApiService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class RpcControllerTest {
+
+    private ThreadPoolTaskExecutor requestExecutor;
+    private ThreadPoolTaskExecutor batchExecutor;
+    private ThreadPoolTaskExecutor queryPool;
+    private RpcMethodRegistry registry;
+    private RpcController controller;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        requestExecutor = pool("rpc-request-");
+        batchExecutor = pool("rpc-batch-");
+        queryPool = pool("query-");
+        QueryExecutor queryExecutor = new QueryExecutor(queryPool);
+        ReflectionTestUtils.setField(queryExecutor, "defaultTimeout", 30_000L);
+        ReflectionTestUtils.setField(queryExecutor, "maxTimeout", 120_000L);
+
+        registry = new RpcMethodRegistry();
+        controller = new RpcController(registry, mock(ExposureApiService.class),
+                requestExecutor, batchExecutor, queryExecutor);
+        ReflectionTestUtils.setField(controller, "maxBatchSize", 100);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .addPlaceholderValue("spring.application.name", "mcp-mysql")
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        requestExecutor.shutdown();
+        batchExecutor.shutdown();
+        queryPool.shutdown();
+    }
+
+    @Test
+    void timeoutReturnsErrorAndInterruptsHandler() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicReference<String> handlerThread = new AtomicReference<>();
+        registry.registerBuiltin("slow", params -> {
+            handlerThread.set(Thread.currentThread().getName());
+            started.countDown();
+            try {
+                Thread.sleep(30_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "done";
+        });
+
+        MvcResult result = mockMvc.perform(post("/mcp-mysql/api/rpc")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"slow\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // 请求在有界的请求线程池上处理，而不是每次新建线程
+        assertTrue(handlerThread.get().startsWith("rpc-request-"));
+
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.error.code").value(-32603))
+                .andExpect(jsonPath("$.error.message").value("请求处理超时"));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void batchResponsesFollowRequestOrderAndSkipNotifications() throws Exception {
+        registry.registerBuiltin("echo", params -> {
+            Map<?, ?> map = (Map<?, ?>) params;
+            if (map.get("sleepMs") instanceof Number) {
+                try {
+                    Thread.sleep(((Number) map.get("sleepMs")).longValue());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return map.get("value");
+        });
+
+        // 第一个调用最慢，响应仍按请求顺序返回；通知不返回响应
+        performRpc("[" +
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"echo\",\"params\":{\"value\":\"a\",\"sleepMs\":200}}," +
+                "{\"jsonrpc\":\"2.0\",\"method\":\"echo\",\"params\":{\"value\":\"notify\"}}," +
+                "{\"jsonrpc\":\"2.0\",\"id\":\"x\",\"method\":\"echo\",\"params\":{\"value\":\"b\"}}," +
+                "{\"jsonrpc\":\"2.0\",\"id\":3,\"method\":\"missing\"}]")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].result").value("a"))
+                .andExpect(jsonPath("$[1].id").value("x"))
+                .andExpect(jsonPath("$[1].result").value("b"))
+                .andExpect(jsonPath("$[2].id").value(3))
+                .andExpect(jsonPath("$[2].error.code").value(-32601));
+    }
+
+    @Test
+    void batchRunsReadsConcurrentlyAndWritesAsBarriers() throws Exception {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch bothReadsStarted = new CountDownLatch(2);
+        registry.registerBuiltin("read", params -> {
+            String name = String.valueOf(((Map<?, ?>) params).get("name"));
+            events.add("start:" + name);
+            if (!"r3".equals(name)) {
+                // 前两个只读调用互相等待，只有并发执行时才能同时通过
+                bothReadsStarted.countDown();
+                try {
+                    if (!bothReadsStarted.await(5, TimeUnit.SECONDS)) {
+                        events.add("serial:" + name);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add("end:" + name);
+            return name;
+        });
+        registry.registerBuiltin("update", params -> {
+            events.add("update");
+            return 1;
+        });
+
+        performRpc("[" +
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"read\",\"params\":{\"name\":\"r1\"}}," +
+                "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"read\",\"params\":{\"name\":\"r2\"}}," +
+                "{\"jsonrpc\":\"2.0\",\"id\":3,\"method\":\"update\",\"params\":{}}," +
+                "{\"jsonrpc\":\"2.0\",\"id\":4,\"method\":\"read\",\"params\":{\"name\":\"r3\"}}]")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].result").value("r1"))
+                .andExpect(jsonPath("$[1].result").value("r2"))
+                .andExpect(jsonPath("$[2].result").value(1))
+                .andExpect(jsonPath("$[3].result").value("r3"));
+
+        assertTrue(events.stream().noneMatch(event -> event.startsWith("serial:")), events.toString());
+        int update = events.indexOf("update");
+        assertTrue(update > events.indexOf("end:r1"), events.toString());
+        assertTrue(update > events.indexOf("end:r2"), events.toString());
+        assertTrue(update < events.indexOf("start:r3"), events.toString());
+        assertEquals(7, events.size());
+    }
+
+    @Test
+    void batchOfNotificationsReturnsNoContent() throws Exception {
+        registry.registerBuiltin("ping", params -> "pong");
+
+        performRpc("[{\"jsonrpc\":\"2.0\",\"method\":\"ping\"},{\"jsonrpc\":\"2.0\",\"method\":\"ping\"}]")
+                .andExpect(status().isNoContent())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void singleNotificationIsExecutedAndReturnsNoContent() throws Exception {
+        List<Object> received = Collections.synchronizedList(new ArrayList<>());
+        registry.registerBuiltin("record", params -> {
+            received.add(params);
+            return "ok";
+        });
+
+        performRpc("{\"jsonrpc\":\"2.0\",\"method\":\"record\",\"params\":[1]}")
+                .andExpect(status().isNoContent())
+                .andExpect(content().string(""));
+        assertEquals(List.of(List.of(1)), received);
+    }
+
+    @Test
+    void emptyAndOversizedBatchesAreRejected() throws Exception {
+        performRpc("[]")
+                .andExpect(jsonPath("$.error.code").value(-32600));
+
+        ReflectionTestUtils.setField(controller, "maxBatchSize", 1);
+        registry.registerBuiltin("ping", params -> "pong");
+        performRpc("[{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"ping\"},{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"ping\"}]")
+                .andExpect(jsonPath("$.error.code").value(-32600));
+    }
+
+    @Test
+    void parameterBindingErrorMapsToInvalidParams() throws Exception {
+        registry.registerBuiltin("strict", params -> {
+            throw new IllegalArgumentException("缺少必需参数: sql");
+        });
+
+        performRpc("{\"jsonrpc\":\"2.0\",\"id\":7,\"method\":\"strict\",\"params\":{}}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(7))
+                .andExpect(jsonPath("$.error.code").value(-32602))
+                .andExpect(jsonPath("$.error.message").value("参数无效: 缺少必需参数: sql"));
+    }
+
+    private ResultActions performRpc(String body) throws Exception {
+        MvcResult result = mockMvc.perform(post("/mcp-mysql/api/rpc")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+    private static ThreadPoolTaskExecutor pool(String prefix) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setThreadNamePrefix(prefix);
+        executor.initialize();
+        return executor;
+    }
+}
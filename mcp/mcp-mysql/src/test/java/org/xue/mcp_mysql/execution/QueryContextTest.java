@@ -0,0 +1,106 @@
+package org.xue.mcp_mysql.execution;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class QueryContextTest {
+
+    private ThreadPoolTaskExecutor pool;
+
+    @AfterEach
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void trackRoundsRemainingTimeUpToSeconds() throws Exception {
+        QueryContext context = new QueryContext(2500, null);
+        Statement statement = mock(Statement.class);
+
+        context.track(statement);
+
+        verify(statement).setQueryTimeout(3);
+    }
+
+    @Test
+    void cancelStopsTrackedStatementsOnly() throws Exception {
+        QueryContext context = new QueryContext(10_000, null);
+        Statement running = mock(Statement.class);
+        Statement finished = mock(Statement.class);
+        context.track(running);
+        context.track(finished);
+        context.untrack(finished);
+
+        context.cancel();
+
+        verify(running).cancel();
+        verify(finished, never()).cancel();
+        assertTrue(context.isCancelled());
+        assertThrows(SQLTimeoutException.class, () -> context.track(mock(Statement.class)));
+    }
+
+    @Test
+    void trackAfterDeadlineFails() throws Exception {
+        QueryContext context = new QueryContext(1, null);
+        Thread.sleep(20);
+
+        Statement statement = mock(Statement.class);
+        assertThrows(SQLTimeoutException.class, () -> context.track(statement));
+        verify(statement, never()).setQueryTimeout(anyInt());
+    }
+
+    @Test
+    void callBindsContextToThread() throws Exception {
+        QueryContext context = new QueryContext(1000, "c1");
+
+        assertSame(context, context.call(QueryContext::current));
+        assertNull(QueryContext.current());
+    }
+
+    @Test
+    void executorCancelsStatementAtDeadline() throws Exception {
+        pool = new ThreadPoolTaskExecutor();
+        pool.setCorePoolSize(1);
+        pool.initialize();
+        QueryExecutor executor = new QueryExecutor(pool);
+        ReflectionTestUtils.setField(executor, "defaultTimeout", 30_000L);
+        ReflectionTestUtils.setField(executor, "maxTimeout", 120_000L);
+
+        Statement statement = mock(Statement.class);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        QueryContext context = executor.newContext(200L, null);
+
+        assertThrows(QueryTimeoutException.class, () -> context.call(() -> executor.execute(() -> {
+            QueryContext.current().track(statement);
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        })));
+
+        verify(statement).cancel();
+        assertTrue(context.isCancelled());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+}
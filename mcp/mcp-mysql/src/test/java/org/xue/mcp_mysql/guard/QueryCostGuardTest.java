@@ -0,0 +1,157 @@
+package org.xue.mcp_mysql.guard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.xue.mcp_mysql.config.QueryGuardProperties;
+import org.xue.mcp_mysql.execution.QueryContext;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class QueryCostGuardTest {
+
+    private static final String EXPENSIVE_SCAN = "{\"query_block\":{\"select_id\":1,\"cost_info\":{\"query_cost\":\"300000.00\"},"
+            + "\"table\":{\"table_name\":\"orders\",\"access_type\":\"ALL\",\"rows_examined_per_scan\":2000000}}}";
+
+    @Test
+    void crossJoinMultipliesExaminedRows() throws Exception {
+        String explain = "{\"query_block\":{\"select_id\":1,\"cost_info\":{\"query_cost\":\"100250.50\"},"
+                + "\"nested_loop\":["
+                + "{\"table\":{\"table_name\":\"a\",\"access_type\":\"ALL\",\"rows_examined_per_scan\":1000,"
+                + "\"rows_produced_per_join\":1000,\"cost_info\":{\"read_cost\":\"1.00\"}}},"
+                + "{\"table\":{\"table_name\":\"b\",\"access_type\":\"ALL\",\"rows_examined_per_scan\":1000,"
+                + "\"rows_produced_per_join\":1000000,\"using_join_buffer\":\"hash join\"}}]}}";
+
+        QueryCostGuard.PlanEstimate plan = QueryCostGuard.parse(new ObjectMapper().readTree(explain), 0);
+
+        assertEquals(1_001_000, plan.getExaminedRows());
+        assertEquals(List.of("a", "b"), plan.getFullScanTables());
+    }
+
+    @Test
+    void groupingAndFilesortAreFullInputOperations() throws Exception {
+        String explain = "{\"query_block\":{\"select_id\":1,\"cost_info\":{\"query_cost\":\"300000.00\"},"
+                + "\"ordering_operation\":{\"using_filesort\":true,\"grouping_operation\":{\"using_temporary_table\":true,"
+                + "\"table\":{\"table_name\":\"orders\",\"access_type\":\"ALL\",\"rows_examined_per_scan\":2000000}}}}}";
+
+        QueryCostGuard.PlanEstimate plan = QueryCostGuard.parse(new ObjectMapper().readTree(explain), 0);
+
+        assertEquals(List.of("ordering_operation", "grouping_operation"), plan.getFullInputOperations());
+    }
+
+    @Test
+    void aggregateQueryIsRejectedInsteadOfLimited() throws Exception {
+        // 不带GROUP BY的聚合在执行计划中没有分组节点，需要从SQL识别
+        String explain = "{\"query_block\":{\"select_id\":1,\"cost_info\":{\"query_cost\":\"300000.00\"},"
+                + "\"table\":{\"table_name\":\"orders\",\"access_type\":\"ALL\",\"rows_examined_per_scan\":2000000}}}";
+        QueryCostGuard guard = guard(explain);
+
+        GuardDecision aggregate = guard.check("SELECT COUNT(*) FROM orders WHERE note LIKE '%x%'", Map.of());
+        assertTrue(aggregate.isRejected());
+        assertEquals("rejected", aggregate.getDetails().get("action"));
+
+        // 普通扫描在取够行数后即可结束，仍按LIMIT改写
+        GuardDecision scan = guard.check("SELECT * FROM orders WHERE note LIKE '%x%'", Map.of());
+        assertFalse(scan.isRejected());
+        assertEquals("SELECT * FROM orders WHERE note LIKE '%x%'\nLIMIT 1000",
+                scan.sqlOr("SELECT * FROM orders WHERE note LIKE '%x%'"));
+    }
+
+    @Test
+    void appendLimitAfterTrailingComment() {
+        assertEquals("SELECT * FROM t -- all\nLIMIT 10", QueryCostGuard.appendLimit("SELECT * FROM t -- all;", 10));
+    }
+
+    @Test
+    void explainIsTrackedUnderCallerDeadline() throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        QueryCostGuard guard = guard(EXPENSIVE_SCAN, statement, limitProperties());
+
+        GuardDecision decision = new QueryContext(1500, null).call(
+                () -> guard.check("SELECT * FROM orders WHERE note LIKE '%x%'", Map.of()));
+
+        assertFalse(decision.isRejected());
+        // 剩余时间向上取整为秒作为语句超时
+        verify(statement).setQueryTimeout(2);
+    }
+
+    @Test
+    void cancelledCallSkipsExplain() throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        QueryCostGuard guard = guard(EXPENSIVE_SCAN, statement, limitProperties());
+        QueryContext context = new QueryContext(10_000, null);
+        context.cancel();
+
+        GuardDecision decision = context.call(() -> guard.check("SELECT * FROM orders", Map.of()));
+
+        // 无法获取执行计划时放行，由执行阶段报告取消
+        assertFalse(decision.isRejected());
+        verify(statement, never()).executeQuery();
+    }
+
+    @Test
+    void queueWaitIsBoundedByCallerDeadline() throws Exception {
+        QueryGuardProperties properties = new QueryGuardProperties();
+        properties.setAction(QueryGuardProperties.Action.QUEUE);
+        properties.setQueueConcurrency(1);
+        properties.setQueueTimeout(10_000);
+        QueryCostGuard guard = guard(EXPENSIVE_SCAN, mock(PreparedStatement.class), properties);
+        String sql = "SELECT * FROM orders WHERE note LIKE '%x%'";
+
+        try (GuardDecision running = guard.check(sql, Map.of())) {
+            assertEquals("queued", running.getDetails().get("action"));
+
+            long start = System.currentTimeMillis();
+            GuardDecision waiting = new QueryContext(200, null).call(() -> guard.check(sql, Map.of()));
+
+            assertTrue(waiting.isRejected());
+            assertTrue(System.currentTimeMillis() - start < 5_000, "排队等待应在调用方截止时间到达时结束");
+        }
+    }
+
+    private static QueryGuardProperties limitProperties() {
+        QueryGuardProperties properties = new QueryGuardProperties();
+        properties.setAction(QueryGuardProperties.Action.LIMIT);
+        return properties;
+    }
+
+    /**
+     * 构造一个EXPLAIN固定返回给定计划的守卫
+     */
+    private static QueryCostGuard guard(String explain) throws Exception {
+        return guard(explain, mock(PreparedStatement.class), limitProperties());
+    }
+
+    private static QueryCostGuard guard(String explain, PreparedStatement statement,
+                                        QueryGuardProperties properties) throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenAnswer(invocation -> {
+            ResultSet resultSet = mock(ResultSet.class);
+            when(resultSet.next()).thenReturn(true, false);
+            when(resultSet.getMetaData()).thenReturn(metaData);
+            when(resultSet.getString(1)).thenReturn(explain);
+            return resultSet;
+        });
+        when(metaData.getColumnCount()).thenReturn(1);
+
+        return new QueryCostGuard(properties, dataSource, new ObjectMapper());
+    }
+}
@@ -0,0 +1,133 @@
+package org.xue.mcp_mysql.routing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedConstruction;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.xue.mcp_mysql.config.ReplicaProperties;
+import org.xue.mcp_mysql.execution.QueryContext;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.when;
+
+public class ReplicaRouterTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private ReplicaRouter router;
+
+    @AfterEach
+    void stop() {
+        if (router != null) {
+            router.stop();
+        }
+    }
+
+    @Test
+    void roundRobinSkipsLaggingReplica() {
+        router = router(1L, 30L, 0L);
+        router.checkReplicas();
+
+        List<String> routes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            routes.add(router.route());
+        }
+
+        assertEquals(List.of("replica-0", "replica-2", "replica-0", "replica-2"), routes);
+    }
+
+    @Test
+    void allReplicasUnavailableFallsBackToPrimary() {
+        // 复制线程未运行时延迟为null
+        router = router(30L, null);
+        assertEquals(ReplicaRouter.PRIMARY, router.route());
+
+        router.checkReplicas();
+        assertEquals(ReplicaRouter.PRIMARY, router.route());
+    }
+
+    @Test
+    void sessionReadsPrimaryAfterItsWrite() throws Exception {
+        router = router(0L);
+        router.checkReplicas();
+        QueryContext writer = new QueryContext(10_000, "c1");
+        QueryContext other = new QueryContext(10_000, "c2");
+
+        router.recordWrite(writer, Set.of("orders"));
+
+        assertEquals(ReplicaRouter.PRIMARY, writer.call(router::route));
+        assertEquals("replica-0", other.call(router::route));
+    }
+
+    @Test
+    void recentlyWrittenTablesReadFromPrimary() throws Exception {
+        router = router(0L);
+        router.recordWrite(null, Set.of("orders"));
+
+        assertTrue(router.isRecentlyWritten(Set.of("orders", "users")));
+        assertFalse(router.isRecentlyWritten(Set.of("users")));
+        assertFalse(router.isRecentlyWritten(null));
+
+        // 无法识别写入表时所有表都视为刚写入
+        router.recordWrite(null, null);
+        assertTrue(router.isRecentlyWritten(Set.of("users")));
+
+        Thread.sleep(250);
+        router.checkReplicas();
+        assertFalse(router.isRecentlyWritten(Set.of("orders")));
+    }
+
+    @Test
+    void withoutReplicasEverythingReadsPrimary() {
+        router = router();
+        router.recordWrite(null, Set.of("orders"));
+
+        assertEquals(ReplicaRouter.PRIMARY, router.route());
+        assertFalse(router.isRecentlyWritten(Set.of("orders")));
+    }
+
+    @Test
+    void routingDataSourceUsesPrimaryWhenNoReplicaIsHealthy() throws Exception {
+        router = router(30L);
+        router.checkReplicas();
+        Connection connection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(connection);
+
+        ReadRoutingDataSource dataSource = new ReadRoutingDataSource(router);
+        dataSource.afterPropertiesSet();
+
+        assertSame(connection, dataSource.getConnection());
+    }
+
+    /**
+     * 按给定复制延迟构造副本，延迟检查读取的是模拟的复制状态
+     */
+    private ReplicaRouter router(Long... lags) {
+        ReplicaProperties properties = new ReplicaProperties();
+        properties.setStickyWindow(200);
+        for (int i = 0; i < lags.length; i++) {
+            ReplicaProperties.Replica replica = new ReplicaProperties.Replica();
+            replica.setUrl("jdbc:mysql://replica-" + i + ":3306/test");
+            properties.getReplicas().add(replica);
+        }
+        try (MockedConstruction<JdbcTemplate> ignored = mockConstruction(JdbcTemplate.class, (template, context) -> {
+            Map<String, Object> status = new HashMap<>();
+            status.put("Seconds_Behind_Source", lags[context.getCount() - 1]);
+            when(template.queryForList("SHOW REPLICA STATUS")).thenReturn(List.of(status));
+        })) {
+            return new ReplicaRouter(primary, properties, "root", "root", null);
+        }
+    }
+}
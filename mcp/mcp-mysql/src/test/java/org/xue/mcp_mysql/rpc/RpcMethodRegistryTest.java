@@ -0,0 +1,161 @@
+package org.xue.mcp_mysql.rpc;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xue.mcp_mysql.annotation.FunctionCallable;
+import org.xue.mcp_mysql.annotation.FunctionParam;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RpcMethodRegistryTest {
+
+    private RpcMethodRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new RpcMethodRegistry();
+        registry.postProcessAfterInitialization(new SampleServiceImpl(), "sampleService");
+    }
+
+    @Test
+    void annotatedInterfaceMethodsAreRegistered() {
+        assertNotNull(registry.get("describe"));
+        assertNotNull(registry.get("page"));
+        assertNotNull(registry.get("filter"));
+        assertNull(registry.get("internal"));
+
+        List<RpcMethod> annotated = registry.getAnnotatedMethods();
+        assertEquals(List.of("describe", "fail", "filter", "page"), annotated.stream().map(RpcMethod::getName).toList());
+        assertEquals("描述表", registry.get("describe").getDescription());
+        assertTrue(registry.get("describe").isAnnotated());
+    }
+
+    @Test
+    void namedParamsAreConvertedToDeclaredTypes() throws Throwable {
+        // JSON数字解析为Integer，按声明类型转换为Long；可选参数缺失时为null
+        assertEquals("users:5:null", registry.get("describe").invoke(Map.of("table", "users", "limit", 5)));
+        assertEquals("users:null:[id, name]", registry.get("describe").invoke(
+                Map.of("table", "users", "columns", List.of("id", "name"))));
+    }
+
+    @Test
+    void positionalParamsAreBoundByIndex() throws Throwable {
+        assertEquals("orders:10:[id]", registry.get("describe").invoke(List.of("orders", 10, List.of("id"))));
+        assertEquals("orders:null:null", registry.get("describe").invoke(List.of("orders")));
+    }
+
+    @Test
+    void mapParamIsPassedThroughUnchanged() throws Throwable {
+        Map<String, Object> conditions = Map.of("status", "active");
+        assertSame(conditions, registry.get("filter").invoke(Map.of("conditions", conditions)));
+    }
+
+    @Test
+    void missingRequiredParamIsRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> registry.get("describe").invoke(Map.of("limit", 5)));
+        assertEquals("缺少必需参数: table", e.getMessage());
+
+        IllegalArgumentException nullParams = assertThrows(IllegalArgumentException.class,
+                () -> registry.get("describe").invoke(null));
+        assertEquals("缺少必需参数: table", nullParams.getMessage());
+    }
+
+    @Test
+    void primitiveParamIsAlwaysRequired() throws Throwable {
+        assertEquals(3, registry.get("page").invoke(Map.of("number", "3")));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> registry.get("page").invoke(Map.of()));
+        assertEquals("缺少必需参数: number", e.getMessage());
+    }
+
+    @Test
+    void mismatchedTypeIsRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> registry.get("describe").invoke(Map.of("table", "users", "limit", "many")));
+        assertTrue(e.getMessage().startsWith("参数类型不匹配: limit"), e.getMessage());
+    }
+
+    @Test
+    void exceptionFromTargetIsPropagatedUnwrapped() {
+        UnsupportedOperationException e = assertThrows(UnsupportedOperationException.class,
+                () -> registry.get("fail").invoke(Map.of()));
+        assertEquals("不支持", e.getMessage());
+    }
+
+    @Test
+    void builtinReceivesRawParamsAndIsNotAnnotated() throws Throwable {
+        registry.registerBuiltin("raw", params -> params);
+        List<Object> params = Arrays.asList(1, "a");
+
+        assertSame(params, registry.get("raw").invoke(params));
+        assertFalse(registry.get("raw").isAnnotated());
+        assertFalse(registry.getAnnotatedMethods().stream().anyMatch(method -> method.getName().equals("raw")));
+    }
+
+    @Test
+    void duplicateNameKeepsFirstRegistration() throws Throwable {
+        registry.registerBuiltin("describe", params -> "builtin");
+
+        assertTrue(registry.get("describe").isAnnotated());
+        assertEquals("t:null:null", registry.get("describe").invoke(Map.of("table", "t")));
+    }
+
+    public interface SampleService {
+
+        @FunctionCallable(description = "描述表")
+        String describe(@FunctionParam(required = true) String table,
+                        @FunctionParam Long limit,
+                        @FunctionParam List<String> columns);
+
+        @FunctionCallable
+        int page(@FunctionParam int number);
+
+        @FunctionCallable
+        Object filter(@FunctionParam Map<String, Object> conditions);
+
+        @FunctionCallable
+        void fail();
+
+        String internal();
+    }
+
+    public static class SampleServiceImpl implements SampleService {
+
+        @Override
+        public String describe(String table, Long limit, List<String> columns) {
+            return table + ":" + limit + ":" + columns;
+        }
+
+        @Override
+        public int page(int number) {
+            return number;
+        }
+
+        @Override
+        public Object filter(Map<String, Object> conditions) {
+            return conditions;
+        }
+
+        @Override
+        public void fail() {
+            throw new UnsupportedOperationException("不支持");
+        }
+
+        @Override
+        public String internal() {
+            return "internal";
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package org.xue.mcp_mysql.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xue.mcp_mysql.cache.MetadataCatalog;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.xue.mcp_mysql.cache.QueryResultCache;
+import org.xue.mcp_mysql.enums.ResultFormat;
+import org.xue.mcp_mysql.execution.QueryExecutor;
+import org.xue.mcp_mysql.guard.GuardDecision;
+import org.xue.mcp_mysql.guard.QueryCostGuard;
+import org.xue.mcp_mysql.model.SqlQueryResult;
+import org.xue.mcp_mysql.model.SqlUpdateResult;
+import org.xue.mcp_mysql.routing.ReplicaRouter;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DatabaseServiceImplTest {
+
+    private static final String INSERT = "INSERT INTO orders (id) VALUES (:id)";
+    private static final String UPDATE = "UPDATE orders SET note = :note WHERE id = :id";
+    private static final String SELECT = "SELECT id FROM orders WHERE status = :status";
+    private static final Map<String, Object> SELECT_PARAMS = Map.of("status", "paid");
+
+    private PreparedStatement insertStatement;
+    private PreparedStatement updateStatement;
+    private PreparedStatement selectStatement;
+    private QueryCostGuard queryCostGuard;
+    private QueryExecutor queryExecutor;
+    private DatabaseServiceImpl service;
+
+    /**
+     * 模拟结果集的总行数和驱动按setMaxRows截断后的行数
+     */
+    private int totalRows;
+    private final List<Integer> maxRowsSet = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        insertStatement = mock(PreparedStatement.class);
+        updateStatement = mock(PreparedStatement.class);
+        selectStatement = mock(PreparedStatement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(metaData.supportsBatchUpdates()).thenReturn(true);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            if (sql.startsWith("SELECT")) {
+                return selectStatement;
+            }
+            return sql.startsWith("INSERT") ? insertStatement : updateStatement;
+        });
+        when(insertStatement.getConnection()).thenReturn(connection);
+        when(updateStatement.getConnection()).thenReturn(connection);
+        when(selectStatement.getConnection()).thenReturn(connection);
+
+        queryCostGuard = mock(QueryCostGuard.class);
+        queryExecutor = mock(QueryExecutor.class);
+        service = new DatabaseServiceImpl(dataSource, dataSource, new ObjectMapper(), mock(QueryResultCache.class),
+                mock(MetadataCatalog.class), queryCostGuard, queryExecutor, mock(ReplicaRouter.class));
+    }
+
+    @Test
+    void rewrittenBatchReportsUnknownAffected() throws Exception {
+        // rewriteBatchedStatements=true时驱动把同组INSERT改写为多值语句，每条返回SUCCESS_NO_INFO
+        when(insertStatement.executeBatch()).thenReturn(new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO});
+        when(updateStatement.executeUpdate()).thenReturn(1);
+
+        SqlUpdateResult result = service.executeBatch(List.of(
+                Map.of("sql", INSERT, "params", Map.of("id", 1)),
+                Map.of("sql", INSERT, "params", Map.of("id", 2)),
+                Map.of("sql", UPDATE, "params", Map.of("id", 1, "note", "x"))));
+
+        assertEquals("success", result.getStatus());
+        assertTrue(result.isAffectedUnknown());
+        assertEquals(1, result.getAffected());
+        assertArrayEquals(new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO, 1}, result.getCounts());
+    }
+
+    @Test
+    void knownCountsAreSummed() throws Exception {
+        when(insertStatement.executeBatch()).thenReturn(new int[]{1, 1});
+
+        SqlUpdateResult result = service.executeBatch(List.of(
+                Map.of("sql", INSERT, "params", Map.of("id", 1)),
+                Map.of("sql", INSERT, "params", Map.of("id", 2))));
+
+        assertFalse(result.isAffectedUnknown());
+        assertEquals(2, result.getAffected());
+    }
+
+    @Test
+    void cursorRoundTripsAcrossPageBoundaries() throws Exception {
+        mockOrdersQuery(5, 2);
+
+        SqlQueryResult first = service.executeQuery(SELECT, SELECT_PARAMS, null, ResultFormat.ROWS);
+        assertEquals(List.of(1L, 2L), ids(first));
+        assertTrue(first.isTruncated());
+        assertNotNull(first.getNextCursor());
+
+        SqlQueryResult second = service.executeQuery(SELECT, SELECT_PARAMS, first.getNextCursor(), ResultFormat.ROWS);
+        assertEquals(List.of(3L, 4L), ids(second));
+        assertTrue(second.isTruncated());
+
+        SqlQueryResult last = service.executeQuery(SELECT, SELECT_PARAMS, second.getNextCursor(), ResultFormat.ROWS);
+        assertEquals(List.of(5L), ids(last));
+        assertFalse(last.isTruncated());
+        assertNull(last.getNextCursor());
+
+        // 每页只让驱动多读一行用于判断是否还有下一页
+        assertEquals(List.of(3, 5, 7), maxRowsSet);
+    }
+
+    @Test
+    void exactMultipleOfPageSizeEndsWithoutEmptyPage() throws Exception {
+        mockOrdersQuery(4, 2);
+
+        SqlQueryResult first = service.executeQuery(SELECT, SELECT_PARAMS, null, ResultFormat.ROWS);
+        SqlQueryResult second = service.executeQuery(SELECT, SELECT_PARAMS, first.getNextCursor(), ResultFormat.ROWS);
+
+        assertEquals(List.of(3L, 4L), ids(second));
+        assertEquals(2, second.getCount());
+        assertFalse(second.isTruncated());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void byteCeilingTruncatesButAlwaysAdvances() throws Exception {
+        mockOrdersQuery(3, 100);
+        ReflectionTestUtils.setField(service, "maxBytes", 1L);
+
+        SqlQueryResult first = service.executeQuery(SELECT, SELECT_PARAMS, null, ResultFormat.ROWS);
+        assertEquals(List.of(1L), ids(first));
+        assertTrue(first.isTruncated());
+
+        SqlQueryResult second = service.executeQuery(SELECT, SELECT_PARAMS, first.getNextCursor(), ResultFormat.ROWS);
+        assertEquals(List.of(2L), ids(second));
+    }
+
+    @Test
+    void cursorIsBoundToItsQuery() {
+        String cursor = QueryCursor.encode(SELECT, SELECT_PARAMS, 40);
+
+        assertEquals(40, QueryCursor.decode(cursor, SELECT, Map.of("status", "paid")));
+        assertEquals(0, QueryCursor.decode(null, SELECT, SELECT_PARAMS));
+        assertEquals("分页游标与当前查询不匹配", assertThrows(IllegalArgumentException.class,
+                () -> QueryCursor.decode(cursor, SELECT, Map.of("status", "refunded"))).getMessage());
+        assertEquals("分页游标与当前查询不匹配", assertThrows(IllegalArgumentException.class,
+                () -> QueryCursor.decode(cursor, "SELECT id FROM users", SELECT_PARAMS)).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> QueryCursor.decode("not-a-cursor", SELECT, SELECT_PARAMS));
+    }
+
+    /**
+     * 模拟orders表的id列，驱动按setMaxRows限制返回的行数
+     */
+    private void mockOrdersQuery(int rows, int pageSize) throws Exception {
+        totalRows = rows;
+        ReflectionTestUtils.setField(service, "maxRows", pageSize);
+        ReflectionTestUtils.setField(service, "maxBytes", 1_048_576L);
+
+        GuardDecision decision = mock(GuardDecision.class);
+        when(decision.sqlOr(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(queryCostGuard.check(anyString(), any())).thenReturn(decision);
+        when(queryExecutor.execute(any())).thenAnswer(invocation -> ((Callable<?>) invocation.getArgument(0)).call());
+
+        int[] maxRows = new int[1];
+        doAnswer(invocation -> {
+            maxRows[0] = invocation.getArgument(0);
+            maxRowsSet.add(maxRows[0]);
+            return null;
+        }).when(selectStatement).setMaxRows(anyInt());
+
+        AtomicInteger position = new AtomicInteger();
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnLabel(1)).thenReturn("id");
+        when(metaData.getColumnTypeName(1)).thenReturn("BIGINT");
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(resultSet.next()).thenAnswer(invocation ->
+                position.incrementAndGet() <= (maxRows[0] > 0 ? Math.min(totalRows, maxRows[0]) : totalRows));
+        when(resultSet.getObject(1)).thenAnswer(invocation -> (long) position.get());
+        when(selectStatement.executeQuery()).thenAnswer(invocation -> {
+            position.set(0);
+            return resultSet;
+        });
+    }
+
+    private static List<Object> ids(SqlQueryResult result) {
+        assertEquals("success", result.getStatus(), result.getError());
+        List<Object> ids = new ArrayList<>();
+        for (Map<String, Object> row : result.getRows()) {
+            ids.add(row.get("id"));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,112 @@
+package org.xue.mcp_mysql.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xue.mcp_mysql.enums.ApiFormatType;
+import org.xue.mcp_mysql.rpc.RpcMethodRegistry;
+import org.xue.mcp_mysql.rpc.RpcMethodRegistryTest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ExposureApiServiceImplTest {
+
+    private ExposureApiServiceImpl exposureApiService;
+
+    @BeforeEach
+    void setUp() {
+        RpcMethodRegistry registry = new RpcMethodRegistry();
+        registry.postProcessAfterInitialization(new RpcMethodRegistryTest.SampleServiceImpl(), "sampleService");
+        registry.registerBuiltin("getApiSchema", params -> null);
+
+        exposureApiService = new ExposureApiServiceImpl(new ObjectMapper(), registry);
+        exposureApiService.afterSingletonsInstantiated();
+    }
+
+    @Test
+    void rpcJsonSchemaListsRegisteredMethodsSortedByName() {
+        List<Map<String, Object>> functions = functions(ApiFormatType.RPC_JSON);
+
+        // 内置方法与未标注的方法不出现在描述中
+        assertEquals(List.of("describe", "fail", "filter", "page"), functions.stream().map(f -> f.get("name")).toList());
+        assertEquals("描述表", functions.get(0).get("description"));
+    }
+
+    @Test
+    void requiredFollowsBindingRulesInBothFormats() {
+        for (ApiFormatType formatType : ApiFormatType.values()) {
+            Map<String, Map<String, Object>> byName = parametersByName(formatType);
+
+            assertEquals(List.of("table"), byName.get("describe").get("required"));
+            // 基本类型参数调用时必需，描述中同样标为必需
+            assertEquals(List.of("number"), byName.get("page").get("required"));
+            assertNull(byName.get("filter").get("required"));
+        }
+    }
+
+    @Test
+    void parameterTypesAndDescriptionsAreDescribed() {
+        Map<String, Object> rpcProperties = properties(parametersByName(ApiFormatType.RPC_JSON).get("describe"));
+        assertEquals("string", property(rpcProperties, "table").get("type"));
+        assertEquals("number", property(rpcProperties, "limit").get("type"));
+        assertEquals("array", property(rpcProperties, "columns").get("type"));
+        assertEquals(Map.of("type", "object"), property(rpcProperties, "columns").get("items"));
+        assertEquals("", property(rpcProperties, "table").get("description"));
+
+        Map<String, Object> toolProperties = properties(parametersByName(ApiFormatType.FUNCTION_CALLING).get("describe"));
+        assertEquals("array", property(toolProperties, "columns").get("type"));
+        assertFalse(property(toolProperties, "columns").containsKey("items"));
+        assertEquals("number", property(properties(parametersByName(ApiFormatType.FUNCTION_CALLING).get("page")), "number").get("type"));
+        assertEquals("object", property(properties(parametersByName(ApiFormatType.RPC_JSON).get("filter")), "conditions").get("type"));
+    }
+
+    @Test
+    void snapshotsAreSerializedOnceWithStableVersion() {
+        assertNotNull(exposureApiService.getSchemaVersion());
+        byte[] json = exposureApiService.getApiSchema(ApiFormatType.RPC_JSON).getJson();
+        String version = exposureApiService.getSchemaVersion();
+
+        exposureApiService.init();
+
+        assertArrayEquals(json, exposureApiService.getApiSchema(ApiFormatType.RPC_JSON).getJson());
+        assertEquals(version, exposureApiService.getSchemaVersion());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> functions(ApiFormatType formatType) {
+        Map<String, Object> description = exposureApiService.getApiDescription(formatType);
+        if (formatType == ApiFormatType.FUNCTION_CALLING) {
+            return ((List<Map<String, Object>>) description.get("tools")).stream()
+                    .map(tool -> (Map<String, Object>) tool.get("function"))
+                    .toList();
+        }
+        return (List<Map<String, Object>>) description.get("functions");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Map<String, Object>> parametersByName(ApiFormatType formatType) {
+        Map<String, Map<String, Object>> byName = new HashMap<>();
+        for (Map<String, Object> function : functions(formatType)) {
+            byName.put((String) function.get("name"), (Map<String, Object>) function.get("parameters"));
+        }
+        return byName;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> properties(Map<String, Object> parameters) {
+        return (Map<String, Object>) parameters.get("properties");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> property(Map<String, Object> properties, String name) {
+        return (Map<String, Object>) properties.get(name);
+    }
+}
@@ -3,18 +3,53 @@ package org.xue.milvus.config;
 import io.milvus.client.MilvusClient;
 import io.milvus.client.MilvusServiceClient;
 import io.milvus.param.ConnectParam;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class config_ {
 
-    @Bean
+    @Value("${milvus.host:localhost}")
+    private String host;
+
+    @Value("${milvus.port:19530}")
+    private int port;
+
+    /**
+     * 建立连接超时（毫秒）
+     */
+    @Value("${milvus.connect-timeout:10000}")
+    private long connectTimeout;
+
+    /**
+     * 空闲时发送keepalive探测的间隔（毫秒），保持长连接不被中间设备断开
+     */
+    @Value("${milvus.keep-alive-time:55000}")
+    private long keepAliveTime;
+
+    @Value("${milvus.keep-alive-timeout:20000}")
+    private long keepAliveTimeout;
+
+    /**
+     * 整个应用共享一个客户端：底层gRPC通道基于HTTP/2多路复用，线程安全，并发请求无需连接池；
+     * 只在容器关闭时断开。
+     * 构造时会立即连接，因此延迟到首次使用时创建，Milvus不可用时不影响启动，创建失败后下次使用会重新创建
+     */
+    @Lazy
+    @Bean(destroyMethod = "close")
     public MilvusClient milvusClient(){
         return new MilvusServiceClient(
                 ConnectParam.newBuilder()
-                        .withHost("localhost")
-                        .withPort(19530)
+                        .withHost(host)
+                        .withPort(port)
+                        .withConnectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+                        .withKeepAliveTime(keepAliveTime, TimeUnit.MILLISECONDS)
+                        .withKeepAliveTimeout(keepAliveTimeout, TimeUnit.MILLISECONDS)
+                        .keepAliveWithoutCalls(true)
                         .build()
         );
     }
@@ -1,11 +1,18 @@
 package org.xue.milvus.controller;
 
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.xue.api.milvus.dto.BatchInsertChunksRequest;
+import org.xue.api.milvus.dto.BatchInsertChunksResponse;
+import org.xue.api.milvus.dto.BatchSearchChunksRequest;
+import org.xue.api.milvus.dto.ChunkHit;
 import org.xue.api.milvus.dto.InsertChunksRequest;
 import org.xue.api.milvus.dto.SearchChunksRequest;
 import org.xue.milvus.service.ChunkMilvusService;
@@ -17,13 +24,24 @@ import java.util.List;
  */
 @RestController
 @RequestMapping("/api/milvus")
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class ChunkMilvusController {
 
     private static final Logger log = LoggerFactory.getLogger(ChunkMilvusController.class);
+
+    /**
+     * Milvus允许的topK上限
+     */
+    private static final int MAX_TOP_K = 16384;
     
     private final ChunkMilvusService chunkMilvusService;
 
+    /**
+     * 批量检索单次请求最多的查询数，embedding和检索都在一个请求内完成
+     */
+    @Value("${milvus.max-batch-queries:64}")
+    private int maxBatchQueries;
+
     /**
      * 健康检查端点
      */
@@ -34,13 +52,13 @@ public class ChunkMilvusController {
     }
 
     /**
-     * 创建集合
+     * 创建集合，并加载到内存
      */
     @PostMapping("/collections/create")
     public void createCollection() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         log.info("收到创建集合请求，认证信息：{}", auth != null ? auth.getName() : "未认证");
-        chunkMilvusService.createCollectionIfNotExists();
+        chunkMilvusService.ensureReady();
     }
 
     /**
@@ -56,6 +74,25 @@ public class ChunkMilvusController {
         chunkMilvusService.insertChunks(request.getDocText(), request.getDocId());
     }
 
+    /**
+     * 批量插入多个文档
+     */
+    @PostMapping("/chunks/insert/batch")
+    public BatchInsertChunksResponse insertChunksBatch(@RequestBody BatchInsertChunksRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        log.info("收到批量插入分块请求，文档数={}，认证信息：{}",
+                request.getDocuments() != null ? request.getDocuments().size() : 0,
+                auth != null ? auth.getName() : "未认证");
+        if (request.getDocuments() == null || request.getDocuments().isEmpty()) {
+            return new BatchInsertChunksResponse(0, 0, 0);
+        }
+        BatchInsertChunksResponse response = chunkMilvusService.insertDocuments(request.getDocuments());
+        if (response.getError() != null) {
+            log.warn("批量插入未全部完成，已写入分块数={}，原因：{}", response.getChunks(), response.getError());
+        }
+        return response;
+    }
+
     /**
      * 搜索相似数据
      */
@@ -66,6 +103,7 @@ public class ChunkMilvusController {
                 request.getQueryText() != null ? request.getQueryText().substring(0, Math.min(30, request.getQueryText().length())) + "..." : "null",
                 request.getTopK(),
                 auth != null ? auth.getName() : "未认证");
+        validateTopK(request.getTopK());
         
         try {
             List<String> results = chunkMilvusService.searchSimilarChunks(request.getQueryText(), request.getTopK());
@@ -77,6 +115,38 @@ public class ChunkMilvusController {
         }
     }
 
+    /**
+     * 批量搜索：多条查询在一次检索中完成，结果顺序与查询顺序一致
+     */
+    @PostMapping("/chunks/search/batch")
+    public List<List<ChunkHit>> searchChunksBatch(@RequestBody BatchSearchChunksRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        log.info("收到批量搜索分块请求，查询数={}，topK={}，认证信息：{}",
+                request.getQueryTexts() != null ? request.getQueryTexts().size() : 0,
+                request.getTopK(),
+                auth != null ? auth.getName() : "未认证");
+        validateTopK(request.getTopK());
+        if (request.getQueryTexts() != null && request.getQueryTexts().size() > maxBatchQueries) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "查询数超过上限: " + request.getQueryTexts().size() + " > " + maxBatchQueries);
+        }
+
+        try {
+            List<List<ChunkHit>> results = chunkMilvusService.searchSimilarChunksBatch(request.getQueryTexts(), request.getTopK());
+            log.info("批量搜索成功，返回{}组结果", results.size());
+            return results;
+        } catch (Exception e) {
+            log.error("批量搜索分块时发生错误", e);
+            throw e;
+        }
+    }
+
+    private static void validateTopK(int topK) {
+        if (topK <= 0 || topK > MAX_TOP_K) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "topK需在1到" + MAX_TOP_K + "之间: " + topK);
+        }
+    }
+
     /**
      * 删除数据
      */
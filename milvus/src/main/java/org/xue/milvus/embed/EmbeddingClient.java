@@ -37,10 +37,7 @@ public class EmbeddingClient {
         Map<String, String> req = new HashMap<>();
         req.put("text", text);
         ResponseEntity<Map> resp = restTemplate.postForEntity(baseUrl + "/embed_one", req, Map.class);
-        List<?> emb = (List<?>) resp.getBody().get("embedding");
-        List<Float> result = new ArrayList<>();
-        for (Object o : emb) result.add(Float.valueOf(o.toString()));
-        return result;
+        return toFloats((List<?>) resp.getBody().get("embedding"));
     }
 
     // 3. 批量文本向量化
@@ -50,12 +47,7 @@ public class EmbeddingClient {
         ResponseEntity<Map> resp = restTemplate.postForEntity(baseUrl + "/embed_batch", req, Map.class);
         List<?> arr = (List<?>) resp.getBody().get("embeddings");
         List<List<Float>> result = new ArrayList<>();
-        for (Object o : arr) {
-            List<?> emb = (List<?>) o;
-            List<Float> one = new ArrayList<>();
-            for (Object x : emb) one.add(Float.valueOf(x.toString()));
-            result.add(one);
-        }
+        for (Object o : arr) result.add(toFloats((List<?>) o));
         return result;
     }
 
@@ -68,13 +60,18 @@ public class EmbeddingClient {
         List<ChunkEmbedding> result = new ArrayList<>();
         for (Map<String, Object> map : arr) {
             String chunk = map.get("chunk").toString();
-            List<Float> emb = new ArrayList<>();
-            for (Object o : (List<?>) map.get("embedding")) emb.add(Float.valueOf(o.toString()));
-            result.add(new ChunkEmbedding(chunk, emb));
+            result.add(new ChunkEmbedding(chunk, toFloats((List<?>) map.get("embedding"))));
         }
         return result;
     }
 
+    // JSON数组元素已是Number，直接取float值，避免经字符串转换
+    private static List<Float> toFloats(List<?> values) {
+        List<Float> result = new ArrayList<>(values.size());
+        for (Object o : values) result.add(((Number) o).floatValue());
+        return result;
+    }
+
     // 内部实体类
     @Data
     public static class ChunkEmbedding {
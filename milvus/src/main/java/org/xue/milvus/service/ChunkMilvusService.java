@@ -7,11 +7,19 @@ import io.milvus.param.*;
 import io.milvus.param.collection.*;
 import io.milvus.param.dml.*;
 import io.milvus.param.index.CreateIndexParam;
+import io.milvus.param.index.DescribeIndexParam;
 import io.milvus.response.SearchResultsWrapper;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import org.xue.api.milvus.dto.BatchInsertChunksResponse;
+import org.xue.api.milvus.dto.ChunkHit;
+import org.xue.api.milvus.dto.InsertChunksRequest;
 import org.xue.milvus.embed.EmbeddingClient;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @Slf4j
@@ -37,19 +45,80 @@ public class ChunkMilvusService {
     private static final IndexType SCALAR_INDEX_TYPE = IndexType.TRIE;
     private static final MetricType METRIC_TYPE = MetricType.COSINE;
 
-    public ChunkMilvusService(MilvusClient milvusClient, EmbeddingClient embeddingClient) {
+    private static final String VECTOR_INDEX_NAME = "embedding_index";
+    private static final String SCALAR_INDEX_NAME = "doc_id_index";
+
+    private static final String SEARCH_PARAMS = "{\"nprobe\":10}";
+
+    /**
+     * 集合、索引已确认存在且集合已加载到内存
+     */
+    private volatile boolean ready;
+
+    /**
+     * 批量插入时每次请求embedding服务的分块数
+     */
+    private final int embeddingBatchSize;
+
+    /**
+     * 批量插入时单个Milvus插入请求的估算字节数上限，低于gRPC消息大小限制
+     */
+    private final long insertBatchBytes;
+
+    /**
+     * @param milvusClient 延迟注入的客户端代理，首次调用时才建立连接
+     */
+    public ChunkMilvusService(@Lazy MilvusClient milvusClient, EmbeddingClient embeddingClient,
+                              @Value("${milvus.embedding-batch-size:64}") int embeddingBatchSize,
+                              @Value("${milvus.insert-batch-bytes:16777216}") long insertBatchBytes) {
         this.milvusClient = milvusClient;
         this.embeddingClient = embeddingClient;
+        this.embeddingBatchSize = Math.max(1, embeddingBatchSize);
+        this.insertBatchBytes = Math.max(1, insertBatchBytes);
+    }
+
+    /**
+     * 启动时检查一次集合和索引并加载集合；Milvus暂不可用时不阻止启动，首次读写时再检查
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            ensureReady();
+        } catch (Exception e) {
+            log.warn("Milvus集合初始化失败，将在首次读写时重试: {}", e.getMessage());
+        }
     }
 
     /**
-     * 建表（只需一次）
+     * 确保集合、索引存在且集合已加载，成功后不再重复检查
      */
-    public void createCollectionIfNotExists() {
+    public void ensureReady() {
+        if (ready) {
+            return;
+        }
+        synchronized (this) {
+            if (ready) {
+                return;
+            }
+            createCollectionIfNotExists();
+            // 集合常驻内存，新写入的数据无需重新加载即可检索
+            check(milvusClient.loadCollection(
+                LoadCollectionParam.newBuilder().withCollectionName(COLLECTION).build()
+            ), "加载集合");
+            ready = true;
+            log.info("Milvus集合 {} 已就绪并加载到内存", COLLECTION);
+        }
+    }
+
+    /**
+     * 建表及索引（只需一次），只由ensureReady调用
+     */
+    private void createCollectionIfNotExists() {
 
         R<Boolean> exist = milvusClient.hasCollection(
             HasCollectionParam.newBuilder().withCollectionName(COLLECTION).build()
         );
+        check(exist, "检查集合");
         if (exist.getData() != Boolean.TRUE) {
 
             // 1. 定义一个 CollectionSchemaParam
@@ -61,49 +130,59 @@ public class ChunkMilvusService {
                 // … 更多字段 …
                 .build();
 
-//            FieldType pk = FieldType.newBuilder().withName(PK_FIELD).withDataType(DataType.Int64).withPrimaryKey(true).withAutoID(true).build(); //设置自增 IDwithAutoID(true)
-//            FieldType txt = FieldType.newBuilder().withName(TEXT_FIELD).withDataType(DataType.VarChar).withMaxLength(1024).build();
-//            FieldType vec = FieldType.newBuilder().withName(VECTOR_FIELD).withDataType(DataType.FloatVector).withDimension(VECTOR_DIM).build(); //设置向量维度 withDimension(VECTOR_DIM)
-//            FieldType docId = FieldType.newBuilder().withName(DOC_ID).withDataType(DataType.VarChar).withMaxLength(100).build(); //用于删除文档向量数据
-
             CreateCollectionParam createParam = CreateCollectionParam.newBuilder()
                     .withCollectionName(COLLECTION)
                     .withDescription("Doc Chunks Embedding")
                     .withSchema(schema)
                     .withShardsNum(2)
-//                    .addFieldType(pk)
-//                    .addFieldType(txt)
-//                    .addFieldType(vec)
-//                    .addFieldType(docId)
                     .build();
-            milvusClient.createCollection(createParam);
+            check(milvusClient.createCollection(createParam), "创建集合");
+            log.info("已创建Milvus集合 {}", COLLECTION);
+        }
 
-            // Create index
-            milvusClient.createIndex(
+        // 集合已存在时也确认索引存在，缺失的补建
+        if (!hasIndex(VECTOR_INDEX_NAME)) {
+            check(milvusClient.createIndex(
               CreateIndexParam.newBuilder()
-                .withCollectionName("doc_chunk")
-                .withIndexName("embedding_index")
-                .withFieldName("embedding")
+                .withCollectionName(COLLECTION)
+                .withIndexName(VECTOR_INDEX_NAME)
+                .withFieldName(VECTOR_FIELD)
                 .withIndexType(VECTOR_INDEX_TYPE)
                 .withMetricType(METRIC_TYPE)
                 .withExtraParam("{}")
                 .withSyncMode(Boolean.FALSE)
                 .build()
-            );
+            ), "创建向量索引");
+        }
 
-            // Create index
-            milvusClient.createIndex(
+        if (!hasIndex(SCALAR_INDEX_NAME)) {
+            check(milvusClient.createIndex(
               CreateIndexParam.newBuilder()
-                .withCollectionName("doc_chunk")
-                .withIndexName("doc_id_index")
-                .withFieldName("chunk")
+                .withCollectionName(COLLECTION)
+                .withIndexName(SCALAR_INDEX_NAME)
+                .withFieldName(TEXT_FIELD)
                 .withIndexType(SCALAR_INDEX_TYPE)
                 .withSyncMode(Boolean.FALSE)
                 .build()
-            );
+            ), "创建标量索引");
+        }
+    }
+
+    private boolean hasIndex(String indexName) {
+        R<?> resp = milvusClient.describeIndex(
+            DescribeIndexParam.newBuilder().withCollectionName(COLLECTION).withIndexName(indexName).build()
+        );
+        return resp.getStatus() == R.Status.Success.getCode();
+    }
 
-            close();
+    /**
+     * Milvus SDK以返回值而非异常报告失败，这里统一转为异常
+     */
+    private static <T> R<T> check(R<T> resp, String action) {
+        if (resp.getStatus() != R.Status.Success.getCode()) {
+            throw new IllegalStateException(action + "失败: " + resp.getMessage(), resp.getException());
         }
+        return resp;
     }
 
     /**
@@ -111,8 +190,7 @@ public class ChunkMilvusService {
      */
     public void insertChunks(String docText, String docId) {
 
-        //建表
-        createCollectionIfNotExists();
+        ensureReady();
 
         List<EmbeddingClient.ChunkEmbedding> chunkEmbeddings = embeddingClient.splitEmbed(docText);
 
@@ -139,13 +217,109 @@ public class ChunkMilvusService {
                 .withFields(fields)
                 .build();
 
-        milvusClient.insert(param);
-        // 加载内存
-        milvusClient.loadCollection(
-            LoadCollectionParam.newBuilder().withCollectionName(COLLECTION).build()
-        );
+        check(milvusClient.insert(param), "插入分块");
+    }
+
+    /**
+     * 批量写入多个文档：先逐个切分，再按批请求embedding，插入请求按估算的消息大小分批发送。
+     * 各插入请求独立生效，不是原子的：中途失败时已发送的批次保留，返回截至失败时写入的分块数和失败原因
+     *
+     * @param documents 文档文本及文档ID
+     * @return 写入统计
+     */
+    public BatchInsertChunksResponse insertDocuments(List<InsertChunksRequest> documents) {
+
+        ensureReady();
+
+        List<String> pendingChunks = new ArrayList<>(embeddingBatchSize);
+        List<String> pendingDocIds = new ArrayList<>(embeddingBatchSize);
+        InsertBuffer buffer = new InsertBuffer();
+        int documentCount = 0;
+
+        try {
+            for (InsertChunksRequest document : documents) {
+                if (document.getDocText() == null || document.getDocText().isEmpty()) {
+                    continue;
+                }
+                documentCount++;
+                for (String chunk : embeddingClient.split(document.getDocText())) {
+                    pendingChunks.add(chunk);
+                    pendingDocIds.add(document.getDocId());
+                    if (pendingChunks.size() >= embeddingBatchSize) {
+                        embedInto(buffer, pendingChunks, pendingDocIds);
+                    }
+                }
+            }
+            if (!pendingChunks.isEmpty()) {
+                embedInto(buffer, pendingChunks, pendingDocIds);
+            }
+            buffer.flush();
+        } catch (RuntimeException e) {
+            log.error("批量插入中途失败，已写入分块数={}，插入请求数={}", buffer.totalRows, buffer.requests, e);
+            return new BatchInsertChunksResponse(documentCount, buffer.totalRows, buffer.requests, e.getMessage());
+        }
 
-        close();
+        log.info("批量插入完成，文档数={}，分块数={}，插入请求数={}", documentCount, buffer.totalRows, buffer.requests);
+        return new BatchInsertChunksResponse(documentCount, buffer.totalRows, buffer.requests);
+    }
+
+    private void embedInto(InsertBuffer buffer, List<String> chunks, List<String> docIds) {
+        List<List<Float>> vectors = embeddingClient.embedBatch(chunks);
+        if (vectors.size() != chunks.size()) {
+            throw new IllegalStateException("embedding数量与分块数量不一致: " + vectors.size() + " != " + chunks.size());
+        }
+        for (int i = 0; i < chunks.size(); i++) {
+            buffer.add(chunks.get(i), vectors.get(i), docIds.get(i));
+        }
+        chunks.clear();
+        docIds.clear();
+    }
+
+    /**
+     * 累积待插入的行，估算大小达到上限时发送一次插入请求
+     */
+    private final class InsertBuffer {
+        private List<String> chunks = new ArrayList<>();
+        private List<List<Float>> vectors = new ArrayList<>();
+        private List<String> docIds = new ArrayList<>();
+        private long bytes;
+        private int totalRows;
+        private int requests;
+
+        private void add(String chunk, List<Float> vector, String docId) {
+            long rowBytes = (long) VECTOR_DIM * Float.BYTES
+                    + chunk.getBytes(StandardCharsets.UTF_8).length
+                    + (docId != null ? docId.length() : 0);
+            if (!chunks.isEmpty() && bytes + rowBytes > insertBatchBytes) {
+                flush();
+            }
+            chunks.add(chunk);
+            vectors.add(vector);
+            docIds.add(docId);
+            bytes += rowBytes;
+        }
+
+        private void flush() {
+            if (chunks.isEmpty()) {
+                return;
+            }
+            List<InsertParam.Field> fields = Arrays.asList(
+                new InsertParam.Field(TEXT_FIELD, chunks),
+                new InsertParam.Field(VECTOR_FIELD, vectors),
+                new InsertParam.Field(DOC_ID, docIds)
+            );
+            check(milvusClient.insert(InsertParam.newBuilder()
+                    .withCollectionName(COLLECTION)
+                    .withFields(fields)
+                    .build()), "批量插入分块");
+            log.debug("发送插入请求，行数={}，估算大小={}字节", chunks.size(), bytes);
+            totalRows += chunks.size();
+            requests++;
+            chunks = new ArrayList<>();
+            vectors = new ArrayList<>();
+            docIds = new ArrayList<>();
+            bytes = 0;
+        }
     }
 
     /**
@@ -153,32 +327,77 @@ public class ChunkMilvusService {
      */
     public List<String> searchSimilarChunks(String queryText, int topK) {
 
+        ensureReady();
         List<Float> queryEmbedding = embeddingClient.embedOne(queryText);
-        log.info(queryEmbedding.toString());
-        List<Float> vector = new ArrayList<>();
-        for (Float d : queryEmbedding) vector.add(d.floatValue());
+        log.debug("查询向量维度: {}", queryEmbedding.size());
 
+        List<String> hits = new ArrayList<>();
+        SearchResultsWrapper wrapper = search(Collections.singletonList(queryEmbedding), topK,
+                Collections.singletonList(TEXT_FIELD));
+        if (wrapper == null) return hits;
+        List<?> textList = wrapper.getFieldData(TEXT_FIELD, 0);
+        for (Object obj : textList) {
+            hits.add(obj != null ? obj.toString() : "");
+        }
+        return hits;
+    }
+
+    /**
+     * 批量检索：所有查询文本一次请求embedding，并在同一个SearchParam中检索（nq = 查询数）
+     *
+     * @param queryTexts 查询文本
+     * @param topK 每条查询返回的结果数
+     * @return 与查询顺序一致的命中列表
+     */
+    public List<List<ChunkHit>> searchSimilarChunksBatch(List<String> queryTexts, int topK) {
+
+        if (queryTexts == null || queryTexts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        ensureReady();
+        List<List<Float>> queryEmbeddings = embeddingClient.embedBatch(queryTexts);
+
+        SearchResultsWrapper wrapper = search(queryEmbeddings, topK, Arrays.asList(TEXT_FIELD, DOC_ID));
+        List<List<ChunkHit>> results = new ArrayList<>(queryTexts.size());
+        for (int i = 0; i < queryTexts.size(); i++) {
+            List<ChunkHit> hits = new ArrayList<>();
+            if (wrapper != null) {
+                List<SearchResultsWrapper.IDScore> scores = wrapper.getIDScore(i);
+                List<?> texts = wrapper.getFieldData(TEXT_FIELD, i);
+                List<?> docIds = wrapper.getFieldData(DOC_ID, i);
+                for (int j = 0; j < scores.size(); j++) {
+                    SearchResultsWrapper.IDScore score = scores.get(j);
+                    hits.add(new ChunkHit(score.getLongID(), score.getScore(),
+                            j < docIds.size() && docIds.get(j) != null ? docIds.get(j).toString() : null,
+                            j < texts.size() && texts.get(j) != null ? texts.get(j).toString() : ""));
+                }
+            }
+            results.add(hits);
+        }
+        return results;
+    }
+
+    /**
+     * 执行向量检索
+     *
+     * @return 检索结果，无数据时返回null
+     * @throws IllegalStateException 检索失败
+     */
+    private SearchResultsWrapper search(List<List<Float>> vectors, int topK, List<String> outFields) {
         SearchParam searchParam = SearchParam.newBuilder()
                 .withCollectionName(COLLECTION)
                 .withMetricType(MetricType.COSINE) // 余弦相似
 //                .withMetricType(MetricType.IP) // 点积
-                .withOutFields(Arrays.asList(TEXT_FIELD))
-                .withVectors(Collections.singletonList(vector))
+                .withOutFields(outFields)
+                .withVectors(vectors)
                 .withTopK(topK)
                 .withVectorFieldName(VECTOR_FIELD)
-                .withParams("{\"nprobe\":10}")
+                .withParams(SEARCH_PARAMS)
                 .build();
 
-        List<String> hits = new ArrayList<>();
-        R<SearchResults> resp = milvusClient.search(searchParam);
-        if(resp == null || resp.getData() == null) return hits;
-        SearchResultsWrapper wrapper = new SearchResultsWrapper(resp.getData().getResults());
-        List<?> textList = wrapper.getFieldData(TEXT_FIELD, 0);
-        for (Object obj : textList) {
-            hits.add(obj != null ? obj.toString() : "");
-        }
-        close();
-        return hits;
+        R<SearchResults> resp = check(milvusClient.search(searchParam), "检索");
+        if (resp.getData() == null) return null;
+        return new SearchResultsWrapper(resp.getData().getResults());
     }
 
     /**
@@ -193,10 +412,7 @@ public class ChunkMilvusService {
 
     // 可扩展批量删除、过滤删除等方法
 
-    // 关闭 Milvus 连接
-    public void close() {
-        milvusClient.close();
-    }
+    // Milvus 连接由容器管理，在应用关闭时断开（见 config_）
 
 
 
@@ -0,0 +1,62 @@
+package org.xue.milvus.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.xue.milvus.service.ChunkMilvusService;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ChunkMilvusControllerTest {
+
+    private ChunkMilvusService service;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        service = mock(ChunkMilvusService.class);
+        ChunkMilvusController controller = new ChunkMilvusController(service);
+        ReflectionTestUtils.setField(controller, "maxBatchQueries", 2);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void nonPositiveTopKIsRejected() throws Exception {
+        mockMvc.perform(post("/api/milvus/chunks/search").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"queryText\":\"q\",\"topK\":0}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/milvus/chunks/search/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"queryTexts\":[\"q\"],\"topK\":-1}"))
+                .andExpect(status().isBadRequest());
+
+        verify(service, never()).searchSimilarChunks(anyString(), anyInt());
+        verify(service, never()).searchSimilarChunksBatch(anyList(), anyInt());
+    }
+
+    @Test
+    void batchSearchCapsQueryCount() throws Exception {
+        when(service.searchSimilarChunksBatch(anyList(), anyInt())).thenReturn(List.of(List.of(), List.of()));
+
+        mockMvc.perform(post("/api/milvus/chunks/search/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"queryTexts\":[\"a\",\"b\",\"c\"],\"topK\":5}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/milvus/chunks/search/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"queryTexts\":[\"a\",\"b\"],\"topK\":5}"))
+                .andExpect(status().isOk());
+
+        verify(service).searchSimilarChunksBatch(List.of("a", "b"), 5);
+    }
+}
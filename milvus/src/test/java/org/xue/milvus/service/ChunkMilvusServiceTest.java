@@ -0,0 +1,114 @@
+package org.xue.milvus.service;
+
+import io.milvus.client.MilvusClient;
+import io.milvus.grpc.DescribeIndexResponse;
+import io.milvus.grpc.MutationResult;
+import io.milvus.param.R;
+import io.milvus.param.RpcStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xue.api.milvus.dto.BatchInsertChunksResponse;
+import org.xue.api.milvus.dto.InsertChunksRequest;
+import org.xue.milvus.embed.EmbeddingClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ChunkMilvusServiceTest {
+
+    private MilvusClient milvusClient;
+    private EmbeddingClient embeddingClient;
+
+    @BeforeEach
+    void setUp() {
+        milvusClient = mock(MilvusClient.class);
+        embeddingClient = mock(EmbeddingClient.class);
+        // 集合和索引均已存在
+        when(milvusClient.hasCollection(any())).thenReturn(R.success(true));
+        when(milvusClient.describeIndex(any())).thenReturn(R.success(DescribeIndexResponse.getDefaultInstance()));
+        when(milvusClient.loadCollection(any())).thenReturn(R.success(new RpcStatus(RpcStatus.SUCCESS_MSG)));
+        when(embeddingClient.embedBatch(anyList())).thenAnswer(invocation -> vectors(((List<?>) invocation.getArgument(0)).size()));
+    }
+
+    @Test
+    void failedBatchSearchThrowsInsteadOfReturningEmptyHits() {
+        when(milvusClient.search(any())).thenReturn(R.failed(R.Status.UnexpectedError, "collection not loaded"));
+        ChunkMilvusService service = new ChunkMilvusService(milvusClient, embeddingClient, 64, 16 * 1024 * 1024);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> service.searchSimilarChunksBatch(List.of("a", "b"), 5));
+
+        assertTrue(e.getMessage().startsWith("检索失败"));
+    }
+
+    @Test
+    void insertFailureReportsRowsAlreadyWritten() {
+        when(embeddingClient.split("doc-1")).thenReturn(List.of("a", "b"));
+        when(embeddingClient.split("doc-2")).thenReturn(List.of("c"));
+        when(milvusClient.insert(any()))
+                .thenReturn(R.success(MutationResult.getDefaultInstance()))
+                .thenReturn(R.failed(R.Status.UnexpectedError, "message larger than max"));
+        // 上限为1字节，每行单独发送一次插入请求
+        ChunkMilvusService service = new ChunkMilvusService(milvusClient, embeddingClient, 64, 1);
+
+        BatchInsertChunksResponse response = service.insertDocuments(List.of(
+                new InsertChunksRequest("doc-1", "d1"), new InsertChunksRequest("doc-2", "d2")));
+
+        assertEquals(2, response.getDocuments());
+        assertEquals(1, response.getChunks());
+        assertEquals(1, response.getInsertRequests());
+        assertTrue(response.getError().contains("批量插入分块失败"));
+        verify(milvusClient, times(2)).insert(any());
+    }
+
+    @Test
+    void insertGroupsRowsUpToByteLimit() {
+        when(embeddingClient.split("doc-1")).thenReturn(List.of("a", "b", "c"));
+        when(milvusClient.insert(any())).thenReturn(R.success(MutationResult.getDefaultInstance()));
+        ChunkMilvusService service = new ChunkMilvusService(milvusClient, embeddingClient, 2, 16 * 1024 * 1024);
+
+        BatchInsertChunksResponse response = service.insertDocuments(List.of(new InsertChunksRequest("doc-1", "d1")));
+
+        assertEquals(3, response.getChunks());
+        assertEquals(1, response.getInsertRequests());
+        assertNull(response.getError());
+        // 按embedding批大小分两次请求向量
+        verify(embeddingClient, times(2)).embedBatch(anyList());
+    }
+
+    @Test
+    void readinessIsRetriedAfterStartupFailure() {
+        when(milvusClient.hasCollection(any()))
+                .thenThrow(new IllegalStateException("UNAVAILABLE: io exception"))
+                .thenReturn(R.success(true));
+        ChunkMilvusService service = new ChunkMilvusService(milvusClient, embeddingClient, 64, 16 * 1024 * 1024);
+
+        // 启动时Milvus不可用只记录警告
+        service.init();
+        service.ensureReady();
+        service.ensureReady();
+
+        verify(milvusClient, times(2)).hasCollection(any());
+        verify(milvusClient, times(1)).loadCollection(any());
+    }
+
+    private static List<List<Float>> vectors(int count) {
+        List<List<Float>> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            vectors.add(Collections.nCopies(768, 0.1f));
+        }
+        return vectors;
+    }
+}